@@ -0,0 +1,274 @@
+package com.schoolevents.adapter.in.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.port.out.EventRepositoryPort;
+import com.schoolevents.infrastructure.security.AesEncryptionUtil;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Embedded HTTP server answering event queries straight from the repository.
+ *
+ * <ul>
+ * <li>{@code GET /events?from=&to=&status=} - events overlapping the window
+ * (dates as {@code yyyy-MM-dd} or ISO date-times), optionally filtered by a
+ * comma-separated status list.</li>
+ * <li>{@code GET /events.json} - all events, a drop-in for the exported
+ * file.</li>
+ * </ul>
+ *
+ * Rendered responses are cached per query for a short TTL together with their
+ * gzip form and ETag, so repeated polling costs a map lookup and conditional
+ * requests get a 304. When a password is configured every body is encrypted in
+ * the {@code v1|salt|iv|ciphertext} format understood by {@code ui/src/crypto.js}.
+ * Requests are served on virtual threads.
+ */
+public class EventQueryServer {
+
+    private static final int MAX_CACHED_RESPONSES = 256;
+
+    private final EventRepositoryPort eventRepository;
+    private final String encryptionPassword;
+    private final long cacheTtlNanos;
+    private final ObjectMapper objectMapper;
+    private final Map<String, CachedResponse> cache = new ConcurrentHashMap<>();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private record CachedResponse(byte[] body, byte[] gzipped, String etag, String contentType, long createdAt) {
+    }
+
+    public EventQueryServer(EventRepositoryPort eventRepository, int port, String encryptionPassword,
+            Duration cacheTtl) throws IOException {
+        this.eventRepository = eventRepository;
+        this.encryptionPassword = encryptionPassword != null && !encryptionPassword.isBlank() ? encryptionPassword
+                : null;
+        this.cacheTtlNanos = cacheTtl.toNanos();
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server.setExecutor(executor);
+        this.server.createContext("/events", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Drops all cached responses, e.g. after a processing run changed the store.
+     */
+    public void invalidate() {
+        cache.clear();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                sendEmpty(exchange, 405);
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            if (!path.equals("/events") && !path.equals("/events.json")) {
+                sendEmpty(exchange, 404);
+                return;
+            }
+
+            String query = path.equals("/events.json") ? "" : exchange.getRequestURI().getRawQuery();
+            CachedResponse response;
+            try {
+                response = cachedResponse(query == null ? "" : query);
+            } catch (IllegalArgumentException e) {
+                byte[] message = e.getMessage().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(400, message.length);
+                exchange.getResponseBody().write(message);
+                return;
+            }
+
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("ETag", response.etag());
+            headers.set("Cache-Control", "no-cache");
+            headers.set("Vary", "Accept-Encoding");
+
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            if (ifNoneMatch != null && Arrays.stream(ifNoneMatch.split(","))
+                    .map(String::trim)
+                    .anyMatch(tag -> tag.equals(response.etag()) || tag.equals("*"))) {
+                sendEmpty(exchange, 304);
+                return;
+            }
+
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+            byte[] body = gzip ? response.gzipped() : response.body();
+
+            headers.set("Content-Type", response.contentType());
+            if (gzip) {
+                headers.set("Content-Encoding", "gzip");
+            }
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private CachedResponse cachedResponse(String rawQuery) {
+        Map<String, String> params = parseQuery(rawQuery);
+        // Normalized key so equivalent queries share one entry
+        String key = params.getOrDefault("from", "") + "|" + params.getOrDefault("to", "") + "|"
+                + params.getOrDefault("status", "").toUpperCase(Locale.ROOT);
+
+        long now = System.nanoTime();
+        CachedResponse cached = cache.get(key);
+        if (cached != null && now - cached.createdAt() < cacheTtlNanos) {
+            return cached;
+        }
+
+        CachedResponse fresh = render(params, now);
+        if (cache.size() >= MAX_CACHED_RESPONSES) {
+            cache.clear();
+        }
+        cache.put(key, fresh);
+        return fresh;
+    }
+
+    private CachedResponse render(Map<String, String> params, long now) {
+        LocalDateTime from = parseBound(params.get("from"), "from");
+        LocalDateTime to = parseBound(params.get("to"), "to");
+        Set<Event.Status> statuses = parseStatuses(params.get("status"));
+
+        List<Event> events;
+        if (from == null && to == null) {
+            events = eventRepository.findAll();
+        } else {
+            events = eventRepository.findOverlapping(
+                    from != null ? from : LocalDateTime.of(1970, 1, 1, 0, 0),
+                    to != null ? to : LocalDateTime.of(9999, 1, 1, 0, 0));
+        }
+        if (statuses != null) {
+            events = events.stream().filter(e -> statuses.contains(e.status())).toList();
+        }
+
+        try {
+            String json = objectMapper.writeValueAsString(events);
+            String etag = "\"" + HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(json.getBytes(StandardCharsets.UTF_8)), 0, 16)
+                    + "\"";
+
+            byte[] body;
+            String contentType;
+            if (encryptionPassword != null) {
+                body = AesEncryptionUtil.encrypt(json, encryptionPassword).getBytes(StandardCharsets.UTF_8);
+                contentType = "text/plain; charset=utf-8";
+            } else {
+                body = json.getBytes(StandardCharsets.UTF_8);
+                contentType = "application/json";
+            }
+            return new CachedResponse(body, gzip(body), etag, contentType, now);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to render events response", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8).trim());
+            }
+        }
+        return params;
+    }
+
+    private static LocalDateTime parseBound(String value, String name) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return value.length() == 10 ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid '" + name + "' (expected yyyy-MM-dd or ISO date-time): "
+                    + value);
+        }
+    }
+
+    private static Set<Event.Status> parseStatuses(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        Set<Event.Status> statuses = EnumSet.noneOf(Event.Status.class);
+        for (String s : value.split(",")) {
+            try {
+                statuses.add(Event.Status.valueOf(s.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown status: " + s);
+            }
+        }
+        return statuses;
+    }
+}
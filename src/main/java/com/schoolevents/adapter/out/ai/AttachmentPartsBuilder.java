@@ -0,0 +1,173 @@
+package com.schoolevents.adapter.out.ai;
+
+import com.schoolevents.domain.model.CachedAttachment;
+import com.schoolevents.domain.model.EmailMessage;
+import com.schoolevents.domain.port.out.AttachmentCachePort;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Builds the request parts for the PDF attachments of a batch. Attachments are
+ * fingerprinted by content hash so the same file forwarded in several emails
+ * is sent once. PDFs with a text layer are returned as text for the prompt,
+ * as long as the batch's attachment text budget allows; image-only PDFs and
+ * text that does not fit become binary parts, so no attachment is cut short. With a cache, binary files are
+ * referenced through a previously uploaded File API handle, and files already
+ * extracted in an earlier run are left out entirely.
+ */
+class AttachmentPartsBuilder {
+
+    // Re-upload when a handle is this close to expiring
+    private static final long EXPIRY_MARGIN_MINUTES = 30;
+    // Attachment text per request, on top of the email bodies' budget
+    static final int DEFAULT_TEXT_TOKEN_BUDGET = 8000;
+
+    private final AttachmentCachePort cache;
+    private final GeminiFileClient fileClient;
+    private final boolean skipExtracted;
+    private final PdfTextExtractor pdfTextExtractor;
+    private final int textTokenBudget;
+
+    record Result(List<Object> parts, Map<String, String> emailIdByHash, Map<String, List<String>> textByEmailId,
+            long inlineBytes) {
+    }
+
+    AttachmentPartsBuilder(AttachmentCachePort cache, GeminiFileClient fileClient, boolean skipExtracted) {
+        this(cache, fileClient, skipExtracted, null);
+    }
+
+    AttachmentPartsBuilder(AttachmentCachePort cache, GeminiFileClient fileClient, boolean skipExtracted,
+            PdfTextExtractor pdfTextExtractor) {
+        this(cache, fileClient, skipExtracted, pdfTextExtractor, DEFAULT_TEXT_TOKEN_BUDGET);
+    }
+
+    AttachmentPartsBuilder(AttachmentCachePort cache, GeminiFileClient fileClient, boolean skipExtracted,
+            PdfTextExtractor pdfTextExtractor, int textTokenBudget) {
+        this.cache = cache;
+        this.fileClient = fileClient;
+        this.skipExtracted = skipExtracted;
+        this.pdfTextExtractor = pdfTextExtractor;
+        this.textTokenBudget = textTokenBudget;
+    }
+
+    Result build(List<EmailMessage> emails) {
+        List<Object> parts = new ArrayList<>();
+        Map<String, String> emailIdByHash = new LinkedHashMap<>();
+        Map<String, List<String>> textByEmailId = new LinkedHashMap<>();
+        long inlineBytes = 0;
+        int textTokens = 0;
+        LocalDateTime validUntil = LocalDateTime.now().plusMinutes(EXPIRY_MARGIN_MINUTES);
+
+        // 1. Select the distinct PDFs that still need to be sent
+        Map<String, EmailMessage.AttachmentMetadata> pending = new LinkedHashMap<>();
+        Map<String, Optional<CachedAttachment>> cachedByHash = new HashMap<>();
+        for (EmailMessage email : emails) {
+            for (EmailMessage.AttachmentMetadata att : email.attachments()) {
+                if (!isPdf(att)) {
+                    continue;
+                }
+                String hash = sha256Hex(att.data());
+                if (emailIdByHash.containsKey(hash)) {
+                    System.out.println(" - Skipping duplicate attachment in batch: " + att.fileName());
+                    continue;
+                }
+
+                Optional<CachedAttachment> cached = cache != null ? cache.find(hash) : Optional.empty();
+                if (skipExtracted && cached.isPresent() && cached.get().isExtracted()) {
+                    System.out.println(" - Skipping attachment already extracted from "
+                            + cached.get().extractedFromEmailId() + ": " + att.fileName());
+                    continue;
+                }
+                emailIdByHash.put(hash, email.id());
+                pending.put(hash, att);
+                cachedByHash.put(hash, cached);
+            }
+        }
+
+        // 2. Read text layers locally, in parallel
+        Map<String, Optional<String>> texts = pdfTextExtractor != null
+                ? pdfTextExtractor.extractAll(pending.entrySet().stream()
+                        .map(e -> new PdfTextExtractor.PdfInput(e.getKey(), e.getValue().data()))
+                        .toList())
+                : Map.of();
+
+        // 3. Text goes into the prompt; only image-only PDFs are sent as files
+        for (Map.Entry<String, EmailMessage.AttachmentMetadata> entry : pending.entrySet()) {
+            String hash = entry.getKey();
+            EmailMessage.AttachmentMetadata att = entry.getValue();
+
+            Optional<String> text = texts.getOrDefault(hash, Optional.empty());
+            if (text.isPresent()) {
+                String section = "Attachment " + att.fileName() + ":\n" + text.get();
+                int tokens = PromptPreprocessor.estimateTokens(section);
+                if (textTokens + tokens <= textTokenBudget) {
+                    textByEmailId.computeIfAbsent(emailIdByHash.get(hash), id -> new ArrayList<>()).add(section);
+                    textTokens += tokens;
+                    continue;
+                }
+                System.out.println(" - Attachment text too long for the prompt, sending the PDF: " + att.fileName());
+            }
+
+            String fileUri = cachedByHash.get(hash).filter(c -> c.hasValidUpload(validUntil))
+                    .map(CachedAttachment::fileUri)
+                    .orElseGet(() -> upload(hash, att));
+            if (fileUri != null) {
+                parts.add(Map.of("file_data", Map.of("mime_type", "application/pdf", "file_uri", fileUri)));
+            } else {
+                parts.add(Map.of("inline_data", Map.of("mime_type", "application/pdf",
+                        "data", Base64.getEncoder().encodeToString(att.data()))));
+                inlineBytes += att.data().length;
+            }
+        }
+        return new Result(parts, emailIdByHash, textByEmailId, inlineBytes);
+    }
+
+    void markExtracted(String contentHash, String emailId) {
+        if (cache != null) {
+            cache.markExtracted(contentHash, emailId);
+        }
+    }
+
+    private String upload(String hash, EmailMessage.AttachmentMetadata att) {
+        if (fileClient == null) {
+            return null;
+        }
+        try {
+            GeminiFileClient.UploadedFile uploaded = fileClient.upload("application/pdf", att.data());
+            if (cache != null) {
+                cache.saveUpload(hash, uploaded.uri(), uploaded.expiresAt());
+            }
+            System.out.println(" - Uploaded attachment " + att.fileName() + " -> " + uploaded.uri());
+            return uploaded.uri();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            System.err.println("File upload failed for " + att.fileName() + ", sending inline: " + e.getMessage());
+            return null;
+        }
+    }
+
+    static boolean isPdf(EmailMessage.AttachmentMetadata att) {
+        return att.mimeType() != null && att.mimeType().toLowerCase().startsWith("application/pdf")
+                && att.data() != null;
+    }
+
+    static String sha256Hex(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
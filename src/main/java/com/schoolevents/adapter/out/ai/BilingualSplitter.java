@@ -0,0 +1,231 @@
+package com.schoolevents.adapter.out.ai;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Drops the mirrored half of Welsh/English bilingual emails so the prompt
+ * carries the content once. Paragraphs (or, inside a paragraph that mixes
+ * both languages, lines) are labelled by stopword profile; a section in the
+ * other language is only dropped when it aligns with a section in the kept
+ * language: mostly the same numbers (dates, times, prices), or, with no
+ * numbers on either side, a similar length and a neighbour that aligned on
+ * numbers with the kept section's neighbour on the same side. Anything said
+ * in only one language is kept, as are emails in one language.
+ */
+public class BilingualSplitter {
+
+    public enum Language {
+        ENGLISH, WELSH
+    }
+
+    private enum Label {
+        ENGLISH, WELSH, MIXED, NEUTRAL
+    }
+
+    // Words that are common in one language and rare in the other; words both
+    // share ("a", "i", "am") are left out
+    private static final Set<String> WELSH_STOPWORDS = Set.of(
+            "ac", "ar", "y", "yr", "yn", "gyda", "mae", "bydd", "ein", "eich", "ni", "chi", "eu", "hyn", "hwn",
+            "hon", "gyfer", "dydd", "wedi", "fydd", "gan", "fel", "neu", "nid", "dim", "plant", "rhieni", "ysgol",
+            "diolch", "annwyl", "os", "pob", "sydd", "hefyd", "i'r", "o'r", "a'r", "mewn", "cael", "gael", "bod",
+            "fod", "blwyddyn", "dosbarth", "cofion", "yw", "ydy", "fe", "dyma", "nesaf", "gall", "byddwn",
+            "diwrnod", "noson", "taith", "gwasanaeth", "cyngerdd", "gwyliau", "tymor", "clwb", "wythnos");
+    private static final Set<String> ENGLISH_STOPWORDS = Set.of(
+            "the", "and", "of", "to", "in", "for", "on", "at", "is", "are", "will", "be", "with", "your", "our",
+            "we", "you", "this", "that", "please", "from", "by", "as", "have", "has", "all", "it", "not", "can",
+            "if", "children", "parents", "school", "thank", "dear", "year", "class", "regards", "next", "there",
+            "day", "evening", "trip", "assembly", "concert", "holiday", "term", "club", "week");
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}']+");
+    // A date, time or plain number, e.g. "12.03.2026", "9:30", "3"
+    private static final Pattern NUMBER = Pattern.compile("\\d+(?:[./:-]\\d+)*");
+    private static final int MIN_STOPWORDS = 2;
+    private static final double DOMINANT_SHARE = 0.7;
+    private static final double MIN_ANCHOR_OVERLAP = 0.5;
+    private static final double MAX_LENGTH_RATIO = 2.0;
+
+    private final Language keep;
+
+    public BilingualSplitter(Language keep) {
+        this.keep = keep;
+    }
+
+    /**
+     * Parses {@code PROMPT_LANGUAGE}: {@code en} or {@code cy} keep that
+     * language; anything else (e.g. {@code both}) disables splitting.
+     */
+    public static BilingualSplitter forSetting(String setting) {
+        if (setting == null) {
+            return null;
+        }
+        return switch (setting.trim().toLowerCase()) {
+            case "en", "english" -> new BilingualSplitter(Language.ENGLISH);
+            case "cy", "welsh", "cymraeg" -> new BilingualSplitter(Language.WELSH);
+            default -> null;
+        };
+    }
+
+    /** The paragraphs with mirrored sections in the other language removed, in order. */
+    public List<String> keepOneLanguage(List<String> paragraphs) {
+        List<Label> labels = new ArrayList<>(paragraphs.size());
+        for (String paragraph : paragraphs) {
+            labels.add(label(paragraph, MIN_STOPWORDS));
+        }
+
+        Set<Integer> dropped = labels.contains(Label.ENGLISH) && labels.contains(Label.WELSH)
+                ? mirrored(paragraphs, labels)
+                : Set.of();
+        List<String> result = new ArrayList<>(paragraphs.size());
+        for (int i = 0; i < paragraphs.size(); i++) {
+            if (!dropped.contains(i)) {
+                result.add(labels.get(i) == Label.MIXED ? keepOneLanguage(paragraphs.get(i)) : paragraphs.get(i));
+            }
+        }
+        return result;
+    }
+
+    /** Applies the same alignment to the lines of a paragraph mixing both languages. */
+    private String keepOneLanguage(String paragraph) {
+        List<String> lines = List.of(paragraph.split("\n"));
+        if (lines.size() < 2) {
+            return paragraph;
+        }
+        List<Label> labels = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            // A single line is short; one telling word is enough
+            labels.add(label(line, 1));
+        }
+        Set<Integer> dropped = mirrored(lines, labels);
+        List<String> kept = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            if (!dropped.contains(i)) {
+                kept.add(lines.get(i));
+            }
+        }
+        return String.join("\n", kept);
+    }
+
+    /**
+     * Indexes of other-language sections that align with a kept-language
+     * section. Sections with numbers are aligned first; one without numbers
+     * then only mirrors a section whose neighbour is aligned with its own
+     * neighbour on the same side, so a notice given only in the other
+     * language is not dropped just for being about as long as some greeting.
+     */
+    private Set<Integer> mirrored(List<String> sections, List<Label> labels) {
+        Label kept = keep == Language.ENGLISH ? Label.ENGLISH : Label.WELSH;
+        Label other = keep == Language.ENGLISH ? Label.WELSH : Label.ENGLISH;
+        List<Integer> keptIndexes = new ArrayList<>();
+        List<Integer> otherIndexes = new ArrayList<>();
+        for (int i = 0; i < sections.size(); i++) {
+            if (labels.get(i) == kept) {
+                keptIndexes.add(i);
+            } else if (labels.get(i) == other) {
+                otherIndexes.add(i);
+            }
+        }
+
+        Map<Integer, Integer> byNumbers = align(keptIndexes, otherIndexes,
+                (k, o) -> sharesAnchors(sections.get(k), sections.get(o)));
+        return align(keptIndexes, otherIndexes, (k, o) -> sharesAnchors(sections.get(k), sections.get(o))
+                || similarWithoutNumbers(sections.get(k), sections.get(o))
+                        && (Integer.valueOf(k - 1).equals(byNumbers.get(o - 1))
+                                || Integer.valueOf(k + 1).equals(byNumbers.get(o + 1))))
+                .keySet();
+    }
+
+    /**
+     * Other-language index to the kept-language index it mirrors. Alignment is
+     * monotone: each kept section mirrors at most one other section, and
+     * matches never cross.
+     */
+    private static Map<Integer, Integer> align(List<Integer> keptIndexes, List<Integer> otherIndexes,
+            BiPredicate<Integer, Integer> mirrors) {
+        Map<Integer, Integer> aligned = new HashMap<>();
+        int next = 0;
+        for (int o : otherIndexes) {
+            for (int k = next; k < keptIndexes.size(); k++) {
+                if (mirrors.test(keptIndexes.get(k), o)) {
+                    aligned.put(o, keptIndexes.get(k));
+                    next = k + 1;
+                    break;
+                }
+            }
+        }
+        return aligned;
+    }
+
+    static boolean sharesAnchors(String a, String b) {
+        List<String> anchorsA = anchors(a);
+        List<String> anchorsB = anchors(b);
+        if (anchorsA.isEmpty() || anchorsB.isEmpty()) {
+            return false;
+        }
+        Set<String> union = new HashSet<>(anchorsA);
+        union.addAll(anchorsB);
+        Set<String> shared = new HashSet<>(anchorsA);
+        shared.retainAll(anchorsB);
+        return (double) shared.size() / union.size() >= MIN_ANCHOR_OVERLAP;
+    }
+
+    private static boolean similarWithoutNumbers(String a, String b) {
+        if (!anchors(a).isEmpty() || !anchors(b).isEmpty()) {
+            return false;
+        }
+        double ratio = (double) Math.max(a.length(), b.length()) / Math.max(1, Math.min(a.length(), b.length()));
+        return ratio <= MAX_LENGTH_RATIO;
+    }
+
+    /**
+     * Numbers with their parts normalized (no leading zeros, one separator),
+     * so "09:30" and "9.30yb" or "12.03.2026" and "12/3/2026" agree.
+     */
+    private static List<String> anchors(String text) {
+        List<String> anchors = new ArrayList<>();
+        Matcher m = NUMBER.matcher(text);
+        while (m.find()) {
+            StringBuilder anchor = new StringBuilder();
+            for (String part : m.group().split("[./:-]")) {
+                if (anchor.length() > 0) {
+                    anchor.append('.');
+                }
+                anchor.append(part.replaceFirst("^0+(?=\\d)", ""));
+            }
+            anchors.add(anchor.toString());
+        }
+        return anchors;
+    }
+
+    private static Label label(String text, int minStopwords) {
+        int welsh = 0;
+        int english = 0;
+        Matcher m = WORD.matcher(text.toLowerCase());
+        while (m.find()) {
+            String word = m.group();
+            if (WELSH_STOPWORDS.contains(word) || word.indexOf('ŵ') >= 0 || word.indexOf('ŷ') >= 0) {
+                welsh++;
+            } else if (ENGLISH_STOPWORDS.contains(word)) {
+                english++;
+            }
+        }
+        int total = welsh + english;
+        if (total < minStopwords) {
+            return Label.NEUTRAL;
+        }
+        if (welsh >= DOMINANT_SHARE * total) {
+            return Label.WELSH;
+        }
+        if (english >= DOMINANT_SHARE * total) {
+            return Label.ENGLISH;
+        }
+        return Label.MIXED;
+    }
+}
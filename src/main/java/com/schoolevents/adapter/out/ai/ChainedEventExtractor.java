@@ -0,0 +1,55 @@
+package com.schoolevents.adapter.out.ai;
+
+import com.schoolevents.domain.model.EmailMessage;
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.port.out.AiEventExtractorPort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Runs the rule-based extractor first and only forwards the emails it cannot
+ * handle with confidence to the AI extractor behind it.
+ */
+public class ChainedEventExtractor implements AiEventExtractorPort {
+
+    private final RuleBasedEventExtractor rules;
+    private final AiEventExtractorPort fallback;
+
+    public ChainedEventExtractor(RuleBasedEventExtractor rules, AiEventExtractorPort fallback) {
+        this.rules = rules;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public List<Event> extractEvents(List<EmailMessage> emails) {
+        List<Event> events = new ArrayList<>();
+        List<EmailMessage> remaining = new ArrayList<>();
+
+        for (EmailMessage email : emails) {
+            Optional<List<Event>> local = rules.tryExtract(email);
+            if (local.isPresent()) {
+                System.out.println(" - Extracted " + local.get().size() + " events locally from: " + email.subject());
+                events.addAll(local.get());
+            } else {
+                remaining.add(email);
+            }
+        }
+
+        if (!remaining.isEmpty()) {
+            events.addAll(fallback.extractEvents(remaining));
+        }
+        return events;
+    }
+
+    @Override
+    public boolean requiresModel(EmailMessage email) {
+        return rules.tryExtract(email).isEmpty() && fallback.requiresModel(email);
+    }
+
+    @Override
+    public void confirmProcessed(List<EmailMessage> emails) {
+        fallback.confirmProcessed(emails);
+    }
+}
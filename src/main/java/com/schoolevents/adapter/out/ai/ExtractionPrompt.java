@@ -0,0 +1,255 @@
+package com.schoolevents.adapter.out.ai;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.schoolevents.domain.model.EmailMessage;
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.service.EventIds;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The extraction prompt and the parsing of its JSON answer, shared by every
+ * LLM provider so they all see the same instructions and produce the same
+ * events.
+ */
+final class ExtractionPrompt {
+
+    // Shared by both answer formats
+    private static final String RULES = """
+            IMPORTANT INSTRUCTIONS:
+            - If an event covers a date range (e.g., '16.2.26 - 20.2.26'), set startDate to the first day and endDate to the last day.
+            - RECURRING EVENTS: You MUST identify recurring patterns mentioned in the text (e.g., 'every Tuesday', 'weekly on Mondays').
+            - For each such pattern, expand it into individual event instances starting from the current date until August 1st 2026.
+            - For these expanded instances, set 'isRecurring' to true.
+            - If an event is specifically marked as a one-off in the text, do not repeat it.
+            """;
+
+    static final String INSTRUCTIONS = """
+            Extract school events from the emails provided.
+            Return ONLY a raw JSON array of objects. Do not include markdown formatting.
+
+            JSON Format:
+            [{"emailId": "String (exactly the ID of the source email)", "title": "String",
+              "startDate": "ISO-8601 DateTime (yyyy-MM-ddTHH:mm:ss)",
+              "endDate": "ISO-8601 DateTime (crucial for multi-day events like 'Half Term')",
+              "allDay": boolean, "notes": "String", "confidence": Double (0.0-1.0),
+              "status": "SCHEDULED", "isRecurring": boolean}]
+
+            """ + RULES + """
+            - Ensure the 'emailId' property in the JSON matches the 'ID' field provided in the input exactly.
+            """;
+
+    /**
+     * Instructions for structured output, where the response schema fixes the
+     * shape and short keys keep the (latency-dominating) output tokens down.
+     */
+    static final String COMPACT_INSTRUCTIONS = """
+            Extract school events from the emails provided, as an array matching the response schema.
+
+            Keys: e = the source email's Index (a number, never its ID), t = title,
+            d = start date (yyyy-MM-dd), s = start time (HH:mm; omit for all-day events),
+            ed = last day of a multi-day event like 'Half Term' (yyyy-MM-dd), et = end time (HH:mm),
+            n = notes (omit when there are none), c = confidence (0.0-1.0),
+            x = "C" if the event is cancelled (omit otherwise), r = true for instances of a recurring event.
+            Omit any key that would be empty, null or false.
+
+            """ + RULES.replace("startDate", "d").replace("endDate", "ed").replace("'isRecurring'", "'r'");
+
+    /**
+     * Response schema for structured output (Gemini's OpenAPI subset). Only the
+     * email index, title and start date are required. Kept as text so the
+     * request body is byte-for-byte stable between runs.
+     */
+    static final String COMPACT_SCHEMA = """
+            {"type": "ARRAY", "items": {"type": "OBJECT", "properties": {
+              "e": {"type": "INTEGER"}, "t": {"type": "STRING"}, "d": {"type": "STRING"},
+              "s": {"type": "STRING"}, "ed": {"type": "STRING"}, "et": {"type": "STRING"},
+              "n": {"type": "STRING"}, "c": {"type": "NUMBER"},
+              "x": {"type": "STRING", "enum": ["C"]}, "r": {"type": "BOOLEAN"}},
+              "required": ["e", "t", "d"],
+              "propertyOrdering": ["e", "t", "d", "s", "ed", "et", "n", "c", "x", "r"]}}
+            """;
+
+    private ExtractionPrompt() {
+    }
+
+    static String buildPrompt(PromptPreprocessor preprocessor, List<EmailMessage> emails,
+            Map<String, List<String>> attachmentTextByEmailId) {
+        return buildPrompt(preprocessor, emails, attachmentTextByEmailId, false);
+    }
+
+    /**
+     * With {@code indexed}, each email also carries its position in
+     * {@code emails}, which compact answers refer to instead of the ID.
+     */
+    static String buildPrompt(PromptPreprocessor preprocessor, List<EmailMessage> emails,
+            Map<String, List<String>> attachmentTextByEmailId, boolean indexed) {
+        Map<String, Integer> indexById = new HashMap<>();
+        for (int i = 0; i < emails.size(); i++) {
+            indexById.putIfAbsent(emails.get(i).id(), i);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (PromptPreprocessor.PreparedEmail prepared : preprocessor.prepare(emails, attachmentTextByEmailId)) {
+            sb.append("--- Email Start ---\n");
+            if (indexed) {
+                sb.append("Index: ").append(indexById.get(prepared.email().id())).append("\n");
+            }
+            sb.append("ID: ").append(prepared.email().id()).append("\n");
+            sb.append("Subject: ").append(prepared.email().subject()).append("\n");
+            sb.append("Body: ").append(prepared.body()).append("\n");
+            sb.append("--- Email End ---\n\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parses the model's answer (a JSON array, possibly wrapped in markdown
+     * fences) into events attributed to their source emails.
+     */
+    static List<Event> parseEvents(ObjectMapper objectMapper, String text, List<EmailMessage> sourceEmails)
+            throws IOException {
+        Map<String, EmailMessage> emailMap = sourceEmails.stream()
+                .collect(Collectors.toMap(EmailMessage::id, e -> e, (a, b) -> a));
+        text = text.replace("```json", "").replace("```", "").trim();
+
+        List<EventDto> dtos = objectMapper.readValue(text, new TypeReference<List<EventDto>>() {
+        });
+
+        return dtos.stream().map(dto -> {
+            EmailMessage email = emailMap.get(dto.emailId);
+
+            // Defensive: Try matching without brackets if first attempt fails
+            if (email == null && dto.emailId != null) {
+                String unbracketed = dto.emailId.replace("<", "").replace(">", "");
+                email = sourceEmails.stream()
+                        .filter(e -> e.id().replace("<", "").replace(">", "").equals(unbracketed))
+                        .findFirst().orElse(null);
+            }
+
+            String title = dto.title != null ? dto.title : "Untitled Event";
+            String sourceEmailId = email != null ? email.id() : dto.emailId;
+            return new Event(
+                    EventIds.of(title, dto.startDate, sourceEmailId),
+                    title,
+                    dto.startDate,
+                    dto.endDate,
+                    dto.allDay,
+                    dto.notes,
+                    dto.confidence,
+                    dto.status != null ? dto.status : Event.Status.ACTIVE,
+                    dto.isRecurring,
+                    sourceEmailId,
+                    email != null ? email.subject() : "Unknown Source",
+                    email != null ? email.receivedAt() : null);
+        }).toList();
+    }
+
+    /**
+     * Parses and validates a structured-output answer in the compact format.
+     * Items with an out-of-range email index, no title, or unparseable dates
+     * are dropped (and counted in the log) rather than failing the batch.
+     */
+    static List<Event> parseCompactEvents(ObjectMapper objectMapper, String text, List<EmailMessage> sourceEmails)
+            throws IOException {
+        JsonNode root = objectMapper.readTree(text);
+        if (!root.isArray()) {
+            throw new IOException("Expected a JSON array but got " + root.getNodeType());
+        }
+        List<Event> events = new ArrayList<>(root.size());
+        int rejected = 0;
+        for (JsonNode item : root) {
+            Event event = compactEvent(item, sourceEmails);
+            if (event != null) {
+                events.add(event);
+            } else {
+                rejected++;
+            }
+        }
+        if (rejected > 0) {
+            System.err.println("Dropped " + rejected + " invalid event(s) from structured response.");
+        }
+        return events;
+    }
+
+    private static Event compactEvent(JsonNode item, List<EmailMessage> sourceEmails) {
+        JsonNode index = item.path("e");
+        if (!index.canConvertToInt() || index.asInt() < 0 || index.asInt() >= sourceEmails.size()) {
+            return null;
+        }
+        String title = field(item, "t");
+        String day = field(item, "d");
+        if (title == null || day == null) {
+            return null;
+        }
+        try {
+            LocalDate startDay = LocalDate.parse(day);
+            String startTime = field(item, "s");
+            boolean allDay = startTime == null;
+            LocalTime time = allDay ? LocalTime.MIDNIGHT : LocalTime.parse(startTime);
+            LocalDateTime start = startDay.atTime(time);
+
+            String endDay = field(item, "ed");
+            String endTime = field(item, "et");
+            LocalDateTime end = null;
+            if (endDay != null || endTime != null) {
+                end = (endDay != null ? LocalDate.parse(endDay) : startDay)
+                        .atTime(endTime != null ? LocalTime.parse(endTime) : time);
+                if (end.isBefore(start)) {
+                    return null;
+                }
+            }
+
+            double confidence = item.path("c").isNumber() ? Math.max(0, Math.min(1, item.path("c").asDouble()))
+                    : 1.0;
+            EmailMessage email = sourceEmails.get(index.asInt());
+            return new Event(
+                    EventIds.of(title, start, email.id()),
+                    title,
+                    start,
+                    end,
+                    allDay,
+                    field(item, "n"),
+                    confidence,
+                    "C".equals(field(item, "x")) ? Event.Status.CANCELLED : Event.Status.SCHEDULED,
+                    item.path("r").asBoolean(false),
+                    email.id(),
+                    email.subject(),
+                    email.receivedAt());
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static String field(JsonNode item, String key) {
+        JsonNode value = item.get(key);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        String text = value.asText().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    // Checking DTO for Parsing
+    private static class EventDto {
+        public String title;
+        public LocalDateTime startDate;
+        public LocalDateTime endDate;
+        public boolean allDay;
+        public String notes;
+        public Double confidence;
+        public Event.Status status;
+        public String emailId;
+        public boolean isRecurring;
+    }
+}
@@ -1,43 +1,139 @@
 package com.schoolevents.adapter.out.ai;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.schoolevents.domain.model.EmailMessage;
 import com.schoolevents.domain.model.Event;
 import com.schoolevents.domain.port.out.AiEventExtractorPort;
+import com.schoolevents.domain.port.out.AttachmentCachePort;
+import com.schoolevents.domain.port.out.QuotaLedgerPort;
 import com.schoolevents.domain.exception.QuotaExhaustedException;
 
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.LocalDateTime;
-import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class GeminiAiAdapter implements AiEventExtractorPort {
 
-    private static final String GEMINI_URL = "https://generativelanguage.googleapis.com/v1beta/models/gemini-flash-latest:generateContent";
+    public static final String DEFAULT_BASE_URL = "https://generativelanguage.googleapis.com";
+    public static final String DEFAULT_MODEL = "gemini-flash-latest";
+    private final String baseUrl;
+    private final String generateContentUrl;
     private final String apiKey;
     private final boolean enabled;
-    private final HttpClient httpClient;
+    private final GeminiHttpTransport transport;
     private final ObjectMapper objectMapper;
-    private final AtomicInteger requestCount = new AtomicInteger(0);
-    private final int MAX_REQUESTS_PER_RUN = 15; // Limit to 15 to stay within safe bounds of daily/minute quotas
+    private long batchGapMillis = 2000;
+    private QuotaLedgerPort quotaLedger;
+    private final PromptPreprocessor promptPreprocessor;
+    private final PdfTextExtractor pdfTextExtractor = new PdfTextExtractor();
+    private AttachmentPartsBuilder attachmentPartsBuilder = new AttachmentPartsBuilder(null, null, false,
+            pdfTextExtractor);
+    // Attachments read for each email, marked extracted once the use case confirms the email
+    private final Map<String, List<String>> pendingAttachmentHashes = new ConcurrentHashMap<>();
+
+    private boolean structuredOutput;
+    private final AtomicLong answeredRequests = new AtomicLong();
+    private final AtomicLong promptTokens = new AtomicLong();
+    private final AtomicLong outputTokens = new AtomicLong();
+    private final AtomicLong latencyNanos = new AtomicLong();
+
+    // Built once; sent as the system instruction so the per-request prompt only
+    // carries email content
+    private static final java.util.Map<String, Object> SYSTEM_INSTRUCTION = java.util.Map.of("parts",
+            List.of(java.util.Map.of("text", ExtractionPrompt.INSTRUCTIONS)));
+    private static final java.util.Map<String, Object> COMPACT_SYSTEM_INSTRUCTION = java.util.Map.of("parts",
+            List.of(java.util.Map.of("text", ExtractionPrompt.COMPACT_INSTRUCTIONS)));
+
+    /** Token usage and latency of the requests answered so far, for one request mode. */
+    public record UsageStats(String mode, long requests, long promptTokens, long outputTokens, long latencyMillis) {
+
+        public String summary() {
+            return String.format("%s: %d requests, %d prompt / %d output tokens (%.0f output per request), "
+                    + "%.0f ms mean latency", mode, requests, promptTokens, outputTokens,
+                    requests == 0 ? 0.0 : (double) outputTokens / requests,
+                    requests == 0 ? 0.0 : (double) latencyMillis / requests);
+        }
+    }
 
     public GeminiAiAdapter(String apiKey, boolean enabled) {
+        this(apiKey, enabled, new PromptPreprocessor());
+    }
+
+    public GeminiAiAdapter(String apiKey, boolean enabled, PromptPreprocessor promptPreprocessor) {
+        this(apiKey, enabled, promptPreprocessor, DEFAULT_BASE_URL, DEFAULT_MODEL);
+    }
+
+    public GeminiAiAdapter(String apiKey, boolean enabled, PromptPreprocessor promptPreprocessor, String baseUrl,
+            String model) {
+        this(apiKey, enabled, promptPreprocessor, baseUrl, model, new GeminiHttpTransport());
+    }
+
+    public GeminiAiAdapter(String apiKey, boolean enabled, PromptPreprocessor promptPreprocessor, String baseUrl,
+            String model, GeminiHttpTransport transport) {
         this.apiKey = apiKey;
+        this.baseUrl = baseUrl;
+        this.generateContentUrl = baseUrl + "/v1beta/models/" + model + ":generateContent";
+        this.promptPreprocessor = promptPreprocessor;
         this.enabled = enabled;
-        this.httpClient = HttpClient.newHttpClient();
+        this.transport = transport;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.findAndRegisterModules(); // For JavaTime
     }
 
+    /**
+     * Enables attachment caching across runs. With {@code uploadToFileApi} new
+     * PDFs are uploaded once and referenced by handle; with
+     * {@code skipExtracted} PDFs already extracted from an earlier email are not
+     * sent again (disable for forced rescans).
+     */
+    public void useAttachmentCache(AttachmentCachePort cache, boolean uploadToFileApi, boolean skipExtracted) {
+        GeminiFileClient fileClient = uploadToFileApi
+                ? new GeminiFileClient(transport.client(), baseUrl, apiKey)
+                : null;
+        this.attachmentPartsBuilder = new AttachmentPartsBuilder(cache, fileClient, skipExtracted, pdfTextExtractor);
+    }
+
+    /**
+     * Overrides the free-tier pacing (2s between batches), e.g. against a
+     * local stub or a paid quota.
+     */
+    public void setPacing(long batchGapMillis) {
+        this.batchGapMillis = batchGapMillis;
+    }
+
+    /**
+     * Checks every request against a ledger of requests and tokens kept
+     * across runs: waits while the minute limits are reached and stops the
+     * run once the day's allowance is used up. Without a ledger requests are
+     * not limited.
+     */
+    public void useQuotaLedger(QuotaLedgerPort quotaLedger) {
+        this.quotaLedger = quotaLedger;
+    }
+
+    /**
+     * Asks for JSON through {@code generationConfig} with a response schema
+     * using short keys and email indexes, instead of describing the format in
+     * the prompt; far fewer output tokens per event.
+     */
+    public void setStructuredOutput(boolean structuredOutput) {
+        this.structuredOutput = structuredOutput;
+    }
+
+    public GeminiHttpTransport.LatencyStats latencyStats() {
+        return transport.latencyStats();
+    }
+
+    public UsageStats usageStats() {
+        return new UsageStats(structuredOutput ? "structured" : "prose-json", answeredRequests.get(),
+                promptTokens.get(), outputTokens.get(), latencyNanos.get() / 1_000_000);
+    }
+
     @Override
     public List<Event> extractEvents(List<EmailMessage> emails) {
         if (!enabled || emails.isEmpty()) {
@@ -47,35 +143,51 @@ public class GeminiAiAdapter implements AiEventExtractorPort {
         // Rate Limiting Strategy:
         // Free Tier Limit: 15 Requests Per Minute (RPM).
         // With batching, we significantly reduce the number of requests.
-        try {
-            Thread.sleep(2000); // 2s gap between batches
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
-        if (requestCount.incrementAndGet() > MAX_REQUESTS_PER_RUN) {
-            System.err.println("Max AI requests reached (" + MAX_REQUESTS_PER_RUN + "). Skipping batch of "
-                    + emails.size() + " emails.");
-            return Collections.emptyList();
+        if (batchGapMillis > 0) {
+            try {
+                Thread.sleep(batchGapMillis); // 2s gap between batches by default
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
 
         System.out.println("Processing " + emails.size() + " emails with Gemini AI...");
         emails.forEach(e -> System.out.println(" - Including Email: " + e.subject() + " (ID: " + e.id() + ")"));
 
+        long reservation = 0;
+        // Tokens actually billed; a request that fails or is refused settles its estimate at zero, and an
+        // answer without usage (-1) keeps it
+        long[] billedTokens = { 0 };
+        // Hedged duplicates sent; each carries the same prompt, so each is settled like the first request
+        List<Long> hedgeReservations = new ArrayList<>();
         try {
-            String payload = buildJsonPayload(emails);
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(GEMINI_URL + "?key=" + apiKey))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(payload))
-                    .build();
+            AttachmentPartsBuilder.Result attachments = attachmentPartsBuilder.build(emails);
+            String payload = buildJsonPayload(emails, attachments);
+            // Roughly four characters per token; inline attachments make this an overestimate
+            long estimatedTokens = (payload.length() + 3) / 4;
+            reservation = admit(estimatedTokens);
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            // A hedged duplicate is billed, so it is admitted against this adapter's quota, which is the
+            // tenant's share when the transport is shared
+            GeminiHttpTransport.Response response = quotaLedger != null
+                    ? transport.postJson(generateContentUrl + "?key=" + apiKey, payload, () -> {
+                        QuotaLedgerPort.Admission admission = quotaLedger.tryAcquire(estimatedTokens);
+                        if (admission.isGranted()) {
+                            hedgeReservations.add(admission.reservationId());
+                        }
+                        return admission.isGranted();
+                    })
+                    : transport.postJson(generateContentUrl + "?key=" + apiKey, payload);
 
             if (response.statusCode() == 200) {
                 System.out.println("Gemini AI extraction successful.");
-                return parseResponse(response.body(), emails);
+                latencyNanos.addAndGet(response.latencyNanos());
+                answeredRequests.incrementAndGet();
+                List<Event> events = parseResponse(response.body(), emails, billedTokens);
+                attachments.emailIdByHash().forEach((hash, emailId) -> pendingAttachmentHashes
+                        .computeIfAbsent(emailId, id -> Collections.synchronizedList(new ArrayList<>()))
+                        .add(hash));
+                return events;
             } else if (response.statusCode() == 429) {
                 System.err.println("Gemini API Quota Error (429): " + response.body());
                 throw new QuotaExhaustedException("Gemini API Quota Exhausted (429)");
@@ -88,125 +200,89 @@ public class GeminiAiAdapter implements AiEventExtractorPort {
         } catch (IOException | InterruptedException e) {
             System.err.println("Failed to call Gemini API: " + e.getMessage());
             return Collections.emptyList();
+        } finally {
+            if (reservation > 0 && billedTokens[0] >= 0) {
+                quotaLedger.recordTokens(reservation, billedTokens[0]);
+                hedgeReservations.forEach(hedge -> quotaLedger.recordTokens(hedge, billedTokens[0]));
+            }
         }
     }
 
-    private String buildPrompt(List<EmailMessage> emails) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Extract school events from the following emails.\n");
-        sb.append("Return ONLY a raw JSON array of objects. Do not include markdown formatting.\n\n");
-        sb.append("JSON Format:\n");
-        sb.append("[\n");
-        sb.append("  {\n");
-        sb.append("    \"emailId\": \"String (Exactly matching the ID provided below)\",\n");
-        sb.append("    \"title\": \"String\",\n");
-        sb.append("    \"startDate\": \"ISO-8601 DateTime (yyyy-MM-ddTHH:mm:ss)\",\n");
-        sb.append("    \"endDate\": \"ISO-8601 DateTime (Crucial for multi-day events like 'Half Term')\",\n");
-        sb.append("    \"allDay\": boolean,\n");
-        sb.append("    \"notes\": \"String\",\n");
-        sb.append("    \"confidence\": Double (0.0-1.0),\n");
-        sb.append("    \"status\": \"SCHEDULED\",\n");
-        sb.append("    \"isRecurring\": boolean\n");
-        sb.append("  }\n");
-        sb.append("]\n\n");
-        sb.append("IMPORTANT INSTRUCTIONS:\n");
-        sb.append(
-                "- If an event covers a date range (e.g., '16.2.26 - 20.2.26'), set startDate to the first day and endDate to the last day.\n");
-        sb.append(
-                "- RECURRING EVENTS: You MUST identify recurring patterns mentioned in the text (e.g., 'every Tuesday', 'weekly on Mondays').\n");
-        sb.append(
-                "- For each such pattern, expand it into individual event instances starting from the current date until August 1st 2026.\n");
-        sb.append("- For these expanded instances, set 'isRecurring' to true.\n");
-        sb.append("- If an event is specifically marked as a one-off in the text, do not repeat it.\n");
-        sb.append(
-                "- Ensure the 'emailId' property in the JSON matches the 'ID' field provided in the input exactly.\n\n");
-
+    @Override
+    public void confirmProcessed(List<EmailMessage> emails) {
         for (EmailMessage email : emails) {
-            String content = email.plainTextBody();
-            if (content == null || content.isBlank()) {
-                content = email.htmlBody();
+            List<String> hashes = pendingAttachmentHashes.remove(email.id());
+            if (hashes != null) {
+                hashes.forEach(hash -> attachmentPartsBuilder.markExtracted(hash, email.id()));
             }
-            if (content == null)
-                content = "";
-            String bodySample = content.length() > 2000 ? content.substring(0, 2000) : content;
-
-            sb.append("--- Email Start ---\n");
-            sb.append("ID: ").append(email.id()).append("\n");
-            sb.append("Subject: ").append(email.subject()).append("\n");
-            sb.append("Body: ").append(bodySample).append("\n");
-            sb.append("--- Email End ---\n\n");
         }
+    }
 
-        return sb.toString();
+    /**
+     * Takes one request from the quota ledger, waiting out the minute window
+     * when needed. Returns the reservation, or 0 without a ledger.
+     */
+    private long admit(long estimatedTokens) throws InterruptedException {
+        if (quotaLedger == null) {
+            return 0;
+        }
+        while (true) {
+            QuotaLedgerPort.Admission admission = quotaLedger.tryAcquire(estimatedTokens);
+            if (admission.isGranted()) {
+                return admission.reservationId();
+            }
+            if (admission.isExhausted()) {
+                throw new QuotaExhaustedException("Daily Gemini quota used up; remaining emails wait for the "
+                        + "next run");
+            }
+            System.out.println("Gemini minute quota reached. Waiting " + admission.retryAfter().toSeconds()
+                    + "s...");
+            Thread.sleep(admission.retryAfter().toMillis());
+        }
     }
 
-    private String buildJsonPayload(List<EmailMessage> emails) {
+    private String buildJsonPayload(List<EmailMessage> emails, AttachmentPartsBuilder.Result attachments) {
         try {
-            String prompt = buildPrompt(emails);
+            String prompt = ExtractionPrompt.buildPrompt(promptPreprocessor, emails, attachments.textByEmailId(),
+                    structuredOutput);
 
             List<Object> parts = new ArrayList<>();
             parts.add(Collections.singletonMap("text", prompt));
+            parts.addAll(attachments.parts());
 
-            for (EmailMessage email : emails) {
-                for (EmailMessage.AttachmentMetadata att : email.attachments()) {
-                    if (att.mimeType() != null && att.mimeType().toLowerCase().startsWith("application/pdf")
-                            && att.data() != null) {
-                        String base64Data = Base64.getEncoder().encodeToString(att.data());
-                        parts.add(Collections.singletonMap("inline_data",
-                                java.util.Map.of("mime_type", "application/pdf", "data", base64Data)));
-                    }
-                }
+            java.util.Map<String, Object> body = new java.util.LinkedHashMap<>();
+            body.put("system_instruction", structuredOutput ? COMPACT_SYSTEM_INSTRUCTION : SYSTEM_INSTRUCTION);
+            body.put("contents", Collections.singletonList(Collections.singletonMap("parts", parts)));
+            if (structuredOutput) {
+                java.util.Map<String, Object> generationConfig = new java.util.LinkedHashMap<>();
+                generationConfig.put("responseMimeType", "application/json");
+                generationConfig.put("responseSchema", objectMapper.readTree(ExtractionPrompt.COMPACT_SCHEMA));
+                body.put("generationConfig", generationConfig);
             }
-
-            return objectMapper.writeValueAsString(Collections.singletonMap("contents",
-                    Collections.singletonList(Collections.singletonMap("parts", parts))));
+            return objectMapper.writeValueAsString(body);
         } catch (IOException e) {
             return "{}";
         }
     }
 
-    private List<Event> parseResponse(String responseBody, List<EmailMessage> sourceEmails) {
+    private List<Event> parseResponse(String responseBody, List<EmailMessage> sourceEmails, long[] billedTokens) {
         try {
-            java.util.Map<String, EmailMessage> emailMap = sourceEmails.stream()
-                    .collect(java.util.stream.Collectors.toMap(EmailMessage::id, e -> e));
-
             JsonNode root = objectMapper.readTree(responseBody);
+            JsonNode usage = root.path("usageMetadata");
+            long prompt = usage.path("promptTokenCount").asLong(0);
+            long output = usage.path("candidatesTokenCount").asLong(0);
+            promptTokens.addAndGet(prompt);
+            outputTokens.addAndGet(output);
+            billedTokens[0] = usage.has("promptTokenCount") ? prompt + output : -1;
             JsonNode candidates = root.path("candidates");
             if (candidates.isArray() && !candidates.isEmpty()) {
                 JsonNode content = candidates.get(0).path("content");
                 JsonNode parts = content.path("parts");
                 if (parts.isArray() && !parts.isEmpty()) {
                     String text = parts.get(0).path("text").asText();
-                    text = text.replace("```json", "").replace("```", "").trim();
-
-                    List<EventDto> dtos = objectMapper.readValue(text, new TypeReference<List<EventDto>>() {
-                    });
-
-                    return dtos.stream().map(dto -> {
-                        EmailMessage email = emailMap.get(dto.emailId);
-
-                        // Defensive: Try matching without brackets if first attempt fails
-                        if (email == null && dto.emailId != null) {
-                            String unbracketed = dto.emailId.replace("<", "").replace(">", "");
-                            email = sourceEmails.stream()
-                                    .filter(e -> e.id().replace("<", "").replace(">", "").equals(unbracketed))
-                                    .findFirst().orElse(null);
-                        }
-
-                        return new Event(
-                                java.util.UUID.randomUUID().toString(),
-                                dto.title != null ? dto.title : "Untitled Event",
-                                dto.startDate,
-                                dto.endDate,
-                                dto.allDay,
-                                dto.notes,
-                                dto.confidence,
-                                dto.status != null ? dto.status : Event.Status.ACTIVE,
-                                dto.isRecurring,
-                                email != null ? email.id() : dto.emailId,
-                                email != null ? email.subject() : "Unknown Source",
-                                email != null ? email.receivedAt() : null);
-                    }).toList();
+                    return structuredOutput
+                            ? ExtractionPrompt.parseCompactEvents(objectMapper, text, sourceEmails)
+                            : ExtractionPrompt.parseEvents(objectMapper, text, sourceEmails);
                 }
             }
         } catch (Exception e) {
@@ -215,17 +291,4 @@ public class GeminiAiAdapter implements AiEventExtractorPort {
         }
         return Collections.emptyList();
     }
-
-    // Checking DTO for Parsing
-    private static class EventDto {
-        public String title;
-        public LocalDateTime startDate;
-        public LocalDateTime endDate;
-        public boolean allDay;
-        public String notes;
-        public Double confidence;
-        public Event.Status status;
-        public String emailId;
-        public boolean isRecurring;
-    }
 }
@@ -0,0 +1,63 @@
+package com.schoolevents.adapter.out.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Minimal client for the Gemini File API. Uploaded files can be referenced
+ * from generateContent requests by URI (for about 48 hours) instead of being
+ * inlined as base64 on every request.
+ */
+public class GeminiFileClient {
+
+    // Large PDFs over a slow uplink; a stalled upload must not hang the run
+    private static final Duration UPLOAD_TIMEOUT = Duration.ofMinutes(5);
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final String apiKey;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public record UploadedFile(String uri, LocalDateTime expiresAt) {
+    }
+
+    public GeminiFileClient(HttpClient httpClient, String baseUrl, String apiKey) {
+        this.httpClient = httpClient;
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey;
+    }
+
+    public UploadedFile upload(String mimeType, byte[] data) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/upload/v1beta/files?uploadType=media&key=" + apiKey))
+                .timeout(UPLOAD_TIMEOUT)
+                .header("Content-Type", mimeType)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(data))
+                .build();
+
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("File upload failed: " + response.statusCode() + " - " + response.body());
+        }
+
+        JsonNode file = objectMapper.readTree(response.body()).path("file");
+        String uri = file.path("uri").asText(null);
+        if (uri == null) {
+            throw new IOException("File upload response has no uri: " + response.body());
+        }
+        LocalDateTime expiresAt = file.hasNonNull("expirationTime")
+                ? LocalDateTime.ofInstant(Instant.parse(file.get("expirationTime").asText()), ZoneId.systemDefault())
+                : LocalDateTime.now().plusHours(47);
+        return new UploadedFile(uri, expiresAt);
+    }
+}
@@ -0,0 +1,310 @@
+package com.schoolevents.adapter.out.ai;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HTTP layer for Gemini calls: one HTTP/2 client whose connections are reused
+ * across batches, connect and per-request timeouts, gzip-compressed request
+ * bodies (dropped for the rest of the run if the server rejects one), retries
+ * with full jitter on 5xx responses, timeouts and I/O errors, and optionally a
+ * hedged duplicate request when the first is slower than usual. Keeps the
+ * end-to-end latency of every call.
+ */
+public class GeminiHttpTransport {
+
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(120);
+    // Smaller bodies are not worth compressing
+    private static final int MIN_GZIP_BYTES = 1024;
+    private static final long MAX_BACKOFF_MILLIS = 8000;
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private int maxAttempts = 3;
+    private long baseBackoffMillis = 500;
+    private volatile boolean gzipRequests = true;
+    private long hedgeAfterMillis;
+    private BooleanSupplier hedgeAdmission = () -> true;
+
+    private long[] latencies = new long[256];
+    private int latencyCount;
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    public record Response(int statusCode, String body, long latencyNanos) {
+    }
+
+    /** Latency percentiles of the calls made so far, with retry and hedge counts. */
+    public record LatencyStats(int requests, double p50Millis, double p95Millis, double p99Millis, double maxMillis,
+            long retries, long timeouts, long hedges, long hedgeWins) {
+
+        public String summary() {
+            return String.format("%d requests, p50 %.0f ms, p95 %.0f ms, p99 %.0f ms, max %.0f ms; %d retries, "
+                    + "%d timeouts, %d hedged (%d won)", requests, p50Millis, p95Millis, p99Millis, maxMillis,
+                    retries, timeouts, hedges, hedgeWins);
+        }
+    }
+
+    public GeminiHttpTransport() {
+        this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    public GeminiHttpTransport(Duration connectTimeout, Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    /** The shared client, for calls that need their own request handling (file uploads). */
+    public HttpClient client() {
+        return httpClient;
+    }
+
+    /** Attempts per call (1 disables retries) and the base of the exponential backoff. */
+    public void setRetries(int maxAttempts, long baseBackoffMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseBackoffMillis = baseBackoffMillis;
+    }
+
+    public void setGzipRequests(boolean gzipRequests) {
+        this.gzipRequests = gzipRequests;
+    }
+
+    /**
+     * Sends a duplicate of a request still unanswered after
+     * {@code hedgeAfterMillis} (0 disables) and takes whichever answers first.
+     * The duplicate is billed like any request, so {@code admission} is asked
+     * first and can refuse it, e.g. when the quota ledger is short. Callers
+     * sharing the transport can pass their own admission per request.
+     */
+    public void setHedging(long hedgeAfterMillis, BooleanSupplier admission) {
+        this.hedgeAfterMillis = hedgeAfterMillis;
+        this.hedgeAdmission = admission;
+    }
+
+    /**
+     * POSTs a JSON body and returns the final response: 5xx responses, timeouts
+     * and I/O errors are retried, other statuses returned as they are.
+     */
+    public Response postJson(String url, String json) throws IOException, InterruptedException {
+        return postJson(url, json, hedgeAdmission);
+    }
+
+    /** As {@link #postJson(String, String)}, asking {@code hedgeAdmission} before sending a duplicate. */
+    public Response postJson(String url, String json, BooleanSupplier hedgeAdmission)
+            throws IOException, InterruptedException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        long started = System.nanoTime();
+        for (int attempt = 1;; attempt++) {
+            try {
+                HttpResponse<byte[]> response = sendCompressedIfAccepted(url, body, hedgeAdmission);
+                if (response.statusCode() >= 500 && attempt < maxAttempts) {
+                    System.err.println("Gemini returned " + response.statusCode() + "; retrying (attempt "
+                            + (attempt + 1) + " of " + maxAttempts + ")...");
+                    backoff(attempt);
+                    continue;
+                }
+                long latency = System.nanoTime() - started;
+                recordLatency(latency);
+                return new Response(response.statusCode(), decode(response), latency);
+            } catch (IOException e) {
+                if (e instanceof HttpTimeoutException) {
+                    timeouts.incrementAndGet();
+                }
+                if (attempt >= maxAttempts) {
+                    recordLatency(System.nanoTime() - started);
+                    throw e;
+                }
+                System.err.println("Gemini request failed (" + e.getMessage() + "); retrying (attempt "
+                        + (attempt + 1) + " of " + maxAttempts + ")...");
+                backoff(attempt);
+            }
+        }
+    }
+
+    public LatencyStats latencyStats() {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(latencies, latencyCount);
+        }
+        Arrays.sort(sorted);
+        return new LatencyStats(sorted.length, percentile(sorted, 0.50), percentile(sorted, 0.95),
+                percentile(sorted, 0.99), sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6,
+                retries.get(), timeouts.get(), hedges.get(), hedgeWins.get());
+    }
+
+    private HttpResponse<byte[]> sendCompressedIfAccepted(String url, byte[] body, BooleanSupplier hedgeAdmission)
+            throws IOException, InterruptedException {
+        boolean gzip = gzipRequests && body.length >= MIN_GZIP_BYTES;
+        HttpResponse<byte[]> response = send(request(url, body, gzip), hedgeAdmission);
+        if (gzip && refusesCompression(response)) {
+            System.err.println("Gemini does not accept compressed requests here; sending them uncompressed.");
+            gzipRequests = false;
+            return send(request(url, body, false), hedgeAdmission);
+        }
+        return response;
+    }
+
+    /**
+     * A 415, or a 400 that blames the encoding. Any other 400 is about the
+     * request itself and would fail again uncompressed.
+     */
+    private static boolean refusesCompression(HttpResponse<byte[]> response) throws IOException {
+        if (response.statusCode() == 415) {
+            return true;
+        }
+        if (response.statusCode() != 400) {
+            return false;
+        }
+        String error = decode(response).toLowerCase();
+        return error.contains("encoding") || error.contains("gzip");
+    }
+
+    private HttpRequest request(String url, byte[] body, boolean gzip) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .header("Accept-Encoding", "gzip");
+        if (gzip) {
+            builder.header("Content-Encoding", "gzip");
+            body = gzip(body);
+        }
+        return builder.POST(HttpRequest.BodyPublishers.ofByteArray(body)).build();
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest request, BooleanSupplier hedgeAdmission)
+            throws IOException, InterruptedException {
+        if (hedgeAfterMillis <= 0) {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        }
+        CompletableFuture<HttpResponse<byte[]>> primary = httpClient.sendAsync(request,
+                HttpResponse.BodyHandlers.ofByteArray());
+        try {
+            return primary.get(hedgeAfterMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (!hedgeAdmission.getAsBoolean()) {
+                return await(primary);
+            }
+            hedges.incrementAndGet();
+            CompletableFuture<HttpResponse<byte[]>> hedge = httpClient.sendAsync(request,
+                    HttpResponse.BodyHandlers.ofByteArray());
+            HttpResponse<byte[]> first = await(firstAnswered(primary, hedge));
+            if (hedge.isDone() && !hedge.isCompletedExceptionally() && hedge.join() == first) {
+                hedgeWins.incrementAndGet();
+            }
+            primary.cancel(true);
+            hedge.cancel(true);
+            return first;
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Completes with the first response below 500; otherwise, once both are
+     * done, with the later outcome.
+     */
+    private static CompletableFuture<HttpResponse<byte[]>> firstAnswered(
+            CompletableFuture<HttpResponse<byte[]>> a, CompletableFuture<HttpResponse<byte[]>> b) {
+        CompletableFuture<HttpResponse<byte[]>> result = new CompletableFuture<>();
+        AtomicLong finished = new AtomicLong();
+        for (CompletableFuture<HttpResponse<byte[]>> future : List.of(a, b)) {
+            future.whenComplete((response, error) -> {
+                boolean last = finished.incrementAndGet() == 2;
+                if (error == null && (response.statusCode() < 500 || last)) {
+                    result.complete(response);
+                } else if (last) {
+                    result.completeExceptionally(error != null ? error : new IOException("No answer"));
+                }
+            });
+        }
+        return result;
+    }
+
+    private static HttpResponse<byte[]> await(CompletableFuture<HttpResponse<byte[]>> future)
+            throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof IOException io ? io : new IOException(cause);
+    }
+
+    /** Full jitter: a random wait up to the exponential backoff, so parallel retries spread out. */
+    private void backoff(int attempt) throws InterruptedException {
+        retries.incrementAndGet();
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, baseBackoffMillis << Math.min(attempt - 1, 16));
+        if (ceiling > 0) {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        }
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        if (latencyCount == latencies.length) {
+            latencies = Arrays.copyOf(latencies, latencyCount * 2);
+        }
+        latencies[latencyCount++] = nanos;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static String decode(HttpResponse<byte[]> response) throws IOException {
+        boolean gzipped = response.headers().firstValue("Content-Encoding")
+                .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        if (!gzipped) {
+            return new String(response.body(), StandardCharsets.UTF_8);
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
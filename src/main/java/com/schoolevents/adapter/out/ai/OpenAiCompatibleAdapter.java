@@ -0,0 +1,139 @@
+package com.schoolevents.adapter.out.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.schoolevents.domain.model.EmailMessage;
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.port.out.AiEventExtractorPort;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Extractor backed by any server exposing the OpenAI chat-completions API,
+ * e.g. a llama.cpp or vLLM server on localhost. There is no quota, so it is
+ * safe to call from several threads at once; {@code maxConcurrency} bounds the
+ * number of in-flight requests to what the server can serve.
+ *
+ * Local models cannot read PDFs, so only attachments with a text layer are
+ * included; image-only PDFs are skipped.
+ */
+public class OpenAiCompatibleAdapter implements AiEventExtractorPort {
+
+    private final String baseUrl;
+    private final String model;
+    private final String apiKey;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final PromptPreprocessor promptPreprocessor;
+    private final AttachmentPartsBuilder attachmentPartsBuilder = new AttachmentPartsBuilder(null, null, false,
+            new PdfTextExtractor());
+
+    /**
+     * @param baseUrl API root including the version, e.g.
+     *                {@code http://localhost:8080/v1}
+     * @param apiKey  optional; most local servers ignore it
+     */
+    public OpenAiCompatibleAdapter(String baseUrl, String model, String apiKey, int maxConcurrency,
+            PromptPreprocessor promptPreprocessor) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.model = model;
+        this.apiKey = apiKey;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.permits = new Semaphore(this.maxConcurrency);
+        this.promptPreprocessor = promptPreprocessor;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.findAndRegisterModules(); // For JavaTime
+    }
+
+    public int maxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public List<Event> extractEvents(List<EmailMessage> emails) {
+        if (emails.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        AttachmentPartsBuilder.Result attachments = attachmentPartsBuilder.build(emails);
+        if (!attachments.parts().isEmpty()) {
+            System.err.println("Skipping " + attachments.parts().size()
+                    + " image-only PDF(s): not supported by the local model.");
+        }
+
+        try {
+            String payload = buildJsonPayload(emails, attachments);
+            HttpRequest.Builder request = HttpRequest.newBuilder()
+                    .uri(URI.create(baseUrl + "/chat/completions"))
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofMinutes(10)) // Local inference on long batches is slow
+                    .POST(HttpRequest.BodyPublishers.ofString(payload));
+            if (apiKey != null && !apiKey.isBlank()) {
+                request.header("Authorization", "Bearer " + apiKey);
+            }
+
+            HttpResponse<String> response;
+            permits.acquire();
+            try {
+                response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            } finally {
+                permits.release();
+            }
+
+            if (response.statusCode() == 200) {
+                return parseResponse(response.body(), emails);
+            }
+            System.err.println("Local model error: " + response.statusCode() + " - " + response.body());
+            return Collections.emptyList();
+
+        } catch (IOException e) {
+            System.err.println("Failed to call local model: " + e.getMessage());
+            return Collections.emptyList();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        }
+    }
+
+    private String buildJsonPayload(List<EmailMessage> emails, AttachmentPartsBuilder.Result attachments)
+            throws IOException {
+        String prompt = ExtractionPrompt.buildPrompt(promptPreprocessor, emails, attachments.textByEmailId());
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("model", model);
+        body.put("temperature", 0);
+        body.put("messages", List.of(
+                Map.of("role", "system", "content", ExtractionPrompt.INSTRUCTIONS),
+                Map.of("role", "user", "content", prompt)));
+        return objectMapper.writeValueAsString(body);
+    }
+
+    private List<Event> parseResponse(String responseBody, List<EmailMessage> sourceEmails) {
+        try {
+            JsonNode choices = objectMapper.readTree(responseBody).path("choices");
+            if (choices.isArray() && !choices.isEmpty()) {
+                String text = choices.get(0).path("message").path("content").asText();
+                return ExtractionPrompt.parseEvents(objectMapper, text, sourceEmails);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to parse local model response: " + e.getMessage());
+            System.err.println("Debug Body: " + responseBody);
+        }
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,56 @@
+package com.schoolevents.adapter.out.ai;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Extracts the text layer of PDF attachments locally so they can be sent to
+ * the AI as compact text. Scanned / image-only PDFs have no usable text layer
+ * and are reported as empty, so the caller can still send them as binary.
+ * Results are cached by content hash for the lifetime of the process.
+ */
+public class PdfTextExtractor {
+
+    // Below this many characters per page we treat the PDF as scanned
+    private static final int MIN_CHARS_PER_PAGE = 40;
+
+    private final Map<String, Optional<String>> cache = new ConcurrentHashMap<>();
+
+    public record PdfInput(String contentHash, byte[] data) {
+    }
+
+    /**
+     * Extracts all inputs in parallel. The returned map holds, per content hash,
+     * the text layer or an empty Optional for image-only / unreadable PDFs.
+     */
+    public Map<String, Optional<String>> extractAll(List<PdfInput> pdfs) {
+        Map<String, Optional<String>> result = new ConcurrentHashMap<>();
+        pdfs.parallelStream().forEach(pdf -> result.put(pdf.contentHash(), extract(pdf)));
+        return result;
+    }
+
+    public Optional<String> extract(PdfInput pdf) {
+        return cache.computeIfAbsent(pdf.contentHash(), hash -> readTextLayer(pdf.data()));
+    }
+
+    private Optional<String> readTextLayer(byte[] data) {
+        try (PDDocument document = Loader.loadPDF(data)) {
+            String text = new PDFTextStripper().getText(document).strip();
+            int pages = Math.max(1, document.getNumberOfPages());
+            if (text.replaceAll("\\s+", "").length() < MIN_CHARS_PER_PAGE * pages) {
+                return Optional.empty();
+            }
+            return Optional.of(text);
+        } catch (IOException e) {
+            System.err.println("Could not read PDF text layer: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
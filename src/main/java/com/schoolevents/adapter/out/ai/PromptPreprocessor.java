@@ -0,0 +1,349 @@
+package com.schoolevents.adapter.out.ai;
+
+import com.schoolevents.domain.model.EmailMessage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns raw email bodies into compact prompt text before they are sent to the
+ * AI: HTML is flattened, quoted replies / forwarding headers / boilerplate
+ * footers are dropped, the mirrored half of bilingual emails is optionally
+ * dropped, paragraphs repeated across the batch are sent once and the whole
+ * batch is fitted into a token budget.
+ */
+public class PromptPreprocessor {
+
+    public static final int DEFAULT_TOKEN_BUDGET = 6000;
+
+    // Gemini tokenizes English/Welsh prose at roughly 4 characters per token
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int MIN_DEDUP_LENGTH = 20;
+    private static final int MAX_PARAGRAPH_LENGTH = 600;
+
+    private static final Pattern HIDDEN_BLOCKS = Pattern.compile(
+            "(?is)<(head|style|script|title)[^>]*>.*?</\\1>|<!--.*?-->");
+    private static final Pattern LINE_BREAK_TAGS = Pattern.compile(
+            "(?i)<br\\s*/?>|</(p|div|li|tr|h[1-6]|table|ul|ol|blockquote)>");
+    private static final Pattern LIST_ITEM_TAG = Pattern.compile("(?i)<li[^>]*>");
+    private static final Pattern CELL_END_TAG = Pattern.compile("(?i)</t[dh]>");
+    private static final Pattern ANY_TAG = Pattern.compile("<[^>]+>");
+    private static final Pattern NUMERIC_ENTITY = Pattern.compile("&#(x?[0-9a-fA-F]+);");
+    private static final Pattern URL = Pattern.compile("https?://\\S+");
+
+    private static final Pattern REPLY_HEADER = Pattern.compile(
+            "(?i)^\\s*(on .{0,200} wrote:|ar .{0,200} ysgrifennodd:|-{2,}\\s*original message\\s*-{2,})\\s*$");
+    private static final Pattern FORWARD_MARKER = Pattern.compile(
+            "(?i)^\\s*-{2,}\\s*(forwarded message|neges wedi'i hanfon ymlaen)\\s*-{2,}\\s*$");
+    private static final Pattern FORWARD_HEADER_LINE = Pattern.compile(
+            "(?i)^\\s*(from|to|cc|date|sent|subject|oddi wrth|at|dyddiad|pwnc)\\s*:.*$");
+    // Footer phrases; a paragraph is only dropped when it is short and names no date
+    private static final Pattern BOILERPLATE = Pattern.compile(
+            "(?i)\\b(this (e-?mail|message)\\b.{0,80}\\b(confidential|intended)|cyfrinachol|disclaimer|unsubscribe"
+                    + "|dad-danysgrifio|(scanned|checked) for viruses|virus[- ](free|checked|scanned)"
+                    + "|free (of|from) viruses|firysau|intended recipient|named recipient|derbynnydd bwriedig"
+                    + "|croesewir gohebiaeth yn gymraeg|we welcome correspondence in welsh"
+                    + "|please consider the environment|ystyriwch yr amgylchedd)",
+            Pattern.DOTALL);
+    private static final int MAX_BOILERPLATE_LENGTH = 500;
+    private static final Pattern DATE_HINT = Pattern.compile(
+            "(?i)\\b\\d{1,2}[./-]\\d{1,2}\\b|\\b\\d{1,2}(st|nd|rd|th|af|ain|ed|fed|ydd)\\b"
+                    + "|\\b(monday|tuesday|wednesday|thursday|friday|saturday|sunday|today|tomorrow|heddiw|yfory"
+                    + "|dydd (llun|mawrth|mercher|iau|gwener|sadwrn|sul))\\b"
+                    + "|\\b(jan(uary)?|feb(ruary)?|mar(ch)?|apr(il)?|june?|july?|aug(ust)?|sept?(ember)?|oct(ober)?"
+                    + "|nov(ember)?|dec(ember)?|ionawr|chwefror|ebrill|mehefin|gorffennaf|awst|medi|hydref|tachwedd"
+                    + "|rhagfyr)\\b"
+                    // "may" and "mawrth" are also ordinary words; only count them next to a day number
+                    + "|\\b\\d{1,2}\\s+(may|mai|mawrth)\\b|\\b(may|mai|mawrth)\\s+\\d{1,2}\\b");
+
+    private final int tokenBudget;
+    private final BilingualSplitter bilingualSplitter;
+
+    public PromptPreprocessor() {
+        this(DEFAULT_TOKEN_BUDGET);
+    }
+
+    public PromptPreprocessor(int tokenBudget) {
+        this(tokenBudget, null);
+    }
+
+    /**
+     * With a splitter, bilingual emails only keep the splitter's language
+     * where both halves say the same thing.
+     */
+    public PromptPreprocessor(int tokenBudget, BilingualSplitter bilingualSplitter) {
+        this.tokenBudget = tokenBudget;
+        this.bilingualSplitter = bilingualSplitter;
+    }
+
+    public record PreparedEmail(EmailMessage email, String body) {
+    }
+
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * Compacts the bodies of a batch. Emails keep their order; every email gets
+     * an equal share of the budget, and whatever a short email leaves unused is
+     * handed on to the emails after it.
+     */
+    public List<PreparedEmail> prepare(List<EmailMessage> emails) {
+        return prepare(emails, Map.of());
+    }
+
+    /**
+     * As {@link #prepare(List)}, with text already extracted from each email's
+     * attachments (keyed by email ID) appended to its body. Attachment text is
+     * kept whole and does not count against the budget: the caller limits it
+     * (see {@link AttachmentPartsBuilder}), as a cut-off attachment would lose
+     * its later events for good.
+     */
+    public List<PreparedEmail> prepare(List<EmailMessage> emails, Map<String, List<String>> attachmentTextByEmailId) {
+        Set<String> seenParagraphs = new HashSet<>();
+        List<List<String>> paragraphsPerEmail = new ArrayList<>();
+        List<List<String>> attachmentParagraphsPerEmail = new ArrayList<>();
+        for (EmailMessage email : emails) {
+            List<String> paragraphs = compact(email);
+            List<String> attachmentParagraphs = new ArrayList<>();
+            for (String attachmentText : attachmentTextByEmailId.getOrDefault(email.id(), List.of())) {
+                attachmentParagraphs.addAll(splitParagraphs(attachmentText));
+            }
+            if (bilingualSplitter != null) {
+                paragraphs = bilingualSplitter.keepOneLanguage(paragraphs);
+                attachmentParagraphs = bilingualSplitter.keepOneLanguage(attachmentParagraphs);
+            }
+            paragraphsPerEmail.add(unique(paragraphs, seenParagraphs));
+            attachmentParagraphsPerEmail.add(unique(attachmentParagraphs, seenParagraphs));
+        }
+
+        List<PreparedEmail> prepared = new ArrayList<>();
+        int remainingBudget = tokenBudget;
+        for (int i = 0; i < emails.size(); i++) {
+            int share = remainingBudget / (emails.size() - i);
+            String body = fitToBudget(paragraphsPerEmail.get(i), share);
+            remainingBudget -= estimateTokens(body);
+            List<String> attachmentParagraphs = attachmentParagraphsPerEmail.get(i);
+            if (!attachmentParagraphs.isEmpty()) {
+                String attached = String.join("\n\n", attachmentParagraphs);
+                body = body.isEmpty() ? attached : body + "\n\n" + attached;
+            }
+            prepared.add(new PreparedEmail(emails.get(i), body));
+        }
+        return prepared;
+    }
+
+    private static List<String> unique(List<String> paragraphs, Set<String> seenParagraphs) {
+        List<String> unique = new ArrayList<>();
+        for (String paragraph : paragraphs) {
+            String key = paragraph.toLowerCase().replaceAll("\\s+", " ");
+            if (key.length() < MIN_DEDUP_LENGTH || seenParagraphs.add(key)) {
+                unique.add(paragraph);
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * Returns the meaningful paragraphs of a single email, in order.
+     */
+    static List<String> compact(EmailMessage email) {
+        String content = email.plainTextBody();
+        if (content == null || content.isBlank()) {
+            content = htmlToText(email.htmlBody());
+        }
+        if (content == null) {
+            return List.of();
+        }
+
+        List<String> paragraphs = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inForwardHeader = false;
+
+        for (String rawLine : content.replace("\r", "").split("\n")) {
+            String line = rawLine.strip();
+
+            if (REPLY_HEADER.matcher(line).matches()) {
+                break; // Everything below is the quoted conversation
+            }
+            if (line.startsWith(">")) {
+                continue;
+            }
+            if (FORWARD_MARKER.matcher(line).matches()) {
+                inForwardHeader = true;
+                flush(current, paragraphs);
+                continue;
+            }
+            if (inForwardHeader) {
+                if (FORWARD_HEADER_LINE.matcher(line).matches()) {
+                    continue;
+                }
+                if (line.isEmpty()) {
+                    continue;
+                }
+                inForwardHeader = false;
+            }
+            if (line.equals("--")) {
+                // Signature delimiter: the rest is signature / footer
+                break;
+            }
+
+            line = removeTrackingLinks(line);
+            if (line.isEmpty()) {
+                flush(current, paragraphs);
+            } else {
+                if (current.length() > 0) {
+                    current.append('\n');
+                }
+                current.append(line);
+            }
+        }
+        flush(current, paragraphs);
+
+        paragraphs.removeIf(PromptPreprocessor::isBoilerplate);
+        return paragraphs;
+    }
+
+    private static boolean isBoilerplate(String paragraph) {
+        return paragraph.length() <= MAX_BOILERPLATE_LENGTH
+                && BOILERPLATE.matcher(paragraph).find()
+                && !DATE_HINT.matcher(paragraph).find();
+    }
+
+    private static List<String> splitParagraphs(String text) {
+        // Extracted PDF text rarely has blank lines, so long blocks are cut on
+        // line boundaries to keep the budget and dedup granularity useful
+        List<String> paragraphs = new ArrayList<>();
+        for (String block : text.replace("\r", "").split("\n\\s*\n")) {
+            StringBuilder current = new StringBuilder();
+            for (String line : block.split("\n")) {
+                String stripped = line.strip().replaceAll("[ \\t]+", " ");
+                if (stripped.isEmpty()) {
+                    continue;
+                }
+                if (current.length() + stripped.length() > MAX_PARAGRAPH_LENGTH) {
+                    flush(current, paragraphs);
+                }
+                if (current.length() > 0) {
+                    current.append('\n');
+                }
+                current.append(stripped);
+            }
+            flush(current, paragraphs);
+        }
+        paragraphs.removeIf(PromptPreprocessor::isBoilerplate);
+        return paragraphs;
+    }
+
+    static String htmlToText(String html) {
+        if (html == null || html.isBlank()) {
+            return html;
+        }
+        String text = HIDDEN_BLOCKS.matcher(html).replaceAll(" ");
+        text = LIST_ITEM_TAG.matcher(text).replaceAll("\n- ");
+        text = CELL_END_TAG.matcher(text).replaceAll(" | ");
+        text = LINE_BREAK_TAGS.matcher(text).replaceAll("\n");
+        text = ANY_TAG.matcher(text).replaceAll(" ");
+        text = decodeEntities(text);
+        text = text.replaceAll("[ \\t\\x0B\\f]+", " ")
+                .replaceAll(" *\n *", "\n")
+                .replaceAll("\n{3,}", "\n\n");
+        return text.trim();
+    }
+
+    private static String decodeEntities(String text) {
+        Matcher m = NUMERIC_ENTITY.matcher(text);
+        StringBuilder sb = new StringBuilder();
+        while (m.find()) {
+            String code = m.group(1);
+            int codePoint;
+            try {
+                codePoint = code.startsWith("x") || code.startsWith("X")
+                        ? Integer.parseInt(code.substring(1), 16)
+                        : Integer.parseInt(code);
+            } catch (NumberFormatException e) {
+                codePoint = ' ';
+            }
+            m.appendReplacement(sb, Matcher.quoteReplacement(new String(Character.toChars(codePoint))));
+        }
+        m.appendTail(sb);
+        return sb.toString()
+                .replace("&nbsp;", " ")
+                .replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'")
+                .replace("&rsquo;", "'")
+                .replace("&lsquo;", "'")
+                .replace("&ndash;", "-")
+                .replace("&mdash;", "-")
+                .replace("&amp;", "&");
+    }
+
+    private static String removeTrackingLinks(String line) {
+        // Links carry no event information; keep only short ones (e.g. a booking page)
+        Matcher m = URL.matcher(line);
+        StringBuilder sb = new StringBuilder();
+        while (m.find()) {
+            String url = m.group();
+            boolean tracking = url.length() > 60 || url.contains("utm_") || url.contains("?");
+            m.appendReplacement(sb, tracking ? "" : Matcher.quoteReplacement(url));
+        }
+        m.appendTail(sb);
+        return sb.toString().strip();
+    }
+
+    private static void flush(StringBuilder current, List<String> paragraphs) {
+        if (current.length() > 0) {
+            paragraphs.add(current.toString());
+            current.setLength(0);
+        }
+    }
+
+    /**
+     * Keeps whole paragraphs within the budget. Paragraphs that mention dates
+     * are kept first so the event list survives; the rest fill any space left.
+     * The original order is preserved in the output.
+     */
+    private static String fitToBudget(List<String> paragraphs, int budgetTokens) {
+        int total = paragraphs.stream().mapToInt(p -> estimateTokens(p) + 1).sum();
+        if (total <= budgetTokens) {
+            return String.join("\n\n", paragraphs);
+        }
+
+        boolean[] keep = new boolean[paragraphs.size()];
+        int used = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < paragraphs.size(); i++) {
+                String p = paragraphs.get(i);
+                boolean hasDate = DATE_HINT.matcher(p).find();
+                if (keep[i] || (pass == 0) != hasDate) {
+                    continue;
+                }
+                int cost = estimateTokens(p) + 1;
+                if (used + cost <= budgetTokens) {
+                    keep[i] = true;
+                    used += cost;
+                }
+            }
+        }
+
+        List<String> kept = new ArrayList<>();
+        for (int i = 0; i < paragraphs.size(); i++) {
+            if (keep[i]) {
+                kept.add(paragraphs.get(i));
+            }
+        }
+        if (kept.isEmpty() && !paragraphs.isEmpty()) {
+            // A single oversized paragraph: fall back to a hard cut
+            String first = paragraphs.get(0);
+            return first.substring(0, Math.min(first.length(), budgetTokens * CHARS_PER_TOKEN));
+        }
+        return String.join("\n\n", kept);
+    }
+}
@@ -0,0 +1,325 @@
+package com.schoolevents.adapter.out.ai;
+
+import com.schoolevents.domain.model.EmailMessage;
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.port.out.AiEventExtractorPort;
+import com.schoolevents.domain.service.EventIds;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local, deterministic extractor for templated school mail: dated lists in
+ * newsletters, "Year N assembly on dd.mm.yy" lines and term-date tables, in
+ * English or Welsh. An email is only claimed when every dated line in it
+ * parses into an event and nothing in it needs interpretation (recurrence,
+ * cancellations, attachments); everything else is left for the AI.
+ */
+public class RuleBasedEventExtractor implements AiEventExtractorPort {
+
+    private static final double RULE_CONFIDENCE = 0.9;
+
+    private static final Map<String, Integer> MONTHS = new LinkedHashMap<>();
+    static {
+        String[][] names = {
+                { "january", "jan", "ionawr" },
+                { "february", "feb", "chwefror" },
+                { "march", "mar", "mawrth" },
+                { "april", "apr", "ebrill" },
+                { "may", "mai" },
+                { "june", "jun", "mehefin" },
+                { "july", "jul", "gorffennaf" },
+                { "august", "aug", "awst" },
+                { "september", "sept", "sep", "medi" },
+                { "october", "oct", "hydref" },
+                { "november", "nov", "tachwedd" },
+                { "december", "dec", "rhagfyr" } };
+        for (int i = 0; i < names.length; i++) {
+            for (String name : names[i]) {
+                MONTHS.put(name, i + 1);
+            }
+        }
+    }
+
+    // "may" and "mai" are also ordinary words ("Year 5 may bring..."); they only count as the month when
+    // capitalised or with something else that makes a date of them: an ordinal, "of", or a year after
+    private static final String MAY = "(?-i:May|Mai|MAY|MAI)|(?<=(?:st|nd|rd|th|af|ail|ydd|eg|fed|ed|of)\\s{1,3})ma[yi]"
+            + "|ma[yi](?=\\.?\\s+\\d{4})";
+    private static final String MONTH_ALT = String.join("|", MONTHS.keySet().stream()
+            .filter(name -> !name.equals("may") && !name.equals("mai"))
+            .sorted((a, b) -> b.length() - a.length()).toList()) + "|" + MAY;
+    private static final String WEEKDAY = "(?:(?:mon|tues?|wed(?:nes)?|thu(?:rs)?|fri|sat(?:ur)?|sun)(?:day)?\\.?"
+            + "|dydd\\s+(?:llun|mawrth|mercher|iau|gwener|sadwrn|sul))";
+    private static final String NUMERIC_DATE = "(\\d{1,2})[./](\\d{1,2})[./](\\d{4}|\\d{2})";
+    private static final String TEXT_DATE = "(\\d{1,2})(?:st|nd|rd|th|af|ail|ydd|eg|fed|ed)?\\s+(?:of\\s+)?("
+            + MONTH_ALT + ")\\b\\.?(?:\\s+(\\d{4}))?";
+    private static final String DATE = "(?:" + WEEKDAY + ",?\\s+)?(?:" + NUMERIC_DATE + "|" + TEXT_DATE + ")";
+
+    private static final Pattern DATE_PATTERN = Pattern.compile(DATE, Pattern.CASE_INSENSITIVE);
+    private static final Pattern RANGE_PATTERN = Pattern.compile(
+            "(" + DATE + ")\\s*(?:-|–|to|until|tan|i)\\s*(" + DATE + ")", Pattern.CASE_INSENSITIVE);
+    // Group 1 wraps the first DATE (which has 6 groups of its own), so the second DATE is group 8
+    private static final int SECOND_DATE_GROUP = 8;
+    private static final String TIME = "\\b(?:at\\s+|am\\s+)?(\\d{1,2})(?:[:.](\\d{2}))?(%s)\\b"
+            + "|\\b(?:at\\s+|am\\s+)?(\\d{1,2})[:.](\\d{2})\\b";
+    // Between the two times of "3pm - 4pm"
+    private static final Pattern TIME_RANGE_SEPARATOR = Pattern.compile(
+            "\\s*(?:-|–|to|until|tan|i)\\s*", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TIME_PATTERN = Pattern.compile(
+            String.format(TIME, "\\s*(?:am|pm|yb|yh)"), Pattern.CASE_INSENSITIVE);
+    // In Welsh "am" is also "at" ("am 9:30"), so am/pm only count when attached to the number
+    private static final Pattern WELSH_TIME_PATTERN = Pattern.compile(
+            String.format(TIME, "am|pm|\\s*(?:yb|yh)"), Pattern.CASE_INSENSITIVE);
+    // A line that sets a time or day without a full date ("Disco this Friday at 6pm")
+    private static final Pattern UNDATED_HINT = Pattern.compile(
+            "(?i)\\b(monday|tuesday|wednesday|thursday|friday|saturday|sunday|today|tonight|tomorrow|heddiw|heno"
+                    + "|yfory|dydd\\s+(llun|mawrth|mercher|iau|gwener|sadwrn|sul))\\b");
+    private static final Pattern ANY_DATE_HINT = Pattern.compile(
+            "\\d{1,2}[./]\\d{1,2}[./]\\d{2,4}|\\b\\d{1,2}(?:st|nd|rd|th)?\\s+(?:" + MONTH_ALT + ")\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern NEEDS_AI = Pattern.compile(
+            "(?i)\\b(every|each|weekly|fortnightly|recurring|bob|wythnosol|cancel\\w*|postpon\\w*|moved|rescheduled"
+                    + "|no longer|canslo|gohirio|wedi'i ganslo|symud)\\b");
+    private static final Pattern WELSH_MARKERS = Pattern.compile(
+            "(?i)\\b(dydd|gwasanaeth|blwyddyn|bl|ysgol|diwrnod|taith|noson|rhieni|cyngerdd|gwyliau|hanner tymor"
+                    + "|ar|yn|y|yr|a'r|i|o|gyda|plant)\\b");
+    private static final Pattern ENGLISH_MARKERS = Pattern.compile(
+            "(?i)\\b(the|and|for|on|at|of|to|in|with|year|school|day|trip|evening|parents|assembly|half term)\\b");
+    private static final Pattern TITLE_CLEANUP = Pattern.compile(
+            "(?i)^[\\s\\-–:|•*,.]+|[\\s\\-–:|•*,.(]+$|\\b(on|at|ar|am|from|o|date|dyddiad)\\s*$|^\\s*(on|ar)\\b");
+
+    @Override
+    public List<Event> extractEvents(List<EmailMessage> emails) {
+        List<Event> events = new ArrayList<>();
+        for (EmailMessage email : emails) {
+            tryExtract(email).ifPresent(events::addAll);
+        }
+        return events;
+    }
+
+    @Override
+    public boolean requiresModel(EmailMessage email) {
+        return false;
+    }
+
+    /**
+     * Returns the events of an email if it can be handled with high confidence
+     * without the AI, or empty if it should be sent to the AI.
+     */
+    public Optional<List<Event>> tryExtract(EmailMessage email) {
+        if (!email.attachments().isEmpty()) {
+            return Optional.empty();
+        }
+        // Without quoted replies and forwarding headers, whose dates are not events
+        String body = String.join("\n", PromptPreprocessor.compact(email));
+        if (body.isBlank() || NEEDS_AI.matcher(body).find()) {
+            return Optional.empty();
+        }
+
+        LocalDate reference = email.receivedAt() != null ? email.receivedAt().toLocalDate() : LocalDate.now();
+        List<ParsedLine> parsed = new ArrayList<>();
+        for (String line : body.replace("\r", "").split("\n")) {
+            if (!ANY_DATE_HINT.matcher(line).find()) {
+                if (UNDATED_HINT.matcher(line).find() || timePattern(line).matcher(line).find()) {
+                    return Optional.empty(); // An event we cannot date ourselves: the AI has the context
+                }
+                continue;
+            }
+            ParsedLine event = parseLine(line.strip(), reference);
+            if (event == null) {
+                return Optional.empty(); // A dated line we do not understand: let the AI read it
+            }
+            parsed.add(event);
+        }
+        if (parsed.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(dropMirroredTranslations(parsed).stream()
+                .map(p -> new Event(
+                        EventIds.of(p.title(), p.start(), email.id()),
+                        p.title(),
+                        p.start(),
+                        p.end(),
+                        p.allDay(),
+                        p.source(),
+                        RULE_CONFIDENCE,
+                        Event.Status.SCHEDULED,
+                        false,
+                        email.id(),
+                        email.subject(),
+                        email.receivedAt()))
+                .toList());
+    }
+
+    private record ParsedLine(String title, LocalDateTime start, LocalDateTime end, boolean allDay, String source,
+            boolean welsh) {
+    }
+
+    private ParsedLine parseLine(String line, LocalDate reference) {
+        LocalDate startDate;
+        LocalDate endDate;
+        String remainder;
+
+        Matcher range = RANGE_PATTERN.matcher(line);
+        if (range.find()) {
+            startDate = parseDate(range.group(1), reference);
+            endDate = parseDate(range.group(SECOND_DATE_GROUP), reference);
+            remainder = line.substring(0, range.start()) + " " + line.substring(range.end());
+        } else {
+            Matcher single = DATE_PATTERN.matcher(line);
+            if (!single.find()) {
+                return null;
+            }
+            startDate = parseDate(single.group(), reference);
+            endDate = startDate;
+            remainder = line.substring(0, single.start()) + " " + line.substring(single.end());
+            if (DATE_PATTERN.matcher(remainder).find()) {
+                return null; // Several separate dates on one line: ambiguous
+            }
+        }
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            return null;
+        }
+
+        LocalTime time = null;
+        LocalTime endTime = null;
+        Pattern timePattern = timePattern(line);
+        Matcher t = timePattern.matcher(remainder);
+        if (t.find()) {
+            time = parseTime(t);
+            if (time == null) {
+                return null;
+            }
+            int timeEnd = t.end();
+            Matcher separator = TIME_RANGE_SEPARATOR.matcher(remainder).region(timeEnd, remainder.length());
+            if (separator.lookingAt()) {
+                Matcher until = timePattern.matcher(remainder).region(separator.end(), remainder.length());
+                if (until.lookingAt()) {
+                    endTime = parseTime(until);
+                    if (endTime == null || !endTime.isAfter(time)) {
+                        return null;
+                    }
+                    timeEnd = until.end();
+                }
+            }
+            remainder = remainder.substring(0, t.start()) + " " + remainder.substring(timeEnd);
+            if (timePattern.matcher(remainder).find()) {
+                return null; // Several times on one line: ambiguous
+            }
+        }
+
+        String title = cleanTitle(remainder);
+        if (title.chars().filter(Character::isLetter).count() < 3) {
+            return null;
+        }
+
+        boolean allDay = time == null;
+        LocalDateTime start = allDay ? startDate.atStartOfDay() : startDate.atTime(time);
+        LocalDateTime end = allDay ? endDate.atStartOfDay() : endDate.atTime(endTime != null ? endTime : time);
+        return new ParsedLine(title, start, end, allDay, line, isWelsh(line));
+    }
+
+    static LocalDate parseDate(String text, LocalDate reference) {
+        Matcher m = DATE_PATTERN.matcher(text);
+        if (!m.find()) {
+            return null;
+        }
+        try {
+            if (m.group(1) != null) {
+                int day = Integer.parseInt(m.group(1));
+                int month = Integer.parseInt(m.group(2));
+                int year = Integer.parseInt(m.group(3));
+                if (year < 100) {
+                    year += 2000;
+                }
+                return LocalDate.of(year, month, day);
+            }
+            int day = Integer.parseInt(m.group(4));
+            int month = MONTHS.get(m.group(5).toLowerCase(Locale.ROOT));
+            if (m.group(6) != null) {
+                return LocalDate.of(Integer.parseInt(m.group(6)), month, day);
+            }
+            // No year: the nearest occurrence around the email's date (school mail looks ahead)
+            LocalDate candidate = LocalDate.of(reference.getYear(), month, day);
+            if (candidate.isBefore(reference.minusMonths(2))) {
+                candidate = candidate.plusYears(1);
+            }
+            return candidate;
+        } catch (DateTimeException | NumberFormatException | NullPointerException e) {
+            return null;
+        }
+    }
+
+    private static LocalTime parseTime(Matcher m) {
+        try {
+            if (m.group(1) != null) {
+                int hour = Integer.parseInt(m.group(1));
+                int minute = m.group(2) != null ? Integer.parseInt(m.group(2)) : 0;
+                String meridiem = m.group(3).strip().toLowerCase(Locale.ROOT);
+                if (hour > 12) {
+                    return null;
+                }
+                boolean pm = meridiem.equals("pm") || meridiem.equals("yh");
+                hour = (hour % 12) + (pm ? 12 : 0);
+                return LocalTime.of(hour, minute);
+            }
+            return LocalTime.of(Integer.parseInt(m.group(4)), Integer.parseInt(m.group(5)));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static Pattern timePattern(String line) {
+        return isWelsh(line) ? WELSH_TIME_PATTERN : TIME_PATTERN;
+    }
+
+    private static String cleanTitle(String text) {
+        String title = text.replaceAll("\\s+", " ").strip();
+        String previous;
+        do {
+            previous = title;
+            title = TITLE_CLEANUP.matcher(title).replaceAll("").strip();
+        } while (!title.equals(previous));
+        return title;
+    }
+
+    private static boolean isWelsh(String line) {
+        return countMatches(WELSH_MARKERS, line) > countMatches(ENGLISH_MARKERS, line);
+    }
+
+    private static int countMatches(Pattern pattern, String text) {
+        Matcher m = pattern.matcher(text);
+        int count = 0;
+        while (m.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Bilingual mail lists every event twice. When a Welsh and an English line
+     * describe the same dates, only the English one is kept.
+     */
+    private static List<ParsedLine> dropMirroredTranslations(List<ParsedLine> lines) {
+        List<ParsedLine> kept = new ArrayList<>();
+        for (ParsedLine line : lines) {
+            boolean mirrored = line.welsh() && lines.stream().anyMatch(other -> !other.welsh()
+                    && other.start().equals(line.start()) && other.end().equals(line.end()));
+            if (!mirrored) {
+                kept.add(line);
+            }
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,131 @@
+package com.schoolevents.adapter.out.email;
+
+import com.schoolevents.domain.model.EmailMessage;
+import com.schoolevents.domain.port.out.EmailFetcherPort;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Reads emails from a {@link MaildirArchive} instead of IMAP, for rescans and
+ * replays that should not touch the network. Applies the same sender and
+ * received-since filters as {@link GmailImapAdapter} and returns the newest
+ * first; the archived files are parsed in parallel.
+ */
+public class ArchivedEmailFetcher implements EmailFetcherPort {
+
+    private final MaildirArchive archive;
+    private final String senderFilter;
+    private final String rescanSince;
+    private final EmailParser emailParser = new EmailParser();
+    private final Session session = Session.getInstance(new Properties());
+
+    public ArchivedEmailFetcher(MaildirArchive archive, String senderFilter, String rescanSince) {
+        this.archive = archive;
+        this.senderFilter = senderFilter;
+        this.rescanSince = rescanSince;
+    }
+
+    private record Archived(Path file, long receivedMillis) {
+    }
+
+    @Override
+    public List<EmailMessage> fetchUnprocessedEmails() {
+        long since = sinceMillis();
+        List<Archived> files = new ArrayList<>();
+        for (Path file : archive.list()) {
+            try {
+                long received = Files.getLastModifiedTime(file).toMillis();
+                if (received >= since) {
+                    files.add(new Archived(file, received));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read email archive entry " + file, e);
+            }
+        }
+        files.sort(Comparator.comparingLong(Archived::receivedMillis).reversed());
+
+        long started = System.nanoTime();
+        List<EmailMessage> result = files.parallelStream()
+                .map(this::parse)
+                .filter(Objects::nonNull)
+                .toList();
+        System.out.println("Read " + result.size() + " emails from archive " + archive.root() + " in "
+                + (System.nanoTime() - started) / 1_000_000 + " ms.");
+        return result;
+    }
+
+    private EmailMessage parse(Archived archived) {
+        try (InputStream in = MaildirArchive.open(archived.file())) {
+            Date received = new Date(archived.receivedMillis());
+            MimeMessage message = new MimeMessage(session, in) {
+                // A message parsed from its raw bytes has no IMAP INTERNALDATE
+                @Override
+                public Date getReceivedDate() {
+                    return received;
+                }
+            };
+            if (!matchesSender(message)) {
+                return null;
+            }
+            String[] ids = message.getHeader("Message-ID");
+            if (ids == null || ids.length == 0) {
+                return null;
+            }
+            return emailParser.parse(message, ids[0]);
+        } catch (IOException | MessagingException | RuntimeException e) {
+            System.err.println("Failed to parse archived email " + archived.file() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean matchesSender(MimeMessage message) throws MessagingException {
+        if (senderFilter == null || senderFilter.isBlank()) {
+            return true;
+        }
+        Address[] from = message.getFrom();
+        if (from == null) {
+            return false;
+        }
+        String wanted = senderFilter.trim().toLowerCase();
+        for (Address address : from) {
+            if (address.toString().toLowerCase().contains(wanted)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Start of the rescan window. As with IMAP, the sender filter takes
+     * precedence and a date filter only applies without one.
+     */
+    private long sinceMillis() {
+        if ((senderFilter != null && !senderFilter.isBlank()) || rescanSince == null || rescanSince.isBlank()) {
+            return Long.MIN_VALUE;
+        }
+        try {
+            return LocalDate.parse(rescanSince.trim()).atStartOfDay(ZoneId.systemDefault()).toInstant()
+                    .toEpochMilli();
+        } catch (DateTimeParseException e) {
+            System.err.println("Invalid RESCAN_SINCE format (expected YYYY-MM-DD): " + rescanSince);
+            return Long.MIN_VALUE;
+        }
+    }
+}
@@ -5,11 +5,19 @@ import com.schoolevents.domain.port.out.EmailFetcherPort;
 import com.schoolevents.domain.port.out.ProcessedEmailRepositoryPort;
 import jakarta.mail.*;
 import jakarta.mail.search.FromTerm;
+import jakarta.mail.search.SearchTerm;
+import jakarta.mail.internet.AddressException;
 import jakarta.mail.internet.InternetAddress;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class GmailImapAdapter implements EmailFetcherPort {
 
@@ -19,6 +27,9 @@ public class GmailImapAdapter implements EmailFetcherPort {
     private final String rescanSince;
     private final ProcessedEmailRepositoryPort processedEmailRepository;
     private final EmailParser emailParser;
+    private MaildirArchive archive;
+    private List<String> folders = List.of("INBOX");
+    private int connections = 1;
 
     public GmailImapAdapter(String username, String password, String senderFilter,
             String rescanSince, ProcessedEmailRepositoryPort processedEmailRepository) {
@@ -30,72 +41,178 @@ public class GmailImapAdapter implements EmailFetcherPort {
         this.emailParser = new EmailParser();
     }
 
+    /**
+     * Keeps a raw copy of every fetched message in the archive, so later
+     * rescans can be served by {@link ArchivedEmailFetcher}.
+     */
+    public void archiveTo(MaildirArchive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Searches each of {@code folders} (Gmail labels are folders, e.g.
+     * {@code School} or {@code [Gmail]/All Mail}) instead of only the inbox,
+     * over at most {@code connections} IMAP connections at a time.
+     */
+    public void setFolders(List<String> folders, int connections) {
+        this.folders = List.copyOf(folders);
+        this.connections = Math.max(1, connections);
+    }
+
+    private record FolderFetch(String folder, List<EmailMessage> emails, int found, int duplicates,
+            long elapsedNanos) {
+    }
+
     @Override
     public List<EmailMessage> fetchUnprocessedEmails() {
-        Properties props = new Properties();
-        props.put("mail.store.protocol", "imaps");
-        props.put("mail.imaps.host", "imap.gmail.com");
-        props.put("mail.imaps.port", "993");
+        try (ImapSessionPool pool = new ImapSessionPool("imap.gmail.com", 993, username, password,
+                Math.min(connections, folders.size()))) {
+            return fetchUnprocessedEmails(pool);
+        }
+    }
 
-        List<EmailMessage> result = new ArrayList<>();
+    /** Fetches every folder over connections from {@code pool} and merges them newest first. */
+    List<EmailMessage> fetchUnprocessedEmails(ImapSessionPool pool) {
+        SearchTerm term = searchTerm();
+        // Gmail shows a message once per label it carries; the first folder to see it keeps it
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        int workers = Math.min(connections, folders.size());
 
+        List<FolderFetch> fetches = new ArrayList<>();
+        ExecutorService executor = workers > 1 ? Executors.newFixedThreadPool(workers) : null;
         try {
-            Session session = Session.getInstance(props, null);
-            Store store = session.getStore("imaps");
-            store.connect(username, password);
-
-            Folder inbox = store.getFolder("INBOX");
-            inbox.open(Folder.READ_ONLY);
-
-            Message[] messages;
-            if (senderFilter != null && !senderFilter.isBlank()) {
-                System.out.println("Applying sender filter: " + senderFilter);
-                messages = inbox.search(new FromTerm(new InternetAddress(senderFilter)));
-            } else if (rescanSince != null && !rescanSince.isBlank()) {
-                System.out.println("Applying date filter: Since " + rescanSince);
-                // Expected format: YYYY-MM-DD
-                try {
-                    java.text.SimpleDateFormat df = new java.text.SimpleDateFormat("yyyy-MM-dd");
-                    java.util.Date sinceDate = df.parse(rescanSince);
-                    messages = inbox.search(
-                            new jakarta.mail.search.ReceivedDateTerm(jakarta.mail.search.ComparisonTerm.GE, sinceDate));
-                } catch (Exception e) {
-                    System.err.println("Invalid RESCAN_SINCE format (expected YYYY-MM-DD): " + rescanSince);
-                    messages = fetchLatest(inbox);
+            if (executor == null) {
+                for (String folder : folders) {
+                    fetches.add(fetchFolder(pool, folder, term, seen));
                 }
             } else {
-                messages = fetchLatest(inbox);
+                List<Future<FolderFetch>> futures = new ArrayList<>();
+                for (String folder : folders) {
+                    futures.add(executor.submit(() -> fetchFolder(pool, folder, term, seen)));
+                }
+                for (Future<FolderFetch> future : futures) {
+                    fetches.add(future.get());
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to fetch emails", e.getCause());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch emails", e);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+
+        List<EmailMessage> result = new ArrayList<>();
+        for (FolderFetch fetch : fetches) {
+            System.out.println("Fetched " + fetch.emails().size() + " emails from " + fetch.folder() + " ("
+                    + fetch.found() + " found, " + fetch.duplicates() + " already seen in another folder) in "
+                    + fetch.elapsedNanos() / 1_000_000 + " ms.");
+            result.addAll(fetch.emails());
+        }
+        if (folders.size() > 1) {
+            // Each folder's emails are newest first; keep that order across folders
+            result.sort(Comparator.comparing(EmailMessage::receivedAt,
+                    Comparator.nullsLast(Comparator.reverseOrder())));
+        }
+        return result;
+    }
+
+    private SearchTerm searchTerm() {
+        if (senderFilter != null && !senderFilter.isBlank()) {
+            System.out.println("Applying sender filter: " + senderFilter);
+            try {
+                return new FromTerm(new InternetAddress(senderFilter));
+            } catch (AddressException e) {
+                throw new RuntimeException("Invalid SENDER_FILTER: " + senderFilter, e);
+            }
+        }
+        if (rescanSince != null && !rescanSince.isBlank()) {
+            System.out.println("Applying date filter: Since " + rescanSince);
+            // Expected format: YYYY-MM-DD
+            try {
+                java.text.SimpleDateFormat df = new java.text.SimpleDateFormat("yyyy-MM-dd");
+                java.util.Date sinceDate = df.parse(rescanSince);
+                return new jakarta.mail.search.ReceivedDateTerm(jakarta.mail.search.ComparisonTerm.GE, sinceDate);
+            } catch (Exception e) {
+                System.err.println("Invalid RESCAN_SINCE format (expected YYYY-MM-DD): " + rescanSince);
             }
+        }
+        // Latest messages only
+        return null;
+    }
 
-            // Iterate backwards
-            for (int i = messages.length - 1; i >= 0; i--) {
-                Message msg = messages[i];
-                String messageId = getMessageId(msg);
+    private FolderFetch fetchFolder(ImapSessionPool pool, String folderName, SearchTerm term, Set<String> seen)
+            throws MessagingException, InterruptedException {
+        long started = System.nanoTime();
+        Store store = pool.borrow();
+        try {
+            Folder folder = store.getFolder(folderName);
+            if (!folder.exists()) {
+                System.err.println("IMAP folder not found, skipping: " + folderName);
+                return new FolderFetch(folderName, List.of(), 0, 0, System.nanoTime() - started);
+            }
+            folder.open(Folder.READ_ONLY);
+            try {
+                return fetchOpenFolder(folderName, folder, term, seen, started);
+            } finally {
+                try {
+                    folder.close(false);
+                } catch (MessagingException e) {
+                    // The store goes back to the pool either way; a broken one is replaced on next borrow
+                    System.err.println("Failed to close IMAP folder " + folderName + ": " + e.getMessage());
+                }
+            }
+        } finally {
+            pool.release(store);
+        }
+    }
 
-                if (messageId != null) {
+    private FolderFetch fetchOpenFolder(String folderName, Folder folder, SearchTerm term, Set<String> seen,
+            long started) throws MessagingException {
+        List<EmailMessage> result = new ArrayList<>();
+        Message[] messages = term != null ? folder.search(term) : fetchLatest(folder);
+
+        // Message-IDs in one round trip, so duplicates are skipped before their bodies are downloaded
+        FetchProfile profile = new FetchProfile();
+        profile.add("Message-ID");
+        folder.fetch(messages, profile);
+
+        int duplicates = 0;
+        // Iterate backwards
+        for (int i = messages.length - 1; i >= 0; i--) {
+            Message msg = messages[i];
+            String messageId = getMessageId(msg);
+
+            if (messageId != null) {
+                if (!seen.add(messageId.trim())) {
+                    duplicates++;
+                    continue;
+                }
+                if (archive != null) {
                     try {
-                        result.add(emailParser.parse(msg, messageId));
+                        archive.store(msg, messageId);
                     } catch (Exception e) {
-                        System.err.println("Failed to parse email " + messageId + ": " + e.getMessage());
+                        System.err.println("Failed to archive email " + messageId + ": " + e.getMessage());
                     }
                 }
+                try {
+                    result.add(emailParser.parse(msg, messageId));
+                } catch (Exception e) {
+                    System.err.println("Failed to parse email " + messageId + ": " + e.getMessage());
+                }
             }
-
-            inbox.close(false);
-            store.close();
-
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to fetch emails", e);
         }
 
-        return result;
+        return new FolderFetch(folderName, result, messages.length, duplicates, System.nanoTime() - started);
     }
 
-    private Message[] fetchLatest(Folder inbox) throws MessagingException {
-        int totalMessages = inbox.getMessageCount();
+    private Message[] fetchLatest(Folder folder) throws MessagingException {
+        int totalMessages = folder.getMessageCount();
         int start = Math.max(1, totalMessages - 199); // Fetch last 200
         int end = totalMessages;
-        return totalMessages > 0 ? inbox.getMessages(start, end) : new Message[0];
+        return totalMessages > 0 ? folder.getMessages(start, end) : new Message[0];
     }
 
     private String getMessageId(Message msg) {
@@ -0,0 +1,89 @@
+package com.schoolevents.adapter.out.email;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Store;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+
+/**
+ * At most {@code size} authenticated IMAP connections to one account, opened
+ * on first use and handed out one caller at a time, so folders fetched one
+ * after another reuse a connection instead of logging in again.
+ */
+final class ImapSessionPool implements AutoCloseable {
+
+    /** Opens and logs in one new connection. */
+    interface Connector {
+        Store connect() throws MessagingException;
+    }
+
+    private final Connector connector;
+    private final Semaphore permits;
+    private final Deque<Store> idle = new ArrayDeque<>();
+
+    ImapSessionPool(String host, int port, String username, String password, int size) {
+        this(imaps(host, port, username, password), size);
+    }
+
+    ImapSessionPool(Connector connector, int size) {
+        this.connector = connector;
+        this.permits = new Semaphore(Math.max(1, size));
+    }
+
+    private static Connector imaps(String host, int port, String username, String password) {
+        Properties props = new Properties();
+        props.put("mail.store.protocol", "imaps");
+        props.put("mail.imaps.host", host);
+        props.put("mail.imaps.port", String.valueOf(port));
+        Session session = Session.getInstance(props, null);
+        return () -> {
+            Store store = session.getStore("imaps");
+            store.connect(username, password);
+            return store;
+        };
+    }
+
+    /** A connected store; blocks while all connections are in use. Give it back with {@link #release}. */
+    Store borrow() throws MessagingException, InterruptedException {
+        permits.acquire();
+        try {
+            Store store;
+            synchronized (idle) {
+                store = idle.pollFirst();
+            }
+            if (store != null && store.isConnected()) {
+                return store;
+            }
+            // Never opened, or dropped by the server while idle
+            return connector.connect();
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    void release(Store store) {
+        synchronized (idle) {
+            idle.addFirst(store);
+        }
+        permits.release();
+    }
+
+    @Override
+    public void close() {
+        synchronized (idle) {
+            for (Store store : idle) {
+                try {
+                    store.close();
+                } catch (MessagingException e) {
+                    // Logging out is best effort
+                }
+            }
+            idle.clear();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.schoolevents.adapter.out.email;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A local copy of every fetched email's raw RFC 822 bytes, so rescans can be
+ * replayed without talking to IMAP.
+ *
+ * Laid out like a Maildir: a message is streamed gzip-compressed into
+ * {@code tmp/} and atomically moved into {@code cur/<xx>/<sha256>.eml.gz},
+ * named by the SHA-256 of its Message-ID (sharded by the first two hex digits)
+ * so it is written at most once. The file's modification time is the date
+ * the message was received.
+ */
+public class MaildirArchive {
+
+    private static final String SUFFIX = ".eml.gz";
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final Path root;
+
+    public MaildirArchive(Path root) {
+        this.root = root;
+        try {
+            Files.createDirectories(root.resolve("tmp"));
+            Files.createDirectories(root.resolve("cur"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create email archive at " + root, e);
+        }
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    public boolean contains(String messageId) {
+        return Files.exists(pathFor(messageId));
+    }
+
+    /**
+     * Archives the message unless it is already there; returns whether it was
+     * written. The raw bytes go straight from {@link Message#writeTo} through
+     * the compressor into the file channel, never held in memory whole.
+     */
+    public boolean store(Message message, String messageId) throws MessagingException, IOException {
+        Path target = pathFor(messageId);
+        if (Files.exists(target)) {
+            return false;
+        }
+        Path tmp = Files.createTempFile(root.resolve("tmp"), target.getFileName().toString(), ".part");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                    OutputStream out = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_BYTES)) {
+                message.writeTo(out);
+            }
+            Date received = message.getReceivedDate() != null ? message.getReceivedDate() : message.getSentDate();
+            if (received != null) {
+                Files.setLastModifiedTime(tmp, FileTime.fromMillis(received.getTime()));
+            }
+            Files.createDirectories(target.getParent());
+            // A concurrent run archiving the same message just replaces identical bytes
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Every archived message file. */
+    public List<Path> list() {
+        try (Stream<Path> files = Files.walk(root.resolve("cur"))) {
+            return files.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list email archive at " + root, e);
+        }
+    }
+
+    /**
+     * Opens an archived message as its decompressed RFC 822 bytes. The file is
+     * memory-mapped, so reading it costs no copy into a heap buffer; the
+     * mapping is released when the stream becomes unreachable.
+     */
+    public static InputStream open(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return new GZIPInputStream(new ByteBufferInputStream(mapped), BUFFER_BYTES);
+    }
+
+    Path pathFor(String messageId) {
+        String hash = sha256(messageId.trim());
+        return root.resolve("cur").resolve(hash.substring(0, 2)).resolve(hash + SUFFIX);
+    }
+
+    private static String sha256(String value) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.schoolevents.adapter.out.filesystem;
+
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.port.out.EventRepositoryPort;
+import com.schoolevents.domain.service.YearGroups;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Writes iCalendar feeds that phone calendar apps can subscribe to: one feed
+ * with every event ({@code calendar.ics}) and one per configured year group
+ * ({@code calendar-year3.ics}) holding that year's events plus whole-school
+ * ones.
+ *
+ * Events are streamed from the repository cursor straight into all feeds at
+ * once. Only recurring events are held back: each weekly series is kept as its
+ * list of dates and written once at the end as a single {@code VEVENT} with an
+ * {@code RRULE}, plus {@code EXDATE}s for skipped weeks such as half term.
+ *
+ * A feed file is only replaced when its content hash changes, so subscribers
+ * polling with conditional requests see an unchanged file between runs.
+ */
+public class IcsExporter {
+
+    private static final String PRODID = "-//School Events Organizer//EN";
+    private static final String UID_DOMAIN = "@school-events";
+    private static final int MAX_LINE_OCTETS = 75;
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    private final EventRepositoryPort eventRepository;
+    private final Path outputDir;
+    private final List<Integer> yearGroups;
+
+    public IcsExporter(EventRepositoryPort eventRepository, String outputDir, List<Integer> yearGroups) {
+        this.eventRepository = eventRepository;
+        this.outputDir = Path.of(outputDir);
+        this.yearGroups = yearGroups;
+    }
+
+    /**
+     * Writes all feeds and returns the file names of those whose content
+     * changed.
+     */
+    public List<String> export() {
+        try {
+            Files.createDirectories(outputDir);
+            List<Feed> feeds = new ArrayList<>();
+            feeds.add(new Feed("calendar.ics", null));
+            for (Integer year : yearGroups) {
+                feeds.add(new Feed("calendar-year" + year + ".ics", year));
+            }
+
+            Map<String, Series> series = new LinkedHashMap<>();
+            try {
+                eventRepository.forEachEvent(event -> {
+                    if (event.isRecurring()) {
+                        series.computeIfAbsent(seriesKey(event), k -> new Series(event)).add(event);
+                        return;
+                    }
+                    String vevent = singleEvent(event);
+                    Integer year = YearGroups.extract(event.title());
+                    for (Feed feed : feeds) {
+                        feed.write(year, vevent);
+                    }
+                });
+                for (Series s : series.values()) {
+                    String vevent = s.toVEvent();
+                    if (vevent == null) {
+                        continue;
+                    }
+                    Integer year = YearGroups.extract(s.template.title());
+                    for (Feed feed : feeds) {
+                        feed.write(year, vevent);
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            List<String> changed = new ArrayList<>();
+            for (Feed feed : feeds) {
+                if (feed.finish()) {
+                    changed.add(feed.name);
+                }
+            }
+            System.out.println("ICS export: " + feeds.size() + " feed(s), " + changed.size() + " changed "
+                    + changed + ", " + series.size() + " recurring series.");
+            return changed;
+        } catch (IOException e) {
+            System.err.println("Failed to export ICS feeds: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    private final class Feed {
+        private final String name;
+        private final Integer year;
+        private final Path target;
+        private final Path temp;
+        private final MessageDigest digest;
+        private final Writer writer;
+
+        Feed(String name, Integer year) throws IOException {
+            this.name = name;
+            this.year = year;
+            this.target = outputDir.resolve(name);
+            this.temp = outputDir.resolve(name + ".tmp");
+            this.digest = sha256();
+            this.writer = new BufferedWriter(new OutputStreamWriter(
+                    new DigestOutputStream(Files.newOutputStream(temp), digest), StandardCharsets.UTF_8));
+            line("BEGIN:VCALENDAR");
+            line("VERSION:2.0");
+            line("PRODID:" + PRODID);
+            line("CALSCALE:GREGORIAN");
+            line("METHOD:PUBLISH");
+            line("X-WR-CALNAME:" + escape(year == null ? "School Events" : "School Events - Year " + year));
+        }
+
+        void write(Integer eventYear, String vevent) {
+            // Whole-school events (no year group in the title) belong in every feed
+            if (year != null && eventYear != null && !year.equals(eventYear)) {
+                return;
+            }
+            try {
+                writer.write(vevent);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Closes the feed and moves it into place if it differs from the
+         * current file. Returns whether the file changed.
+         */
+        boolean finish() throws IOException {
+            line("END:VCALENDAR");
+            writer.close();
+
+            byte[] hash = digest.digest();
+            if (Files.exists(target) && Arrays.equals(hash, hashOf(target))) {
+                Files.delete(temp);
+                return false;
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        }
+
+        private void line(String text) throws IOException {
+            writer.write(text);
+            writer.write("\r\n");
+        }
+    }
+
+    /**
+     * Dates of one weekly recurring event, keyed by title, weekday, time and
+     * duration.
+     */
+    private static final class Series {
+        private final Event template;
+        private final TreeSet<LocalDate> dates = new TreeSet<>();
+
+        Series(Event template) {
+            this.template = template;
+        }
+
+        void add(Event event) {
+            // A cancelled instance is simply a skipped week
+            if (event.status() != Event.Status.CANCELLED) {
+                dates.add(event.startDate().toLocalDate());
+            }
+        }
+
+        String toVEvent() {
+            if (dates.isEmpty()) {
+                return null;
+            }
+            LocalDate first = dates.first();
+            LocalDate last = dates.last();
+            Event firstEvent = shift(template, first);
+            if (first.equals(last)) {
+                return singleEvent(firstEvent);
+            }
+
+            List<String> exdates = new ArrayList<>();
+            for (LocalDate week = first.plusWeeks(1); week.isBefore(last); week = week.plusWeeks(1)) {
+                if (!dates.contains(week)) {
+                    exdates.add(template.allDay() ? DATE.format(week)
+                            : DATE_TIME.format(week.atTime(template.startDate().toLocalTime())));
+                }
+            }
+            String until = template.allDay() ? DATE.format(last)
+                    : DATE_TIME.format(last.atTime(template.startDate().toLocalTime()));
+
+            StringBuilder sb = new StringBuilder();
+            String uid = UUID.nameUUIDFromBytes(seriesKey(template).getBytes(StandardCharsets.UTF_8)) + UID_DOMAIN;
+            beginEvent(sb, firstEvent, uid);
+            fold(sb, "RRULE:FREQ=WEEKLY;UNTIL=" + until);
+            if (!exdates.isEmpty()) {
+                fold(sb, (template.allDay() ? "EXDATE;VALUE=DATE:" : "EXDATE:") + String.join(",", exdates));
+            }
+            fold(sb, "STATUS:CONFIRMED");
+            fold(sb, "END:VEVENT");
+            return sb.toString();
+        }
+    }
+
+    private static String seriesKey(Event event) {
+        Duration length = event.endDate() != null ? Duration.between(event.startDate(), event.endDate())
+                : Duration.ZERO;
+        return event.title().toLowerCase().replaceAll("\\s+", " ").trim()
+                + "|" + event.startDate().getDayOfWeek()
+                + "|" + (event.allDay() ? "all-day" : event.startDate().toLocalTime())
+                + "|" + length.toMinutes();
+    }
+
+    private static Event shift(Event event, LocalDate date) {
+        long days = date.toEpochDay() - event.startDate().toLocalDate().toEpochDay();
+        return new Event(event.id(), event.title(), event.startDate().plusDays(days),
+                event.endDate() != null ? event.endDate().plusDays(days) : null, event.allDay(), event.notes(),
+                event.confidence(), event.status(), event.isRecurring(), event.sourceEmailId(),
+                event.sourceEmailSubject(), event.sourceEmailReceivedAt());
+    }
+
+    private static String singleEvent(Event event) {
+        StringBuilder sb = new StringBuilder();
+        beginEvent(sb, event, event.id() + UID_DOMAIN);
+        fold(sb, "STATUS:" + (event.status() == Event.Status.CANCELLED ? "CANCELLED" : "CONFIRMED"));
+        fold(sb, "END:VEVENT");
+        return sb.toString();
+    }
+
+    private static void beginEvent(StringBuilder sb, Event event, String uid) {
+        fold(sb, "BEGIN:VEVENT");
+        fold(sb, "UID:" + escape(uid));
+        // DTSTAMP must not change between runs, or every export would alter the feed
+        LocalDateTime stamp = event.sourceEmailReceivedAt() != null ? event.sourceEmailReceivedAt()
+                : LocalDateTime.of(1970, 1, 1, 0, 0);
+        fold(sb, "DTSTAMP:" + DATE_TIME.format(stamp) + "Z");
+        if (event.allDay()) {
+            LocalDate start = event.startDate().toLocalDate();
+            LocalDate end = event.endDate() != null ? event.endDate().toLocalDate() : start;
+            fold(sb, "DTSTART;VALUE=DATE:" + DATE.format(start));
+            fold(sb, "DTEND;VALUE=DATE:" + DATE.format((end.isBefore(start) ? start : end).plusDays(1)));
+        } else {
+            fold(sb, "DTSTART:" + DATE_TIME.format(event.startDate()));
+            if (event.endDate() != null && event.endDate().isAfter(event.startDate())) {
+                fold(sb, "DTEND:" + DATE_TIME.format(event.endDate()));
+            }
+        }
+        fold(sb, "SUMMARY:" + escape(event.title()));
+        if (event.notes() != null && !event.notes().isBlank()) {
+            fold(sb, "DESCRIPTION:" + escape(event.notes()));
+        }
+    }
+
+    static String escape(String text) {
+        return text.replace("\\", "\\\\")
+                .replace(";", "\\;")
+                .replace(",", "\\,")
+                .replace("\r\n", "\\n")
+                .replace("\n", "\\n")
+                .replace("\r", "\\n");
+    }
+
+    /**
+     * Appends a content line, folded at 75 octets as RFC 5545 requires
+     * without splitting a UTF-8 sequence.
+     */
+    static void fold(StringBuilder sb, String line) {
+        int octets = 0;
+        for (int i = 0; i < line.length();) {
+            int cp = line.codePointAt(i);
+            int size = cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+            if (octets + size > MAX_LINE_OCTETS) {
+                sb.append("\r\n ");
+                octets = 1;
+            }
+            sb.appendCodePoint(cp);
+            octets += size;
+            i += Character.charCount(cp);
+        }
+        sb.append("\r\n");
+    }
+
+    private static byte[] hashOf(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
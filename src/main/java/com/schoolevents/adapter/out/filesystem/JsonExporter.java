@@ -1,14 +1,23 @@
 package com.schoolevents.adapter.out.filesystem;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.schoolevents.domain.model.Event;
 import com.schoolevents.domain.port.out.EventRepositoryPort;
 import com.schoolevents.domain.port.out.StoragePort;
+import com.schoolevents.infrastructure.security.AesEncryptionUtil;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 
 public class JsonExporter {
@@ -28,64 +37,165 @@ public class JsonExporter {
         this.objectMapper.registerModule(new JavaTimeModule());
         this.objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
         this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        // Events are written one by one into a generator; flushing after each would defeat buffering
+        this.objectMapper.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     public void export() {
-        List<Event> events = eventRepository.findAll();
-
-        // 0. Merge with manual_events.json if it exists
-        File manualFile = new File("manual_events.json");
-        if (manualFile.exists()) {
-            System.out.println("Merging manual_events.json...");
-            try {
-                List<Event> manualEvents = objectMapper.readValue(manualFile,
-                        objectMapper.getTypeFactory().constructCollectionType(List.class, Event.class));
-                events.addAll(manualEvents);
-            } catch (IOException e) {
-                System.err.println("Warning: Could not read manual_events.json: " + e.getMessage());
-            }
-        }
-
         File file = new File(outputPath);
         file.getParentFile().mkdirs(); // Ensure directory exists
+        Path dir = file.getParentFile().toPath();
+        Path tempFile = null;
+        Path tempPlainFile = null;
         try {
-            // 1. Prepare Content
-            String jsonContent = objectMapper.writeValueAsString(events);
+            // 1. Open Sinks: the encrypted file and the plain copy are fed from one pass.
+            // Both are written next to their targets and only moved into place once complete,
+            // so a failed export never leaves a truncated file to be served or uploaded.
+            OutputStream target = null;
             boolean isEncrypted = false;
+            File plainFile = new File(file.getParent(), "events_plain.json");
+            tempFile = Files.createTempFile(dir, file.getName(), ".part");
 
             if (uiPassword != null && !uiPassword.isBlank()) {
                 System.out.println("Encrypting data with UI Password...");
+                OutputStream encryptedFile = new BufferedOutputStream(Files.newOutputStream(tempFile));
                 try {
-                    jsonContent = com.schoolevents.infrastructure.security.AesEncryptionUtil.encrypt(jsonContent,
-                            uiPassword);
+                    tempPlainFile = Files.createTempFile(dir, plainFile.getName(), ".part");
+                    target = new TeeOutputStream(AesEncryptionUtil.encryptingStream(encryptedFile, uiPassword),
+                            new BufferedOutputStream(Files.newOutputStream(tempPlainFile)));
                     isEncrypted = true;
                 } catch (Exception e) {
+                    encryptedFile.close();
                     System.err.println("Encryption failed: " + e.getMessage());
                     // Fallback to unencrypted for local if encryption fails?
                     // No, for GitHub Pages we want safety.
                 }
             }
+            if (target == null) {
+                target = new BufferedOutputStream(Files.newOutputStream(tempFile));
+            }
 
-            // 2. Write Local Files
-            java.nio.file.Files.writeString(file.toPath(), jsonContent);
-            System.out.println("Exported " + events.size() + " events to local file " +
+            // 2. Stream Events straight from the repository cursor
+            int count = writeEvents(target);
+            if (isEncrypted) {
+                moveIntoPlace(tempPlainFile, plainFile.toPath());
+            }
+            moveIntoPlace(tempFile, file.toPath());
+            System.out.println("Exported " + count + " events to local file " +
                     (isEncrypted ? "(ENCRYPTED)" : "(PLAIN)") + ": " + file.getAbsolutePath());
-
-            // 2b. Secondary Unencrypted Export (for inspection)
             if (isEncrypted) {
-                File plainFile = new File(file.getParent(), "events_plain.json");
-                java.nio.file.Files.writeString(plainFile.toPath(), objectMapper.writeValueAsString(events));
                 System.out.println("Exported PLAIN events to: " + plainFile.getAbsolutePath());
             }
 
-            // 2. Upload to Cloud (if enabled)
+            // 3. Upload to Cloud (if enabled)
             if (storagePort != null) {
                 System.out.println("Uploading to Storage...");
-                storagePort.upload("events.json", jsonContent.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                storagePort.upload("events.json", Files.readAllBytes(file.toPath()));
             }
 
-        } catch (IOException e) {
+        } catch (IOException | RuntimeException e) {
             System.err.println("Failed to export events: " + e.getMessage());
+        } finally {
+            deleteQuietly(tempFile);
+            deleteQuietly(tempPlainFile);
+        }
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void deleteQuietly(Path temp) {
+        if (temp == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            System.err.println("Could not remove partial export " + temp + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the JSON array of all stored events followed by the manual ones,
+     * one event at a time, and closes the target. Returns the number written.
+     */
+    private int writeEvents(OutputStream target) throws IOException {
+        int[] count = { 0 };
+        try (JsonGenerator generator = objectMapper.createGenerator(target, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            eventRepository.forEachEvent(event -> {
+                try {
+                    objectMapper.writeValue(generator, event);
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            // Merge with manual_events.json if it exists
+            File manualFile = new File("manual_events.json");
+            if (manualFile.exists()) {
+                System.out.println("Merging manual_events.json...");
+                try {
+                    List<Event> manualEvents = objectMapper.readValue(manualFile,
+                            objectMapper.getTypeFactory().constructCollectionType(List.class, Event.class));
+                    for (Event event : manualEvents) {
+                        objectMapper.writeValue(generator, event);
+                        count[0]++;
+                    }
+                } catch (IOException e) {
+                    System.err.println("Warning: Could not read manual_events.json: " + e.getMessage());
+                }
+            }
+            generator.writeEndArray();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return count[0];
+    }
+
+    /**
+     * Writes every byte to both streams.
+     */
+    private static final class TeeOutputStream extends OutputStream {
+        private final OutputStream first;
+        private final OutputStream second;
+
+        TeeOutputStream(OutputStream first, OutputStream second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            first.write(b);
+            second.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            first.write(b, off, len);
+            second.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            first.flush();
+            second.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                try {
+                    first.close();
+                } finally {
+                    second.close();
+                }
+            }
         }
     }
 }
@@ -0,0 +1,443 @@
+package com.schoolevents.adapter.out.persistence;
+
+import com.schoolevents.domain.model.Event;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Columnar in-memory copy of the events table. Each event occupies one slot
+ * across parallel primitive arrays (epoch-second start/end, byte-coded status
+ * and flags); titles and subjects are interned so their many repeats share
+ * one string. A second array keeps the slots ordered by start,
+ * so date and range queries are binary searches followed by tight loops, and
+ * {@link Event} records are only built for the rows a query returns.
+ *
+ * Overlap queries use a calendar-bucketed interval index: every event is
+ * listed under each day its span touches, so "everything overlapping [a, b)"
+ * only visits the buckets of the days in the window, independent of the size
+ * of the store. Spans longer than {@value #LONG_SPAN_DAYS} days (whole terms)
+ * are kept in a short side list instead of being spread over many buckets.
+ *
+ * Writes update the affected slot and its position in the ordering in place.
+ * Timestamps are kept to the second. Safe for concurrent readers and writers.
+ */
+public class EventIndex {
+
+    private static final Event.Status[] STATUSES = Event.Status.values();
+    private static final byte ALL_DAY = 1;
+    private static final byte RECURRING = 2;
+    private static final byte HAS_END = 4;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final long DAY_SECONDS = 86_400;
+    static final int LONG_SPAN_DAYS = 62;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private final Map<String, String> interned = new HashMap<>();
+
+    // Columns, indexed by slot
+    private String[] ids;
+    private String[] titles;
+    private String[] notes;
+    private String[] sourceEmailIds;
+    private String[] subjects;
+    private long[] starts;
+    private long[] ends; // equals start when the event has no end date
+    private long[] receivedAts;
+    private double[] confidences;
+    private byte[] statuses;
+    private byte[] flags;
+
+    // Interval index: slots by each epoch day their span touches, plus long spans
+    private final Map<Long, SlotList> slotsByDay = new HashMap<>();
+    private final SlotList longSpans = new SlotList();
+
+    // Live slots sorted by (start, slot)
+    private int[] order;
+    private int size;
+    private int[] freeSlots = new int[0];
+    private int freeCount;
+    private int slotCount;
+
+    public EventIndex() {
+        allocate(1024);
+    }
+
+    /**
+     * Builds an index from a full scan of the repository cursor.
+     */
+    public static EventIndex load(Consumer<Consumer<Event>> source) {
+        EventIndex index = new EventIndex();
+        source.accept(index::put);
+        return index;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long countRecurring() {
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            for (int i = 0; i < size; i++) {
+                count += (flags[order[i]] & RECURRING) != 0 ? 1 : 0;
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(Event event) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = slotById.get(event.id());
+            int slot;
+            if (existing != null) {
+                slot = existing;
+                removeFromOrder(slot);
+                unregisterSpan(slot);
+            } else {
+                slot = freeCount > 0 ? freeSlots[--freeCount] : slotCount++;
+                if (slot >= starts.length) {
+                    allocate(starts.length * 2);
+                }
+                slotById.put(event.id(), slot);
+            }
+            write(slot, event);
+            insertIntoOrder(slot);
+            registerSpan(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.remove(id);
+            if (slot == null) {
+                return;
+            }
+            removeFromOrder(slot);
+            unregisterSpan(slot);
+            ids[slot] = titles[slot] = notes[slot] = sourceEmailIds[slot] = subjects[slot] = null;
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, Math.max(16, freeCount * 2));
+            }
+            freeSlots[freeCount++] = slot;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Optional<Event> findById(String id) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotById.get(id);
+            return slot == null ? Optional.empty() : Optional.of(toEvent(slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The earliest-starting event.
+     */
+    public Optional<Event> first() {
+        lock.readLock().lock();
+        try {
+            return size == 0 ? Optional.empty() : Optional.of(toEvent(order[0]));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Event> findAll() {
+        lock.readLock().lock();
+        try {
+            List<Event> events = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                events.add(toEvent(order[i]));
+            }
+            return events;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void forEach(Consumer<Event> consumer) {
+        // Materialized under the lock, then handed out, so a slow consumer does not block writers
+        findAll().forEach(consumer);
+    }
+
+    /**
+     * Events starting in [from, to).
+     */
+    public List<Event> findStartingBetween(LocalDateTime from, LocalDateTime to) {
+        long lo = epoch(from);
+        long hi = epoch(to);
+        lock.readLock().lock();
+        try {
+            List<Event> events = new ArrayList<>();
+            for (int i = lowerBound(lo); i < size && starts[order[i]] < hi; i++) {
+                events.add(toEvent(order[i]));
+            }
+            return events;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Events whose [start, end] intersects [from, to), in start order.
+     */
+    public List<Event> findOverlapping(LocalDateTime from, LocalDateTime to) {
+        long lo = epoch(from);
+        long hi = epoch(to);
+        long firstDay = Math.floorDiv(lo, DAY_SECONDS);
+        long lastDay = Math.floorDiv(hi - 1, DAY_SECONDS);
+        lock.readLock().lock();
+        try {
+            if (lastDay - firstDay + 1 > size) {
+                // A window wider than the store has days in it: a scan is cheaper
+                List<Event> events = new ArrayList<>();
+                int limit = lowerBound(hi);
+                for (int i = 0; i < limit; i++) {
+                    int slot = order[i];
+                    if (ends[slot] >= lo) {
+                        events.add(toEvent(slot));
+                    }
+                }
+                return events;
+            }
+
+            SlotList matches = new SlotList();
+            for (long day = firstDay; day <= lastDay; day++) {
+                SlotList bucket = slotsByDay.get(day);
+                if (bucket == null) {
+                    continue;
+                }
+                for (int i = 0; i < bucket.size; i++) {
+                    int slot = bucket.items[i];
+                    // A span sits in several buckets; take it only from the first one in the window
+                    if (starts[slot] < hi && ends[slot] >= lo
+                            && Math.max(Math.floorDiv(starts[slot], DAY_SECONDS), firstDay) == day) {
+                        matches.add(slot);
+                    }
+                }
+            }
+            for (int i = 0; i < longSpans.size; i++) {
+                int slot = longSpans.items[i];
+                if (starts[slot] < hi && ends[slot] >= lo) {
+                    matches.add(slot);
+                }
+            }
+
+            Integer[] sorted = new Integer[matches.size];
+            for (int i = 0; i < matches.size; i++) {
+                sorted[i] = matches.items[i];
+            }
+            Arrays.sort(sorted, (a, b) -> starts[a] != starts[b] ? Long.compare(starts[a], starts[b])
+                    : Integer.compare(a, b));
+            List<Event> events = new ArrayList<>(sorted.length);
+            for (int slot : sorted) {
+                events.add(toEvent(slot));
+            }
+            return events;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<Event> findByTitleAndStartDate(String title, LocalDateTime startDate) {
+        long start = epoch(startDate);
+        lock.readLock().lock();
+        try {
+            for (int i = lowerBound(start); i < size && starts[order[i]] == start; i++) {
+                if (titles[order[i]].equals(title)) {
+                    return Optional.of(toEvent(order[i]));
+                }
+            }
+            return Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static long epoch(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime fromEpoch(long seconds) {
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * First position in {@link #order} whose start is >= the given value.
+     */
+    private int lowerBound(long start) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[order[mid]] < start) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int positionOf(int slot) {
+        // Ties on start are ordered by slot, so the exact position is found by binary search too
+        long start = starts[slot];
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int other = order[mid];
+            if (starts[other] < start || (starts[other] == start && other < slot)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void insertIntoOrder(int slot) {
+        int pos = positionOf(slot);
+        System.arraycopy(order, pos, order, pos + 1, size - pos);
+        order[pos] = slot;
+        size++;
+    }
+
+    private void removeFromOrder(int slot) {
+        int pos = positionOf(slot);
+        System.arraycopy(order, pos + 1, order, pos, size - pos - 1);
+        size--;
+    }
+
+    private void registerSpan(int slot) {
+        long firstDay = Math.floorDiv(starts[slot], DAY_SECONDS);
+        long lastDay = Math.max(firstDay, Math.floorDiv(ends[slot], DAY_SECONDS));
+        if (lastDay - firstDay >= LONG_SPAN_DAYS) {
+            longSpans.add(slot);
+            return;
+        }
+        for (long day = firstDay; day <= lastDay; day++) {
+            slotsByDay.computeIfAbsent(day, d -> new SlotList()).add(slot);
+        }
+    }
+
+    private void unregisterSpan(int slot) {
+        long firstDay = Math.floorDiv(starts[slot], DAY_SECONDS);
+        long lastDay = Math.max(firstDay, Math.floorDiv(ends[slot], DAY_SECONDS));
+        if (lastDay - firstDay >= LONG_SPAN_DAYS) {
+            longSpans.remove(slot);
+            return;
+        }
+        for (long day = firstDay; day <= lastDay; day++) {
+            SlotList bucket = slotsByDay.get(day);
+            if (bucket != null) {
+                bucket.remove(slot);
+                if (bucket.size == 0) {
+                    slotsByDay.remove(day);
+                }
+            }
+        }
+    }
+
+    /**
+     * Unordered growable list of slots.
+     */
+    private static final class SlotList {
+        private int[] items = new int[4];
+        private int size;
+
+        void add(int slot) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = slot;
+        }
+
+        void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (items[i] == slot) {
+                    items[i] = items[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private void write(int slot, Event event) {
+        ids[slot] = event.id();
+        titles[slot] = intern(event.title());
+        notes[slot] = event.notes();
+        sourceEmailIds[slot] = event.sourceEmailId();
+        subjects[slot] = intern(event.sourceEmailSubject());
+        starts[slot] = epoch(event.startDate());
+        ends[slot] = event.endDate() != null ? epoch(event.endDate()) : starts[slot];
+        receivedAts[slot] = event.sourceEmailReceivedAt() != null ? epoch(event.sourceEmailReceivedAt()) : NO_TIME;
+        confidences[slot] = event.confidence() != null ? event.confidence() : Double.NaN;
+        statuses[slot] = (byte) event.status().ordinal();
+        flags[slot] = (byte) ((event.allDay() ? ALL_DAY : 0) | (event.isRecurring() ? RECURRING : 0)
+                | (event.endDate() != null ? HAS_END : 0));
+    }
+
+    private Event toEvent(int slot) {
+        byte f = flags[slot];
+        return new Event(
+                ids[slot],
+                titles[slot],
+                fromEpoch(starts[slot]),
+                (f & HAS_END) != 0 ? fromEpoch(ends[slot]) : null,
+                (f & ALL_DAY) != 0,
+                notes[slot],
+                Double.isNaN(confidences[slot]) ? null : confidences[slot],
+                STATUSES[statuses[slot]],
+                (f & RECURRING) != 0,
+                sourceEmailIds[slot],
+                subjects[slot],
+                receivedAts[slot] != NO_TIME ? fromEpoch(receivedAts[slot]) : null);
+    }
+
+    private String intern(String value) {
+        return value == null ? null : interned.computeIfAbsent(value, v -> v);
+    }
+
+    private void allocate(int capacity) {
+        ids = ids == null ? new String[capacity] : Arrays.copyOf(ids, capacity);
+        titles = titles == null ? new String[capacity] : Arrays.copyOf(titles, capacity);
+        notes = notes == null ? new String[capacity] : Arrays.copyOf(notes, capacity);
+        sourceEmailIds = sourceEmailIds == null ? new String[capacity] : Arrays.copyOf(sourceEmailIds, capacity);
+        subjects = subjects == null ? new String[capacity] : Arrays.copyOf(subjects, capacity);
+        starts = starts == null ? new long[capacity] : Arrays.copyOf(starts, capacity);
+        ends = ends == null ? new long[capacity] : Arrays.copyOf(ends, capacity);
+        receivedAts = receivedAts == null ? new long[capacity] : Arrays.copyOf(receivedAts, capacity);
+        confidences = confidences == null ? new double[capacity] : Arrays.copyOf(confidences, capacity);
+        statuses = statuses == null ? new byte[capacity] : Arrays.copyOf(statuses, capacity);
+        flags = flags == null ? new byte[capacity] : Arrays.copyOf(flags, capacity);
+        order = order == null ? new int[capacity] : Arrays.copyOf(order, capacity);
+    }
+}
@@ -0,0 +1,79 @@
+package com.schoolevents.adapter.out.persistence;
+
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.port.out.EventRepositoryPort;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Event repository that answers reads from an in-memory {@link EventIndex}
+ * loaded once from the underlying store. Writes go to the store first and are
+ * then applied to the index, so both stay in step for the life of the process.
+ */
+public class IndexedEventRepository implements EventRepositoryPort {
+
+    private final EventRepositoryPort delegate;
+    private final EventIndex index;
+
+    public IndexedEventRepository(EventRepositoryPort delegate) {
+        this.delegate = delegate;
+        this.index = EventIndex.load(delegate::forEachEvent);
+    }
+
+    public EventIndex index() {
+        return index;
+    }
+
+    @Override
+    public void save(Event event) {
+        delegate.save(event);
+        index.put(event);
+    }
+
+    @Override
+    public List<Event> findAll() {
+        return index.findAll();
+    }
+
+    @Override
+    public void forEachEvent(Consumer<Event> consumer) {
+        index.forEach(consumer);
+    }
+
+    @Override
+    public Optional<Event> findById(String id) {
+        return index.findById(id);
+    }
+
+    @Override
+    public Optional<Event> findByTitleAndStartDate(String title, LocalDateTime startDate) {
+        return index.findByTitleAndStartDate(title, startDate);
+    }
+
+    @Override
+    public List<Event> findByDate(LocalDateTime date) {
+        LocalDateTime dayStart = date.toLocalDate().atStartOfDay();
+        return index.findStartingBetween(dayStart, dayStart.plusDays(1));
+    }
+
+    @Override
+    public List<Event> findOverlapping(LocalDateTime from, LocalDateTime to) {
+        return index.findOverlapping(from, to);
+    }
+
+    @Override
+    public void delete(String id) {
+        delegate.delete(id);
+        index.remove(id);
+    }
+
+    @Override
+    public void applyChanges(List<Event> upserts, List<String> deletes) {
+        delegate.applyChanges(upserts, deletes);
+        upserts.forEach(index::put);
+        deletes.forEach(index::remove);
+    }
+}
@@ -1,52 +1,159 @@
 package com.schoolevents.adapter.out.persistence;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
-import java.sql.Statement;
+import com.schoolevents.adapter.out.persistence.SchemaMigrator.AddColumn;
+import com.schoolevents.adapter.out.persistence.SchemaMigrator.Check;
+import com.schoolevents.adapter.out.persistence.SchemaMigrator.ChunkedCopy;
+import com.schoolevents.adapter.out.persistence.SchemaMigrator.Migration;
+import com.schoolevents.adapter.out.persistence.SchemaMigrator.Sql;
+
+import java.util.List;
 
 public class SchemaInitializer {
+
+    /**
+     * Every schema change, oldest first. Never edit a migration that has
+     * shipped (its checksum is recorded); add a new one instead.
+     */
+    static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "text events table",
+                    new Sql("CREATE TABLE IF NOT EXISTS events (" +
+                            "id TEXT PRIMARY KEY, " +
+                            "title TEXT NOT NULL, " +
+                            "start_date TEXT NOT NULL, " +
+                            "end_date TEXT, " +
+                            "all_day INTEGER, " +
+                            "notes TEXT, " +
+                            "confidence REAL, " +
+                            "status TEXT, " +
+                            "source_email_id TEXT, " +
+                            "source_email_subject TEXT, " +
+                            "source_email_received_at TEXT, " +
+                            "is_recurring INTEGER DEFAULT 0)"),
+                    // Very old databases predate these columns
+                    new AddColumn("events", "source_email_subject", "TEXT"),
+                    new AddColumn("events", "source_email_received_at", "TEXT"),
+                    new AddColumn("events", "is_recurring", "INTEGER DEFAULT 0"),
+                    new Sql("CREATE TABLE IF NOT EXISTS processed_emails (" +
+                            "email_id TEXT PRIMARY KEY, " +
+                            "processed_at TEXT NOT NULL)"),
+                    new Sql("CREATE TABLE IF NOT EXISTS attachment_cache (" +
+                            "content_hash TEXT PRIMARY KEY, " +
+                            "file_uri TEXT, " +
+                            "upload_expires_at TEXT, " +
+                            "extracted_from_email_id TEXT, " +
+                            "extracted_at TEXT)")),
+
+            // Epoch seconds, status codes and one row per source email instead of per event.
+            // Databases that applied the first definition, without the check, lost no rows to it
+            new Migration(2, "typed events with shared source emails",
+                    new Sql("CREATE TABLE IF NOT EXISTS source_emails (" +
+                            "id INTEGER PRIMARY KEY, " +
+                            "message_id TEXT NOT NULL UNIQUE, " +
+                            "subject TEXT, " +
+                            "received_at INTEGER)"),
+                    // The copy below skips rows whose dates strftime cannot read, and the originals are dropped
+                    new Check("SELECT id || ' (' || start_date || COALESCE(' - ' || end_date, '') || ')' " +
+                            "FROM events WHERE strftime('%s', start_date) IS NULL " +
+                            "OR (end_date IS NOT NULL AND strftime('%s', end_date) IS NULL)",
+                            "Events with dates that cannot be converted; fix them and restart"),
+                    new Sql("CREATE TABLE IF NOT EXISTS events_typed (" +
+                            "id TEXT PRIMARY KEY, " +
+                            "title TEXT NOT NULL, " +
+                            "start_at INTEGER NOT NULL, " +
+                            "end_at INTEGER, " +
+                            "all_day INTEGER NOT NULL DEFAULT 0, " +
+                            "notes TEXT, " +
+                            "confidence REAL, " +
+                            "status INTEGER NOT NULL DEFAULT 0, " +
+                            "is_recurring INTEGER NOT NULL DEFAULT 0, " +
+                            "source_email INTEGER REFERENCES source_emails(id))"),
+                    new ChunkedCopy("events", "INSERT OR IGNORE INTO source_emails (message_id, subject, received_at) " +
+                            "SELECT source_email_id, source_email_subject, " +
+                            "CAST(strftime('%s', source_email_received_at) AS INTEGER) " +
+                            "FROM events WHERE rowid > ? AND rowid <= ? AND source_email_id IS NOT NULL"),
+                    new ChunkedCopy("events", "INSERT OR IGNORE INTO events_typed (id, title, start_at, end_at, " +
+                            "all_day, notes, confidence, status, is_recurring, source_email) " +
+                            "SELECT e.id, e.title, CAST(strftime('%s', e.start_date) AS INTEGER), " +
+                            "CAST(strftime('%s', e.end_date) AS INTEGER), COALESCE(e.all_day, 0), e.notes, " +
+                            "e.confidence, " +
+                            "CASE e.status WHEN 'CANCELLED' THEN 1 WHEN 'SCHEDULED' THEN 2 WHEN 'UPDATED' THEN 3 " +
+                            "ELSE 0 END, COALESCE(e.is_recurring, 0), s.id " +
+                            "FROM events e LEFT JOIN source_emails s ON s.message_id = e.source_email_id " +
+                            "WHERE e.rowid > ? AND e.rowid <= ?"),
+                    // Dropping the table also drops its triggers; the span index is rebuilt for the new rowids
+                    new Sql("DROP TABLE events"),
+                    new Sql("DROP TABLE IF EXISTS events_span"),
+                    new Sql("ALTER TABLE events_typed RENAME TO events"),
+                    // Ordered export scans and day lookups
+                    new Sql("CREATE INDEX IF NOT EXISTS events_by_start ON events (start_at, end_at)"),
+                    // findByTitleAndStartDate
+                    new Sql("CREATE INDEX IF NOT EXISTS events_by_title ON events (title, start_at)"))
+                    .replacing("91aa57966f7d8e3b12cb06e65628524dcb0e5dd2d1bdb0fc05bef0901332cb29"),
+
+            // R-tree over each event's [start, end] in epoch minutes, keyed by the events rowid
+            // and kept in sync by triggers, for overlap queries. An event that ends before it
+            // starts is indexed at its start, since the r-tree refuses inverted spans; databases
+            // that applied the first definition held no such event, or it would have failed there
+            new Migration(3, "event span r-tree",
+                    new Sql("CREATE VIRTUAL TABLE IF NOT EXISTS events_span USING rtree_i32(id, start_min, end_max)"),
+                    new Sql("CREATE TRIGGER IF NOT EXISTS events_span_insert AFTER INSERT ON events BEGIN " +
+                            "INSERT OR REPLACE INTO events_span (id, start_min, end_max) VALUES (NEW.rowid, " +
+                            "NEW.start_at / 60, MAX(NEW.start_at, COALESCE(NEW.end_at, NEW.start_at)) / 60); END"),
+                    new Sql("CREATE TRIGGER IF NOT EXISTS events_span_update AFTER UPDATE OF start_at, end_at " +
+                            "ON events BEGIN INSERT OR REPLACE INTO events_span (id, start_min, end_max) VALUES (" +
+                            "NEW.rowid, NEW.start_at / 60, " +
+                            "MAX(NEW.start_at, COALESCE(NEW.end_at, NEW.start_at)) / 60); END"),
+                    new Sql("CREATE TRIGGER IF NOT EXISTS events_span_delete AFTER DELETE ON events BEGIN " +
+                            "DELETE FROM events_span WHERE id = OLD.rowid; END"),
+                    new ChunkedCopy("events", "INSERT OR REPLACE INTO events_span (id, start_min, end_max) " +
+                            "SELECT rowid, start_at / 60, MAX(start_at, COALESCE(end_at, start_at)) / 60 FROM events " +
+                            "WHERE rowid > ? AND rowid <= ?"))
+                    .replacing("5875cbda9f598f2b5fe1ec8b9347dc1fe2b717ef484e8a4463b4bd0c35c17fe0"),
+
+            // Requests sent to each model (epoch milliseconds, billed tokens), for limits across runs
+            new Migration(4, "quota ledger",
+                    new Sql("CREATE TABLE IF NOT EXISTS quota_ledger (" +
+                            "id INTEGER PRIMARY KEY, " +
+                            "model TEXT NOT NULL, " +
+                            "requested_at INTEGER NOT NULL, " +
+                            "tokens INTEGER NOT NULL DEFAULT 0)"),
+                    new Sql("CREATE INDEX IF NOT EXISTS quota_ledger_by_time ON quota_ledger (model, requested_at)")),
+
+            // Emails left unprocessed by a run that ran out of quota, so they rank higher next time
+            new Migration(5, "deferred emails",
+                    new Sql("CREATE TABLE IF NOT EXISTS deferred_emails (" +
+                            "email_id TEXT PRIMARY KEY, " +
+                            "deferrals INTEGER NOT NULL, " +
+                            "first_deferred_at INTEGER NOT NULL)")),
+
+            // The span triggers of migration 3 insert with OR REPLACE, which an upsert into events
+            // (ON CONFLICT DO UPDATE) overrides with ABORT; replace the span row explicitly instead
+            new Migration(6, "event span triggers for upserts",
+                    new Sql("DROP TRIGGER IF EXISTS events_span_insert"),
+                    new Sql("DROP TRIGGER IF EXISTS events_span_update"),
+                    new Sql("CREATE TRIGGER events_span_insert AFTER INSERT ON events BEGIN " +
+                            "DELETE FROM events_span WHERE id = NEW.rowid; " +
+                            "INSERT INTO events_span (id, start_min, end_max) VALUES (NEW.rowid, " +
+                            "NEW.start_at / 60, COALESCE(NEW.end_at, NEW.start_at) / 60); END"),
+                    new Sql("CREATE TRIGGER events_span_update AFTER UPDATE OF start_at, end_at ON events BEGIN " +
+                            "DELETE FROM events_span WHERE id = NEW.rowid; " +
+                            "INSERT INTO events_span (id, start_min, end_max) VALUES (NEW.rowid, " +
+                            "NEW.start_at / 60, COALESCE(NEW.end_at, NEW.start_at) / 60); END")),
+
+            // The triggers of migration 6 again, indexing an event that ends before it starts at its start
+            new Migration(7, "event span triggers for inverted spans",
+                    new Sql("DROP TRIGGER IF EXISTS events_span_insert"),
+                    new Sql("DROP TRIGGER IF EXISTS events_span_update"),
+                    new Sql("CREATE TRIGGER events_span_insert AFTER INSERT ON events BEGIN " +
+                            "DELETE FROM events_span WHERE id = NEW.rowid; " +
+                            "INSERT INTO events_span (id, start_min, end_max) VALUES (NEW.rowid, " +
+                            "NEW.start_at / 60, MAX(NEW.start_at, COALESCE(NEW.end_at, NEW.start_at)) / 60); END"),
+                    new Sql("CREATE TRIGGER events_span_update AFTER UPDATE OF start_at, end_at ON events BEGIN " +
+                            "DELETE FROM events_span WHERE id = NEW.rowid; " +
+                            "INSERT INTO events_span (id, start_min, end_max) VALUES (NEW.rowid, " +
+                            "NEW.start_at / 60, MAX(NEW.start_at, COALESCE(NEW.end_at, NEW.start_at)) / 60); END")));
+
     public static void initialize(String dbUrl) {
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-                Statement stmt = conn.createStatement()) {
-
-            stmt.execute("CREATE TABLE IF NOT EXISTS events (" +
-                    "id TEXT PRIMARY KEY, " +
-                    "title TEXT NOT NULL, " +
-                    "start_date TEXT NOT NULL, " +
-                    "end_date TEXT, " +
-                    "all_day INTEGER, " +
-                    "notes TEXT, " +
-                    "confidence REAL, " +
-                    "status TEXT, " +
-                    "source_email_id TEXT, " +
-                    "source_email_subject TEXT, " +
-                    "source_email_received_at TEXT, " +
-                    "is_recurring INTEGER DEFAULT 0)");
-
-            // Migration: Add missing columns if they don't exist
-            try {
-                stmt.execute("ALTER TABLE events ADD COLUMN source_email_subject TEXT");
-            } catch (SQLException e) {
-                // Ignore if column already exists
-            }
-            try {
-                stmt.execute("ALTER TABLE events ADD COLUMN source_email_received_at TEXT");
-            } catch (SQLException e) {
-                // Ignore if column already exists
-            }
-            try {
-                stmt.execute("ALTER TABLE events ADD COLUMN is_recurring INTEGER DEFAULT 0");
-            } catch (SQLException e) {
-                // Ignore if column already exists
-            }
-
-            stmt.execute("CREATE TABLE IF NOT EXISTS processed_emails (" +
-                    "email_id TEXT PRIMARY KEY, " +
-                    "processed_at TEXT NOT NULL)");
-
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to initialize database schema", e);
-        }
+        new SchemaMigrator(dbUrl, MIGRATIONS).migrate();
     }
 }
@@ -0,0 +1,260 @@
+package com.schoolevents.adapter.out.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies ordered schema migrations to a SQLite database.
+ *
+ * The version reached is kept in {@code PRAGMA user_version}, so a database
+ * that is already current costs a single pragma read and no DDL at all. When
+ * migrations are pending, each one applied is recorded in
+ * {@code schema_migrations} with a checksum of its definition, and a migration
+ * edited after it shipped is refused rather than silently diverging, unless
+ * the edit lists the checksum it replaces (e.g. a backfill fixed for rows it
+ * could not copy, which databases already past it never held).
+ *
+ * A migration's steps run in one transaction, except {@link ChunkedCopy}
+ * steps, which commit every few thousand rows so that backfills over large
+ * tables never hold one huge transaction. A migration interrupted after a
+ * chunk commit is rerun from its first step, so steps must be idempotent
+ * ({@code IF NOT EXISTS}, {@code INSERT OR IGNORE}).
+ */
+public class SchemaMigrator {
+
+    static final int DEFAULT_CHUNK_ROWS = 5_000;
+
+    public sealed interface Step permits Sql, AddColumn, Check, ChunkedCopy {
+    }
+
+    /** A statement run inside the migration's transaction. */
+    public record Sql(String statement) implements Step {
+    }
+
+    /** Adds a column unless the table already has it. */
+    public record AddColumn(String table, String column, String type) implements Step {
+    }
+
+    /**
+     * A query for rows the migration would lose; it fails the migration,
+     * naming the first few, if there are any.
+     */
+    public record Check(String query, String problem) implements Step {
+    }
+
+    /**
+     * An {@code INSERT ... SELECT} over {@code sourceTable} whose two
+     * parameters bound a rowid range ({@code rowid > ? AND rowid <= ?}); it is
+     * run once per chunk, each in its own transaction.
+     */
+    public record ChunkedCopy(String sourceTable, String insertSelect) implements Step {
+    }
+
+    public record Migration(int version, String description, List<Step> steps, Set<String> replacedChecksums) {
+
+        public Migration(int version, String description, Step... steps) {
+            this(version, description, List.of(steps), Set.of());
+        }
+
+        /** This migration, also accepted where an earlier definition with one of these checksums was applied. */
+        public Migration replacing(String... checksums) {
+            return new Migration(version, description, steps, Set.of(checksums));
+        }
+
+        String checksum() {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256")
+                        .digest((version + "|" + description + "|" + steps).getBytes(StandardCharsets.UTF_8));
+                return HexFormat.of().formatHex(digest);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private final String dbUrl;
+    private final List<Migration> migrations;
+    private final int chunkRows;
+
+    public SchemaMigrator(String dbUrl, List<Migration> migrations) {
+        this(dbUrl, migrations, DEFAULT_CHUNK_ROWS);
+    }
+
+    SchemaMigrator(String dbUrl, List<Migration> migrations, int chunkRows) {
+        this.dbUrl = dbUrl;
+        this.migrations = migrations;
+        this.chunkRows = chunkRows;
+    }
+
+    /**
+     * Brings the database to the latest version and returns how many
+     * migrations were applied.
+     */
+    public int migrate() {
+        int latest = migrations.get(migrations.size() - 1).version();
+        try (Connection conn = DriverManager.getConnection(dbUrl)) {
+            int current = userVersion(conn);
+            if (current == latest) {
+                return 0;
+            }
+            if (current > latest) {
+                throw new IllegalStateException("Database schema version " + current
+                        + " is newer than this build supports (" + latest + ")");
+            }
+
+            verifyHistory(conn, current);
+            int applied = 0;
+            for (Migration migration : migrations) {
+                if (migration.version() > current) {
+                    apply(conn, migration);
+                    applied++;
+                }
+            }
+            return applied;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to migrate database schema", e);
+        }
+    }
+
+    private static int userVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Checks the recorded checksums of migrations already applied. Databases
+     * migrated before the history table existed get their entries recorded now.
+     */
+    private void verifyHistory(Connection conn, int current) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_migrations (" +
+                    "version INTEGER PRIMARY KEY, " +
+                    "description TEXT NOT NULL, " +
+                    "checksum TEXT NOT NULL, " +
+                    "applied_at TEXT NOT NULL)");
+        }
+        Map<Integer, String> recorded = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_migrations")) {
+            while (rs.next()) {
+                recorded.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+        for (Migration migration : migrations) {
+            if (migration.version() > current) {
+                break;
+            }
+            String checksum = recorded.get(migration.version());
+            if (checksum == null || migration.replacedChecksums().contains(checksum)) {
+                record(conn, migration);
+            } else if (!checksum.equals(migration.checksum())) {
+                throw new IllegalStateException("Schema migration " + migration.version() + " ("
+                        + migration.description() + ") was changed after it was applied");
+            }
+        }
+    }
+
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        long started = System.nanoTime();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            for (Step step : migration.steps()) {
+                switch (step) {
+                    case Sql sql -> stmt.execute(sql.statement());
+                    case AddColumn add -> addColumnIfMissing(conn, stmt, add);
+                    case Check check -> failIfAny(stmt, check);
+                    case ChunkedCopy copy -> {
+                        conn.commit();
+                        copyInChunks(conn, copy);
+                    }
+                }
+            }
+            record(conn, migration);
+            stmt.execute("PRAGMA user_version = " + migration.version());
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw new RuntimeException("Schema migration " + migration.version() + " ("
+                    + migration.description() + ") failed", e);
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        System.out.println("Applied schema migration " + migration.version() + " (" + migration.description()
+                + ") in " + (System.nanoTime() - started) / 1_000_000 + " ms.");
+    }
+
+    private static void addColumnIfMissing(Connection conn, Statement stmt, AddColumn add) throws SQLException {
+        try (PreparedStatement info = conn.prepareStatement("SELECT 1 FROM pragma_table_info(?) WHERE name = ?")) {
+            info.setString(1, add.table());
+            info.setString(2, add.column());
+            try (ResultSet rs = info.executeQuery()) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+        }
+        stmt.execute("ALTER TABLE " + add.table() + " ADD COLUMN " + add.column() + " " + add.type());
+    }
+
+    private static void failIfAny(Statement stmt, Check check) throws SQLException {
+        List<String> found = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery(check.query())) {
+            while (rs.next() && found.size() < 10) {
+                found.add(rs.getString(1));
+            }
+        }
+        if (!found.isEmpty()) {
+            throw new IllegalStateException(check.problem() + ": " + String.join(", ", found));
+        }
+    }
+
+    private void copyInChunks(Connection conn, ChunkedCopy copy) throws SQLException {
+        long min;
+        long max;
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT MIN(rowid), MAX(rowid) FROM " + copy.sourceTable())) {
+            rs.next();
+            min = rs.getLong(1);
+            if (rs.wasNull()) {
+                return;
+            }
+            max = rs.getLong(2);
+        }
+        try (PreparedStatement insert = conn.prepareStatement(copy.insertSelect())) {
+            for (long from = min - 1; from < max; from += chunkRows) {
+                insert.setLong(1, from);
+                insert.setLong(2, Math.min(from + chunkRows, max));
+                insert.executeUpdate();
+                conn.commit();
+            }
+        }
+    }
+
+    private static void record(Connection conn, Migration migration) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement(
+                "INSERT OR REPLACE INTO schema_migrations (version, description, checksum, applied_at) "
+                        + "VALUES (?, ?, ?, ?)")) {
+            insert.setInt(1, migration.version());
+            insert.setString(2, migration.description());
+            insert.setString(3, migration.checksum());
+            insert.setString(4, LocalDateTime.now().toString());
+            insert.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.schoolevents.adapter.out.persistence;
+
+import com.schoolevents.domain.model.CachedAttachment;
+import com.schoolevents.domain.port.out.AttachmentCachePort;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public class SqliteAttachmentCacheRepository implements AttachmentCachePort {
+
+    private final String dbUrl;
+
+    public SqliteAttachmentCacheRepository(String dbUrl) {
+        this.dbUrl = dbUrl;
+    }
+
+    @Override
+    public Optional<CachedAttachment> find(String contentHash) {
+        String sql = "SELECT * FROM attachment_cache WHERE content_hash = ?";
+        try (Connection conn = DriverManager.getConnection(dbUrl);
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, contentHash);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(new CachedAttachment(
+                            rs.getString("content_hash"),
+                            rs.getString("file_uri"),
+                            parse(rs.getString("upload_expires_at")),
+                            rs.getString("extracted_from_email_id"),
+                            parse(rs.getString("extracted_at"))));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read attachment cache", e);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void saveUpload(String contentHash, String fileUri, LocalDateTime expiresAt) {
+        String sql = "INSERT INTO attachment_cache (content_hash, file_uri, upload_expires_at) VALUES (?, ?, ?) " +
+                "ON CONFLICT(content_hash) DO UPDATE SET file_uri=excluded.file_uri, " +
+                "upload_expires_at=excluded.upload_expires_at";
+        try (Connection conn = DriverManager.getConnection(dbUrl);
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, contentHash);
+            pstmt.setString(2, fileUri);
+            pstmt.setString(3, expiresAt != null ? expiresAt.toString() : null);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save attachment upload", e);
+        }
+    }
+
+    @Override
+    public void markExtracted(String contentHash, String emailId) {
+        String sql = "INSERT INTO attachment_cache (content_hash, extracted_from_email_id, extracted_at) VALUES (?, ?, ?) "
+                +
+                "ON CONFLICT(content_hash) DO UPDATE SET extracted_from_email_id=excluded.extracted_from_email_id, " +
+                "extracted_at=excluded.extracted_at";
+        try (Connection conn = DriverManager.getConnection(dbUrl);
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, contentHash);
+            pstmt.setString(2, emailId);
+            pstmt.setString(3, LocalDateTime.now().toString());
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to mark attachment as extracted", e);
+        }
+    }
+
+    private LocalDateTime parse(String value) {
+        return value != null ? LocalDateTime.parse(value) : null;
+    }
+}
@@ -5,12 +5,38 @@ import com.schoolevents.domain.port.out.EventRepositoryPort;
 
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public class SqliteEventRepository implements EventRepositoryPort {
 
+    // Source emails are shared by all their events; the subject and receive time are stored once, and a
+    // save that does not know them (null) keeps what an earlier save of the same email recorded
+    private static final String UPSERT_SOURCE_SQL = "INSERT INTO source_emails (message_id, subject, received_at) "
+            + "VALUES (?, ?, ?) ON CONFLICT(message_id) DO UPDATE SET "
+            + "subject=COALESCE(excluded.subject, source_emails.subject), "
+            + "received_at=COALESCE(excluded.received_at, source_emails.received_at) "
+            + "WHERE excluded.subject IS NOT NULL AND subject IS NOT excluded.subject "
+            + "OR excluded.received_at IS NOT NULL AND received_at IS NOT excluded.received_at";
+
+    private static final String UPSERT_SQL = "INSERT INTO events (id, title, start_at, end_at, all_day, notes, confidence, status, is_recurring, source_email) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, (SELECT id FROM source_emails WHERE message_id = ?)) "
+            + "ON CONFLICT(id) DO UPDATE SET "
+            + "title=excluded.title, start_at=excluded.start_at, end_at=excluded.end_at, "
+            + "all_day=excluded.all_day, notes=excluded.notes, confidence=excluded.confidence, "
+            + "status=excluded.status, is_recurring=excluded.is_recurring, source_email=excluded.source_email";
+
+    // Column order is relied on by mapRow
+    private static final String SELECT_EVENTS = "SELECT e.id, e.title, e.start_at, e.end_at, e.all_day, e.notes, "
+            + "e.confidence, e.status, e.is_recurring, s.message_id, s.subject, s.received_at "
+            + "FROM events e LEFT JOIN source_emails s ON s.id = e.source_email ";
+
+    private static final Event.Status[] STATUS_BY_CODE = { Event.Status.ACTIVE, Event.Status.CANCELLED,
+            Event.Status.SCHEDULED, Event.Status.UPDATED };
+
     private final String dbUrl;
 
     public SqliteEventRepository(String dbUrl) {
@@ -19,43 +45,56 @@ public class SqliteEventRepository implements EventRepositoryPort {
 
     @Override
     public void save(Event event) {
-        String sql = "INSERT INTO events (id, title, start_date, end_date, all_day, notes, confidence, status, source_email_id, source_email_subject, source_email_received_at, is_recurring) "
-                +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
-                "ON CONFLICT(id) DO UPDATE SET " +
-                "title=excluded.title, start_date=excluded.start_date, end_date=excluded.end_date, " +
-                "all_day=excluded.all_day, notes=excluded.notes, confidence=excluded.confidence, " +
-                "status=excluded.status, source_email_id=excluded.source_email_id, " +
-                "source_email_subject=excluded.source_email_subject, source_email_received_at=excluded.source_email_received_at, "
-                +
-                "is_recurring=excluded.is_recurring";
-
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, event.id());
-            pstmt.setString(2, event.title());
-            pstmt.setString(3, event.startDate().toString());
-            pstmt.setString(4, event.endDate() != null ? event.endDate().toString() : null);
-            pstmt.setInt(5, event.allDay() ? 1 : 0);
-            pstmt.setString(6, event.notes());
-            pstmt.setDouble(7, event.confidence());
-            pstmt.setString(8, event.status().name());
-            pstmt.setString(9, event.sourceEmailId());
-            pstmt.setString(10, event.sourceEmailSubject());
-            pstmt.setString(11,
-                    event.sourceEmailReceivedAt() != null ? event.sourceEmailReceivedAt().toString() : null);
-            pstmt.setInt(12, event.isRecurring() ? 1 : 0);
-
-            pstmt.executeUpdate();
+        try (Connection conn = DriverManager.getConnection(dbUrl)) {
+            conn.setAutoCommit(false);
+            try {
+                write(conn, List.of(event));
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             throw new RuntimeException("Failed to save event", e);
         }
     }
 
+    private static void write(Connection conn, List<Event> events) throws SQLException {
+        try (PreparedStatement source = conn.prepareStatement(UPSERT_SOURCE_SQL);
+                PreparedStatement upsert = conn.prepareStatement(UPSERT_SQL)) {
+            int sources = 0;
+            for (Event event : events) {
+                if (event.sourceEmailId() != null) {
+                    source.setString(1, event.sourceEmailId());
+                    source.setString(2, event.sourceEmailSubject());
+                    setEpoch(source, 3, event.sourceEmailReceivedAt());
+                    source.addBatch();
+                    sources++;
+                }
+            }
+            if (sources > 0) {
+                source.executeBatch();
+            }
+            for (Event event : events) {
+                upsert.setString(1, event.id());
+                upsert.setString(2, event.title());
+                upsert.setLong(3, event.startDate().toEpochSecond(ZoneOffset.UTC));
+                setEpoch(upsert, 4, event.endDate());
+                upsert.setInt(5, event.allDay() ? 1 : 0);
+                upsert.setString(6, event.notes());
+                upsert.setDouble(7, event.confidence());
+                upsert.setInt(8, statusCode(event.status()));
+                upsert.setInt(9, event.isRecurring() ? 1 : 0);
+                upsert.setString(10, event.sourceEmailId());
+                upsert.addBatch();
+            }
+            upsert.executeBatch();
+        }
+    }
+
     @Override
     public List<Event> findAll() {
-        String sql = "SELECT * FROM events ORDER BY start_date ASC";
+        String sql = SELECT_EVENTS + "ORDER BY e.start_at ASC";
         List<Event> events = new ArrayList<>();
 
         try (Connection conn = DriverManager.getConnection(dbUrl);
@@ -71,14 +110,50 @@ public class SqliteEventRepository implements EventRepositoryPort {
         return events;
     }
 
+    @Override
+    public void forEachEvent(Consumer<Event> consumer) {
+        String sql = SELECT_EVENTS + "ORDER BY e.start_at ASC";
+
+        try (Connection conn = DriverManager.getConnection(dbUrl);
+                Statement stmt = conn.createStatement()) {
+            stmt.setFetchSize(500);
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    consumer.accept(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to stream events", e);
+        }
+    }
+
+    @Override
+    public Optional<Event> findById(String id) {
+        String sql = SELECT_EVENTS + "WHERE e.id = ?";
+        try (Connection conn = DriverManager.getConnection(dbUrl);
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, id);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to find event by id", e);
+        }
+        return Optional.empty();
+    }
+
     @Override
     public Optional<Event> findByTitleAndStartDate(String title, LocalDateTime startDate) {
-        String sql = "SELECT * FROM events WHERE title = ? AND start_date = ?";
+        String sql = SELECT_EVENTS + "WHERE e.title = ? AND e.start_at = ?";
         try (Connection conn = DriverManager.getConnection(dbUrl);
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, title);
-            pstmt.setString(2, startDate.toString());
+            pstmt.setLong(2, startDate.toEpochSecond(ZoneOffset.UTC));
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -93,14 +168,15 @@ public class SqliteEventRepository implements EventRepositoryPort {
 
     @Override
     public List<Event> findByDate(LocalDateTime date) {
-        String datePrefix = date.toLocalDate().toString() + "%";
-        String sql = "SELECT * FROM events WHERE start_date LIKE ?";
+        long dayStart = date.toLocalDate().atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        String sql = SELECT_EVENTS + "WHERE e.start_at >= ? AND e.start_at < ?";
         List<Event> events = new ArrayList<>();
 
         try (Connection conn = DriverManager.getConnection(dbUrl);
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, datePrefix);
+            pstmt.setLong(1, dayStart);
+            pstmt.setLong(2, dayStart + 86_400);
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -113,6 +189,36 @@ public class SqliteEventRepository implements EventRepositoryPort {
         return events;
     }
 
+    @Override
+    public List<Event> findOverlapping(LocalDateTime from, LocalDateTime to) {
+        // The R-tree narrows candidates by minute; the epoch columns give the exact answer
+        String sql = SELECT_EVENTS + "JOIN events_span r ON r.id = e.rowid " +
+                "WHERE r.start_min <= ? AND r.end_max >= ? " +
+                "AND e.start_at < ? AND MAX(e.start_at, COALESCE(e.end_at, e.start_at)) >= ? " +
+                "ORDER BY e.start_at ASC";
+        List<Event> events = new ArrayList<>();
+
+        try (Connection conn = DriverManager.getConnection(dbUrl);
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            long toEpoch = to.toEpochSecond(ZoneOffset.UTC);
+            long fromEpoch = from.toEpochSecond(ZoneOffset.UTC);
+            pstmt.setLong(1, Math.floorDiv(toEpoch, 60));
+            pstmt.setLong(2, Math.floorDiv(fromEpoch, 60));
+            pstmt.setLong(3, toEpoch);
+            pstmt.setLong(4, fromEpoch);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    events.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to find overlapping events", e);
+        }
+        return events;
+    }
+
     @Override
     public void delete(String id) {
         String sql = "DELETE FROM events WHERE id = ?";
@@ -126,21 +232,70 @@ public class SqliteEventRepository implements EventRepositoryPort {
         }
     }
 
+    @Override
+    public void applyChanges(List<Event> upserts, List<String> deletes) {
+        try (Connection conn = DriverManager.getConnection(dbUrl)) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement delete = conn.prepareStatement("DELETE FROM events WHERE id = ?")) {
+                write(conn, upserts);
+                for (String id : deletes) {
+                    delete.setString(1, id);
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to apply event changes", e);
+        }
+    }
+
     private Event mapRow(ResultSet rs) throws SQLException {
         return new Event(
-                rs.getString("id"),
-                rs.getString("title"),
-                LocalDateTime.parse(rs.getString("start_date")),
-                rs.getString("end_date") != null ? LocalDateTime.parse(rs.getString("end_date")) : null,
-                rs.getInt("all_day") == 1,
-                rs.getString("notes"),
-                rs.getDouble("confidence"),
-                Event.Status.valueOf(rs.getString("status")),
-                rs.getInt("is_recurring") == 1,
-                rs.getString("source_email_id"),
-                rs.getString("source_email_subject"),
-                rs.getString("source_email_received_at") != null
-                        ? LocalDateTime.parse(rs.getString("source_email_received_at"))
-                        : null);
+                rs.getString(1),
+                rs.getString(2),
+                toDateTime(rs.getLong(3)),
+                epochOrNull(rs, 4),
+                rs.getInt(5) == 1,
+                rs.getString(6),
+                rs.getDouble(7),
+                STATUS_BY_CODE[rs.getInt(8)],
+                rs.getInt(9) == 1,
+                rs.getString(10),
+                rs.getString(11),
+                epochOrNull(rs, 12));
+    }
+
+    static int statusCode(Event.Status status) {
+        return switch (status) {
+            case ACTIVE -> 0;
+            case CANCELLED -> 1;
+            case SCHEDULED -> 2;
+            case UPDATED -> 3;
+        };
+    }
+
+    /**
+     * Timestamps are stored as seconds since 1970-01-01T00:00 on the school's
+     * wall clock (no zone is involved), truncated to whole seconds.
+     */
+    private static void setEpoch(PreparedStatement pstmt, int index, LocalDateTime value) throws SQLException {
+        if (value == null) {
+            pstmt.setNull(index, Types.INTEGER);
+        } else {
+            pstmt.setLong(index, value.toEpochSecond(ZoneOffset.UTC));
+        }
+    }
+
+    private static LocalDateTime epochOrNull(ResultSet rs, int index) throws SQLException {
+        long value = rs.getLong(index);
+        return rs.wasNull() ? null : toDateTime(value);
+    }
+
+    private static LocalDateTime toDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
     }
 }
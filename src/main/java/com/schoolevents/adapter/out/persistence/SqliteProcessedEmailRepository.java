@@ -3,7 +3,13 @@ package com.schoolevents.adapter.out.persistence;
 import com.schoolevents.domain.port.out.ProcessedEmailRepositoryPort;
 
 import java.sql.*;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 public class SqliteProcessedEmailRepository implements ProcessedEmailRepositoryPort {
 
@@ -32,13 +38,59 @@ public class SqliteProcessedEmailRepository implements ProcessedEmailRepositoryP
     public void markAsProcessed(String emailId) {
         String sql = "INSERT OR IGNORE INTO processed_emails (email_id, processed_at) VALUES (?, ?)";
         try (Connection conn = DriverManager.getConnection(dbUrl);
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                PreparedStatement pstmt = conn.prepareStatement(sql);
+                PreparedStatement undefer = conn.prepareStatement("DELETE FROM deferred_emails WHERE email_id = ?")) {
 
             pstmt.setString(1, emailId);
             pstmt.setString(2, LocalDateTime.now().toString());
             pstmt.executeUpdate();
+            undefer.setString(1, emailId);
+            undefer.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException("Failed to mark email as processed", e);
         }
     }
+
+    @Override
+    public Map<String, Integer> deferralCounts(Collection<String> emailIds) {
+        // Only emails still waiting are in the table, so it stays small enough to read whole
+        Set<String> wanted = new HashSet<>(emailIds);
+        Map<String, Integer> counts = new HashMap<>();
+        try (Connection conn = DriverManager.getConnection(dbUrl);
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT email_id, deferrals FROM deferred_emails")) {
+            while (rs.next()) {
+                if (wanted.contains(rs.getString(1))) {
+                    counts.put(rs.getString(1), rs.getInt(2));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read deferred emails", e);
+        }
+        return counts;
+    }
+
+    @Override
+    public void recordDeferred(Collection<String> emailIds) {
+        String sql = "INSERT INTO deferred_emails (email_id, deferrals, first_deferred_at) VALUES (?, 1, ?) "
+                + "ON CONFLICT(email_id) DO UPDATE SET deferrals = deferrals + 1";
+        try (Connection conn = DriverManager.getConnection(dbUrl)) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                long now = Instant.now().getEpochSecond();
+                for (String emailId : emailIds) {
+                    pstmt.setString(1, emailId);
+                    pstmt.setLong(2, now);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to record deferred emails", e);
+        }
+    }
 }
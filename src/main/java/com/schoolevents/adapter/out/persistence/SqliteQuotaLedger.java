@@ -0,0 +1,159 @@
+package com.schoolevents.adapter.out.persistence;
+
+import com.schoolevents.domain.model.QuotaLimits;
+import com.schoolevents.domain.port.out.QuotaLedgerPort;
+
+import java.sql.*;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * One row per request sent to a model, in the application database, so the
+ * limits hold across runs. Admission checks and the insert run in one
+ * {@code BEGIN IMMEDIATE} transaction: the write lock is taken before
+ * counting, so two processes sharing the database cannot both take the last
+ * free request. A waiting process retries for up to the busy timeout.
+ */
+public class SqliteQuotaLedger implements QuotaLedgerPort {
+
+    // Gemini's daily quotas reset at midnight Pacific time
+    public static final ZoneId QUOTA_DAY_ZONE = ZoneId.of("America/Los_Angeles");
+    private static final long MINUTE_MILLIS = 60_000;
+    private static final int BUSY_TIMEOUT_MILLIS = 10_000;
+
+    private final String dbUrl;
+    private final String model;
+    private final QuotaLimits limits;
+    private final Clock clock;
+
+    private record Usage(int requests, long tokens, long oldestMillis) {
+    }
+
+    public SqliteQuotaLedger(String dbUrl, String model, QuotaLimits limits) {
+        this(dbUrl, model, limits, Clock.systemUTC());
+    }
+
+    SqliteQuotaLedger(String dbUrl, String model, QuotaLimits limits, Clock clock) {
+        this.dbUrl = dbUrl;
+        this.model = model;
+        this.limits = limits;
+        this.clock = clock;
+    }
+
+    @Override
+    public Admission tryAcquire(long estimatedTokens) {
+        long now = clock.millis();
+        long dayStart = dayStart(now);
+        try (Connection conn = open(); Statement stmt = conn.createStatement()) {
+            stmt.execute("BEGIN IMMEDIATE");
+            try {
+                Admission admission;
+                Usage today = usageSince(conn, dayStart);
+                Usage lastMinute = usageSince(conn, now - MINUTE_MILLIS);
+                if (exceeds(today, limits.requestsPerDay(), limits.tokensPerDay(), estimatedTokens)) {
+                    admission = Admission.exhausted();
+                } else if (exceeds(lastMinute, limits.requestsPerMinute(), limits.tokensPerMinute(),
+                        estimatedTokens)) {
+                    // Free once the oldest request in the window is a minute old
+                    admission = Admission.retryAfter(
+                            Duration.ofMillis(Math.max(1000, lastMinute.oldestMillis() + MINUTE_MILLIS - now)));
+                } else {
+                    admission = Admission.granted(insert(conn, now, estimatedTokens));
+                    // Yesterday's rows are no longer needed for any window
+                    try (PreparedStatement prune = conn.prepareStatement(
+                            "DELETE FROM quota_ledger WHERE model = ? AND requested_at < ?")) {
+                        prune.setString(1, model);
+                        prune.setLong(2, Math.min(dayStart, now - MINUTE_MILLIS));
+                        prune.executeUpdate();
+                    }
+                }
+                stmt.execute("COMMIT");
+                return admission;
+            } catch (SQLException e) {
+                stmt.execute("ROLLBACK");
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to check quota ledger", e);
+        }
+    }
+
+    @Override
+    public void recordTokens(long reservationId, long tokens) {
+        try (Connection conn = open();
+                PreparedStatement pstmt = conn.prepareStatement("UPDATE quota_ledger SET tokens = ? WHERE id = ?")) {
+            pstmt.setLong(1, tokens);
+            pstmt.setLong(2, reservationId);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to record quota usage", e);
+        }
+    }
+
+    @Override
+    public int remainingRequestsToday() {
+        if (limits.requestsPerDay() <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        long now = clock.millis();
+        try (Connection conn = open()) {
+            return Math.max(0, limits.requestsPerDay() - usageSince(conn, dayStart(now)).requests());
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read quota ledger", e);
+        }
+    }
+
+    private Connection open() throws SQLException {
+        Connection conn = DriverManager.getConnection(dbUrl);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MILLIS);
+        }
+        return conn;
+    }
+
+    private Usage usageSince(Connection conn, long sinceMillis) throws SQLException {
+        String sql = "SELECT COUNT(*), COALESCE(SUM(tokens), 0), MIN(requested_at) FROM quota_ledger "
+                + "WHERE model = ? AND requested_at >= ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, model);
+            pstmt.setLong(2, sinceMillis);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return new Usage(rs.getInt(1), rs.getLong(2), rs.getLong(3));
+            }
+        }
+    }
+
+    private long insert(Connection conn, long now, long tokens) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO quota_ledger (model, requested_at, tokens) VALUES (?, ?, ?)")) {
+            pstmt.setString(1, model);
+            pstmt.setLong(2, now);
+            pstmt.setLong(3, tokens);
+            pstmt.executeUpdate();
+        }
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid()")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Whether one more request would break a limit. A token limit never blocks
+     * an empty window, so a single oversized request still goes through.
+     */
+    private static boolean exceeds(Usage usage, int requestLimit, long tokenLimit, long estimatedTokens) {
+        if (requestLimit > 0 && usage.requests() + 1 > requestLimit) {
+            return true;
+        }
+        return tokenLimit > 0 && usage.requests() > 0 && usage.tokens() + estimatedTokens > tokenLimit;
+    }
+
+    private long dayStart(long nowMillis) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(nowMillis), QUOTA_DAY_ZONE)
+                .atStartOfDay(QUOTA_DAY_ZONE).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,52 @@
+package com.schoolevents.application.usecase;
+
+import com.schoolevents.domain.port.out.QuotaLedgerPort;
+
+/**
+ * One tenant's view of a quota shared by several accounts: the run may take
+ * at most its share of the requests left today, so the first inboxes
+ * processed cannot use up the day for the rest. Whatever a tenant leaves
+ * unused stays in the shared ledger for the tenants that start after it.
+ */
+public class FairShareQuota implements QuotaLedgerPort {
+
+    private final QuotaLedgerPort shared;
+    private final int allowance;
+    private int granted;
+
+    public FairShareQuota(QuotaLedgerPort shared, int allowance) {
+        this.shared = shared;
+        this.allowance = allowance;
+    }
+
+    /** An equal split of what is left today between the tenants still to run, this one included. */
+    public static FairShareQuota equalShare(QuotaLedgerPort shared, int tenantsStillToRun) {
+        int remaining = shared.remainingRequestsToday();
+        int share = remaining == Integer.MAX_VALUE
+                ? Integer.MAX_VALUE
+                : (remaining + tenantsStillToRun - 1) / Math.max(1, tenantsStillToRun);
+        return new FairShareQuota(shared, share);
+    }
+
+    @Override
+    public synchronized Admission tryAcquire(long estimatedTokens) {
+        if (granted >= allowance) {
+            return Admission.exhausted();
+        }
+        Admission admission = shared.tryAcquire(estimatedTokens);
+        if (admission.isGranted()) {
+            granted++;
+        }
+        return admission;
+    }
+
+    @Override
+    public void recordTokens(long reservationId, long tokens) {
+        shared.recordTokens(reservationId, tokens);
+    }
+
+    @Override
+    public synchronized int remainingRequestsToday() {
+        return Math.min(shared.remainingRequestsToday(), allowance - granted);
+    }
+}
@@ -0,0 +1,154 @@
+package com.schoolevents.application.usecase;
+
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.service.EventReconciliationService;
+import com.schoolevents.domain.service.EventReconciliationService.ReconciliationResult;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reconciles a batch of extracted events on a worker pool, one task per
+ * calendar day. Single-day events only match events starting on the same day
+ * (or, with cross-day matching, within its shift window), so days are
+ * independent; each task holds the striped locks for the days it can touch,
+ * which keeps two workers off the same day even across concurrent batches.
+ *
+ * Events within a day are reconciled in fetch order. Multi-day spans can match
+ * other spans across day boundaries, so they run afterwards on the calling
+ * thread. All writes are staged and committed by the calling thread in one
+ * batch at the end.
+ */
+public class PartitionedReconciler {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final EventReconciliationService reconciliationService;
+    private final StagedEventRepository stagedRepository;
+    private final ExecutorService executor;
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+
+    /**
+     * The reconciliation service must write through {@code stagedRepository}.
+     */
+    public PartitionedReconciler(EventReconciliationService reconciliationService,
+            StagedEventRepository stagedRepository, int workers) {
+        this.reconciliationService = reconciliationService;
+        this.stagedRepository = stagedRepository;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, workers));
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Reconciles the events and commits the result; the returned list is in
+     * input order.
+     */
+    public List<ReconciliationResult> reconcileAll(List<Event> events) {
+        ReconciliationResult[] results = new ReconciliationResult[events.size()];
+        Map<LocalDate, List<Integer>> byDay = new LinkedHashMap<>();
+        List<Integer> spans = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            Event event = events.get(i);
+            if (isMultiDay(event)) {
+                spans.add(i);
+            } else {
+                byDay.computeIfAbsent(event.startDate().toLocalDate(), d -> new ArrayList<>()).add(i);
+            }
+        }
+
+        try {
+            List<Future<?>> tasks = new ArrayList<>(byDay.size());
+            for (List<Integer> day : byDay.values()) {
+                tasks.add(executor.submit(() -> reconcile(events, day, results)));
+            }
+            // Wait for every task before failing, so nothing is still staging at flush time
+            RuntimeException failure = null;
+            for (Future<?> task : tasks) {
+                try {
+                    await(task);
+                } catch (RuntimeException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            for (Integer i : spans) {
+                reconcile(events, List.of(i), results);
+            }
+        } finally {
+            // Whatever was reconciled is committed, as it would have been serially
+            stagedRepository.flush();
+        }
+        return Arrays.asList(results);
+    }
+
+    private void reconcile(List<Event> events, List<Integer> indexes, ReconciliationResult[] results) {
+        List<ReentrantLock> held = lock(events.get(indexes.get(0)));
+        try {
+            for (Integer i : indexes) {
+                results[i] = reconciliationService.reconcile(events.get(i));
+            }
+        } finally {
+            for (int i = held.size() - 1; i >= 0; i--) {
+                held.get(i).unlock();
+            }
+        }
+    }
+
+    /**
+     * Locks the stripes of every day the event can match, in stripe order so
+     * tasks with overlapping windows cannot deadlock.
+     */
+    private List<ReentrantLock> lock(Event event) {
+        int shift = reconciliationService.crossDayWindow();
+        LocalDate first = event.startDate().toLocalDate().minusDays(shift);
+        LocalDate last = (isMultiDay(event) ? event.endDate().toLocalDate() : event.startDate().toLocalDate())
+                .plusDays(shift);
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (LocalDate day = first; !day.isAfter(last) && indexes.size() < LOCK_STRIPES; day = day.plusDays(1)) {
+            indexes.add((int) Math.floorMod(day.toEpochDay(), (long) LOCK_STRIPES));
+        }
+        List<ReentrantLock> held = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            stripes[index].lock();
+            held.add(stripes[index]);
+        }
+        return held;
+    }
+
+    private static void await(Future<?> task) {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reconciling", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static boolean isMultiDay(Event event) {
+        return event.endDate() != null
+                && event.endDate().toLocalDate().isAfter(event.startDate().toLocalDate());
+    }
+}
@@ -5,12 +5,20 @@ import com.schoolevents.domain.model.Event;
 import com.schoolevents.domain.port.out.AiEventExtractorPort;
 import com.schoolevents.domain.port.out.EmailFetcherPort;
 import com.schoolevents.domain.port.out.ProcessedEmailRepositoryPort;
+import com.schoolevents.domain.port.out.QuotaLedgerPort;
+import com.schoolevents.domain.service.EmailPriorityScheduler;
 import com.schoolevents.domain.service.EventReconciliationService;
 import com.schoolevents.domain.exception.QuotaExhaustedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ProcessInboxUseCase {
     private static final Logger logger = LoggerFactory.getLogger(ProcessInboxUseCase.class);
@@ -19,6 +27,10 @@ public class ProcessInboxUseCase {
     private final AiEventExtractorPort aiExtractor;
     private final EventReconciliationService reconciliationService;
     private final ProcessedEmailRepositoryPort processedEmailRepository;
+    private int extractionConcurrency = 1;
+    private PartitionedReconciler partitionedReconciler;
+    private QuotaLedgerPort quotaLedger;
+    private EmailPriorityScheduler priorityScheduler;
 
     public ProcessInboxUseCase(EmailFetcherPort emailFetcher,
             AiEventExtractorPort aiExtractor,
@@ -30,6 +42,41 @@ public class ProcessInboxUseCase {
         this.processedEmailRepository = processedEmailRepository;
     }
 
+    /**
+     * Number of batches sent to the extractor at the same time. Keep at 1 for
+     * quota-bound providers; raise it for a local model server. Batches are
+     * always reconciled one after another in fetch order.
+     */
+    public void setExtractionConcurrency(int extractionConcurrency) {
+        this.extractionConcurrency = Math.max(1, extractionConcurrency);
+    }
+
+    /**
+     * Reconciles each batch in parallel by day instead of one event at a time.
+     */
+    public void setPartitionedReconciler(PartitionedReconciler partitionedReconciler) {
+        this.partitionedReconciler = partitionedReconciler;
+    }
+
+    /**
+     * Plans each run from the model quota left today: at most one batch per
+     * remaining request is sent to the model, and the rest stay unprocessed
+     * for a later run instead of being started and cut off. Emails the
+     * extractor handles without the model are extracted regardless.
+     */
+    public void setQuotaLedger(QuotaLedgerPort quotaLedger) {
+        this.quotaLedger = quotaLedger;
+    }
+
+    /**
+     * Extracts the emails most likely to change near-term events first,
+     * instead of in fetch order. Emails a run leaves for later (quota plan or
+     * exhaustion) are recorded and rank higher in the next run.
+     */
+    public void setPriorityScheduler(EmailPriorityScheduler priorityScheduler) {
+        this.priorityScheduler = priorityScheduler;
+    }
+
     public void execute(boolean forceRescan) {
         logger.info("Starting inbox processing (Force Rescan: {})...", forceRescan);
         List<EmailMessage> emails = emailFetcher.fetchUnprocessedEmails();
@@ -52,33 +99,86 @@ public class ProcessInboxUseCase {
         int failures = 0;
 
         int batchSize = 5;
-        for (int i = 0; i < emails.size(); i += batchSize) {
-            int toIndex = Math.min(i + batchSize, emails.size());
-            List<EmailMessage> batch = emails.subList(i, toIndex);
-
-            try {
-                List<Event> extracted = aiExtractor.extractEvents(batch);
-                logger.info("Extracted {} events from batch.", extracted.size());
-
-                for (Event event : extracted) {
-                    EventReconciliationService.ReconciliationResult result = reconciliationService.reconcile(event);
-                    switch (result) {
-                        case CREATED -> newEventsCreated++;
-                        case UPDATED -> eventsUpdated++;
-                        case CANCELLED -> eventsCancelled++;
+        List<List<EmailMessage>> batches = new ArrayList<>();
+        if (priorityScheduler != null) {
+            batches = priorityScheduler.plan(emails,
+                    processedEmailRepository.deferralCounts(emails.stream().map(EmailMessage::id).toList()),
+                    batchSize, LocalDateTime.now());
+        } else {
+            for (int i = 0; i < emails.size(); i += batchSize) {
+                batches.add(emails.subList(i, Math.min(i + batchSize, emails.size())));
+            }
+        }
+        List<EmailMessage> deferred = new ArrayList<>();
+        if (quotaLedger != null) {
+            int allowance = quotaLedger.remainingRequestsToday();
+            int modelBatches = 0;
+            List<List<EmailMessage>> planned = new ArrayList<>();
+            for (List<EmailMessage> batch : batches) {
+                List<EmailMessage> local = batch.stream().filter(email -> !aiExtractor.requiresModel(email))
+                        .toList();
+                if (local.size() == batch.size()) {
+                    planned.add(batch);
+                } else if (modelBatches++ < allowance) {
+                    planned.add(batch);
+                } else {
+                    batch.stream().filter(email -> !local.contains(email)).forEach(deferred::add);
+                    if (!local.isEmpty()) {
+                        planned.add(local);
                     }
                 }
+            }
+            if (!deferred.isEmpty()) {
+                logger.info("Quota plan: {} of {} batches needing the model fit in today's remaining quota; {} "
+                        + "emails wait for a later run.", allowance, modelBatches, deferred.size());
+            }
+            batches = planned;
+        }
 
-                for (EmailMessage email : batch) {
-                    processedEmailRepository.markAsProcessed(email.id());
+        ExecutorService executor = extractionConcurrency > 1 ? Executors.newFixedThreadPool(extractionConcurrency)
+                : null;
+        try {
+            windows: for (int w = 0; w < batches.size(); w += extractionConcurrency) {
+                List<List<EmailMessage>> window = batches.subList(w,
+                        Math.min(w + extractionConcurrency, batches.size()));
+                List<CompletableFuture<List<Event>>> extractions = startExtractions(window, executor);
+
+                for (int j = 0; j < window.size(); j++) {
+                    List<EmailMessage> batch = window.get(j);
+                    try {
+                        List<Event> extracted = extract(extractions.get(j), batch);
+                        logger.info("Extracted {} events from batch.", extracted.size());
+
+                        for (EventReconciliationService.ReconciliationResult result : reconcile(extracted)) {
+                            switch (result) {
+                                case CREATED -> newEventsCreated++;
+                                case UPDATED -> eventsUpdated++;
+                                case CANCELLED -> eventsCancelled++;
+                            }
+                        }
+
+                        for (EmailMessage email : batch) {
+                            processedEmailRepository.markAsProcessed(email.id());
+                        }
+                        aiExtractor.confirmProcessed(batch);
+                    } catch (QuotaExhaustedException e) {
+                        logger.error("Quota exhausted. Stopping run. Summary: {}", e.getMessage());
+                        batches.subList(w + j, batches.size()).forEach(deferred::addAll);
+                        break windows; // Stop immediately to protect account
+                    } catch (Exception e) {
+                        logger.error("Failed to process batch: {}", e.getMessage());
+                        failures += batch.size();
+                    }
                 }
-            } catch (QuotaExhaustedException e) {
-                logger.error("Quota exhausted. Stopping run. Summary: {}", e.getMessage());
-                break; // Stop immediately to protect account
-            } catch (Exception e) {
-                logger.error("Failed to process batch: {}", e.getMessage());
-                failures += batch.size();
             }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+
+        if (priorityScheduler != null && !deferred.isEmpty()) {
+            processedEmailRepository.recordDeferred(deferred.stream().map(EmailMessage::id).toList());
         }
 
         System.out.println("\n--------------------------------------------------");
@@ -91,9 +191,48 @@ public class ProcessInboxUseCase {
             System.out.printf("Events Cancelled:       %d%n", eventsCancelled);
         }
         System.out.printf("Processing Failures:    %d%n", failures);
+        if (!deferred.isEmpty()) {
+            System.out.printf("Deferred to Next Run:   %d%n", deferred.size());
+        }
         System.out.println("--------------------------------------------------");
 
         logger.info("Inbox processing complete.");
     }
 
+    private List<EventReconciliationService.ReconciliationResult> reconcile(List<Event> events) {
+        if (partitionedReconciler != null) {
+            return partitionedReconciler.reconcileAll(events);
+        }
+        List<EventReconciliationService.ReconciliationResult> results = new ArrayList<>(events.size());
+        for (Event event : events) {
+            results.add(reconciliationService.reconcile(event));
+        }
+        return results;
+    }
+
+    private List<CompletableFuture<List<Event>>> startExtractions(List<List<EmailMessage>> window,
+            ExecutorService executor) {
+        List<CompletableFuture<List<Event>>> futures = new ArrayList<>();
+        for (List<EmailMessage> batch : window) {
+            // Sequential mode extracts on the calling thread when the batch is reached
+            futures.add(executor != null
+                    ? CompletableFuture.supplyAsync(() -> aiExtractor.extractEvents(batch), executor)
+                    : null);
+        }
+        return futures;
+    }
+
+    private List<Event> extract(CompletableFuture<List<Event>> future, List<EmailMessage> batch) {
+        if (future == null) {
+            return aiExtractor.extractEvents(batch);
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
 }
@@ -0,0 +1,136 @@
+package com.schoolevents.application.usecase;
+
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.port.out.EventRepositoryPort;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Buffers saves and deletes in memory on top of another repository, so several
+ * reconciliation workers can write concurrently while the store only sees one
+ * batched transaction per {@link #flush()}. Reads return the store's data with
+ * the staged changes applied.
+ */
+public class StagedEventRepository implements EventRepositoryPort {
+
+    private final EventRepositoryPort delegate;
+    private final Map<String, Event> upserts = new ConcurrentHashMap<>();
+    private final Set<String> deletes = ConcurrentHashMap.newKeySet();
+
+    public StagedEventRepository(EventRepositoryPort delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Writes all staged changes to the underlying repository in one batch and
+     * returns how many were written. Must not run while workers are still
+     * staging.
+     */
+    public synchronized int flush() {
+        if (upserts.isEmpty() && deletes.isEmpty()) {
+            return 0;
+        }
+        List<Event> saved = new ArrayList<>(upserts.values());
+        List<String> deleted = new ArrayList<>(deletes);
+        delegate.applyChanges(saved, deleted);
+        upserts.clear();
+        deletes.clear();
+        return saved.size() + deleted.size();
+    }
+
+    @Override
+    public void save(Event event) {
+        deletes.remove(event.id());
+        upserts.put(event.id(), event);
+    }
+
+    @Override
+    public void delete(String id) {
+        upserts.remove(id);
+        deletes.add(id);
+    }
+
+    @Override
+    public void applyChanges(List<Event> upserts, List<String> deletes) {
+        upserts.forEach(this::save);
+        deletes.forEach(this::delete);
+    }
+
+    @Override
+    public List<Event> findAll() {
+        return merge(delegate.findAll(), event -> true);
+    }
+
+    @Override
+    public void forEachEvent(Consumer<Event> consumer) {
+        findAll().forEach(consumer);
+    }
+
+    @Override
+    public Optional<Event> findById(String id) {
+        Event staged = upserts.get(id);
+        if (staged != null || deletes.contains(id)) {
+            return Optional.ofNullable(staged);
+        }
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Optional<Event> findByTitleAndStartDate(String title, LocalDateTime startDate) {
+        Optional<Event> staged = upserts.values().stream()
+                .filter(e -> e.title().equals(title) && e.startDate().equals(startDate))
+                .findFirst();
+        if (staged.isPresent()) {
+            return staged;
+        }
+        return delegate.findByTitleAndStartDate(title, startDate).filter(e -> !isStaged(e.id()));
+    }
+
+    @Override
+    public List<Event> findByDate(LocalDateTime date) {
+        return merge(delegate.findByDate(date),
+                event -> event.startDate().toLocalDate().equals(date.toLocalDate()));
+    }
+
+    @Override
+    public List<Event> findOverlapping(LocalDateTime from, LocalDateTime to) {
+        return merge(delegate.findOverlapping(from, to), event -> event.startDate().isBefore(to)
+                && !(event.endDate() != null ? event.endDate() : event.startDate()).isBefore(from));
+    }
+
+    private boolean isStaged(String id) {
+        return upserts.containsKey(id) || deletes.contains(id);
+    }
+
+    /**
+     * Stored results minus anything changed since, plus the staged versions
+     * that still match the query.
+     */
+    private List<Event> merge(List<Event> stored, Predicate<Event> matches) {
+        if (upserts.isEmpty() && deletes.isEmpty()) {
+            return stored;
+        }
+        List<Event> result = new ArrayList<>(stored.size());
+        for (Event event : stored) {
+            if (!isStaged(event.id())) {
+                result.add(event);
+            }
+        }
+        for (Event event : upserts.values()) {
+            if (matches.test(event)) {
+                result.add(event);
+            }
+        }
+        result.sort(Comparator.comparing(Event::startDate));
+        return result;
+    }
+}
@@ -0,0 +1,24 @@
+package com.schoolevents.domain.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * What is known about an attachment across runs, keyed by the SHA-256 of its
+ * content: where it was uploaded (if anywhere) and whether events have already
+ * been extracted from it.
+ */
+public record CachedAttachment(
+        String contentHash,
+        String fileUri,
+        LocalDateTime uploadExpiresAt,
+        String extractedFromEmailId,
+        LocalDateTime extractedAt) {
+
+    public boolean hasValidUpload(LocalDateTime now) {
+        return fileUri != null && uploadExpiresAt != null && uploadExpiresAt.isAfter(now);
+    }
+
+    public boolean isExtracted() {
+        return extractedAt != null;
+    }
+}
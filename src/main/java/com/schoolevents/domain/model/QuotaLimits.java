@@ -0,0 +1,12 @@
+package com.schoolevents.domain.model;
+
+/**
+ * A model provider's rate limits. Minute limits apply to a rolling 60 seconds,
+ * day limits to the provider's quota day. Zero means no limit.
+ */
+public record QuotaLimits(
+        int requestsPerMinute,
+        long tokensPerMinute,
+        int requestsPerDay,
+        long tokensPerDay) {
+}
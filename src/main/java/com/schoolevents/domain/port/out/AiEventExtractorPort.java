@@ -6,4 +6,21 @@ import java.util.List;
 
 public interface AiEventExtractorPort {
     List<Event> extractEvents(List<EmailMessage> emails);
+
+    /**
+     * Whether extracting this email sends a request to the model, and so
+     * spends quota. Extractors that handle some emails locally say which.
+     */
+    default boolean requiresModel(EmailMessage email) {
+        return true;
+    }
+
+    /**
+     * Called once the events extracted from these emails are stored and the
+     * emails marked processed. Work an extractor only wants to skip in later
+     * runs (e.g. attachments already read) is recorded here, not on extraction,
+     * so a batch that fails later is extracted in full again.
+     */
+    default void confirmProcessed(List<EmailMessage> emails) {
+    }
 }
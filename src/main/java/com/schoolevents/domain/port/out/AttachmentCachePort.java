@@ -0,0 +1,13 @@
+package com.schoolevents.domain.port.out;
+
+import com.schoolevents.domain.model.CachedAttachment;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface AttachmentCachePort {
+    Optional<CachedAttachment> find(String contentHash);
+
+    void saveUpload(String contentHash, String fileUri, LocalDateTime expiresAt);
+
+    void markExtracted(String contentHash, String emailId);
+}
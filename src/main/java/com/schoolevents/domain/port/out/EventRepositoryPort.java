@@ -3,15 +3,36 @@ package com.schoolevents.domain.port.out;
 import com.schoolevents.domain.model.Event;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface EventRepositoryPort {
     void save(Event event);
 
     List<Event> findAll();
 
+    /**
+     * Streams every event in start-date order without materializing the whole
+     * store, for exports over large databases.
+     */
+    void forEachEvent(Consumer<Event> consumer);
+
+    Optional<Event> findById(String id);
+
     Optional<Event> findByTitleAndStartDate(String title, java.time.LocalDateTime startDate);
 
     List<Event> findByDate(java.time.LocalDateTime date);
 
+    /**
+     * Events whose span [startDate, endDate] intersects [from, to); events
+     * without an end date are treated as ending when they start.
+     */
+    List<Event> findOverlapping(java.time.LocalDateTime from, java.time.LocalDateTime to);
+
     void delete(String id);
+
+    /**
+     * Saves and deletes a batch of events atomically: either all changes are
+     * applied or none are.
+     */
+    void applyChanges(List<Event> upserts, List<String> deletes);
 }
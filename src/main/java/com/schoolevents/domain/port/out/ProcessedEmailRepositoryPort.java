@@ -1,7 +1,15 @@
 package com.schoolevents.domain.port.out;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface ProcessedEmailRepositoryPort {
     boolean isProcessed(String emailId);
 
     void markAsProcessed(String emailId);
+
+    /** How many earlier runs left each of these emails for later; emails never deferred are absent. */
+    Map<String, Integer> deferralCounts(Collection<String> emailIds);
+
+    void recordDeferred(Collection<String> emailIds);
 }
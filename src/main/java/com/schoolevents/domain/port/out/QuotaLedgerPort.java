@@ -0,0 +1,47 @@
+package com.schoolevents.domain.port.out;
+
+import java.time.Duration;
+
+/**
+ * Requests and tokens spent against a provider's quota, kept across runs and
+ * shared by every process using the same ledger.
+ */
+public interface QuotaLedgerPort {
+
+    /**
+     * The outcome of asking to send one request. A refused admission carries
+     * how long to wait for the minute window to free up, or no wait when the
+     * day's allowance is used up.
+     */
+    record Admission(long reservationId, Duration retryAfter) {
+
+        public static Admission granted(long reservationId) {
+            return new Admission(reservationId, null);
+        }
+
+        public static Admission retryAfter(Duration wait) {
+            return new Admission(0, wait);
+        }
+
+        public static Admission exhausted() {
+            return new Admission(0, null);
+        }
+
+        public boolean isGranted() {
+            return reservationId > 0;
+        }
+
+        public boolean isExhausted() {
+            return reservationId <= 0 && retryAfter == null;
+        }
+    }
+
+    /** Records one request with its estimated tokens if it fits within every limit. */
+    Admission tryAcquire(long estimatedTokens);
+
+    /** Replaces a granted request's estimate with the tokens actually billed. */
+    void recordTokens(long reservationId, long tokens);
+
+    /** Requests left in the current quota day. */
+    int remainingRequestsToday();
+}
@@ -0,0 +1,229 @@
+package com.schoolevents.domain.service;
+
+import com.schoolevents.domain.model.EmailMessage;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Orders emails for extraction so a limited model budget goes first to the
+ * mail most likely to change events in the next two weeks. Each email is
+ * scored from cheap local signals: dates it mentions that are coming up,
+ * cancellation language, subject keywords, the sender, how recent it is and
+ * how often it was already deferred (so nothing waits forever). Batches are
+ * packed in score order, so a cut-off run drops the lowest-scoring batches.
+ */
+public class EmailPriorityScheduler {
+
+    // Dates up to this many days ahead count as near-term
+    private static final int HORIZON_DAYS = 14;
+    private static final int SCANNED_BODY_CHARS = 2000;
+
+    private static final double NEAR_TERM_WEIGHT = 4.0;
+    private static final double CANCELLATION_WEIGHT = 3.0;
+    private static final double RECENCY_WEIGHT = 2.0;
+    private static final double KEYWORD_WEIGHT = 1.5;
+    private static final double SENDER_WEIGHT = 1.0;
+    private static final double DEFERRAL_WEIGHT = 1.0;
+    private static final int MAX_COUNTED_DEFERRALS = 5;
+    private static final double NEWSLETTER_PENALTY = 1.0;
+    private static final double PAST_ONLY_PENALTY = 1.0;
+
+    private static final String MONTHS = "jan(?:uary)?|feb(?:ruary)?|mar(?:ch)?|apr(?:il)?|may|june?|july?|aug(?:ust)?"
+            + "|sep(?:t(?:ember)?)?|oct(?:ober)?|nov(?:ember)?|dec(?:ember)?|ionawr|chwefror|mawrth|ebrill|mai"
+            + "|mehefin|gorffennaf|awst|medi|hydref|tachwedd|rhagfyr";
+    private static final Pattern DAY_MONTH = Pattern.compile(
+            "\\b(\\d{1,2})(?:st|nd|rd|th|af|ain|ed|fed|ydd)?\\s+(?:of\\s+)?(" + MONTHS + ")\\b");
+    private static final Pattern MONTH_DAY = Pattern.compile("\\b(" + MONTHS + ")\\s+(\\d{1,2})(?:st|nd|rd|th)?\\b");
+    // UK order: 12/03, 12.03.2026; "3.15" without a year is a time
+    private static final Pattern NUMERIC_DATE = Pattern.compile(
+            "\\b(\\d{1,2})([/.])(\\d{1,2})(?:\\2(\\d{2}|\\d{4}))?\\b");
+    private static final Pattern RELATIVE_DAY = Pattern.compile("\\b(today|tonight|heddiw|heno|tomorrow|yfory)\\b");
+    private static final Pattern WEEKDAY = Pattern.compile(
+            "\\b(monday|tuesday|wednesday|thursday|friday|saturday|sunday"
+                    + "|dydd (?:llun|mawrth|mercher|iau|gwener|sadwrn|sul))\\b");
+    private static final Pattern CANCELLATION = Pattern.compile(
+            "\\b(cancel(?:l?ed|lation)?|postponed|rescheduled|called off|no longer|closed|closure"
+                    + "|canslo|wedi ei ganslo|gohirio|gohiriwyd|ar gau|wedi newid)\\b");
+    private static final Pattern URGENT_KEYWORD = Pattern.compile(
+            "\\b(trip|reminder|urgent|important|change|deadline|consent|non-uniform|sports day|concert|inset"
+                    + "|taith|atgoffa|pwysig|newid|cyngerdd|diwrnod chwaraeon)\\b");
+    private static final Pattern NEWSLETTER = Pattern.compile("\\b(newsletter|cylchlythyr|bulletin)\\b");
+
+    private final Set<String> prioritySenders;
+
+    /** Emails whose sender contains one of these (case-insensitive) get a bonus. */
+    public EmailPriorityScheduler(Set<String> prioritySenders) {
+        this.prioritySenders = prioritySenders.stream()
+                .map(String::toLowerCase)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * The emails packed into batches of {@code batchSize}, highest score first;
+     * emails with equal scores keep their fetch order.
+     */
+    public List<List<EmailMessage>> plan(List<EmailMessage> emails, Map<String, Integer> deferrals, int batchSize,
+            LocalDateTime now) {
+        record Scored(EmailMessage email, double score) {
+        }
+        List<Scored> scored = new ArrayList<>(emails.size());
+        for (EmailMessage email : emails) {
+            scored.add(new Scored(email, score(email, deferrals.getOrDefault(email.id(), 0), now)));
+        }
+        scored.sort(Comparator.comparingDouble(Scored::score).reversed());
+
+        List<List<EmailMessage>> batches = new ArrayList<>();
+        for (int i = 0; i < scored.size(); i += batchSize) {
+            batches.add(scored.subList(i, Math.min(i + batchSize, scored.size())).stream()
+                    .map(Scored::email)
+                    .toList());
+        }
+        return batches;
+    }
+
+    public double score(EmailMessage email, int deferrals, LocalDateTime now) {
+        String subject = email.subject() != null ? email.subject().toLowerCase() : "";
+        String text = subject + "\n" + leadingBody(email).toLowerCase();
+        LocalDate today = now.toLocalDate();
+        LocalDate received = email.receivedAt() != null ? email.receivedAt().toLocalDate() : today;
+
+        double score = 0;
+        List<LocalDate> mentioned = mentionedDates(text, received);
+        Integer daysAhead = null;
+        for (LocalDate date : mentioned) {
+            long days = ChronoUnit.DAYS.between(today, date);
+            if (days >= 0 && days <= HORIZON_DAYS && (daysAhead == null || days < daysAhead)) {
+                daysAhead = (int) days;
+            }
+        }
+        if (daysAhead != null) {
+            score += NEAR_TERM_WEIGHT * (1.0 - (double) daysAhead / (HORIZON_DAYS + 1));
+        } else if (!mentioned.isEmpty()) {
+            // Every date it mentions is further out or already past
+            score -= PAST_ONLY_PENALTY;
+        }
+        if (CANCELLATION.matcher(text).find()) {
+            score += CANCELLATION_WEIGHT;
+        }
+        if (URGENT_KEYWORD.matcher(subject).find()) {
+            score += KEYWORD_WEIGHT;
+        }
+        if (NEWSLETTER.matcher(subject).find()) {
+            score -= NEWSLETTER_PENALTY;
+        }
+        String sender = email.sender() != null ? email.sender().toLowerCase() : "";
+        if (prioritySenders.stream().anyMatch(sender::contains)) {
+            score += SENDER_WEIGHT;
+        }
+        if (email.receivedAt() != null) {
+            double ageDays = Math.max(0, ChronoUnit.MINUTES.between(email.receivedAt(), now) / 1440.0);
+            score += RECENCY_WEIGHT * Math.exp(-ageDays / 7.0);
+        }
+        score += DEFERRAL_WEIGHT * Math.min(deferrals, MAX_COUNTED_DEFERRALS);
+        return score;
+    }
+
+    private static String leadingBody(EmailMessage email) {
+        String body = email.plainTextBody();
+        if (body == null || body.isBlank()) {
+            String html = email.htmlBody() != null ? email.htmlBody() : "";
+            body = html.substring(0, Math.min(html.length(), SCANNED_BODY_CHARS * 2)).replaceAll("<[^>]+>", " ");
+        }
+        return body.substring(0, Math.min(body.length(), SCANNED_BODY_CHARS));
+    }
+
+    /**
+     * Dates mentioned in the text. Dates without a year are placed in the year
+     * the email was received; weekdays and "tomorrow" are read relative to
+     * that day.
+     */
+    private static List<LocalDate> mentionedDates(String text, LocalDate received) {
+        List<LocalDate> dates = new ArrayList<>();
+        Matcher m = DAY_MONTH.matcher(text);
+        while (m.find()) {
+            addDate(dates, received, Integer.parseInt(m.group(1)), month(m.group(2)), null);
+        }
+        m = MONTH_DAY.matcher(text);
+        while (m.find()) {
+            addDate(dates, received, Integer.parseInt(m.group(2)), month(m.group(1)), null);
+        }
+        m = NUMERIC_DATE.matcher(text);
+        while (m.find()) {
+            Integer year = m.group(4) != null ? Integer.parseInt(m.group(4)) : null;
+            if (year == null && m.group(2).equals(".")) {
+                continue;
+            }
+            addDate(dates, received, Integer.parseInt(m.group(1)), Integer.parseInt(m.group(3)),
+                    year != null && year < 100 ? 2000 + year : year);
+        }
+        m = RELATIVE_DAY.matcher(text);
+        while (m.find()) {
+            boolean tomorrow = m.group(1).equals("tomorrow") || m.group(1).equals("yfory");
+            dates.add(tomorrow ? received.plusDays(1) : received);
+        }
+        m = WEEKDAY.matcher(text);
+        while (m.find()) {
+            dates.add(received.with(TemporalAdjusters.nextOrSame(weekday(m.group(1)))));
+        }
+        return dates;
+    }
+
+    private static void addDate(List<LocalDate> dates, LocalDate received, int day, int month, Integer year) {
+        if (month < 1 || month > 12 || day < 1 || day > 31) {
+            return;
+        }
+        try {
+            LocalDate date = LocalDate.of(year != null ? year : received.getYear(), month, day);
+            // "3rd January" in a December email means next year
+            if (year == null && date.isBefore(received.minusMonths(2))) {
+                date = date.plusYears(1);
+            }
+            dates.add(date);
+        } catch (DateTimeException e) {
+            // 31st of a short month: not a date
+        }
+    }
+
+    private static int month(String name) {
+        return switch (name.substring(0, Math.min(3, name.length()))) {
+            case "jan", "ion" -> 1;
+            case "feb", "chw" -> 2;
+            case "mar", "maw" -> 3;
+            case "apr", "ebr" -> 4;
+            case "may", "mai" -> 5;
+            case "jun", "meh" -> 6;
+            case "jul", "gor" -> 7;
+            case "aug", "aws" -> 8;
+            case "sep", "med" -> 9;
+            case "oct", "hyd" -> 10;
+            case "nov", "tac" -> 11;
+            default -> 12;
+        };
+    }
+
+    private static DayOfWeek weekday(String name) {
+        String day = name.startsWith("dydd ") ? name.substring(5) : name;
+        return switch (day) {
+            case "monday", "llun" -> DayOfWeek.MONDAY;
+            case "tuesday", "mawrth" -> DayOfWeek.TUESDAY;
+            case "wednesday", "mercher" -> DayOfWeek.WEDNESDAY;
+            case "thursday", "iau" -> DayOfWeek.THURSDAY;
+            case "friday", "gwener" -> DayOfWeek.FRIDAY;
+            case "saturday", "sadwrn" -> DayOfWeek.SATURDAY;
+            default -> DayOfWeek.SUNDAY;
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package com.schoolevents.domain.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Content-derived event identity. Extracting the same event from the same
+ * email again yields the same ID, so reconciliation can recognise an exact
+ * repeat with a primary-key lookup instead of fuzzy title matching.
+ */
+public final class EventIds {
+
+    private EventIds() {
+    }
+
+    /**
+     * A name-based UUID over the normalized title, the start and the source
+     * email. Case, punctuation and spacing differences in the title do not
+     * change the ID.
+     */
+    public static String of(String title, LocalDateTime startDate, String sourceEmailId) {
+        String key = titleKey(title) + "|" + startDate + "|" + (sourceEmailId != null ? sourceEmailId : "");
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    static String titleKey(String title) {
+        if (title == null) {
+            return "";
+        }
+        return title.toLowerCase()
+                .replaceAll("[^\\p{L}\\p{N} ]", " ")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+}
@@ -2,6 +2,8 @@ package com.schoolevents.domain.service;
 
 import com.schoolevents.domain.model.Event;
 import com.schoolevents.domain.port.out.EventRepositoryPort;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.UUID;
 import org.slf4j.Logger;
@@ -9,12 +11,36 @@ import org.slf4j.LoggerFactory;
 
 public class EventReconciliationService {
 
+    // Rescheduled events need a near-identical title to be matched on another day
+    private static final double CROSS_DAY_SIMILARITY = 0.5;
+
     private final EventRepositoryPort eventRepository;
+    private SimilarityBlocker similarityBlocker;
+    private int maxShiftDays;
 
     public EventReconciliationService(EventRepositoryPort eventRepository) {
         this.eventRepository = eventRepository;
     }
 
+    /**
+     * Also matches an incoming event against similar titles up to
+     * {@code maxShiftDays} days away, so a rescheduled event (or its Welsh
+     * twin) updates the existing entry instead of adding a duplicate. The
+     * blocker must hold the current store; it is kept up to date from here on.
+     */
+    public void enableCrossDayMatching(SimilarityBlocker similarityBlocker, int maxShiftDays) {
+        this.similarityBlocker = similarityBlocker;
+        this.maxShiftDays = maxShiftDays;
+    }
+
+    /**
+     * How many days either side of its start an incoming event can match, 0
+     * unless cross-day matching is enabled.
+     */
+    public int crossDayWindow() {
+        return similarityBlocker != null ? maxShiftDays : 0;
+    }
+
     public enum ReconciliationResult {
         CREATED, UPDATED, CANCELLED, NO_ACTION
     }
@@ -22,11 +48,26 @@ public class EventReconciliationService {
     private static final Logger logger = LoggerFactory.getLogger(EventReconciliationService.class);
 
     public ReconciliationResult reconcile(Event incomingEvent) {
-        // Find all events on the same day
-        List<Event> existingEventsOnDay = eventRepository.findByDate(incomingEvent.startDate());
+        // Extractors derive IDs from content, so a re-extracted event is found by primary key
+        if (incomingEvent.id() != null && !incomingEvent.id().isEmpty()) {
+            java.util.Optional<Event> existing = eventRepository.findById(incomingEvent.id());
+            if (existing.isPresent()) {
+                return reconcileRepeat(existing.get(), incomingEvent);
+            }
+        }
+
+        // Find all events overlapping the days the incoming event spans
+        LocalDate firstDay = incomingEvent.startDate().toLocalDate();
+        LocalDate lastDay = incomingEvent.endDate() != null && incomingEvent.endDate().isAfter(incomingEvent.startDate())
+                ? incomingEvent.endDate().toLocalDate()
+                : firstDay;
+        List<Event> candidates = eventRepository.findOverlapping(firstDay.atStartOfDay(),
+                lastDay.plusDays(1).atStartOfDay());
 
         // Find ALL equivalent events already in DB
-        List<Event> matches = existingEventsOnDay.stream()
+        List<Event> matches = candidates.stream()
+                .filter(existing -> startsOnSameDay(existing, incomingEvent)
+                        || (isMultiDay(existing) && isMultiDay(incomingEvent)))
                 .filter(existing -> {
                     boolean result = isSameEvent(existing, incomingEvent);
                     if (result) {
@@ -37,6 +78,10 @@ public class EventReconciliationService {
                 })
                 .collect(java.util.stream.Collectors.toList());
 
+        if (matches.isEmpty() && similarityBlocker != null && !incomingEvent.isRecurring()) {
+            matches = findRescheduled(incomingEvent);
+        }
+
         if (!matches.isEmpty()) {
             // Select the "Master" record (usually the first one, but we'll update it)
             Event master = matches.get(0);
@@ -45,13 +90,14 @@ public class EventReconciliationService {
             for (int i = 1; i < matches.size(); i++) {
                 logger.info("Deleting duplicate event: '{}' (ID: {})", matches.get(i).title(), matches.get(i).id());
                 eventRepository.delete(matches.get(i).id());
+                if (similarityBlocker != null) {
+                    similarityBlocker.remove(matches.get(i).id());
+                }
             }
 
             // Always update if the incoming event is from a newer email (or same/unknown
             // time)
-            boolean isNewer = incomingEvent.sourceEmailReceivedAt() == null ||
-                    master.sourceEmailReceivedAt() == null ||
-                    !incomingEvent.sourceEmailReceivedAt().isBefore(master.sourceEmailReceivedAt());
+            boolean isNewer = isNewer(incomingEvent, master);
 
             if (incomingEvent.status() == Event.Status.CANCELLED) {
                 cancelEvent(master, incomingEvent);
@@ -70,8 +116,37 @@ public class EventReconciliationService {
         }
     }
 
+    /**
+     * The same event from the same email was stored before. Nothing is
+     * written when the re-extraction is identical or the stored copy has since
+     * been updated from a newer email.
+     */
+    private ReconciliationResult reconcileRepeat(Event existing, Event incoming) {
+        if (!isNewer(incoming, existing)) {
+            return ReconciliationResult.NO_ACTION;
+        }
+        Event target = incoming.status() == Event.Status.CANCELLED ? cancelled(existing, incoming)
+                : updated(existing, incoming);
+        if (target.equals(existing)) {
+            return ReconciliationResult.NO_ACTION;
+        }
+        save(target);
+        return incoming.status() == Event.Status.CANCELLED ? ReconciliationResult.CANCELLED
+                : ReconciliationResult.UPDATED;
+    }
+
+    private static boolean isNewer(Event incoming, Event existing) {
+        return incoming.sourceEmailReceivedAt() == null ||
+                existing.sourceEmailReceivedAt() == null ||
+                !incoming.sourceEmailReceivedAt().isBefore(existing.sourceEmailReceivedAt());
+    }
+
     private void cancelEvent(Event existing, Event incoming) {
-        Event cancelled = new Event(
+        save(cancelled(existing, incoming));
+    }
+
+    private static Event cancelled(Event existing, Event incoming) {
+        return new Event(
                 existing.id(),
                 existing.title(),
                 existing.startDate(),
@@ -84,12 +159,15 @@ public class EventReconciliationService {
                 incoming.sourceEmailId(),
                 incoming.sourceEmailSubject(),
                 incoming.sourceEmailReceivedAt());
-        eventRepository.save(cancelled);
     }
 
     private void updateEvent(Event existing, Event incoming) {
+        save(updated(existing, incoming));
+    }
+
+    private static Event updated(Event existing, Event incoming) {
         // We update fields with incoming data, assuming it's newer/better
-        Event updated = new Event(
+        return new Event(
                 existing.id(),
                 incoming.title(),
                 incoming.startDate(),
@@ -102,7 +180,6 @@ public class EventReconciliationService {
                 incoming.sourceEmailId(),
                 incoming.sourceEmailSubject(),
                 incoming.sourceEmailReceivedAt());
-        eventRepository.save(updated);
     }
 
     private boolean createNewEvent(Event incoming) {
@@ -124,13 +201,71 @@ public class EventReconciliationService {
                     incoming.sourceEmailId(),
                     incoming.sourceEmailSubject(),
                     incoming.sourceEmailReceivedAt());
-            eventRepository.save(newEvent);
+            save(newEvent);
             return true;
         }
         return false;
     }
 
-    private boolean isSameEvent(Event e1, Event e2) {
+    private void save(Event event) {
+        eventRepository.save(event);
+        if (similarityBlocker != null) {
+            similarityBlocker.add(event);
+        }
+    }
+
+    /**
+     * The most similar non-recurring event within the allowed shift. Only
+     * events still upcoming when the email was sent are moved, and never
+     * one announced by the same email (that is a second occurrence).
+     */
+    private List<Event> findRescheduled(Event incoming) {
+        LocalDate day = incoming.startDate().toLocalDate();
+        LocalDate sent = incoming.sourceEmailReceivedAt() != null
+                ? incoming.sourceEmailReceivedAt().toLocalDate()
+                : null;
+        Integer year = YearGroups.extract(incoming.title());
+
+        return similarityBlocker.candidates(incoming).stream()
+                .filter(candidate -> !candidate.isRecurring())
+                .filter(candidate -> !startsOnSameDay(candidate, incoming))
+                .filter(candidate -> Math.abs(ChronoUnit.DAYS.between(candidate.startDate().toLocalDate(), day))
+                        <= maxShiftDays)
+                .filter(candidate -> sent == null || !candidate.startDate().toLocalDate().isBefore(sent))
+                .filter(candidate -> candidate.sourceEmailId() == null
+                        || !candidate.sourceEmailId().equals(incoming.sourceEmailId()))
+                .filter(candidate -> java.util.Objects.equals(YearGroups.extract(candidate.title()), year))
+                .filter(candidate -> SimilarityBlocker.similarity(candidate, incoming) >= CROSS_DAY_SIMILARITY)
+                .max(java.util.Comparator.comparingDouble(candidate -> SimilarityBlocker.similarity(candidate,
+                        incoming)))
+                .map(candidate -> {
+                    logger.info("Rescheduled match: '{}' on {} matches existing '{}' on {}", incoming.title(),
+                            incoming.startDate(), candidate.title(), candidate.startDate());
+                    return List.of(candidate);
+                })
+                .orElse(List.of());
+    }
+
+    private boolean startsOnSameDay(Event e1, Event e2) {
+        return e1.startDate().toLocalDate().equals(e2.startDate().toLocalDate());
+    }
+
+    /**
+     * Spans such as half term or a residential trip. These may be re-announced
+     * with a shifted start, so they also match other spans they overlap; single
+     * days only match events starting on the same day.
+     */
+    private boolean isMultiDay(Event event) {
+        return event.endDate() != null
+                && event.endDate().toLocalDate().isAfter(event.startDate().toLocalDate());
+    }
+
+    /**
+     * Title matching rules for two events already known to fall on the same
+     * day (or to be overlapping spans). Also used by the offline duplicate
+     * compaction job.
+     */
+    public static boolean isSameEvent(Event e1, Event e2) {
         String t1 = normalize(e1.title());
         String t2 = normalize(e2.title());
 
@@ -138,8 +273,8 @@ public class EventReconciliationService {
             return true;
 
         // Extract Year discriminators (Year 1, Yr 2, etc.)
-        Integer y1 = extractYear(t1);
-        Integer y2 = extractYear(t2);
+        Integer y1 = YearGroups.extract(t1);
+        Integer y2 = YearGroups.extract(t2);
 
         if (y1 != null && y2 != null && !y1.equals(y2))
             return false;
@@ -170,7 +305,7 @@ public class EventReconciliationService {
         return calculateWordOverlap(t1, t2) > 0.7;
     }
 
-    private String normalize(String s) {
+    private static String normalize(String s) {
         if (s == null)
             return "";
         return s.toLowerCase()
@@ -179,16 +314,7 @@ public class EventReconciliationService {
                 .trim();
     }
 
-    private Integer extractYear(String s) {
-        // Matches "year 5", "yr 5", "y 5", "bl 5" (Welsh "Blwyddyn")
-        java.util.regex.Matcher m = java.util.regex.Pattern.compile("(year|yr|bl|blwyddyn|y)\\s*([1-6])").matcher(s);
-        if (m.find()) {
-            return Integer.parseInt(m.group(2));
-        }
-        return null;
-    }
-
-    private double calculateWordOverlap(String s1, String s2) {
+    private static double calculateWordOverlap(String s1, String s2) {
         String[] w1 = s1.split(" ");
         String[] w2 = s2.split(" ");
         java.util.Set<String> set1 = new java.util.HashSet<>(java.util.Arrays.asList(w1));
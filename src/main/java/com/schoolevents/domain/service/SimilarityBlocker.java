@@ -0,0 +1,247 @@
+package com.schoolevents.domain.service;
+
+import com.schoolevents.domain.model.Event;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds events with similar titles anywhere in the store without comparing
+ * every pair. Each title is normalized (Welsh words mapped to their English
+ * counterparts, filler words dropped) and cut into character 3-grams; a MinHash
+ * signature of those shingles is split into bands, and events sharing any
+ * band bucket become candidates. Two titles with shingle Jaccard similarity s
+ * collide with probability 1 - (1 - s^rows)^bands, so near-duplicates are
+ * found in roughly linear time while unrelated titles rarely meet.
+ *
+ * Candidates are only a blocking step: callers confirm them with
+ * {@link #similarity(Event, Event)} or their own rules.
+ */
+public class SimilarityBlocker {
+
+    public static final int DEFAULT_BANDS = 16;
+    public static final int DEFAULT_ROWS = 4;
+
+    private static final Map<String, String> WELSH_TO_ENGLISH = new HashMap<>();
+    static {
+        String[][] pairs = {
+                { "gwasanaeth", "assembly" }, { "llyfrgell", "library" }, { "hanner", "half" },
+                { "tymor", "term" }, { "blwyddyn", "year" }, { "bl", "year" }, { "yr", "year" },
+                { "taith", "trip" }, { "noson", "evening" }, { "rhieni", "parents" }, { "cyngerdd", "concert" },
+                { "diwrnod", "day" }, { "ysgol", "school" }, { "chwaraeon", "sports" },
+                { "mabolgampau", "sports day" }, { "gwyliau", "holiday" }, { "nadolig", "christmas" },
+                { "pasg", "easter" }, { "disgo", "disco" }, { "ffair", "fair" }, { "cyfarfod", "meeting" },
+                { "nofio", "swimming" }, { "gwisg", "uniform" }, { "mamau", "mothers" }, { "tadau", "fathers" },
+                { "llyfr", "book" }, { "dychwelyd", "return" }, { "ffotograffau", "photos" },
+                { "lluniau", "photos" }, { "dathliad", "celebration" }, { "perfformiad", "performance" } };
+        for (String[] pair : pairs) {
+            WELSH_TO_ENGLISH.put(pair[0], pair[1]);
+        }
+    }
+
+    private static final Set<String> FILLER = Set.of("the", "a", "an", "and", "of", "for", "on", "at", "to", "in",
+            "y", "a'r", "i", "o", "ar", "am", "gyda", "ac");
+
+    private final int bands;
+    private final int rows;
+    private final long[] seeds;
+    private final List<Map<Long, Set<Entry>>> buckets = new ArrayList<>();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private int nextOrdinal;
+
+    private record Entry(int ordinal, Event event, long[] bandKeys) {
+    }
+
+    public SimilarityBlocker() {
+        this(DEFAULT_BANDS, DEFAULT_ROWS);
+    }
+
+    public SimilarityBlocker(int bands, int rows) {
+        this.bands = bands;
+        this.rows = rows;
+        this.seeds = new long[bands * rows];
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < seeds.length; i++) {
+            seed = mix(seed + i);
+            seeds[i] = seed;
+        }
+        for (int b = 0; b < bands; b++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void add(Event event) {
+        remove(event.id());
+        Entry entry = new Entry(nextOrdinal++, event, bandKeys(shingles(event.title())));
+        for (int b = 0; b < bands; b++) {
+            buckets.get(b).computeIfAbsent(entry.bandKeys()[b], k -> new HashSet<>()).add(entry);
+        }
+        entries.put(event.id(), entry);
+    }
+
+    public synchronized void remove(String id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (int b = 0; b < bands; b++) {
+            Set<Entry> bucket = buckets.get(b).get(entry.bandKeys()[b]);
+            if (bucket != null) {
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    buckets.get(b).remove(entry.bandKeys()[b]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stored events sharing at least one band bucket with the given event's
+     * title, excluding the event itself.
+     */
+    public synchronized List<Event> candidates(Event event) {
+        long[] bandKeys = bandKeys(shingles(event.title()));
+        Set<Entry> found = new LinkedHashSet<>();
+        for (int b = 0; b < bands; b++) {
+            Set<Entry> bucket = buckets.get(b).get(bandKeys[b]);
+            if (bucket != null) {
+                found.addAll(bucket);
+            }
+        }
+        List<Event> result = new ArrayList<>(found.size());
+        for (Entry entry : found) {
+            if (!entry.event().id().equals(event.id())) {
+                result.add(entry.event());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Pairs of stored events that share a band bucket and start at most
+     * {@code maxShiftDays} days apart, each pair once. Popular titles (a weekly
+     * club, "Book bag") fill large buckets; sorting each bucket by start and
+     * pairing only within the window keeps this near-linear instead of
+     * quadratic in the bucket size.
+     */
+    public synchronized List<Event[]> candidatePairs(int maxShiftDays) {
+        long maxShiftSeconds = maxShiftDays * 86_400L;
+        Set<Long> seen = new HashSet<>();
+        List<Event[]> pairs = new ArrayList<>();
+        for (Map<Long, Set<Entry>> band : buckets) {
+            for (Set<Entry> bucket : band.values()) {
+                if (bucket.size() < 2) {
+                    continue;
+                }
+                List<Entry> sorted = new ArrayList<>(bucket);
+                sorted.sort(Comparator.comparing((Entry e) -> e.event().startDate()));
+                for (int i = 0; i < sorted.size(); i++) {
+                    Entry a = sorted.get(i);
+                    long aStart = a.event().startDate().toEpochSecond(ZoneOffset.UTC);
+                    for (int j = i + 1; j < sorted.size(); j++) {
+                        Entry b = sorted.get(j);
+                        if (b.event().startDate().toEpochSecond(ZoneOffset.UTC) - aStart > maxShiftSeconds) {
+                            break;
+                        }
+                        long key = ((long) Math.min(a.ordinal(), b.ordinal()) << 32) | Math.max(a.ordinal(),
+                                b.ordinal());
+                        if (seen.add(key)) {
+                            pairs.add(new Event[] { a.event(), b.event() });
+                        }
+                    }
+                }
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Exact Jaccard similarity of the two titles' normalized shingle sets.
+     */
+    public static double similarity(Event a, Event b) {
+        return jaccard(shingles(a.title()), shingles(b.title()));
+    }
+
+    static double jaccard(Set<Integer> a, Set<Integer> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1.0;
+        }
+        int intersection = 0;
+        for (Integer shingle : a) {
+            if (b.contains(shingle)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    /**
+     * Lowercases, maps Welsh words to English and drops filler words, so a
+     * bilingual pair such as "Gwasanaeth Blwyddyn 3" / "Year 3 Assembly" ends
+     * up with largely the same tokens.
+     */
+    static String normalize(String title) {
+        if (title == null) {
+            return "";
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : title.toLowerCase().replaceAll("[^a-z0-9' ]", " ").trim().split("\\s+")) {
+            if (token.isEmpty() || FILLER.contains(token)) {
+                continue;
+            }
+            tokens.add(WELSH_TO_ENGLISH.getOrDefault(token, token));
+        }
+        // Word order differs between the languages ("Year 3 assembly" / "Gwasanaeth Bl 3")
+        tokens.sort(null);
+        return String.join(" ", tokens);
+    }
+
+    static Set<Integer> shingles(String title) {
+        String text = " " + normalize(title) + " ";
+        Set<Integer> shingles = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            shingles.add(text.substring(i, i + 3).hashCode());
+        }
+        return shingles;
+    }
+
+    private long[] bandKeys(Set<Integer> shingles) {
+        long[] signature = new long[seeds.length];
+        java.util.Arrays.fill(signature, Long.MAX_VALUE);
+        for (int shingle : shingles) {
+            for (int i = 0; i < seeds.length; i++) {
+                long h = mix(shingle ^ seeds[i]);
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        long[] keys = new long[bands];
+        for (int b = 0; b < bands; b++) {
+            long key = b;
+            for (int r = 0; r < rows; r++) {
+                key = mix(key * 31 + signature[b * rows + r]);
+            }
+            keys[b] = key;
+        }
+        return keys;
+    }
+
+    private static long mix(long z) {
+        // SplitMix64 finalizer
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
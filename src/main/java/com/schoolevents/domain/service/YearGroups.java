@@ -0,0 +1,31 @@
+package com.schoolevents.domain.service;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Recognises the year group an event is aimed at from its title.
+ */
+public final class YearGroups {
+
+    // Matches "year 5", "yr 5", "y 5", "bl 5" (Welsh "Blwyddyn")
+    private static final Pattern YEAR = Pattern.compile("(year|yr|bl|blwyddyn|y)\\s*([1-6])");
+
+    private YearGroups() {
+    }
+
+    /**
+     * Returns the year group (1-6) mentioned in the title, or null for events
+     * that are not aimed at a single year group.
+     */
+    public static Integer extract(String title) {
+        if (title == null) {
+            return null;
+        }
+        Matcher m = YEAR.matcher(title.toLowerCase());
+        if (m.find()) {
+            return Integer.parseInt(m.group(2));
+        }
+        return null;
+    }
+}
@@ -6,16 +6,30 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 public class ConfigLoader {
     private final Map<String, String> envVars = new HashMap<>();
+    private final ConfigLoader fallback;
+    private final Set<String> ownKeys;
 
     public ConfigLoader() {
-        loadDotEnv();
+        this.fallback = null;
+        this.ownKeys = Set.of();
+        loadDotEnv(new File(".env"));
     }
 
-    private void loadDotEnv() {
-        File dotEnv = new File(".env");
+    /**
+     * Reads {@code envFile}; keys it does not set come from {@code fallback},
+     * except {@code ownKeys}, which are only ever read from this file.
+     */
+    public ConfigLoader(File envFile, ConfigLoader fallback, Set<String> ownKeys) {
+        this.fallback = fallback;
+        this.ownKeys = ownKeys;
+        loadDotEnv(envFile);
+    }
+
+    private void loadDotEnv(File dotEnv) {
         if (!dotEnv.exists()) {
             return;
         }
@@ -45,10 +59,10 @@ public class ConfigLoader {
     }
 
     public String get(String key) {
-        // .env takes precedence, then system env
+        // .env takes precedence, then the fallback config or system env
         String value = envVars.get(key);
-        if (value == null) {
-            value = System.getenv(key);
+        if (value == null && !ownKeys.contains(key)) {
+            value = fallback != null ? fallback.get(key) : System.getenv(key);
         }
         return value;
     }
@@ -0,0 +1,76 @@
+package com.schoolevents.infrastructure.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * The accounts served by one process. Each tenant is a directory under the
+ * tenants directory holding a {@code .env} with that family's settings, and by
+ * default its database and export output. Settings a tenant does not set come
+ * from the process-wide configuration, except the account-specific ones,
+ * which are never shared.
+ */
+public class TenantRegistry {
+
+    /** Keys that identify or belong to one account and must not leak between tenants. */
+    public static final Set<String> TENANT_KEYS = Set.of(
+            "GMAIL_USERNAME", "GMAIL_PASSWORD", "UI_PASSWORD", "DB_URL", "DRIVE_FOLDER_ID", "EMAIL_ARCHIVE_DIR",
+            "SENDER_FILTER", "QUERY_SERVER_PORT", "ICS_YEAR_GROUPS", "EMAIL_PRIORITY_SENDERS", "IMAP_FOLDERS");
+
+    private static final Pattern TENANT_ID = Pattern.compile("[A-Za-z0-9_-]+");
+
+    public record Tenant(String id, Path home, ConfigLoader config) {
+
+        public String dbUrl() {
+            return config.getOrDefault("DB_URL", "jdbc:sqlite:" + home.resolve("school_events.db"));
+        }
+
+        public String outputDir() {
+            return home.resolve("output").toString();
+        }
+    }
+
+    private final Path dir;
+    private final List<Tenant> tenants;
+
+    private TenantRegistry(Path dir, List<Tenant> tenants) {
+        this.dir = dir;
+        this.tenants = tenants;
+    }
+
+    /** Every subdirectory of {@code dir} with a {@code .env}, in name order. */
+    public static TenantRegistry load(Path dir, ConfigLoader shared) throws IOException {
+        List<Tenant> tenants = new ArrayList<>();
+        try (Stream<Path> entries = Files.list(dir)) {
+            for (Path home : entries.sorted(Comparator.comparing(Path::getFileName)).toList()) {
+                File envFile = home.resolve(".env").toFile();
+                if (!Files.isDirectory(home) || !envFile.isFile()) {
+                    continue;
+                }
+                String id = home.getFileName().toString();
+                if (!TENANT_ID.matcher(id).matches()) {
+                    System.err.println("Skipping tenant directory with unsupported name: " + id);
+                    continue;
+                }
+                tenants.add(new Tenant(id, home, new ConfigLoader(envFile, shared, TENANT_KEYS)));
+            }
+        }
+        return new TenantRegistry(dir, List.copyOf(tenants));
+    }
+
+    public Path dir() {
+        return dir;
+    }
+
+    public List<Tenant> tenants() {
+        return tenants;
+    }
+}
@@ -1,11 +1,13 @@
 package com.schoolevents.infrastructure.security;
 
 import javax.crypto.Cipher;
+import javax.crypto.CipherOutputStream;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.util.Base64;
@@ -40,6 +42,29 @@ public class AesEncryptionUtil {
         return "v1|" + saltB64 + "|" + ivB64 + "|" + cipherB64;
     }
 
+    /**
+     * Streaming variant of {@link #encrypt}: writes the same
+     * {@code v1|salt|iv|ciphertext} format to {@code out} as bytes are written
+     * to the returned stream. Closing the returned stream writes the GCM tag and
+     * closes {@code out}.
+     */
+    public static OutputStream encryptingStream(OutputStream out, String password) throws Exception {
+        byte[] salt = new byte[SALT_LENGTH];
+        new SecureRandom().nextBytes(salt);
+
+        byte[] iv = new byte[IV_LENGTH];
+        new SecureRandom().nextBytes(iv);
+
+        SecretKey secretKey = deriveKey(password, salt);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(128, iv));
+
+        String header = "v1|" + Base64.getEncoder().encodeToString(salt) + "|"
+                + Base64.getEncoder().encodeToString(iv) + "|";
+        out.write(header.getBytes(StandardCharsets.US_ASCII));
+        return new CipherOutputStream(Base64.getEncoder().wrap(out), cipher);
+    }
+
     private static SecretKey deriveKey(String password, byte[] salt) throws Exception {
         PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, ITERATIONS, KEY_LENGTH);
         SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
@@ -0,0 +1,255 @@
+package com.schoolevents.launcher;
+
+import com.schoolevents.adapter.out.persistence.SchemaInitializer;
+import com.schoolevents.adapter.out.persistence.SqliteEventRepository;
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.port.out.EventRepositoryPort;
+import com.schoolevents.domain.service.EventReconciliationService;
+import com.schoolevents.infrastructure.config.ConfigLoader;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Sweeps the whole store for duplicates. Reconciliation only cleans up the
+ * day an incoming event touches, so older mistakes stay until this job runs.
+ *
+ * Events are partitioned by start day, plus one partition for multi-day spans
+ * (which also match other spans they overlap), and each partition is matched
+ * with the reconciliation rules in parallel on a fork/join pool. Matching
+ * pairs are grouped into clusters whose members all match each other; each
+ * cluster collapses into its member from the newest source email, and all
+ * deletes and updates are written in a single transaction. A dry run only
+ * prints what would change.
+ *
+ * Usage: {@code DuplicateCompactor [--dry-run]} (uses {@code DB_URL}).
+ */
+public class DuplicateCompactor {
+
+    // Partitions handled by one fork/join leaf; single days are small
+    private static final int PARTITIONS_PER_TASK = 32;
+
+    private final EventRepositoryPort repository;
+    private final ForkJoinPool pool;
+
+    public record Cluster(Event master, Event merged, List<Event> duplicates) {
+    }
+
+    public record Report(int events, int partitions, List<Cluster> clusters, List<Event> upserts,
+            List<String> deletes, long elapsedNanos, boolean applied) {
+
+        public double eventsPerSecond() {
+            return elapsedNanos == 0 ? 0 : events * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+
+    public DuplicateCompactor(EventRepositoryPort repository, int parallelism) {
+        this.repository = repository;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public static void main(String[] args) {
+        boolean dryRun = List.of(args).contains("--dry-run");
+        String dbUrl = new ConfigLoader().getOrDefault("DB_URL", "jdbc:sqlite:school_events.db");
+        SchemaInitializer.initialize(dbUrl);
+
+        DuplicateCompactor compactor = new DuplicateCompactor(new SqliteEventRepository(dbUrl),
+                Runtime.getRuntime().availableProcessors());
+        Report report = compactor.compact(dryRun);
+        for (Cluster cluster : report.clusters()) {
+            System.out.println("  keep '" + cluster.master().title() + "' " + cluster.master().startDate()
+                    + " (ID: " + cluster.master().id() + "), drop " + cluster.duplicates().size() + ": "
+                    + cluster.duplicates().stream().map(e -> "'" + e.title() + "' (ID: " + e.id() + ")").toList());
+        }
+        System.out.println((dryRun ? "Dry run: would delete " : "Deleted ") + report.deletes().size()
+                + " duplicate(s) and update " + report.upserts().size() + " event(s) in "
+                + report.clusters().size() + " cluster(s).");
+        System.out.printf("Scanned %d events in %d partitions: %.1f ms, %.0f events/s%n", report.events(),
+                report.partitions(), report.elapsedNanos() / 1e6, report.eventsPerSecond());
+    }
+
+    public Report compact(boolean dryRun) {
+        long start = System.nanoTime();
+
+        TreeMap<LocalDate, List<Event>> byDay = new TreeMap<>();
+        List<Event> spans = new ArrayList<>();
+        int[] count = { 0 };
+        repository.forEachEvent(event -> {
+            count[0]++;
+            byDay.computeIfAbsent(event.startDate().toLocalDate(), d -> new ArrayList<>()).add(event);
+            if (isMultiDay(event)) {
+                spans.add(event);
+            }
+        });
+
+        List<List<Event>> partitions = new ArrayList<>(byDay.values());
+        List<Event[]> pairs = pool.invoke(new MatchTask(partitions, 0, partitions.size()));
+        pairs.addAll(matchSpans(spans));
+
+        List<Cluster> clusters = cluster(pairs);
+        List<Event> upserts = new ArrayList<>();
+        List<String> deletes = new ArrayList<>();
+        for (Cluster cluster : clusters) {
+            if (!cluster.merged().equals(cluster.master())) {
+                upserts.add(cluster.merged());
+            }
+            cluster.duplicates().forEach(e -> deletes.add(e.id()));
+        }
+
+        if (!dryRun && (!upserts.isEmpty() || !deletes.isEmpty())) {
+            repository.applyChanges(upserts, deletes);
+        }
+        return new Report(count[0], partitions.size() + (spans.isEmpty() ? 0 : 1), clusters, upserts, deletes,
+                System.nanoTime() - start, !dryRun);
+    }
+
+    /**
+     * Splits the day partitions until a slice is small enough, then compares
+     * every pair of events within each day. Tasks are never serialized.
+     */
+    @SuppressWarnings("serial")
+    private static final class MatchTask extends RecursiveTask<List<Event[]>> {
+        private final List<List<Event>> partitions;
+        private final int from;
+        private final int to;
+
+        MatchTask(List<List<Event>> partitions, int from, int to) {
+            this.partitions = partitions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Event[]> compute() {
+            if (to - from <= PARTITIONS_PER_TASK) {
+                List<Event[]> pairs = new ArrayList<>();
+                for (int p = from; p < to; p++) {
+                    List<Event> day = partitions.get(p);
+                    for (int i = 0; i < day.size(); i++) {
+                        for (int j = i + 1; j < day.size(); j++) {
+                            if (EventReconciliationService.isSameEvent(day.get(i), day.get(j))) {
+                                pairs.add(new Event[] { day.get(i), day.get(j) });
+                            }
+                        }
+                    }
+                }
+                return pairs;
+            }
+            int mid = (from + to) >>> 1;
+            MatchTask left = new MatchTask(partitions, from, mid);
+            left.fork();
+            List<Event[]> pairs = new MatchTask(partitions, mid, to).compute();
+            pairs.addAll(left.join());
+            return pairs;
+        }
+    }
+
+    /**
+     * Overlapping multi-day spans with matching titles, found with a sweep
+     * over the spans in start order.
+     */
+    private static List<Event[]> matchSpans(List<Event> spans) {
+        spans.sort(Comparator.comparing(Event::startDate));
+        List<Event[]> pairs = new ArrayList<>();
+        for (int i = 0; i < spans.size(); i++) {
+            Event a = spans.get(i);
+            LocalDateTime end = a.endDate();
+            for (int j = i + 1; j < spans.size() && !spans.get(j).startDate().isAfter(end); j++) {
+                Event b = spans.get(j);
+                // Same-day starts were already compared in the day partition
+                if (!b.startDate().toLocalDate().equals(a.startDate().toLocalDate())
+                        && EventReconciliationService.isSameEvent(a, b)) {
+                    pairs.add(new Event[] { a, b });
+                }
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Builds each cluster around a master, newest source first, and admits a
+     * candidate only when it matches the master and every member already
+     * admitted. Matching is not transitive ("Year 3 Library" and "Year 4
+     * Library" both match "Library"), so joining pairs into connected
+     * components would merge events that are not duplicates of each other.
+     */
+    private static List<Cluster> cluster(List<Event[]> pairs) {
+        Map<String, Set<String>> matches = new HashMap<>();
+        Map<String, Event> events = new HashMap<>();
+        for (Event[] pair : pairs) {
+            events.put(pair[0].id(), pair[0]);
+            events.put(pair[1].id(), pair[1]);
+            matches.computeIfAbsent(pair[0].id(), k -> new HashSet<>()).add(pair[1].id());
+            matches.computeIfAbsent(pair[1].id(), k -> new HashSet<>()).add(pair[0].id());
+        }
+
+        List<Event> newestFirst = events.values().stream().sorted(NEWEST_SOURCE.reversed()).toList();
+        Set<String> assigned = new HashSet<>();
+        List<Cluster> clusters = new ArrayList<>();
+        for (Event master : newestFirst) {
+            if (!assigned.add(master.id())) {
+                continue;
+            }
+            List<Event> duplicates = new ArrayList<>();
+            // Only the master's own matches can join it
+            List<Event> candidates = matches.get(master.id()).stream().map(events::get)
+                    .sorted(NEWEST_SOURCE.reversed()).toList();
+            for (Event candidate : candidates) {
+                Set<String> candidateMatches = matches.get(candidate.id());
+                if (!assigned.contains(candidate.id())
+                        && duplicates.stream().allMatch(d -> candidateMatches.contains(d.id()))) {
+                    duplicates.add(candidate);
+                    assigned.add(candidate.id());
+                }
+            }
+            if (!duplicates.isEmpty()) {
+                clusters.add(new Cluster(master, merge(master, duplicates), duplicates));
+            }
+        }
+        clusters.sort(Comparator.comparing((Cluster c) -> c.master().startDate()).thenComparing(c -> c.master().id()));
+        return clusters;
+    }
+
+    // Newest source email wins; unknown receive times count as oldest, ties go to the higher confidence
+    private static final Comparator<Event> NEWEST_SOURCE = Comparator
+            .comparing(Event::sourceEmailReceivedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Event::confidence, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Event::id, Comparator.reverseOrder());
+
+    /**
+     * The master with details it lacks (notes, an end time) taken from the
+     * newest duplicate that has them.
+     */
+    private static Event merge(Event master, List<Event> duplicates) {
+        List<Event> newestFirst = duplicates.stream().sorted(NEWEST_SOURCE.reversed()).toList();
+        String notes = master.notes();
+        if (notes == null || notes.isBlank()) {
+            notes = newestFirst.stream().map(Event::notes).filter(n -> n != null && !n.isBlank()).findFirst()
+                    .orElse(master.notes());
+        }
+        LocalDateTime endDate = master.endDate();
+        if (endDate == null) {
+            endDate = newestFirst.stream()
+                    .filter(e -> e.startDate().equals(master.startDate()) && e.endDate() != null)
+                    .map(Event::endDate).findFirst().orElse(null);
+        }
+        return new Event(master.id(), master.title(), master.startDate(), endDate, master.allDay(), notes,
+                master.confidence(), master.status(), master.isRecurring(), master.sourceEmailId(),
+                master.sourceEmailSubject(), master.sourceEmailReceivedAt());
+    }
+
+    private static boolean isMultiDay(Event event) {
+        return event.endDate() != null
+                && event.endDate().toLocalDate().isAfter(event.startDate().toLocalDate());
+    }
+}
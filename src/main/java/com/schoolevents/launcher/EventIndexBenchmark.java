@@ -0,0 +1,86 @@
+package com.schoolevents.launcher;
+
+import com.schoolevents.adapter.out.persistence.IndexedEventRepository;
+import com.schoolevents.adapter.out.persistence.SchemaInitializer;
+import com.schoolevents.adapter.out.persistence.SqliteEventRepository;
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.port.out.EventRepositoryPort;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Compares the SQLite repository with the in-memory {@code EventIndex} on a
+ * generated store (100k events by default): by-day lookups as done by
+ * reconciliation, week-long overlap windows as served by the query server, and
+ * the full scan behind the summary counts.
+ *
+ * Args: [events] [queries]
+ */
+public class EventIndexBenchmark {
+    public static void main(String[] args) throws Exception {
+        int eventCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        Path db = Files.createTempFile("index-bench", ".db");
+        String dbUrl = "jdbc:sqlite:" + db;
+        try {
+            SchemaInitializer.initialize(dbUrl);
+            LocalDateTime base = LocalDateTime.of(2015, 9, 1, 9, 0);
+            populate(dbUrl, eventCount, base);
+
+            SqliteEventRepository sqlite = new SqliteEventRepository(dbUrl);
+            long started = System.nanoTime();
+            IndexedEventRepository indexed = new IndexedEventRepository(sqlite);
+            System.out.printf("index build: %d ms for %d events%n", (System.nanoTime() - started) / 1_000_000,
+                    indexed.index().size());
+
+            int days = eventCount / 8;
+            for (EventRepositoryPort repo : new EventRepositoryPort[] { sqlite, indexed }) {
+                String name = repo == sqlite ? "sqlite" : "index";
+                time(name, "findByDate", queries,
+                        q -> repo.findByDate(base.plusDays((q * 7919L) % days)).size());
+                time(name, "findOverlapping(7d)", queries, q -> {
+                    LocalDateTime from = base.plusDays((q * 7919L) % days);
+                    return repo.findOverlapping(from, from.plusDays(7)).size();
+                });
+                time(name, "countRecurring", Math.max(1, queries / 100), q -> repo == sqlite
+                        ? (int) repo.findAll().stream().filter(e -> e.isRecurring()).count()
+                        : (int) indexed.index().countRecurring());
+            }
+        } finally {
+            Files.deleteIfExists(db);
+        }
+    }
+
+    private static void time(String repo, String label, int queries, ToIntFunction<Integer> query) {
+        long rows = 0;
+        long started = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            rows += query.applyAsInt(q);
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.out.printf("%-7s %-20s %10.0f ops/s  (%d rows)%n", repo, label, queries / seconds, rows);
+    }
+
+    private static void populate(String dbUrl, int eventCount, LocalDateTime base) {
+        var repository = new SqliteEventRepository(dbUrl);
+        List<Event> chunk = new ArrayList<>();
+        for (int i = 0; i < eventCount; i++) {
+            // About eight events a day, one in fifty spanning several days
+            LocalDateTime start = base.plusMinutes(i * 180L);
+            LocalDateTime end = i % 50 == 0 ? start.plusDays(4) : start.plusHours(1);
+            chunk.add(new Event("bench-" + i, "Year " + (i % 6 + 1) + " event " + (i % 400), start, end, false, "",
+                    0.9, Event.Status.ACTIVE, i % 10 == 0, "msg-" + (i / 5), "Newsletter", base));
+            if (chunk.size() == 1000) {
+                repository.applyChanges(chunk, List.of());
+                chunk.clear();
+            }
+        }
+        repository.applyChanges(chunk, List.of());
+    }
+}
@@ -0,0 +1,399 @@
+package com.schoolevents.launcher;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A local stand-in for the Gemini {@code generateContent} endpoint, so the
+ * pipeline can run without an API key or quota. Point
+ * {@code GEMINI_BASE_URL} at it.
+ *
+ * It answers each request with the events an answer function gives for the
+ * email IDs in the prompt (in the compact format when structured output is
+ * requested), with estimated token usage, after a configurable latency (the
+ * mean, with an exponential tail, plus optional time per output token) and
+ * failing a configurable share of requests with 429, or with 503 or a stall
+ * to exercise retries, timeouts and hedging. Gzip request bodies are accepted.
+ * It can also sit in front of the real API and record every successful
+ * response by a hash of the request, then replay those recordings offline;
+ * requests that were never recorded fall back to the answer function.
+ *
+ * Args: [--port=8089] [--latency-ms=0] [--ms-per-output-token=0] [--rate-limited=0.0]
+ * [--server-errors=0.0] [--stalls=0.0 --stall-ms=30000]
+ * [--record=DIR --upstream=URL | --replay=DIR]
+ */
+public class GeminiStubServer {
+
+    private static final Pattern EMAIL_ID = Pattern.compile("(?m)^(?:Index: (\\d+)\\n)?ID: (.+)$");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Function<String, List<Map<String, Object>>> answers;
+    private final long latencyMillis;
+    private final double rateLimitedShare;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong serverErrors = new AtomicLong();
+    private final AtomicLong stalls = new AtomicLong();
+    private final AtomicLong gzipped = new AtomicLong();
+    private final AtomicLong serverErrorDraws = new AtomicLong();
+    private final AtomicLong stallDraws = new AtomicLong();
+    private Path recordDir;
+    private HttpClient upstreamClient;
+    private String upstreamBaseUrl;
+    private Path replayDir;
+    private double millisPerOutputToken;
+    private double serverErrorShare;
+    private double stallShare;
+    private long stallMillis;
+
+    public GeminiStubServer(int port, Function<String, List<Map<String, Object>>> answers, long latencyMillis,
+            double rateLimitedShare) throws IOException {
+        this.answers = answers;
+        this.latencyMillis = latencyMillis;
+        this.rateLimitedShare = rateLimitedShare;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server.setExecutor(executor);
+        this.server.createContext("/v1beta/models/", this::handle);
+    }
+
+    /** Forwards requests to the real API and saves each successful response. */
+    public void recordTo(Path dir, String upstreamBaseUrl) throws IOException {
+        this.recordDir = Files.createDirectories(dir);
+        this.upstreamBaseUrl = upstreamBaseUrl;
+        this.upstreamClient = HttpClient.newHttpClient();
+    }
+
+    /** Serves responses saved by {@link #recordTo} instead of synthesizing them. */
+    public void replayFrom(Path dir) {
+        this.replayDir = dir;
+    }
+
+    /**
+     * Adds generation time proportional to the answer's (estimated) output
+     * tokens on top of the base latency, as a real model would.
+     */
+    public void setMillisPerOutputToken(double millisPerOutputToken) {
+        this.millisPerOutputToken = millisPerOutputToken;
+    }
+
+    /**
+     * Fails a share of requests with 503 and holds a share for
+     * {@code stallMillis} before answering normally. Unlike 429s these are
+     * spread evenly rather than at random, starting with the first request,
+     * so a test knows which request is hit.
+     */
+    public void setFailures(double serverErrorShare, double stallShare, long stallMillis) {
+        this.serverErrorShare = serverErrorShare;
+        this.stallShare = stallShare;
+        this.stallMillis = stallMillis;
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + port();
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long rateLimited() {
+        return rateLimited.get();
+    }
+
+    public long replayed() {
+        return replayed.get();
+    }
+
+    public long serverErrors() {
+        return serverErrors.get();
+    }
+
+    public long stalls() {
+        return stalls.get();
+    }
+
+    /** Requests that arrived with a gzip-compressed body. */
+    public long gzipped() {
+        return gzipped.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            byte[] request = readBody(exchange);
+            if (recordDir != null) {
+                forward(exchange, request);
+                return;
+            }
+            if (rateLimitedShare > 0 && ThreadLocalRandom.current().nextDouble() < rateLimitedShare) {
+                rateLimited.incrementAndGet();
+                simulateLatency(0);
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 429, "{\"error\":{\"code\":429,\"message\":\"Resource has been exhausted\","
+                        + "\"status\":\"RESOURCE_EXHAUSTED\"}}");
+                return;
+            }
+            if (due(serverErrorShare, serverErrorDraws.incrementAndGet())) {
+                serverErrors.incrementAndGet();
+                simulateLatency(0);
+                send(exchange, 503, "{\"error\":{\"code\":503,\"message\":\"The model is overloaded\","
+                        + "\"status\":\"UNAVAILABLE\"}}");
+                return;
+            }
+            if (due(stallShare, stallDraws.incrementAndGet())) {
+                stalls.incrementAndGet();
+                sleep(stallMillis);
+            }
+            if (replayDir != null) {
+                Path recorded = replayDir.resolve(key(exchange, request) + ".json");
+                if (Files.exists(recorded)) {
+                    replayed.incrementAndGet();
+                    simulateLatency(0);
+                    send(exchange, 200, Files.readString(recorded));
+                    return;
+                }
+            }
+            String text = answer(request);
+            long outputTokens = estimateTokens(text.length());
+            simulateLatency(outputTokens);
+            send(exchange, 200, objectMapper.writeValueAsString(Map.of(
+                    "candidates", List.of(Map.of("content", Map.of("parts", List.of(Map.of("text", text))))),
+                    "usageMetadata", Map.of("promptTokenCount", estimateTokens(request.length),
+                            "candidatesTokenCount", outputTokens))));
+        }
+    }
+
+    /** Whether the n-th request (from 1) is one of an evenly spread share. */
+    private static boolean due(double share, long n) {
+        return share > 0 && Math.ceil(n * share) > Math.ceil((n - 1) * share);
+    }
+
+    private byte[] readBody(HttpExchange exchange) throws IOException {
+        if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            gzipped.incrementAndGet();
+            try (InputStream in = new GZIPInputStream(exchange.getRequestBody())) {
+                return in.readAllBytes();
+            }
+        }
+        return exchange.getRequestBody().readAllBytes();
+    }
+
+    private void forward(HttpExchange exchange, byte[] request) throws IOException {
+        URI uri = URI.create(upstreamBaseUrl + exchange.getRequestURI());
+        try {
+            HttpResponse<String> response = upstreamClient.send(HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(request))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 200) {
+                Files.writeString(recordDir.resolve(key(exchange, request) + ".json"), response.body());
+            }
+            send(exchange, response.statusCode(), response.body());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 502, "{}");
+        }
+    }
+
+    /**
+     * The JSON array of events for the prompt's emails, in the compact
+     * structured-output format when the request carries a response schema.
+     */
+    private String answer(byte[] request) throws IOException {
+        JsonNode root = objectMapper.readTree(request);
+        boolean compact = root.path("generationConfig").has("responseSchema");
+        List<Map<String, Object>> events = new ArrayList<>();
+        for (JsonNode content : root.path("contents")) {
+            for (JsonNode part : content.path("parts")) {
+                Matcher m = EMAIL_ID.matcher(part.path("text").asText());
+                while (m.find()) {
+                    for (Map<String, Object> event : answers.apply(m.group(2).trim())) {
+                        events.add(compact && m.group(1) != null
+                                ? compact(event, Integer.parseInt(m.group(1)))
+                                : event);
+                    }
+                }
+            }
+        }
+        return objectMapper.writeValueAsString(events);
+    }
+
+    /** An event in the extraction prompt's format, rewritten with the compact keys. */
+    static Map<String, Object> compact(Map<String, Object> event, int emailIndex) {
+        boolean allDay = Boolean.TRUE.equals(event.get("allDay"));
+        LocalDateTime start = LocalDateTime.parse((String) event.get("startDate"));
+        Map<String, Object> compact = new LinkedHashMap<>();
+        compact.put("e", emailIndex);
+        compact.put("t", event.get("title"));
+        compact.put("d", start.toLocalDate().toString());
+        if (!allDay) {
+            compact.put("s", start.toLocalTime().toString());
+        }
+        if (event.get("endDate") != null) {
+            LocalDateTime end = LocalDateTime.parse((String) event.get("endDate"));
+            if (!end.toLocalDate().equals(start.toLocalDate())) {
+                compact.put("ed", end.toLocalDate().toString());
+            }
+            if (!allDay && !end.toLocalTime().equals(start.toLocalTime())) {
+                compact.put("et", end.toLocalTime().toString());
+            }
+        }
+        if (event.get("notes") instanceof String notes && !notes.isBlank()) {
+            compact.put("n", notes);
+        }
+        if (event.get("confidence") != null) {
+            compact.put("c", event.get("confidence"));
+        }
+        if ("CANCELLED".equals(event.get("status"))) {
+            compact.put("x", "C");
+        }
+        if (Boolean.TRUE.equals(event.get("isRecurring"))) {
+            compact.put("r", true);
+        }
+        return compact;
+    }
+
+    private void simulateLatency(long outputTokens) {
+        long millis = (long) (outputTokens * millisPerOutputToken);
+        if (latencyMillis > 0) {
+            millis += latencyMillis / 2
+                    + (long) (ThreadLocalRandom.current().nextExponential() * latencyMillis / 2);
+        }
+        sleep(millis);
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Roughly four characters per token, as for English text. */
+    private static long estimateTokens(int chars) {
+        return (chars + 3) / 4;
+    }
+
+    /** Recordings are keyed by model path and request body; the API key is not part of it. */
+    private static String key(HttpExchange exchange, byte[] request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(exchange.getRequestURI().getPath().getBytes(StandardCharsets.UTF_8));
+            digest.update(request);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = 8089;
+        long latency = 0;
+        double millisPerToken = 0;
+        double rateLimitedShare = 0;
+        double serverErrorShare = 0;
+        double stallShare = 0;
+        long stallMillis = 30_000;
+        String record = null;
+        String upstream = "https://generativelanguage.googleapis.com";
+        String replay = null;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(value);
+            } else if (arg.startsWith("--latency-ms=")) {
+                latency = Long.parseLong(value);
+            } else if (arg.startsWith("--ms-per-output-token=")) {
+                millisPerToken = Double.parseDouble(value);
+            } else if (arg.startsWith("--rate-limited=")) {
+                rateLimitedShare = Double.parseDouble(value);
+            } else if (arg.startsWith("--server-errors=")) {
+                serverErrorShare = Double.parseDouble(value);
+            } else if (arg.startsWith("--stalls=")) {
+                stallShare = Double.parseDouble(value);
+            } else if (arg.startsWith("--stall-ms=")) {
+                stallMillis = Long.parseLong(value);
+            } else if (arg.startsWith("--record=")) {
+                record = value;
+            } else if (arg.startsWith("--upstream=")) {
+                upstream = value;
+            } else if (arg.startsWith("--replay=")) {
+                replay = value;
+            }
+        }
+
+        // Standalone, unrecorded requests get an empty answer
+        GeminiStubServer stub = new GeminiStubServer(port, id -> List.of(), latency, rateLimitedShare);
+        stub.setMillisPerOutputToken(millisPerToken);
+        stub.setFailures(serverErrorShare, stallShare, stallMillis);
+        if (record != null) {
+            stub.recordTo(Path.of(record), upstream);
+            System.out.println("Recording responses from " + upstream + " into " + record);
+        } else if (replay != null) {
+            stub.replayFrom(Path.of(replay));
+            System.out.println("Replaying responses from " + replay);
+        }
+        stub.start();
+        System.out.println("Gemini stub listening on " + stub.baseUrl() + " (set GEMINI_BASE_URL to this)");
+    }
+}
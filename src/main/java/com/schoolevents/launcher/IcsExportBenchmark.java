@@ -0,0 +1,82 @@
+package com.schoolevents.launcher;
+
+import com.schoolevents.adapter.out.filesystem.IcsExporter;
+import com.schoolevents.adapter.out.persistence.SchemaInitializer;
+import com.schoolevents.adapter.out.persistence.SqliteEventRepository;
+import com.schoolevents.domain.model.Event;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Times {@link IcsExporter} on a generated store (50k events by default, a
+ * tenth of them weekly recurring) and reports peak heap, feed sizes and the
+ * cost of a second, unchanged export.
+ *
+ * Args: [events]
+ */
+public class IcsExportBenchmark {
+    public static void main(String[] args) throws Exception {
+        int eventCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+
+        Path workDir = Files.createTempDirectory("ics-bench");
+        String dbUrl = "jdbc:sqlite:" + workDir.resolve("events.db");
+        SchemaInitializer.initialize(dbUrl);
+        populate(dbUrl, eventCount);
+
+        var exporter = new IcsExporter(new SqliteEventRepository(dbUrl), workDir.resolve("feeds").toString(),
+                List.of(1, 2, 3, 4, 5, 6));
+        try {
+            for (String run : List.of("first", "unchanged")) {
+                System.gc();
+                ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+                long started = System.nanoTime();
+                List<String> changed = exporter.export();
+                long millis = (System.nanoTime() - started) / 1_000_000;
+                long peakHeap = ManagementFactory.getMemoryPoolMXBeans().stream()
+                        .filter(pool -> pool.getType() == MemoryType.HEAP)
+                        .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                        .sum();
+                System.out.printf("%-9s %6d ms  %4d MB peak heap  %d feed(s) rewritten%n", run, millis,
+                        peakHeap / (1024 * 1024), changed.size());
+            }
+            try (Stream<Path> feeds = Files.list(workDir.resolve("feeds"))) {
+                feeds.sorted().forEach(feed -> System.out.printf("  %-22s %8d KB%n", feed.getFileName(),
+                        feed.toFile().length() / 1024));
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(workDir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private static void populate(String dbUrl, int eventCount) {
+        var repository = new SqliteEventRepository(dbUrl);
+        LocalDateTime base = LocalDateTime.of(2020, 9, 1, 9, 0);
+        List<Event> chunk = new ArrayList<>();
+        for (int i = 0; i < eventCount; i++) {
+            boolean recurring = i % 10 == 0;
+            // Recurring rows form 50 weekly series; the rest are one-off events
+            LocalDateTime start = recurring ? base.plusWeeks(i / 500).plusDays((i / 10) % 50 % 5)
+                    .plusMinutes((i / 10) % 50 * 5) : base.plusMinutes(i * 47L);
+            chunk.add(new Event("bench-" + i,
+                    recurring ? "Club " + ((i / 10) % 50) : "Year " + (i % 6 + 1) + " event " + i,
+                    start, start.plusHours(1), false, "Generated for the ICS export benchmark.", 0.9,
+                    Event.Status.ACTIVE, recurring, "msg-" + i, "Newsletter", base));
+            if (chunk.size() == 1000) {
+                repository.applyChanges(chunk, List.of());
+                chunk.clear();
+            }
+        }
+        repository.applyChanges(chunk, List.of());
+    }
+}
@@ -0,0 +1,315 @@
+package com.schoolevents.launcher;
+
+import com.schoolevents.adapter.in.http.EventQueryServer;
+import com.schoolevents.adapter.out.ai.BilingualSplitter;
+import com.schoolevents.adapter.out.ai.ChainedEventExtractor;
+import com.schoolevents.adapter.out.ai.GeminiAiAdapter;
+import com.schoolevents.adapter.out.ai.GeminiHttpTransport;
+import com.schoolevents.adapter.out.ai.OpenAiCompatibleAdapter;
+import com.schoolevents.adapter.out.ai.PromptPreprocessor;
+import com.schoolevents.adapter.out.ai.RuleBasedEventExtractor;
+import com.schoolevents.adapter.out.email.ArchivedEmailFetcher;
+import com.schoolevents.adapter.out.email.GmailImapAdapter;
+import com.schoolevents.adapter.out.email.MaildirArchive;
+import com.schoolevents.adapter.out.filesystem.IcsExporter;
+import com.schoolevents.adapter.out.filesystem.JsonExporter;
+import com.schoolevents.adapter.out.persistence.IndexedEventRepository;
+import com.schoolevents.adapter.out.persistence.SchemaInitializer;
+import com.schoolevents.adapter.out.persistence.SqliteAttachmentCacheRepository;
+import com.schoolevents.adapter.out.persistence.SqliteEventRepository;
+import com.schoolevents.adapter.out.persistence.SqliteProcessedEmailRepository;
+import com.schoolevents.adapter.out.persistence.SqliteQuotaLedger;
+import com.schoolevents.application.usecase.PartitionedReconciler;
+import com.schoolevents.application.usecase.ProcessInboxUseCase;
+import com.schoolevents.application.usecase.StagedEventRepository;
+import com.schoolevents.domain.model.QuotaLimits;
+import com.schoolevents.domain.port.out.AiEventExtractorPort;
+import com.schoolevents.domain.port.out.QuotaLedgerPort;
+import com.schoolevents.domain.service.EmailPriorityScheduler;
+import com.schoolevents.domain.service.EventReconciliationService;
+import com.schoolevents.domain.service.SimilarityBlocker;
+import com.schoolevents.infrastructure.config.ConfigLoader;
+
+/**
+ * One account's run, wired from its configuration: fetch, extract, reconcile
+ * and export. {@link Main} runs one for the process's own configuration;
+ * {@link MultiTenantRunner} runs one per tenant, with the Gemini client and
+ * quota shared between them.
+ */
+class InboxPipeline {
+
+    /** A required setting is missing or inconsistent. */
+    static class ConfigurationException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ConfigurationException(String message) {
+            super(message);
+        }
+    }
+
+    /** Gemini connections and quota used by every pipeline of the process. */
+    record SharedGemini(GeminiHttpTransport transport, QuotaLedgerPort quotaLedger) {
+    }
+
+    private final ConfigLoader config;
+    private final String dbUrl;
+    private final String outputDir;
+    private final SharedGemini sharedGemini;
+    private final boolean bookBagEvents;
+
+    InboxPipeline(ConfigLoader config, String dbUrl, String outputDir, SharedGemini sharedGemini,
+            boolean bookBagEvents) {
+        this.config = config;
+        this.dbUrl = dbUrl;
+        this.outputDir = outputDir;
+        this.sharedGemini = sharedGemini;
+        this.bookBagEvents = bookBagEvents;
+    }
+
+    /**
+     * Runs once. Returns the query server when {@code QUERY_SERVER_PORT} asks
+     * to keep serving after the run, otherwise null.
+     */
+    EventQueryServer run() throws Exception {
+        // Load configuration
+        String gmailUsername = config.get("GMAIL_USERNAME");
+        String gmailPassword = config.get("GMAIL_PASSWORD");
+        String geminiApiKey = config.get("GEMINI_API_KEY");
+        String aiEnabledStr = config.get("AI_ENABLED");
+        boolean aiEnabled = Boolean.parseBoolean(aiEnabledStr == null ? "true" : aiEnabledStr);
+
+        // Cloud & Security Config
+        String googleCreds = config.get("GOOGLE_CREDENTIALS_JSON");
+        String driveFolder = config.get("DRIVE_FOLDER_ID");
+        String uiPassword = config.get("UI_PASSWORD");
+
+        // Raw email archive: IMAP runs keep a copy; EMAIL_SOURCE=archive replays it offline
+        String emailArchiveDir = config.get("EMAIL_ARCHIVE_DIR");
+        boolean fromArchive = "archive".equalsIgnoreCase(config.getOrDefault("EMAIL_SOURCE", "imap"));
+
+        // Validate config
+        if (fromArchive && (emailArchiveDir == null || emailArchiveDir.isBlank())) {
+            throw new ConfigurationException("EMAIL_ARCHIVE_DIR is required when EMAIL_SOURCE is archive.");
+        }
+        if (!fromArchive && (gmailUsername == null || gmailPassword == null)) {
+            throw new ConfigurationException("GMAIL_USERNAME and GMAIL_PASSWORD environment variables are required.");
+        }
+        // Provider routing: bulk backfills (forced rescans / rescans since a date) go to
+        // the local model when one is configured, incremental runs go to Gemini
+        String localLlmUrl = config.get("LOCAL_LLM_URL");
+        boolean forceRescan = Boolean.parseBoolean(config.get("FORCE_RESCAN"));
+        String rescanSince = config.get("RESCAN_SINCE");
+        boolean bulkRun = forceRescan || (rescanSince != null && !rescanSince.isBlank());
+        String provider = config.getOrDefault("LLM_PROVIDER", "auto").toLowerCase();
+        boolean useLocalModel = localLlmUrl != null && !localLlmUrl.isBlank()
+                && (provider.equals("local") || (provider.equals("auto") && bulkRun));
+
+        if (aiEnabled && !useLocalModel && (geminiApiKey == null || geminiApiKey.isBlank())) {
+            throw new ConfigurationException("GEMINI_API_KEY is required when AI_ENABLED is true.");
+        }
+
+        System.out.println("Starting School Events Organizer...");
+
+        // Initialize DB
+        SchemaInitializer.initialize(dbUrl);
+
+        // Run database maintenance (restore manual events)
+        if (bookBagEvents) {
+            new DatabaseMaintainer(dbUrl).insertBookBagEvents();
+        }
+
+        // Adapters
+        String senderFilter = config.get("SENDER_FILTER");
+        com.schoolevents.domain.port.out.EventRepositoryPort eventRepo = new SqliteEventRepository(dbUrl);
+        IndexedEventRepository indexedRepo = null;
+        if (Boolean.parseBoolean(config.getOrDefault("EVENT_INDEX_ENABLED", "true"))) {
+            // Reads are served from memory; writes still go through to SQLite
+            indexedRepo = new IndexedEventRepository(eventRepo);
+            eventRepo = indexedRepo;
+        }
+        var emailRepo = new SqliteProcessedEmailRepository(dbUrl);
+        com.schoolevents.domain.port.out.EmailFetcherPort emailFetcher;
+        MaildirArchive emailArchive = emailArchiveDir != null && !emailArchiveDir.isBlank()
+                ? new MaildirArchive(java.nio.file.Path.of(emailArchiveDir))
+                : null;
+        if (fromArchive) {
+            System.out.println("Reading emails from archive " + emailArchiveDir + " (no IMAP).");
+            emailFetcher = new ArchivedEmailFetcher(emailArchive, senderFilter, rescanSince);
+        } else {
+            var imap = new GmailImapAdapter(gmailUsername, gmailPassword, senderFilter, rescanSince, emailRepo);
+            // Gmail labels are IMAP folders; each is searched on its own connection
+            var folders = java.util.Arrays.stream(config.getOrDefault("IMAP_FOLDERS", "INBOX").split(","))
+                    .map(String::trim)
+                    .filter(folder -> !folder.isEmpty())
+                    .toList();
+            imap.setFolders(folders, Integer.parseInt(config.getOrDefault("IMAP_CONNECTIONS", "4")));
+            if (emailArchive != null) {
+                imap.archiveTo(emailArchive);
+            }
+            emailFetcher = imap;
+        }
+        int promptTokenBudget = Integer.parseInt(config.getOrDefault("PROMPT_TOKEN_BUDGET",
+                String.valueOf(PromptPreprocessor.DEFAULT_TOKEN_BUDGET)));
+        var promptPreprocessor = new PromptPreprocessor(promptTokenBudget,
+                BilingualSplitter.forSetting(config.getOrDefault("PROMPT_LANGUAGE", "en")));
+        AiEventExtractorPort aiExtractor;
+        GeminiAiAdapter geminiAdapter = null;
+        QuotaLedgerPort quotaLedger = null;
+        int extractionConcurrency = 1;
+        if (useLocalModel && aiEnabled) {
+            var localModel = new OpenAiCompatibleAdapter(localLlmUrl,
+                    config.getOrDefault("LOCAL_LLM_MODEL", "local-model"),
+                    config.get("LOCAL_LLM_API_KEY"),
+                    Integer.parseInt(config.getOrDefault("LOCAL_LLM_CONCURRENCY", "4")),
+                    promptPreprocessor);
+            extractionConcurrency = localModel.maxConcurrency();
+            System.out.println("Using local model at " + localLlmUrl + " (concurrency " + extractionConcurrency
+                    + ")" + (bulkRun ? " for bulk run." : "."));
+            aiExtractor = localModel;
+        } else {
+            String geminiModel = config.getOrDefault("GEMINI_MODEL", GeminiAiAdapter.DEFAULT_MODEL);
+            QuotaLedgerPort ledger = sharedGemini != null ? sharedGemini.quotaLedger() : quotaLedger(config, dbUrl);
+            var transport = sharedGemini != null ? sharedGemini.transport() : transport(config);
+            var gemini = new GeminiAiAdapter(geminiApiKey, aiEnabled, promptPreprocessor,
+                    config.getOrDefault("GEMINI_BASE_URL", GeminiAiAdapter.DEFAULT_BASE_URL), geminiModel,
+                    transport);
+            boolean fileApiUpload = Boolean.parseBoolean(config.getOrDefault("GEMINI_FILE_UPLOAD", "true"));
+            gemini.useAttachmentCache(new SqliteAttachmentCacheRepository(dbUrl), fileApiUpload, !forceRescan);
+            gemini.setStructuredOutput(
+                    Boolean.parseBoolean(config.getOrDefault("GEMINI_STRUCTURED_OUTPUT", "false")));
+            quotaLedger = ledger;
+            gemini.useQuotaLedger(quotaLedger);
+            if (aiEnabled) {
+                System.out.println("Gemini requests left today: " + quotaLedger.remainingRequestsToday());
+            }
+            geminiAdapter = gemini;
+            aiExtractor = gemini;
+        }
+        boolean rulesEnabled = Boolean.parseBoolean(config.getOrDefault("RULE_EXTRACTOR_ENABLED", "true"));
+        AiEventExtractorPort extractor = rulesEnabled
+                ? new ChainedEventExtractor(new RuleBasedEventExtractor(), aiExtractor)
+                : aiExtractor;
+
+        // Cloud Storage Adapter
+        com.schoolevents.domain.port.out.StoragePort storagePort = null;
+        if (googleCreds != null && driveFolder != null) {
+            System.out.println("Enabling Google Drive Upload...");
+            storagePort = new com.schoolevents.adapter.out.cloud.GoogleDriveStorageAdapter(googleCreds,
+                    driveFolder);
+        } else {
+            System.out
+                    .println("Google Drive Upload Disabled (Missing GOOGLE_CREDENTIALS_JSON or DRIVE_FOLDER_ID).");
+        }
+
+        // Domain Service
+        int reconcileWorkers = Integer.parseInt(config.getOrDefault("RECONCILE_WORKERS", "1"));
+        StagedEventRepository stagedRepo = reconcileWorkers > 1 ? new StagedEventRepository(eventRepo) : null;
+        var reconciliationService = new EventReconciliationService(stagedRepo != null ? stagedRepo : eventRepo);
+        int crossDayMatchDays = Integer.parseInt(config.getOrDefault("CROSS_DAY_MATCH_DAYS", "0"));
+        if (crossDayMatchDays > 0) {
+            var similarityBlocker = new SimilarityBlocker();
+            eventRepo.forEachEvent(similarityBlocker::add);
+            reconciliationService.enableCrossDayMatching(similarityBlocker, crossDayMatchDays);
+        }
+
+        // Use Case
+        var processInbox = new ProcessInboxUseCase(emailFetcher, extractor, reconciliationService, emailRepo);
+        processInbox.setExtractionConcurrency(extractionConcurrency);
+        if (quotaLedger != null && aiEnabled) {
+            processInbox.setQuotaLedger(quotaLedger);
+        }
+        if (Boolean.parseBoolean(config.getOrDefault("EMAIL_PRIORITY_ENABLED", "true"))) {
+            processInbox.setPriorityScheduler(new EmailPriorityScheduler(
+                    java.util.Arrays.stream(config.getOrDefault("EMAIL_PRIORITY_SENDERS", "").split(","))
+                            .map(String::trim)
+                            .filter(sender -> !sender.isEmpty())
+                            .collect(java.util.stream.Collectors.toSet())));
+        }
+        PartitionedReconciler partitionedReconciler = null;
+        if (stagedRepo != null) {
+            partitionedReconciler = new PartitionedReconciler(reconciliationService, stagedRepo,
+                    reconcileWorkers);
+            processInbox.setPartitionedReconciler(partitionedReconciler);
+        }
+
+        // Execute
+        try {
+            processInbox.execute(forceRescan);
+        } finally {
+            if (partitionedReconciler != null) {
+                partitionedReconciler.shutdown();
+            }
+        }
+
+        if (geminiAdapter != null) {
+            System.out.println("Gemini usage (" + geminiAdapter.usageStats().summary() + ")");
+            System.out.println("Gemini latency (" + geminiAdapter.latencyStats().summary() + ")");
+        }
+
+        // Log Summary of current DB state
+        long totalCount;
+        long recurringCount;
+        if (indexedRepo != null) {
+            totalCount = indexedRepo.index().size();
+            recurringCount = indexedRepo.index().countRecurring();
+        } else {
+            var allEvents = eventRepo.findAll();
+            totalCount = allEvents.size();
+            recurringCount = allEvents.stream().filter(e -> e.isRecurring()).count();
+        }
+        System.out.println("Current Database Status:");
+        System.out.println("  Total Events: " + totalCount);
+        System.out.println("  Recurring Events: " + recurringCount);
+
+        // Export (Crypto involved inside)
+        var exporter = new JsonExporter(eventRepo, outputDir + "/events.json", storagePort, uiPassword);
+        exporter.export();
+
+        // Calendar feeds for phone subscriptions (not encrypted, so opt-in)
+        if (Boolean.parseBoolean(config.getOrDefault("ICS_EXPORT_ENABLED", "false"))) {
+            String yearGroups = config.getOrDefault("ICS_YEAR_GROUPS", "");
+            new IcsExporter(eventRepo, outputDir, java.util.Arrays.stream(yearGroups.split(","))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .map(Integer::valueOf)
+                    .toList()).export();
+        }
+
+        System.out.println("Done.");
+
+        // Optionally keep serving queries from the store after the run
+        String queryPort = config.get("QUERY_SERVER_PORT");
+        if (queryPort != null && !queryPort.isBlank()) {
+            var queryServer = new EventQueryServer(eventRepo, Integer.parseInt(queryPort), uiPassword,
+                    java.time.Duration.ofSeconds(
+                            Long.parseLong(config.getOrDefault("QUERY_CACHE_TTL_SECONDS", "60"))));
+            queryServer.start();
+            System.out.println("Serving events on http://localhost:" + queryServer.port() + "/events");
+            return queryServer;
+        }
+        return null;
+    }
+
+    /** Free-tier limits by default; shared by every run and process using the database. */
+    static QuotaLedgerPort quotaLedger(ConfigLoader config, String dbUrl) {
+        return new SqliteQuotaLedger(dbUrl, config.getOrDefault("GEMINI_MODEL", GeminiAiAdapter.DEFAULT_MODEL),
+                new QuotaLimits(
+                        Integer.parseInt(config.getOrDefault("GEMINI_REQUESTS_PER_MINUTE", "10")),
+                        Long.parseLong(config.getOrDefault("GEMINI_TOKENS_PER_MINUTE", "250000")),
+                        Integer.parseInt(config.getOrDefault("GEMINI_REQUESTS_PER_DAY", "250")),
+                        Long.parseLong(config.getOrDefault("GEMINI_TOKENS_PER_DAY", "0"))));
+    }
+
+    static GeminiHttpTransport transport(ConfigLoader config) {
+        long requestTimeoutSeconds = Long.parseLong(config.getOrDefault("GEMINI_REQUEST_TIMEOUT_SECONDS",
+                String.valueOf(GeminiHttpTransport.DEFAULT_REQUEST_TIMEOUT.toSeconds())));
+        var transport = new GeminiHttpTransport(GeminiHttpTransport.DEFAULT_CONNECT_TIMEOUT,
+                java.time.Duration.ofSeconds(requestTimeoutSeconds));
+        transport.setRetries(Integer.parseInt(config.getOrDefault("GEMINI_MAX_ATTEMPTS", "3")), 500);
+        transport.setGzipRequests(Boolean.parseBoolean(config.getOrDefault("GEMINI_GZIP_REQUESTS", "true")));
+        // A hedged duplicate is billed; each adapter admits it against its own (per-tenant) quota, and
+        // requests sent without an admission are not hedged
+        transport.setHedging(Long.parseLong(config.getOrDefault("GEMINI_HEDGE_AFTER_MS", "0")), () -> false);
+        return transport;
+    }
+}
@@ -0,0 +1,102 @@
+package com.schoolevents.launcher;
+
+import com.schoolevents.adapter.in.http.EventQueryServer;
+import com.schoolevents.adapter.out.persistence.SchemaInitializer;
+import com.schoolevents.application.usecase.FairShareQuota;
+import com.schoolevents.domain.port.out.QuotaLedgerPort;
+import com.schoolevents.infrastructure.config.ConfigLoader;
+import com.schoolevents.infrastructure.config.TenantRegistry;
+import com.schoolevents.infrastructure.config.TenantRegistry.Tenant;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs every tenant's pipeline in one process, a few at a time. Each tenant
+ * keeps its own database, exports and Drive folder; the Gemini connections
+ * and the daily quota are shared, and each tenant may take only an equal
+ * share of what is left when it starts. The start order rotates daily so the
+ * same accounts are not always the ones running with the smallest share.
+ */
+final class MultiTenantRunner {
+
+    private MultiTenantRunner() {
+    }
+
+    /** Returns true when every tenant's run succeeded. */
+    static boolean run(TenantRegistry registry, ConfigLoader shared) throws InterruptedException {
+        List<Tenant> tenants = registry.tenants();
+        if (tenants.isEmpty()) {
+            System.err.println("No tenants found in " + registry.dir() + " (expected <id>/.env).");
+            return false;
+        }
+
+        String quotaDbUrl = shared.getOrDefault("QUOTA_DB_URL",
+                "jdbc:sqlite:" + registry.dir().resolve("quota.db"));
+        SchemaInitializer.initialize(quotaDbUrl);
+        QuotaLedgerPort ledger = InboxPipeline.quotaLedger(shared, quotaDbUrl);
+        var gemini = new InboxPipeline.SharedGemini(InboxPipeline.transport(shared), ledger);
+        boolean bookBagEvents = Boolean.parseBoolean(shared.getOrDefault("BOOK_BAG_EVENTS", "false"));
+
+        int concurrency = Math.max(1, Integer.parseInt(shared.getOrDefault("TENANT_CONCURRENCY", "4")));
+        int offset = (int) (LocalDate.now().toEpochDay() % tenants.size());
+        List<Tenant> order = new ArrayList<>(tenants.subList(offset, tenants.size()));
+        order.addAll(tenants.subList(0, offset));
+        System.out.println("Running " + tenants.size() + " tenants, " + concurrency + " at a time.");
+
+        AtomicInteger pending = new AtomicInteger(order.size());
+        Map<String, String> outcomes = new ConcurrentHashMap<>();
+        List<EventQueryServer> queryServers = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(concurrency, order.size()));
+        List<Future<?>> runs = new ArrayList<>();
+        for (Tenant tenant : order) {
+            runs.add(pool.submit(() -> {
+                Thread.currentThread().setName("tenant-" + tenant.id());
+                try {
+                    var quota = new InboxPipeline.SharedGemini(gemini.transport(),
+                            FairShareQuota.equalShare(ledger, pending.get()));
+                    EventQueryServer queryServer = new InboxPipeline(tenant.config(), tenant.dbUrl(),
+                            tenant.outputDir(), quota, bookBagEvents).run();
+                    if (queryServer != null) {
+                        synchronized (queryServers) {
+                            queryServers.add(queryServer);
+                        }
+                    }
+                    outcomes.put(tenant.id(), "OK");
+                } catch (Exception e) {
+                    System.err.println("Tenant " + tenant.id() + " failed: " + e);
+                    outcomes.put(tenant.id(), "FAILED (" + e.getMessage() + ")");
+                } finally {
+                    pending.decrementAndGet();
+                }
+            }));
+        }
+        pool.shutdown();
+        for (Future<?> run : runs) {
+            try {
+                run.get();
+            } catch (java.util.concurrent.ExecutionException e) {
+                // Failures are recorded in outcomes by the task itself
+            }
+        }
+
+        System.out.println("Tenant Summary:");
+        for (Tenant tenant : tenants) {
+            System.out.println("  " + tenant.id() + ": " + outcomes.getOrDefault(tenant.id(), "NOT RUN"));
+        }
+        System.out.println("Gemini latency, all tenants (" + gemini.transport().latencyStats().summary() + ")");
+        boolean allOk = outcomes.values().stream().allMatch("OK"::equals) && outcomes.size() == tenants.size();
+
+        if (!queryServers.isEmpty()) {
+            Thread.currentThread().join();
+        }
+        return allOk;
+    }
+}
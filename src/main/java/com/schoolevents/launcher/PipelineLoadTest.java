@@ -0,0 +1,295 @@
+package com.schoolevents.launcher;
+
+import com.schoolevents.adapter.out.ai.BilingualSplitter;
+import com.schoolevents.adapter.out.ai.ChainedEventExtractor;
+import com.schoolevents.adapter.out.ai.GeminiAiAdapter;
+import com.schoolevents.adapter.out.ai.GeminiHttpTransport;
+import com.schoolevents.adapter.out.ai.PromptPreprocessor;
+import com.schoolevents.adapter.out.ai.RuleBasedEventExtractor;
+import com.schoolevents.adapter.out.email.ArchivedEmailFetcher;
+import com.schoolevents.adapter.out.email.MaildirArchive;
+import com.schoolevents.adapter.out.persistence.IndexedEventRepository;
+import com.schoolevents.adapter.out.persistence.SchemaInitializer;
+import com.schoolevents.adapter.out.persistence.SqliteAttachmentCacheRepository;
+import com.schoolevents.adapter.out.persistence.SqliteEventRepository;
+import com.schoolevents.adapter.out.persistence.SqliteProcessedEmailRepository;
+import com.schoolevents.application.usecase.PartitionedReconciler;
+import com.schoolevents.application.usecase.ProcessInboxUseCase;
+import com.schoolevents.application.usecase.StagedEventRepository;
+import com.schoolevents.domain.model.EmailMessage;
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.port.out.AiEventExtractorPort;
+import com.schoolevents.domain.port.out.EmailFetcherPort;
+import com.schoolevents.domain.port.out.EventRepositoryPort;
+import com.schoolevents.domain.port.out.ProcessedEmailRepositoryPort;
+import com.schoolevents.domain.service.EmailPriorityScheduler;
+import com.schoolevents.domain.service.EventReconciliationService;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Drives the whole pipeline offline, wired as {@link Main} wires it: a
+ * {@link SyntheticInbox} is written to a {@link MaildirArchive} (standing in
+ * for IMAP), read back by {@link ArchivedEmailFetcher}, extracted by the rules
+ * plus {@link GeminiAiAdapter} against a {@link GeminiStubServer}, reconciled
+ * and recorded in a throwaway SQLite database. Prints emails/second, p50/p99
+ * per stage and peak heap. Pipeline logging is silenced unless
+ * {@code --verbose}.
+ *
+ * Args: [emails] [extractionConcurrency] [modelLatencyMs] [rateLimitedShare]
+ * [--reconcile-workers=N] [--structured] [--ms-per-output-token=X] [--prompt-language=en|cy|both]
+ * [--server-errors=X] [--stalls=X --stall-ms=N] [--request-timeout-ms=N] [--hedge-ms=N]
+ * [--replay=DIR] [--verbose]
+ */
+public class PipelineLoadTest {
+
+    /** Latency samples of one stage; shared by worker threads. */
+    static final class StageTimer {
+        private long[] samples = new long[1024];
+        private int count;
+
+        synchronized void record(long nanos) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = nanos;
+        }
+
+        synchronized String summary() {
+            if (count == 0) {
+                return "no samples";
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return String.format("%8d calls  p50 %9.3f ms  p99 %9.3f ms  total %8.0f ms", count,
+                    sorted[count / 2] / 1e6, sorted[Math.min(count - 1, (int) (count * 0.99))] / 1e6,
+                    Arrays.stream(sorted).sum() / 1e6);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> positional = Arrays.stream(args).filter(a -> !a.startsWith("--")).toList();
+        int emailCount = positional.size() > 0 ? Integer.parseInt(positional.get(0)) : 10_000;
+        int concurrency = positional.size() > 1 ? Integer.parseInt(positional.get(1)) : 4;
+        long latencyMillis = positional.size() > 2 ? Long.parseLong(positional.get(2)) : 50;
+        double rateLimitedShare = positional.size() > 3 ? Double.parseDouble(positional.get(3)) : 0;
+        int reconcileWorkers = 1;
+        Path replay = null;
+        boolean verbose = false;
+        boolean structured = false;
+        double millisPerOutputToken = 0;
+        String promptLanguage = "en";
+        double serverErrorShare = 0;
+        double stallShare = 0;
+        long stallMillis = 5000;
+        long requestTimeoutMillis = GeminiHttpTransport.DEFAULT_REQUEST_TIMEOUT.toMillis();
+        long hedgeAfterMillis = 0;
+        for (String arg : args) {
+            if (arg.startsWith("--reconcile-workers=")) {
+                reconcileWorkers = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("--replay=")) {
+                replay = Path.of(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("--prompt-language=")) {
+                promptLanguage = arg.substring(arg.indexOf('=') + 1);
+            } else if (arg.equals("--structured")) {
+                structured = true;
+            } else if (arg.startsWith("--ms-per-output-token=")) {
+                millisPerOutputToken = Double.parseDouble(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("--server-errors=")) {
+                serverErrorShare = Double.parseDouble(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("--stalls=")) {
+                stallShare = Double.parseDouble(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("--stall-ms=")) {
+                stallMillis = Long.parseLong(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("--request-timeout-ms=")) {
+                requestTimeoutMillis = Long.parseLong(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("--hedge-ms=")) {
+                hedgeAfterMillis = Long.parseLong(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.equals("--verbose")) {
+                verbose = true;
+            }
+        }
+
+        Path workDir = Files.createTempDirectory("pipeline-load");
+        Map<String, List<Map<String, Object>>> expected = new HashMap<>();
+        long started = System.nanoTime();
+        MaildirArchive archive = new MaildirArchive(workDir.resolve("mail"));
+        List<SyntheticInbox.Mail> mails = new SyntheticInbox(42, LocalDate.of(2024, 9, 2)).generate(emailCount);
+        mails.forEach(mail -> expected.put(mail.messageId(), mail.events()));
+        SyntheticInbox.writeTo(archive, mails);
+        mails = null;
+        System.out.printf("Generated and archived %d emails in %d ms%n", emailCount,
+                (System.nanoTime() - started) / 1_000_000);
+
+        GeminiStubServer stub = new GeminiStubServer(0, id -> expected.getOrDefault(id, List.of()), latencyMillis,
+                rateLimitedShare);
+        stub.setMillisPerOutputToken(millisPerOutputToken);
+        stub.setFailures(serverErrorShare, stallShare, stallMillis);
+        if (replay != null) {
+            stub.replayFrom(replay);
+        }
+        stub.start();
+
+        Map<String, StageTimer> stages = new LinkedHashMap<>();
+        for (String stage : List.of("fetch", "extract", "model", "reconcile", "mark-processed")) {
+            stages.put(stage, new StageTimer());
+        }
+        PrintStream console = System.out;
+        try {
+            String dbUrl = "jdbc:sqlite:" + workDir.resolve("events.db");
+            SchemaInitializer.initialize(dbUrl);
+            EventRepositoryPort eventRepo = new IndexedEventRepository(new SqliteEventRepository(dbUrl));
+            ProcessedEmailRepositoryPort emailRepo = timed(new SqliteProcessedEmailRepository(dbUrl),
+                    stages.get("mark-processed"));
+            EmailFetcherPort fetcher = timed(new ArchivedEmailFetcher(archive, null, null), stages.get("fetch"));
+
+            var transport = new GeminiHttpTransport(GeminiHttpTransport.DEFAULT_CONNECT_TIMEOUT,
+                    Duration.ofMillis(requestTimeoutMillis));
+            transport.setRetries(3, 50);
+            transport.setHedging(hedgeAfterMillis, () -> true);
+            var gemini = new GeminiAiAdapter("stub-key", true, new PromptPreprocessor(
+                    PromptPreprocessor.DEFAULT_TOKEN_BUDGET, BilingualSplitter.forSetting(promptLanguage)),
+                    stub.baseUrl(), "stub-model", transport);
+            gemini.setPacing(0);
+            gemini.setStructuredOutput(structured);
+            gemini.useAttachmentCache(new SqliteAttachmentCacheRepository(dbUrl), false, true);
+            AiEventExtractorPort extractor = timed(
+                    new ChainedEventExtractor(new RuleBasedEventExtractor(), timed(gemini, stages.get("model"))),
+                    stages.get("extract"));
+
+            StagedEventRepository stagedRepo = reconcileWorkers > 1 ? new StagedEventRepository(eventRepo) : null;
+            StageTimer reconcileTimer = stages.get("reconcile");
+            var reconciliationService = new EventReconciliationService(stagedRepo != null ? stagedRepo : eventRepo) {
+                @Override
+                public ReconciliationResult reconcile(Event incomingEvent) {
+                    long t = System.nanoTime();
+                    try {
+                        return super.reconcile(incomingEvent);
+                    } finally {
+                        reconcileTimer.record(System.nanoTime() - t);
+                    }
+                }
+            };
+
+            var processInbox = new ProcessInboxUseCase(fetcher, extractor, reconciliationService, emailRepo);
+            processInbox.setExtractionConcurrency(concurrency);
+            processInbox.setPriorityScheduler(new EmailPriorityScheduler(Set.of()));
+            PartitionedReconciler partitionedReconciler = null;
+            if (stagedRepo != null) {
+                partitionedReconciler = new PartitionedReconciler(reconciliationService, stagedRepo,
+                        reconcileWorkers);
+                processInbox.setPartitionedReconciler(partitionedReconciler);
+            }
+
+            System.gc();
+            ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+            if (!verbose) {
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            }
+            long runStarted = System.nanoTime();
+            try {
+                processInbox.execute(false);
+            } finally {
+                System.setOut(console);
+                if (partitionedReconciler != null) {
+                    partitionedReconciler.shutdown();
+                }
+            }
+            double seconds = (System.nanoTime() - runStarted) / 1e9;
+            long peakHeap = ManagementFactory.getMemoryPoolMXBeans().stream()
+                    .filter(pool -> pool.getType() == MemoryType.HEAP)
+                    .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                    .sum();
+
+            System.out.printf("%n%d emails in %.1f s: %.0f emails/s, %d MB peak heap, %d events stored%n",
+                    emailCount, seconds, emailCount / seconds, peakHeap / (1024 * 1024), eventRepo.findAll().size());
+            System.out.printf("model stub: %d requests, %d rate limited, %d replayed (latency %d ms, concurrency %d)%n",
+                    stub.requests(), stub.rateLimited(), stub.replayed(), latencyMillis, concurrency);
+            System.out.println("model usage: " + gemini.usageStats().summary());
+            System.out.println("model latency: " + gemini.latencyStats().summary());
+            stages.forEach((stage, timer) -> System.out.printf("  %-15s %s%n", stage, timer.summary()));
+        } finally {
+            System.setOut(console);
+            stub.stop();
+            try (Stream<Path> files = Files.walk(workDir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private static EmailFetcherPort timed(EmailFetcherPort fetcher, StageTimer timer) {
+        return () -> {
+            long t = System.nanoTime();
+            try {
+                return fetcher.fetchUnprocessedEmails();
+            } finally {
+                timer.record(System.nanoTime() - t);
+            }
+        };
+    }
+
+    private static AiEventExtractorPort timed(AiEventExtractorPort extractor, StageTimer timer) {
+        return new AiEventExtractorPort() {
+            @Override
+            public List<Event> extractEvents(List<EmailMessage> emails) {
+                long t = System.nanoTime();
+                try {
+                    return extractor.extractEvents(emails);
+                } finally {
+                    timer.record(System.nanoTime() - t);
+                }
+            }
+
+            @Override
+            public void confirmProcessed(List<EmailMessage> emails) {
+                extractor.confirmProcessed(emails);
+            }
+        };
+    }
+
+    private static ProcessedEmailRepositoryPort timed(ProcessedEmailRepositoryPort repository, StageTimer timer) {
+        return new ProcessedEmailRepositoryPort() {
+            @Override
+            public boolean isProcessed(String emailId) {
+                return repository.isProcessed(emailId);
+            }
+
+            @Override
+            public void markAsProcessed(String emailId) {
+                long t = System.nanoTime();
+                try {
+                    repository.markAsProcessed(emailId);
+                } finally {
+                    timer.record(System.nanoTime() - t);
+                }
+            }
+
+            @Override
+            public Map<String, Integer> deferralCounts(Collection<String> emailIds) {
+                return repository.deferralCounts(emailIds);
+            }
+
+            @Override
+            public void recordDeferred(Collection<String> emailIds) {
+                repository.recordDeferred(emailIds);
+            }
+        };
+    }
+}
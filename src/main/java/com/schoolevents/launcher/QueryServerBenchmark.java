@@ -0,0 +1,92 @@
+package com.schoolevents.launcher;
+
+import com.schoolevents.adapter.in.http.EventQueryServer;
+import com.schoolevents.adapter.out.persistence.SchemaInitializer;
+import com.schoolevents.adapter.out.persistence.SqliteEventRepository;
+import com.schoolevents.domain.model.Event;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load test for {@link EventQueryServer}: fills a throwaway database, then
+ * hammers the server from virtual-thread clients and prints requests/second
+ * and latency percentiles for plain, gzip and conditional (304) requests.
+ *
+ * Args: [events] [clients] [requestsPerClient]
+ */
+public class QueryServerBenchmark {
+    public static void main(String[] args) throws Exception {
+        int eventCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int requestsPerClient = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        Path db = Files.createTempFile("query-bench", ".db");
+        String dbUrl = "jdbc:sqlite:" + db;
+        SchemaInitializer.initialize(dbUrl);
+        var eventRepo = new SqliteEventRepository(dbUrl);
+        LocalDateTime base = LocalDateTime.of(2025, 9, 1, 9, 0);
+        for (int i = 0; i < eventCount; i++) {
+            eventRepo.save(new Event("bench-" + i, "Event " + i, base.plusHours(i * 3L), null, false, "", 0.9,
+                    Event.Status.ACTIVE, false, "msg-" + i, "Newsletter", base));
+        }
+
+        var server = new EventQueryServer(eventRepo, 0, null, Duration.ofSeconds(30));
+        server.start();
+        String url = "http://127.0.0.1:" + server.port() + "/events?from=2025-10-01&to=2025-11-01";
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String etag = client.send(HttpRequest.newBuilder(URI.create(url)).build(),
+                HttpResponse.BodyHandlers.discarding()).headers().firstValue("ETag").orElse("");
+
+        try {
+            run("plain", client, HttpRequest.newBuilder(URI.create(url)).build(), clients, requestsPerClient);
+            run("gzip", client, HttpRequest.newBuilder(URI.create(url)).header("Accept-Encoding", "gzip").build(),
+                    clients, requestsPerClient);
+            run("304", client, HttpRequest.newBuilder(URI.create(url)).header("If-None-Match", etag).build(),
+                    clients, requestsPerClient);
+        } finally {
+            server.stop();
+            Files.deleteIfExists(db);
+        }
+    }
+
+    private static void run(String label, HttpClient client, HttpRequest request, int clients,
+            int requestsPerClient) throws Exception {
+        long[] latencies = new long[clients * requestsPerClient];
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                int offset = c * requestsPerClient;
+                futures.add(executor.submit(() -> {
+                    for (int r = 0; r < requestsPerClient; r++) {
+                        long t = System.nanoTime();
+                        client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                        latencies[offset + r] = System.nanoTime() - t;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        Arrays.sort(latencies);
+        System.out.printf("%-6s %8.0f req/s  p50 %6.2f ms  p99 %6.2f ms%n", label, latencies.length / seconds,
+                latencies[latencies.length / 2] / 1e6, latencies[(int) (latencies.length * 0.99)] / 1e6);
+    }
+}
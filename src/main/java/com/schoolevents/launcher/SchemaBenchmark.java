@@ -0,0 +1,155 @@
+package com.schoolevents.launcher;
+
+import com.schoolevents.adapter.out.persistence.SchemaInitializer;
+import com.schoolevents.adapter.out.persistence.SqliteEventRepository;
+import com.schoolevents.domain.model.Event;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+
+/**
+ * Compares the original text-column events table with the typed schema it is
+ * migrated to: bytes per row, raw scan speed and the cost of mapping a row to
+ * an {@link Event}. Builds a version 1 database (100k events by default, five
+ * per email), measures it, migrates it in place and measures again.
+ *
+ * Args: [events]
+ */
+public class SchemaBenchmark {
+
+    private static final String LEGACY_EVENTS = "CREATE TABLE events (id TEXT PRIMARY KEY, title TEXT NOT NULL, "
+            + "start_date TEXT NOT NULL, end_date TEXT, all_day INTEGER, notes TEXT, confidence REAL, status TEXT, "
+            + "source_email_id TEXT, source_email_subject TEXT, source_email_received_at TEXT, "
+            + "is_recurring INTEGER DEFAULT 0)";
+
+    private static final int SCANS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int eventCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        Path db = Files.createTempFile("schema-bench", ".db");
+        String dbUrl = "jdbc:sqlite:" + db;
+        try {
+            populateLegacy(dbUrl, eventCount);
+            vacuum(dbUrl);
+            System.out.printf("%-8s %10s %14s %14s %12s%n", "schema", "file B/row", "raw rows/s", "mapped rows/s",
+                    "mapRow ns");
+            report("text", db, eventCount, scan(dbUrl, "SELECT * FROM events ORDER BY start_date", false),
+                    scan(dbUrl, "SELECT * FROM events ORDER BY start_date", true));
+
+            long started = System.nanoTime();
+            SchemaInitializer.initialize(dbUrl);
+            long migrationMillis = (System.nanoTime() - started) / 1_000_000;
+            vacuum(dbUrl);
+
+            SqliteEventRepository repository = new SqliteEventRepository(dbUrl);
+            double raw = scan(dbUrl, "SELECT e.*, s.message_id, s.subject, s.received_at FROM events e "
+                    + "LEFT JOIN source_emails s ON s.id = e.source_email ORDER BY e.start_at", false);
+            double mapped = 0;
+            for (int i = 0; i < SCANS; i++) {
+                int[] rows = { 0 };
+                long scanStarted = System.nanoTime();
+                repository.forEachEvent(e -> rows[0]++);
+                mapped = Math.max(mapped, rows[0] / ((System.nanoTime() - scanStarted) / 1e9));
+            }
+            report("typed", db, eventCount, raw, mapped);
+            System.out.println("migration: " + migrationMillis + " ms");
+        } finally {
+            Files.deleteIfExists(db);
+        }
+    }
+
+    private static void report(String schema, Path db, int eventCount, double rawRowsPerSecond,
+            double mappedRowsPerSecond) {
+        double mapNanos = (1e9 / mappedRowsPerSecond) - (1e9 / rawRowsPerSecond);
+        System.out.printf("%-8s %10.1f %14.0f %14.0f %12.0f%n", schema, (double) db.toFile().length() / eventCount,
+                rawRowsPerSecond, mappedRowsPerSecond, Math.max(0, mapNanos));
+    }
+
+    /**
+     * Best of several full scans, either only stepping through the rows or
+     * also mapping each one as the version 1 repository did.
+     */
+    private static double scan(String dbUrl, String sql, boolean mapLegacy) throws Exception {
+        double best = 0;
+        for (int i = 0; i < SCANS; i++) {
+            long rows = 0;
+            long started = System.nanoTime();
+            try (Connection conn = DriverManager.getConnection(dbUrl);
+                    Statement stmt = conn.createStatement();
+                    ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    if (mapLegacy) {
+                        mapLegacyRow(rs);
+                    }
+                    rows++;
+                }
+            }
+            best = Math.max(best, rows / ((System.nanoTime() - started) / 1e9));
+        }
+        return best;
+    }
+
+    private static Event mapLegacyRow(ResultSet rs) throws Exception {
+        String end = rs.getString("end_date");
+        String received = rs.getString("source_email_received_at");
+        return new Event(
+                rs.getString("id"),
+                rs.getString("title"),
+                LocalDateTime.parse(rs.getString("start_date")),
+                end != null ? LocalDateTime.parse(end) : null,
+                rs.getInt("all_day") == 1,
+                rs.getString("notes"),
+                rs.getDouble("confidence"),
+                Event.Status.valueOf(rs.getString("status")),
+                rs.getInt("is_recurring") == 1,
+                rs.getString("source_email_id"),
+                rs.getString("source_email_subject"),
+                received != null ? LocalDateTime.parse(received) : null);
+    }
+
+    private static void populateLegacy(String dbUrl, int eventCount) throws Exception {
+        LocalDateTime base = LocalDateTime.of(2018, 9, 1, 9, 0);
+        try (Connection conn = DriverManager.getConnection(dbUrl);
+                Statement stmt = conn.createStatement()) {
+            stmt.execute(LEGACY_EVENTS);
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO events VALUES (?, ?, ?, ?, 0, ?, 0.9, ?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < eventCount; i++) {
+                    LocalDateTime start = base.plusMinutes(i * 180L);
+                    int email = i / 5;
+                    pstmt.setString(1, "bench-" + i);
+                    pstmt.setString(2, "Year " + (i % 6 + 1) + " event " + (i % 400));
+                    pstmt.setString(3, start.toString());
+                    pstmt.setString(4, start.plusHours(1).toString());
+                    pstmt.setString(5, i % 3 == 0 ? "Bring a packed lunch." : null);
+                    pstmt.setString(6, i % 20 == 0 ? "CANCELLED" : "SCHEDULED");
+                    pstmt.setString(7, "<CAMx" + email + "-newsletter@mail.gmail.com>");
+                    pstmt.setString(8, "Weekly newsletter / Cylchlythyr wythnosol " + email);
+                    pstmt.setString(9, base.plusDays(email % 2000).toString());
+                    pstmt.setInt(10, i % 10 == 0 ? 1 : 0);
+                    pstmt.addBatch();
+                    if (i % 1000 == 999) {
+                        pstmt.executeBatch();
+                    }
+                }
+                pstmt.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    private static void vacuum(String dbUrl) throws Exception {
+        try (Connection conn = DriverManager.getConnection(dbUrl);
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("VACUUM");
+        }
+    }
+}
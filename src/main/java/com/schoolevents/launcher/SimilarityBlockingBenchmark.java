@@ -0,0 +1,112 @@
+package com.schoolevents.launcher;
+
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.service.SimilarityBlocker;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Recall/throughput trade-off of {@link SimilarityBlocker}. Generates a store
+ * of distinct school-event titles plus planted near-duplicates (Welsh
+ * translations, rewordings, typos, shifted dates), then reports for several
+ * band/row settings how many planted pairs each blocking finds, how many
+ * candidate pairs (within a week of each other) it produces and how long it
+ * takes, next to an exhaustive pairwise comparison on the same data.
+ *
+ * Args: [events]
+ */
+public class SimilarityBlockingBenchmark {
+
+    private static final String[][] ACTIVITIES = {
+            { "Assembly", "Gwasanaeth" }, { "Trip to the museum", "Taith i'r amgueddfa" },
+            { "Parents evening", "Noson rieni" }, { "Christmas concert", "Cyngerdd Nadolig" },
+            { "Sports day", "Mabolgampau" }, { "Swimming", "Nofio" }, { "Library visit", "Ymweliad llyfrgell" },
+            { "Book bag return", "Dychwelyd bag llyfr" }, { "Class photos", "Lluniau dosbarth" },
+            { "Easter celebration", "Dathliad Pasg" } };
+    private static final String[] QUALIFIERS = { "Cardiff", "Beach", "Castle", "Zoo", "Farm", "Theatre", "Choir",
+            "Orchestra", "Football", "Netball", "Science", "Art", "Drama", "Maths", "Reading", "Forest",
+            "Rugby", "Coding", "Garden", "Cooking" };
+
+    private static final int MAX_SHIFT_DAYS = 7;
+
+    public static void main(String[] args) {
+        int eventCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        Random random = new Random(7);
+
+        List<Event> events = new ArrayList<>();
+        Set<String> plantedPairs = new HashSet<>();
+        LocalDateTime base = LocalDateTime.of(2024, 9, 2, 9, 0);
+        while (events.size() < eventCount) {
+            int id = events.size();
+            String[] activity = ACTIVITIES[random.nextInt(ACTIVITIES.length)];
+            int year = 1 + random.nextInt(6);
+            String qualifier = QUALIFIERS[random.nextInt(QUALIFIERS.length)] + " " + (id % 997);
+            LocalDateTime start = base.plusDays(random.nextInt(700)).plusMinutes(random.nextInt(8) * 30);
+            Event original = event("e" + id, "Year " + year + " " + activity[0] + " " + qualifier, start);
+            events.add(original);
+
+            if (random.nextInt(10) == 0) {
+                // Plant a duplicate: translated, reworded or misspelt, moved by up to a week
+                String title = switch (random.nextInt(3)) {
+                    case 0 -> activity[1] + " Blwyddyn " + year + " " + qualifier;
+                    case 1 -> qualifier + " " + activity[0].toLowerCase() + " - year " + year + "!";
+                    default -> typo("Year " + year + " " + activity[0] + " " + qualifier, random);
+                };
+                Event duplicate = event("d" + id, title, start.plusDays(random.nextInt(MAX_SHIFT_DAYS + 1)));
+                events.add(duplicate);
+                plantedPairs.add(pairKey(original.id(), duplicate.id()));
+            }
+        }
+        System.out.printf("%d events, %d planted duplicate pairs%n", events.size(), plantedPairs.size());
+
+        int[][] settings = { { 8, 8 }, { 16, 4 }, { 20, 3 }, { 32, 2 } };
+        for (int[] setting : settings) {
+            long started = System.nanoTime();
+            SimilarityBlocker blocker = new SimilarityBlocker(setting[0], setting[1]);
+            events.forEach(blocker::add);
+            List<Event[]> candidates = blocker.candidatePairs(MAX_SHIFT_DAYS);
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            long found = candidates.stream().filter(p -> plantedPairs.contains(pairKey(p[0].id(), p[1].id())))
+                    .count();
+            System.out.printf("bands=%2d rows=%d  recall %5.1f%%  %8d candidate pairs  %7.0f events/s  (%.2f s)%n",
+                    setting[0], setting[1], 100.0 * found / plantedPairs.size(), candidates.size(),
+                    events.size() / seconds, seconds);
+        }
+
+        // Exhaustive baseline on a slice, extrapolated: n^2/2 comparisons
+        int slice = Math.min(events.size(), 4000);
+        long started = System.nanoTime();
+        long comparisons = 0;
+        for (int i = 0; i < slice; i++) {
+            for (int j = i + 1; j < slice; j++) {
+                SimilarityBlocker.similarity(events.get(i), events.get(j));
+                comparisons++;
+            }
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        double perComparison = seconds / comparisons;
+        double fullPairs = (double) events.size() * (events.size() - 1) / 2;
+        System.out.printf("pairwise: %.0f comparisons/s, about %.0f s for all %d events%n", 1 / perComparison,
+                perComparison * fullPairs, events.size());
+    }
+
+    private static Event event(String id, String title, LocalDateTime start) {
+        return new Event(id, title, start, null, false, "", 0.9, Event.Status.ACTIVE, false, "msg-" + id, null,
+                start.minusDays(14));
+    }
+
+    private static String typo(String title, Random random) {
+        int i = 1 + random.nextInt(title.length() - 2);
+        return title.substring(0, i) + title.charAt(i + 1) + title.charAt(i) + title.substring(i + 2);
+    }
+
+    private static String pairKey(String a, String b) {
+        return a.compareTo(b) < 0 ? a + "|" + b : b + "|" + a;
+    }
+}
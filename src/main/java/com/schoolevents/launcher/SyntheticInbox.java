@@ -0,0 +1,259 @@
+package com.schoolevents.launcher;
+
+import com.schoolevents.adapter.out.email.MaildirArchive;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Generates a deterministic school inbox for load tests: bilingual
+ * newsletters, letters with PDF attachments (drawn from a small pool, so the
+ * same file arrives in many emails), recurring club notices, reminders of
+ * earlier events and cancellations. Every email comes with the events a
+ * perfect extractor would return for it, in the extraction prompt's JSON
+ * shape, so a stub model can answer for it.
+ */
+public class SyntheticInbox {
+
+    public record Mail(String messageId, LocalDateTime receivedAt, byte[] raw, List<Map<String, Object>> events) {
+    }
+
+    private static final String[][] TITLES = {
+            { "Sports day", "Diwrnod chwaraeon" },
+            { "Parents' evening", "Noson rieni" },
+            { "Harvest festival", "Gŵyl ddiolchgarwch" },
+            { "Christmas concert", "Cyngerdd Nadolig" },
+            { "Non-uniform day", "Diwrnod heb wisg ysgol" },
+            { "School photographs", "Lluniau ysgol" },
+            { "Year %d trip to the museum", "Taith Blwyddyn %d i'r amgueddfa" },
+            { "Year %d class assembly", "Gwasanaeth dosbarth Blwyddyn %d" } };
+    private static final String[] CLUBS = { "Football club", "Choir", "Coding club", "Netball club", "Urdd club" };
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("H:mm");
+    private static final int PDF_POOL = 25;
+    private static final int REMEMBERED = 500;
+
+    private final Random random;
+    private final LocalDateTime firstReceived;
+    private final Map<Integer, byte[]> pdfs = new HashMap<>();
+    private final List<Map<String, Object>> announced = new ArrayList<>();
+    private int sequence;
+
+    public SyntheticInbox(long seed, LocalDate firstDay) {
+        this.random = new Random(seed);
+        this.firstReceived = firstDay.atTime(7, 0);
+    }
+
+    public List<Mail> generate(int count) {
+        List<Mail> mails = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            mails.add(next());
+        }
+        return mails;
+    }
+
+    /** Writes the mails to the archive, as if they had been fetched over IMAP. */
+    public static void writeTo(MaildirArchive archive, List<Mail> mails) throws Exception {
+        Session session = Session.getInstance(new Properties());
+        for (Mail mail : mails) {
+            archive.store(new MimeMessage(session, new ByteArrayInputStream(mail.raw())), mail.messageId());
+        }
+    }
+
+    public Mail next() {
+        int n = sequence++;
+        String messageId = "<synthetic-" + n + "@school.example>";
+        LocalDateTime received = firstReceived.plusMinutes(n * 37L);
+        int kind = random.nextInt(100);
+        if (kind < 40 || announced.isEmpty()) {
+            return newsletter(messageId, received);
+        } else if (kind < 60) {
+            return letterWithPdf(messageId, received);
+        } else if (kind < 75) {
+            return clubNotice(messageId, received);
+        } else if (kind < 90) {
+            return reminder(messageId, received);
+        }
+        return cancellation(messageId, received);
+    }
+
+    private Mail newsletter(String messageId, LocalDateTime received) {
+        StringBuilder english = new StringBuilder("Dear parents,\nHere are the dates for the coming weeks:\n");
+        StringBuilder welsh = new StringBuilder("Annwyl rieni,\nDyma'r dyddiadau ar gyfer yr wythnosau nesaf:\n");
+        List<Map<String, Object>> events = new ArrayList<>();
+        int items = 2 + random.nextInt(5);
+        for (int i = 0; i < items; i++) {
+            String[] title = TITLES[random.nextInt(TITLES.length)];
+            int year = 1 + random.nextInt(6);
+            LocalDateTime start = received.toLocalDate().plusDays(1 + random.nextInt(40))
+                    .atTime(LocalTime.of(9 + random.nextInt(7), random.nextBoolean() ? 0 : 30));
+            String englishTitle = String.format(title[0], year);
+            english.append("- ").append(englishTitle).append(": ").append(DAY.format(start)).append(" at ")
+                    .append(TIME.format(start)).append("\n");
+            welsh.append("- ").append(String.format(title[1], year)).append(": ").append(DAY.format(start))
+                    .append(" am ").append(TIME.format(start)).append("\n");
+            Map<String, Object> event = event(messageId, englishTitle, start, null, false, "SCHEDULED");
+            events.add(event);
+            remember(event);
+        }
+        String body = english + "\nKind regards,\nThe school office\n\n" + welsh + "\nCofion,\nSwyddfa'r ysgol\n";
+        return mail(messageId, received, "Weekly newsletter / Cylchlythyr wythnosol", body, null, null, events);
+    }
+
+    private Mail letterWithPdf(String messageId, LocalDateTime received) {
+        int k = random.nextInt(PDF_POOL);
+        byte[] pdf = pdfs.computeIfAbsent(k, this::termDatesPdf);
+        List<Map<String, Object>> events = new ArrayList<>();
+        for (LocalDate[] range : termRanges(k)) {
+            events.add(event(messageId, "Half term", range[0].atStartOfDay(), range[1].atStartOfDay(), true,
+                    "SCHEDULED"));
+        }
+        return mail(messageId, received, "Term dates letter",
+                "Dear parents,\nPlease see the attached letter with the term dates.\n", "term-dates-" + k + ".pdf",
+                pdf, events);
+    }
+
+    private Mail clubNotice(String messageId, LocalDateTime received) {
+        String club = CLUBS[random.nextInt(CLUBS.length)];
+        LocalDate first = received.toLocalDate().plusDays(1 + random.nextInt(7));
+        int weeks = 4 + random.nextInt(9);
+        LocalDateTime start = first.atTime(15, 30);
+        List<Map<String, Object>> events = new ArrayList<>();
+        for (int w = 0; w < weeks; w++) {
+            Map<String, Object> event = event(messageId, club, start.plusWeeks(w), start.plusWeeks(w).plusHours(1),
+                    false, "SCHEDULED");
+            event.put("isRecurring", true);
+            events.add(event);
+        }
+        String body = club + " runs every " + first.getDayOfWeek().toString().toLowerCase() + " at 3:30pm from "
+                + DAY.format(first) + " until " + DAY.format(first.plusWeeks(weeks - 1)) + ".\n"
+                + "Bydd y clwb yn cwrdd bob wythnos.\n";
+        return mail(messageId, received, club + " / Clwb", body, null, null, events);
+    }
+
+    private Mail reminder(String messageId, LocalDateTime received) {
+        Map<String, Object> earlier = announced.get(random.nextInt(announced.size()));
+        LocalDateTime start = LocalDateTime.parse((String) earlier.get("startDate"));
+        String title = (String) earlier.get("title");
+        String body = "Reminder: " + title + " is on " + DAY.format(start) + " at " + TIME.format(start) + ".\n"
+                + "Nodyn atgoffa: " + DAY.format(start) + ".\n";
+        return mail(messageId, received, "Reminder / Nodyn atgoffa", body, null, null,
+                List.of(event(messageId, title, start, null, false, "SCHEDULED")));
+    }
+
+    private Mail cancellation(String messageId, LocalDateTime received) {
+        Map<String, Object> earlier = announced.remove(random.nextInt(announced.size()));
+        LocalDateTime start = LocalDateTime.parse((String) earlier.get("startDate"));
+        String title = (String) earlier.get("title");
+        String body = "Unfortunately " + title + " on " + DAY.format(start) + " has been cancelled.\n"
+                + "Yn anffodus mae'r digwyddiad wedi'i ganslo.\n";
+        return mail(messageId, received, "Cancelled / Wedi'i ganslo", body, null, null,
+                List.of(event(messageId, title, start, null, false, "CANCELLED")));
+    }
+
+    private void remember(Map<String, Object> event) {
+        if (announced.size() == REMEMBERED) {
+            announced.remove(0);
+        }
+        announced.add(event);
+    }
+
+    private static Map<String, Object> event(String emailId, String title, LocalDateTime start, LocalDateTime end,
+            boolean allDay, String status) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("emailId", emailId);
+        event.put("title", title);
+        event.put("startDate", start.toString());
+        event.put("endDate", end != null ? end.toString() : null);
+        event.put("allDay", allDay);
+        event.put("notes", "");
+        event.put("confidence", 0.95);
+        event.put("status", status);
+        event.put("isRecurring", false);
+        return event;
+    }
+
+    /** Three half-term weeks per pooled letter, a school year apart per letter. */
+    private static List<LocalDate[]> termRanges(int k) {
+        LocalDate october = LocalDate.of(2020 + k, 10, 26);
+        LocalDate february = LocalDate.of(2021 + k, 2, 15);
+        LocalDate may = LocalDate.of(2021 + k, 5, 31);
+        return List.of(new LocalDate[] { october, october.plusDays(4) },
+                new LocalDate[] { february, february.plusDays(4) }, new LocalDate[] { may, may.plusDays(4) });
+    }
+
+    private byte[] termDatesPdf(int k) {
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.beginText();
+                content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                content.newLineAtOffset(50, 700);
+                content.showText("Term dates for the school year " + (2020 + k) + "-" + (2021 + k));
+                for (LocalDate[] range : termRanges(k)) {
+                    content.newLineAtOffset(0, -16);
+                    content.showText("Half term: " + DAY.format(range[0]) + " - " + DAY.format(range[1]));
+                }
+                content.endText();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not build synthetic PDF", e);
+        }
+    }
+
+    private static Mail mail(String messageId, LocalDateTime received, String subject, String body, String pdfName,
+            byte[] pdf, List<Map<String, Object>> events) {
+        Base64.Encoder base64 = Base64.getMimeEncoder();
+        StringBuilder raw = new StringBuilder();
+        raw.append("Message-ID: ").append(messageId).append("\r\n");
+        raw.append("Date: ").append(DateTimeFormatter.RFC_1123_DATE_TIME
+                .format(received.atZone(ZoneId.systemDefault()))).append("\r\n");
+        raw.append("From: School Office <office@school.example>\r\n");
+        raw.append("Subject: =?UTF-8?B?")
+                .append(Base64.getEncoder().encodeToString(subject.getBytes(StandardCharsets.UTF_8)))
+                .append("?=\r\n");
+        raw.append("MIME-Version: 1.0\r\n");
+        String text = "Content-Type: text/plain; charset=UTF-8\r\nContent-Transfer-Encoding: base64\r\n\r\n"
+                + base64.encodeToString(body.getBytes(StandardCharsets.UTF_8)) + "\r\n";
+        if (pdf == null) {
+            raw.append(text);
+        } else {
+            String boundary = "----=_Part_" + messageId.hashCode();
+            raw.append("Content-Type: multipart/mixed; boundary=\"").append(boundary).append("\"\r\n\r\n");
+            raw.append("--").append(boundary).append("\r\n").append(text);
+            raw.append("--").append(boundary).append("\r\n");
+            raw.append("Content-Type: application/pdf; name=\"").append(pdfName).append("\"\r\n");
+            raw.append("Content-Disposition: attachment; filename=\"").append(pdfName).append("\"\r\n");
+            raw.append("Content-Transfer-Encoding: base64\r\n\r\n");
+            raw.append(base64.encodeToString(pdf)).append("\r\n");
+            raw.append("--").append(boundary).append("--\r\n");
+        }
+        return new Mail(messageId, received, raw.toString().getBytes(StandardCharsets.UTF_8), events);
+    }
+}
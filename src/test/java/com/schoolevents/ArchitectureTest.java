@@ -22,6 +22,7 @@ public class ArchitectureTest {
             .adapter("ai", "..adapter.out.ai..")
             .adapter("filesystem", "..adapter.out.filesystem..")
             .adapter("cloud", "..adapter.out.cloud..")
+            .adapter("http", "..adapter.in.http..")
             .withOptionalLayers(true);
 
     static class DoNotIncludeLauncher implements ImportOption {
@@ -0,0 +1,90 @@
+package com.schoolevents.adapter.in.http;
+
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.port.out.EventRepositoryPort;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EventQueryServerTest {
+
+    private EventRepositoryPort eventRepository;
+    private EventQueryServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        eventRepository = mock(EventRepositoryPort.class);
+        Event active = new Event("1", "Sports Day", LocalDateTime.of(2026, 6, 12, 9, 0), null, false, "", 0.9,
+                Event.Status.ACTIVE, false, "msg1", "Subj", null);
+        Event cancelled = new Event("2", "Disco", LocalDateTime.of(2026, 6, 13, 18, 0), null, false, "", 0.9,
+                Event.Status.CANCELLED, false, "msg2", "Subj", null);
+        when(eventRepository.findOverlapping(any(), any())).thenReturn(List.of(active, cancelled));
+        when(eventRepository.findAll()).thenReturn(List.of(active, cancelled));
+
+        server = new EventQueryServer(eventRepository, 0, null, Duration.ofMinutes(1));
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<byte[]> get(String pathAndQuery, String... headers) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(
+                URI.create("http://127.0.0.1:" + server.port() + pathAndQuery));
+        for (int i = 0; i < headers.length; i += 2) {
+            request.header(headers[i], headers[i + 1]);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    @Test
+    void shouldFilterWindowByStatusAndAnswerConditionalRequestsFromCache() throws Exception {
+        HttpResponse<byte[]> first = get("/events?from=2026-06-01&to=2026-07-01&status=active");
+
+        assertEquals(200, first.statusCode());
+        String body = new String(first.body(), StandardCharsets.UTF_8);
+        assertTrue(body.contains("Sports Day"));
+        assertFalse(body.contains("Disco"));
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<byte[]> second = get("/events?from=2026-06-01&to=2026-07-01&status=ACTIVE",
+                "If-None-Match", etag);
+
+        assertEquals(304, second.statusCode());
+        verify(eventRepository, times(1)).findOverlapping(LocalDateTime.of(2026, 6, 1, 0, 0),
+                LocalDateTime.of(2026, 7, 1, 0, 0));
+    }
+
+    @Test
+    void shouldServeGzipWhenAccepted() throws Exception {
+        HttpResponse<byte[]> response = get("/events.json", "Accept-Encoding", "gzip");
+
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(""));
+        String body = new String(new GZIPInputStream(new ByteArrayInputStream(response.body())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        assertTrue(body.contains("Disco"));
+    }
+
+    @Test
+    void shouldRejectInvalidDates() throws Exception {
+        assertEquals(400, get("/events?from=tomorrow").statusCode());
+    }
+}
@@ -0,0 +1,131 @@
+package com.schoolevents.adapter.out.ai;
+
+import com.schoolevents.domain.model.CachedAttachment;
+import com.schoolevents.domain.model.EmailMessage;
+import com.schoolevents.domain.port.out.AttachmentCachePort;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttachmentPartsBuilderTest {
+
+    private HttpServer fileApiStub;
+    private final AtomicInteger uploads = new AtomicInteger();
+    private final InMemoryCache cache = new InMemoryCache();
+    private GeminiFileClient fileClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Local stand-in for the Gemini File API upload endpoint
+        fileApiStub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        fileApiStub.createContext("/upload/v1beta/files", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            int n = uploads.incrementAndGet();
+            byte[] body = ("{\"file\":{\"name\":\"files/f" + n + "\",\"uri\":\"https://files.example/f" + n
+                    + "\",\"expirationTime\":\"2099-01-01T00:00:00Z\",\"state\":\"ACTIVE\"}}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        fileApiStub.start();
+        fileClient = new GeminiFileClient(HttpClient.newHttpClient(),
+                "http://127.0.0.1:" + fileApiStub.getAddress().getPort(), "test-key");
+    }
+
+    @AfterEach
+    void tearDown() {
+        fileApiStub.stop(0);
+    }
+
+    private EmailMessage emailWithPdf(String id, byte[] pdf) {
+        return new EmailMessage(id, "Newsletter", LocalDateTime.now(), "See attached", "",
+                List.of(new EmailMessage.AttachmentMetadata("calendar.pdf", "application/pdf", pdf)),
+                "school@example.com", "en");
+    }
+
+    @Test
+    void shouldSendIdenticalAttachmentOnceAndReuseUploadAcrossRuns() {
+        byte[] pdf = "%PDF-1.4 term calendar".getBytes(StandardCharsets.UTF_8);
+        AttachmentPartsBuilder builder = new AttachmentPartsBuilder(cache, fileClient, true);
+
+        AttachmentPartsBuilder.Result first = builder.build(List.of(emailWithPdf("a", pdf), emailWithPdf("b", pdf)));
+        assertEquals(1, first.parts().size());
+        assertEquals(1, uploads.get());
+        assertEquals(0L, first.inlineBytes());
+
+        // Next run, not yet extracted: the cached handle is used without uploading again
+        AttachmentPartsBuilder.Result second = builder.build(List.of(emailWithPdf("c", pdf)));
+        assertEquals(1, second.parts().size());
+        assertEquals(1, uploads.get());
+
+        // Once extracted, the attachment adds nothing to later requests
+        second.emailIdByHash().forEach(builder::markExtracted);
+        assertTrue(builder.build(List.of(emailWithPdf("d", pdf))).parts().isEmpty());
+    }
+
+    @Test
+    void shouldInlineWhenNoFileClientConfigured() {
+        byte[] pdf = "%PDF-1.4 newsletter".getBytes(StandardCharsets.UTF_8);
+        AttachmentPartsBuilder builder = new AttachmentPartsBuilder(null, null, false);
+
+        AttachmentPartsBuilder.Result result = builder.build(List.of(emailWithPdf("a", pdf), emailWithPdf("b", pdf)));
+
+        assertEquals(1, result.parts().size());
+        assertEquals((long) pdf.length, result.inlineBytes());
+    }
+
+    @Test
+    void shouldSendPdfTextThatDoesNotFitTheBudgetAsAFile() throws IOException {
+        byte[] calendar = PdfTextExtractorTest.pdfWithText("Spring Term Dates 2026",
+                "Half term: Monday 16th February - Friday 20th February");
+        byte[] letter = PdfTextExtractorTest.pdfWithText("Year 3 trip to the museum on Thursday 5th March",
+                "Please return the consent slip by Monday 2nd March", "Packed lunch and waterproof coat");
+        AttachmentPartsBuilder builder = new AttachmentPartsBuilder(null, null, false, new PdfTextExtractor(), 40);
+
+        AttachmentPartsBuilder.Result result = builder.build(List.of(emailWithPdf("a", calendar),
+                emailWithPdf("b", letter)));
+
+        assertTrue(result.textByEmailId().get("a").get(0).contains("Half term"));
+        assertNull(result.textByEmailId().get("b"));
+        assertEquals(1, result.parts().size());
+        assertEquals((long) letter.length, result.inlineBytes());
+    }
+
+    private static class InMemoryCache implements AttachmentCachePort {
+        private final Map<String, CachedAttachment> entries = new HashMap<>();
+
+        @Override
+        public Optional<CachedAttachment> find(String contentHash) {
+            return Optional.ofNullable(entries.get(contentHash));
+        }
+
+        @Override
+        public void saveUpload(String contentHash, String fileUri, LocalDateTime expiresAt) {
+            CachedAttachment old = entries.get(contentHash);
+            entries.put(contentHash, new CachedAttachment(contentHash, fileUri, expiresAt,
+                    old != null ? old.extractedFromEmailId() : null, old != null ? old.extractedAt() : null));
+        }
+
+        @Override
+        public void markExtracted(String contentHash, String emailId) {
+            CachedAttachment old = entries.get(contentHash);
+            entries.put(contentHash, new CachedAttachment(contentHash, old != null ? old.fileUri() : null,
+                    old != null ? old.uploadExpiresAt() : null, emailId, LocalDateTime.now()));
+        }
+    }
+}
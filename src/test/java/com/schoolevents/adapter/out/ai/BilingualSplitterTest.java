@@ -0,0 +1,79 @@
+package com.schoolevents.adapter.out.ai;
+
+import com.schoolevents.adapter.out.ai.BilingualSplitter.Language;
+import com.schoolevents.domain.model.EmailMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BilingualSplitterTest {
+
+    private static final List<String> NEWSLETTER = List.of(
+            "Dear parents,\nHere are the dates for the next few weeks:",
+            "- Sports day: 12.03.2026 at 9:30\n- Year 3 trip to the museum: 17.03.2026 at 10:00",
+            "Annwyl rieni,\nDyma'r dyddiadau ar gyfer yr wythnosau nesaf:",
+            "- Diwrnod chwaraeon: 12.03.2026 am 9:30\n- Taith Blwyddyn 3 i'r amgueddfa: 17.03.2026 am 10:00");
+
+    @Test
+    void shouldKeepOnlyTheChosenLanguageOfMirroredSections() {
+        assertEquals(NEWSLETTER.subList(0, 2), new BilingualSplitter(Language.ENGLISH).keepOneLanguage(NEWSLETTER));
+        assertEquals(NEWSLETTER.subList(2, 4), new BilingualSplitter(Language.WELSH).keepOneLanguage(NEWSLETTER));
+    }
+
+    @Test
+    void shouldKeepSectionsThatOnlyAppearInOneLanguage() {
+        List<String> paragraphs = List.of(
+                "The school will be closed on 20.03.2026 for staff training.",
+                "Bydd y clwb Urdd yn cwrdd ar 24.03.2026 yn y neuadd gyda'r plant.");
+
+        assertEquals(paragraphs, new BilingualSplitter(Language.ENGLISH).keepOneLanguage(paragraphs));
+    }
+
+    @Test
+    void shouldKeepAnUnnumberedNoticeThatIsNotNextToAMirroredPair() {
+        // The Welsh notice is about as long as the English one before it, but nothing says it translates it
+        List<String> paragraphs = List.of(
+                "Please remember that the school will close early for staff training.",
+                "Bydd clwb yr Urdd yn cwrdd yn y neuadd gyda'r plant ar ol ysgol.",
+                "Sports day is on 12.03.2026 at 9:30.",
+                "Diwrnod chwaraeon ar 12.03.2026 am 9:30.");
+
+        assertEquals(paragraphs.subList(0, 3), new BilingualSplitter(Language.ENGLISH).keepOneLanguage(paragraphs));
+    }
+
+    @Test
+    void shouldLeaveSingleLanguageEmailsUntouched() {
+        List<String> paragraphs = List.of("Dear parents,", "Sports day is on 12.03.2026 at 9:30.",
+                "Please bring a packed lunch for the trip.");
+
+        assertEquals(paragraphs, new BilingualSplitter(Language.WELSH).keepOneLanguage(paragraphs));
+    }
+
+    @Test
+    void shouldSplitMirroredLinesInsideAMixedParagraph() {
+        List<String> paragraphs = List.of(
+                "Parents' evening is on 25.03.2026 at 15:30.\nNoson rieni ar 25.03.2026 am 15:30.\n"
+                        + "Sports day is on 12.03.2026.\nDiwrnod chwaraeon ar 12.03.2026.");
+
+        assertEquals(List.of("Parents' evening is on 25.03.2026 at 15:30.\nSports day is on 12.03.2026."),
+                new BilingualSplitter(Language.ENGLISH).keepOneLanguage(paragraphs));
+    }
+
+    @Test
+    void shouldHalveTheBodyOfABilingualEmailInThePreprocessor() {
+        EmailMessage email = new EmailMessage("1", "Newsletter / Cylchlythyr", LocalDateTime.now(),
+                String.join("\n\n", NEWSLETTER), null, List.of(), "office", "en");
+
+        String both = new PromptPreprocessor(6000).prepare(List.of(email)).get(0).body();
+        String english = new PromptPreprocessor(6000, BilingualSplitter.forSetting("en"))
+                .prepare(List.of(email)).get(0).body();
+
+        assertTrue(english.contains("Sports day: 12.03.2026"));
+        assertFalse(english.contains("Diwrnod chwaraeon"));
+        assertTrue(english.length() < both.length() * 0.6);
+        assertNull(BilingualSplitter.forSetting("both"));
+    }
+}
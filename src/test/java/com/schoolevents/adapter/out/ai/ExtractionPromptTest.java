@@ -0,0 +1,82 @@
+package com.schoolevents.adapter.out.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.schoolevents.domain.model.EmailMessage;
+import com.schoolevents.domain.model.Event;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtractionPromptTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private static EmailMessage email(String id, String subject) {
+        return new EmailMessage(id, subject, LocalDateTime.of(2026, 3, 1, 8, 0), "Body of " + subject, "",
+                List.of(), "office", "en");
+    }
+
+    @Test
+    void shouldParseCompactEventsByEmailIndex() throws Exception {
+        List<EmailMessage> emails = List.of(email("<a@x>", "Newsletter"), email("<b@x>", "Clubs"));
+        String text = """
+                [{"e": 0, "t": "Sports day", "d": "2026-03-12", "s": "09:30", "et": "12:00", "c": 0.9},
+                 {"e": 1, "t": "Half term", "d": "2026-05-25", "ed": "2026-05-29"},
+                 {"e": 1, "t": "Choir", "d": "2026-03-17", "s": "15:30", "r": true, "x": "C", "n": "Hall"}]
+                """;
+
+        List<Event> events = ExtractionPrompt.parseCompactEvents(objectMapper, text, emails);
+
+        assertEquals(3, events.size());
+        Event sportsDay = events.get(0);
+        assertEquals("<a@x>", sportsDay.sourceEmailId());
+        assertEquals("Newsletter", sportsDay.sourceEmailSubject());
+        assertEquals(LocalDateTime.of(2026, 3, 12, 9, 30), sportsDay.startDate());
+        assertEquals(LocalDateTime.of(2026, 3, 12, 12, 0), sportsDay.endDate());
+        assertFalse(sportsDay.allDay());
+        assertEquals(Event.Status.SCHEDULED, sportsDay.status());
+
+        Event halfTerm = events.get(1);
+        assertTrue(halfTerm.allDay());
+        assertEquals(LocalDateTime.of(2026, 5, 25, 0, 0), halfTerm.startDate());
+        assertEquals(LocalDateTime.of(2026, 5, 29, 0, 0), halfTerm.endDate());
+        assertEquals("<b@x>", halfTerm.sourceEmailId());
+
+        Event choir = events.get(2);
+        assertTrue(choir.isRecurring());
+        assertEquals(Event.Status.CANCELLED, choir.status());
+        assertEquals("Hall", choir.notes());
+    }
+
+    @Test
+    void shouldDropInvalidCompactEvents() throws Exception {
+        List<EmailMessage> emails = List.of(email("<a@x>", "Newsletter"));
+        String text = """
+                [{"e": 3, "t": "Unknown email", "d": "2026-03-12"},
+                 {"e": 0, "t": " ", "d": "2026-03-12"},
+                 {"e": 0, "t": "Bad date", "d": "12.03.2026"},
+                 {"e": 0, "t": "Ends before it starts", "d": "2026-03-12", "s": "10:00", "et": "09:00"},
+                 {"e": 0, "t": "Valid", "d": "2026-03-12", "c": 7}]
+                """;
+
+        List<Event> events = ExtractionPrompt.parseCompactEvents(objectMapper, text, emails);
+
+        assertEquals(List.of("Valid"), events.stream().map(Event::title).toList());
+        assertEquals(1.0, events.get(0).confidence());
+    }
+
+    @Test
+    void shouldNumberEmailsInIndexedPrompt() {
+        List<EmailMessage> emails = List.of(email("<a@x>", "First"), email("<b@x>", "Second"));
+
+        String prompt = ExtractionPrompt.buildPrompt(new PromptPreprocessor(), emails, Map.of(), true);
+
+        assertTrue(prompt.contains("Index: 0\nID: <a@x>\n"));
+        assertTrue(prompt.contains("Index: 1\nID: <b@x>\n"));
+        assertFalse(ExtractionPrompt.buildPrompt(new PromptPreprocessor(), emails, Map.of()).contains("Index:"));
+    }
+}
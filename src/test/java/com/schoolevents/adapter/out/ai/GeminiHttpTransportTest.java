@@ -0,0 +1,161 @@
+package com.schoolevents.adapter.out.ai;
+
+import com.schoolevents.launcher.GeminiStubServer;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeminiHttpTransportTest {
+
+    private static final String PROMPT = "{\"contents\":[{\"parts\":[{\"text\":\"ID: <1@school.example>\"}]}]}";
+
+    private static final String LARGE = "{\"contents\":[{\"parts\":[{\"text\":\"ID: <1@school.example>\\n"
+            + "x".repeat(5000) + "\"}]}]}";
+
+    private GeminiStubServer stub;
+    private HttpServer server;
+
+    private String start(double serverErrorShare, double stallShare, long stallMillis) throws Exception {
+        stub = new GeminiStubServer(0, id -> List.of(), 0, 0);
+        stub.setFailures(serverErrorShare, stallShare, stallMillis);
+        stub.start();
+        return stub.baseUrl() + "/v1beta/models/stub-model:generateContent?key=test";
+    }
+
+    /** A server that answers compressed requests with {@code gzipStatus}/{@code gzipError} and others with 200. */
+    private String startRejecting(int gzipStatus, String gzipError, AtomicInteger requests, AtomicInteger gzipped)
+            throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            requests.incrementAndGet();
+            boolean compressed = "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            if (compressed) {
+                gzipped.incrementAndGet();
+            }
+            byte[] body = (compressed ? gzipError : "{}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(compressed ? gzipStatus : 200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1beta/models/stub-model:generateContent";
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (stub != null) {
+            stub.stop();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void shouldRetryServerErrors() throws Exception {
+        String url = start(0.5, 0, 0);
+        GeminiHttpTransport transport = new GeminiHttpTransport();
+        transport.setRetries(3, 1);
+
+        GeminiHttpTransport.Response response = transport.postJson(url, PROMPT);
+
+        assertEquals(200, response.statusCode());
+        assertEquals(1, stub.serverErrors());
+        assertEquals(1, transport.latencyStats().retries());
+        assertEquals(1, transport.latencyStats().requests());
+    }
+
+    @Test
+    void shouldReturnTheLastServerErrorOnceAttemptsRunOut() throws Exception {
+        String url = start(1.0, 0, 0);
+        GeminiHttpTransport transport = new GeminiHttpTransport();
+        transport.setRetries(3, 1);
+
+        assertEquals(503, transport.postJson(url, PROMPT).statusCode());
+        assertEquals(3, stub.requests());
+    }
+
+    @Test
+    void shouldTimeOutStalledRequests() throws Exception {
+        String url = start(0, 1.0, 2000);
+        GeminiHttpTransport transport = new GeminiHttpTransport(Duration.ofSeconds(1), Duration.ofMillis(200));
+        transport.setRetries(2, 1);
+
+        assertThrows(HttpTimeoutException.class, () -> transport.postJson(url, PROMPT));
+        assertEquals(2, transport.latencyStats().timeouts());
+    }
+
+    @Test
+    void shouldHedgeAStalledRequestWhenAdmitted() throws Exception {
+        // Only the first request stalls; the duplicate answers at once
+        String url = start(0, 0.5, 3000);
+        GeminiHttpTransport transport = new GeminiHttpTransport();
+        transport.setHedging(100, () -> true);
+
+        GeminiHttpTransport.Response response = transport.postJson(url, PROMPT);
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.latencyNanos() < Duration.ofMillis(2000).toNanos());
+        assertEquals(1, transport.latencyStats().hedges());
+        assertEquals(1, transport.latencyStats().hedgeWins());
+    }
+
+    @Test
+    void shouldNotHedgeWhenRefused() throws Exception {
+        String url = start(0, 0.5, 300);
+        GeminiHttpTransport transport = new GeminiHttpTransport();
+        transport.setHedging(50, () -> false);
+
+        assertEquals(200, transport.postJson(url, PROMPT).statusCode());
+        assertEquals(0, transport.latencyStats().hedges());
+        assertEquals(1, stub.requests());
+    }
+
+    @Test
+    void shouldCompressLargeRequestBodies() throws Exception {
+        String url = start(0, 0, 0);
+        GeminiHttpTransport transport = new GeminiHttpTransport();
+
+        assertEquals(200, transport.postJson(url, LARGE).statusCode());
+        assertEquals(200, transport.postJson(url, PROMPT).statusCode());
+        assertEquals(1, stub.gzipped());
+    }
+
+    @Test
+    void shouldStopCompressingOnceTheServerRefusesIt() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        AtomicInteger gzipped = new AtomicInteger();
+        String url = startRejecting(415, "{\"error\":{\"message\":\"Unsupported media type\"}}", requests, gzipped);
+        GeminiHttpTransport transport = new GeminiHttpTransport();
+
+        assertEquals(200, transport.postJson(url, LARGE).statusCode());
+        assertEquals(200, transport.postJson(url, LARGE).statusCode());
+        assertEquals(3, requests.get());
+        assertEquals(1, gzipped.get());
+    }
+
+    @Test
+    void shouldNotResendAnInvalidRequestUncompressed() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        AtomicInteger gzipped = new AtomicInteger();
+        String url = startRejecting(400, "{\"error\":{\"message\":\"Invalid JSON payload received.\"}}", requests,
+                gzipped);
+        GeminiHttpTransport transport = new GeminiHttpTransport();
+
+        assertEquals(400, transport.postJson(url, LARGE).statusCode());
+        assertEquals(1, requests.get());
+        // The request was at fault, not the encoding
+        assertEquals(400, transport.postJson(url, LARGE).statusCode());
+        assertEquals(2, gzipped.get());
+    }
+}
@@ -0,0 +1,64 @@
+package com.schoolevents.adapter.out.ai;
+
+import com.schoolevents.domain.model.EmailMessage;
+import com.schoolevents.domain.model.Event;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenAiCompatibleAdapterTest {
+
+    private HttpServer server;
+    private final AtomicReference<String> lastRequest = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Stands in for a llama.cpp / OpenAI-compatible server
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            lastRequest.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            String content = "```json\\n[{\\\"emailId\\\":\\\"<1@school>\\\",\\\"title\\\":\\\"Sports Day\\\","
+                    + "\\\"startDate\\\":\\\"2026-06-12T09:00:00\\\",\\\"allDay\\\":false,\\\"confidence\\\":0.8,"
+                    + "\\\"status\\\":\\\"SCHEDULED\\\",\\\"isRecurring\\\":false}]\\n```";
+            byte[] body = ("{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"" + content + "\"}}]}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void shouldExtractEventsFromChatCompletion() {
+        OpenAiCompatibleAdapter adapter = new OpenAiCompatibleAdapter(
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/v1", "llama", null, 2,
+                new PromptPreprocessor());
+        EmailMessage email = new EmailMessage("<1@school>", "Sports Day", LocalDateTime.now(),
+                "Sports Day is on Friday 12th June at 9am.", "", Collections.emptyList(), "school@example.com", "en");
+
+        List<Event> events = adapter.extractEvents(List.of(email));
+
+        assertEquals(1, events.size());
+        assertEquals("Sports Day", events.get(0).title());
+        assertEquals("<1@school>", events.get(0).sourceEmailId());
+        assertEquals(LocalDateTime.of(2026, 6, 12, 9, 0), events.get(0).startDate());
+        assertTrue(lastRequest.get().contains("\"model\":\"llama\""));
+    }
+}
@@ -0,0 +1,76 @@
+package com.schoolevents.adapter.out.ai;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfTextExtractorTest {
+
+    static byte[] pdfWithText(String... lines) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.beginText();
+                content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                content.newLineAtOffset(50, 700);
+                for (String line : lines) {
+                    content.showText(line);
+                    content.newLineAtOffset(0, -16);
+                }
+                content.endText();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private byte[] pdfWithoutText() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            document.addPage(new PDPage());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    @Test
+    void shouldExtractTextLayerAndFlagImageOnlyPdfs() throws IOException {
+        PdfTextExtractor extractor = new PdfTextExtractor();
+        byte[] textPdf = pdfWithText("Spring Term Dates 2026",
+                "Half term: Monday 16th February - Friday 20th February",
+                "Parents evening: Tuesday 10th March");
+
+        Map<String, Optional<String>> result = extractor.extractAll(List.of(
+                new PdfTextExtractor.PdfInput("text", textPdf),
+                new PdfTextExtractor.PdfInput("scan", pdfWithoutText())));
+
+        assertTrue(result.get("text").isPresent());
+        assertTrue(result.get("text").get().contains("Parents evening"));
+        assertFalse(result.get("scan").isPresent());
+    }
+
+    @Test
+    void shouldServeRepeatedHashFromCache() throws IOException {
+        PdfTextExtractor extractor = new PdfTextExtractor();
+        byte[] textPdf = pdfWithText("Sports Day on Friday 12th June for all year groups at the field");
+
+        Optional<String> first = extractor.extract(new PdfTextExtractor.PdfInput("same", textPdf));
+        // Different bytes under the same hash: the cached result wins
+        Optional<String> second = extractor.extract(new PdfTextExtractor.PdfInput("same", new byte[0]));
+
+        assertEquals(first, second);
+    }
+}
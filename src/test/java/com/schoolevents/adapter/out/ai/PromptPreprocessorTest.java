@@ -0,0 +1,108 @@
+package com.schoolevents.adapter.out.ai;
+
+import com.schoolevents.domain.model.EmailMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptPreprocessorTest {
+
+    private EmailMessage email(String id, String plain, String html) {
+        return new EmailMessage(id, "Subj", LocalDateTime.now(), plain, html, Collections.emptyList(),
+                "school@example.com", "en");
+    }
+
+    @Test
+    void shouldConvertHtmlToCompactText() {
+        String html = "<html><head><style>p { color: red; }</style></head><body>"
+                + "<p>Sports Day&nbsp;on 12.6.26</p><ul><li>Year 1 &amp; 2</li></ul>"
+                + "<a href=\"https://track.example.com/c?id=123&utm_source=mail\">Click</a></body></html>";
+
+        String text = PromptPreprocessor.htmlToText(html);
+
+        assertFalse(text.contains("<"));
+        assertFalse(text.contains("color"));
+        assertTrue(text.contains("Sports Day on 12.6.26"));
+        assertTrue(text.contains("- Year 1 & 2"));
+    }
+
+    @Test
+    void shouldStripQuotedRepliesForwardHeadersAndFooters() {
+        String body = "---------- Forwarded message ---------\n"
+                + "From: School Office <office@school.example>\n"
+                + "Date: Mon, 2 Feb 2026\n"
+                + "Subject: Trip\n\n"
+                + "Year 3 trip to the museum on 5.3.26.\n\n"
+                + "This email is confidential and intended for the named recipient only.\n\n"
+                + "On Mon, 2 Feb 2026 at 09:00, Parent wrote:\n"
+                + "> Is there a trip?\n";
+
+        List<String> paragraphs = PromptPreprocessor.compact(email("1", body, ""));
+
+        assertEquals(List.of("Year 3 trip to the museum on 5.3.26."), paragraphs);
+    }
+
+    @Test
+    void shouldDeduplicateParagraphsAcrossBatch() {
+        String shared = "Half term: 16.2.26 - 20.2.26, school closed for all pupils.";
+        List<PromptPreprocessor.PreparedEmail> prepared = new PromptPreprocessor().prepare(List.of(
+                email("1", shared + "\n\nDisco on 6.2.26", ""),
+                email("2", "Fwd reminder\n\n" + shared, "")));
+
+        assertTrue(prepared.get(0).body().contains(shared));
+        assertFalse(prepared.get(1).body().contains(shared));
+    }
+
+    @Test
+    void shouldKeepDatedParagraphsWhenOverBudget() {
+        String filler = "Lorem ipsum dolor sit amet consectetur adipiscing elit ".repeat(20);
+        String body = filler + "\n\n" + filler.toUpperCase() + "\n\nParents evening on 10.3.26 at 15:30";
+
+        List<PromptPreprocessor.PreparedEmail> prepared = new PromptPreprocessor(100)
+                .prepare(List.of(email("1", body, "")));
+
+        assertTrue(prepared.get(0).body().contains("Parents evening on 10.3.26"));
+        assertTrue(PromptPreprocessor.estimateTokens(prepared.get(0).body()) <= 100);
+    }
+
+    @Test
+    void shouldKeepNoticesThatOnlyMentionFooterWords() {
+        String body = "School closed Friday 12 March due to a virus outbreak.\n\n"
+                + "Please unsubscribe me from the choir list.\n\n"
+                + "This email has been scanned for viruses.";
+
+        List<String> paragraphs = PromptPreprocessor.compact(email("1", body, ""));
+
+        assertEquals(List.of("School closed Friday 12 March due to a virus outbreak."), paragraphs.subList(0, 1));
+        assertFalse(paragraphs.contains("This email has been scanned for viruses."));
+    }
+
+    @Test
+    void shouldNotTreatEveryNumberOrMonthSubstringAsADate() {
+        String filler = "Year 3 and Year 4 visit the market, you may bring 2 snacks. ".repeat(4);
+        String body = filler + "\n\n" + filler.toUpperCase() + "\n\nParents evening on Tuesday";
+
+        String prepared = new PromptPreprocessor(62).prepare(List.of(email("1", body, ""))).get(0).body();
+
+        assertTrue(prepared.contains("Parents evening on Tuesday"));
+    }
+
+    @Test
+    void shouldKeepAttachmentTextWholeOutsideTheBodyBudget() {
+        String filler = "Lorem ipsum dolor sit amet consectetur adipiscing elit ".repeat(20);
+        String letter = "Spring term dates\n\n" + "Club runs every week after school. ".repeat(30)
+                + "\n\nSummer fair on Saturday 20th June";
+
+        String body = new PromptPreprocessor(100)
+                .prepare(List.of(email("1", filler, "")), Map.of("1", List.of(letter)))
+                .get(0).body();
+
+        assertTrue(body.contains("Summer fair on Saturday 20th June"));
+        assertFalse(body.contains(filler.strip()));
+    }
+}
@@ -0,0 +1,126 @@
+package com.schoolevents.adapter.out.ai;
+
+import com.schoolevents.domain.model.EmailMessage;
+import com.schoolevents.domain.model.Event;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleBasedEventExtractorTest {
+
+    private final RuleBasedEventExtractor extractor = new RuleBasedEventExtractor();
+
+    private EmailMessage email(String body) {
+        return new EmailMessage("<1@school>", "Dates for your diary", LocalDateTime.of(2026, 1, 20, 9, 0), body, "",
+                Collections.emptyList(), "office@school.example", "en");
+    }
+
+    @Test
+    void shouldExtractTemplatedDatedLines() {
+        Optional<List<Event>> result = extractor.tryExtract(email(
+                "Dates for your diary:\n\n"
+                        + "Year 3 assembly on 5.3.26 at 9:15\n"
+                        + "Half term: 16.2.26 - 20.2.26\n"
+                        + "Parents evening - Tuesday 10th March 3.30pm\n"));
+
+        assertTrue(result.isPresent());
+        List<Event> events = result.get();
+        assertEquals(3, events.size());
+
+        assertEquals("Year 3 assembly", events.get(0).title());
+        assertEquals(LocalDateTime.of(2026, 3, 5, 9, 15), events.get(0).startDate());
+        assertFalse(events.get(0).allDay());
+
+        assertEquals("Half term", events.get(1).title());
+        assertTrue(events.get(1).allDay());
+        assertEquals(LocalDate.of(2026, 2, 20), events.get(1).endDate().toLocalDate());
+
+        assertEquals("Parents evening", events.get(2).title());
+        assertEquals(LocalDateTime.of(2026, 3, 10, 15, 30), events.get(2).startDate());
+        assertEquals("<1@school>", events.get(2).sourceEmailId());
+
+        // Re-extracting the same email yields the same IDs
+        assertEquals(events.get(0).id(), extractor.tryExtract(email("Year 3 assembly on 5.3.26 at 9:15\n"))
+                .orElseThrow().get(0).id());
+    }
+
+    @Test
+    void shouldParseWelshDatesAndDropMirroredTranslation() {
+        Optional<List<Event>> result = extractor.tryExtract(email(
+                "Gwasanaeth Blwyddyn 2 - Dydd Gwener 6 Chwefror\n"
+                        + "Year 2 assembly - Friday 6th February\n"));
+
+        assertTrue(result.isPresent());
+        assertEquals(1, result.get().size());
+        assertEquals("Year 2 assembly", result.get().get(0).title());
+        assertEquals(LocalDate.of(2026, 2, 6), result.get().get(0).startDate().toLocalDate());
+    }
+
+    @Test
+    void shouldLeaveRecurringCancelledAndAmbiguousMailToTheAi() {
+        assertFalse(extractor.tryExtract(email("Swimming every Tuesday from 3.2.26")).isPresent());
+        assertFalse(extractor.tryExtract(email("The trip on 5.3.26 has been cancelled")).isPresent());
+        assertFalse(extractor.tryExtract(email("Please see the newsletter for details.")).isPresent());
+        assertFalse(extractor.tryExtract(email("Disco 6.2.26 or 13.2.26 depending on numbers")).isPresent());
+    }
+
+    @Test
+    void shouldReadWelshAmAsAtAndPairWithTheEnglishLine() {
+        Optional<List<Event>> result = extractor.tryExtract(email(
+                "Gwasanaeth Blwyddyn 3 am 9:30 ar 12.3.26\n"
+                        + "Year 3 assembly at 9:30 on 12.3.26\n"));
+
+        assertTrue(result.isPresent());
+        assertEquals(1, result.get().size());
+        assertEquals("Year 3 assembly", result.get().get(0).title());
+        assertEquals(LocalDateTime.of(2026, 3, 12, 9, 30), result.get().get(0).startDate());
+    }
+
+    @Test
+    void shouldLeaveEventsWithoutAFullDateToTheAi() {
+        assertFalse(extractor.tryExtract(email("Year 3 assembly on 5.3.26 at 9:15\n"
+                + "Disco this Friday at 6pm\n")).isPresent());
+        assertFalse(extractor.tryExtract(email("Half term: 16.2.26 - 20.2.26\n"
+                + "Cake sale tomorrow after school\n")).isPresent());
+    }
+
+    @Test
+    void shouldOnlyReadMayAsAMonthInADate() {
+        Optional<List<Event>> result = extractor.tryExtract(email("Year 5 may bring a packed lunch\n"
+                + "Sports day - 12th may\n"
+                + "Year 6 leavers' assembly 14 May\n"));
+
+        assertTrue(result.isPresent());
+        assertEquals(List.of("Sports day", "Year 6 leavers' assembly"),
+                result.get().stream().map(Event::title).toList());
+        assertEquals(LocalDate.of(2026, 5, 12), result.get().get(0).startDate().toLocalDate());
+    }
+
+    @Test
+    void shouldIgnoreTheQuotedConversation() {
+        Optional<List<Event>> result = extractor.tryExtract(email("Year 3 assembly on 5.3.26 at 9:15\n\n"
+                + "On Mon, 3 Mar 2026 at 10:00, Jane Smith wrote:\n"
+                + "> Is there an assembly this term?\n"));
+
+        assertTrue(result.isPresent());
+        assertEquals(1, result.get().size());
+        assertEquals("Year 3 assembly", result.get().get(0).title());
+    }
+
+    @Test
+    void shouldReadATimeRangeAsTheEventsEnd() {
+        Event event = extractor.tryExtract(email("Sports day 12.6.26 3pm - 4pm\n")).orElseThrow().get(0);
+
+        assertEquals("Sports day", event.title());
+        assertEquals(LocalDateTime.of(2026, 6, 12, 15, 0), event.startDate());
+        assertEquals(LocalDateTime.of(2026, 6, 12, 16, 0), event.endDate());
+        assertFalse(extractor.tryExtract(email("Sports day 12.6.26 4pm - 3pm\n")).isPresent());
+        assertFalse(extractor.tryExtract(email("Sports day 12.6.26 at 3pm and 5pm\n")).isPresent());
+    }
+}
@@ -0,0 +1,247 @@
+package com.schoolevents.adapter.out.email;
+
+import com.schoolevents.domain.model.EmailMessage;
+import jakarta.mail.Flags;
+import jakarta.mail.Folder;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Store;
+import jakarta.mail.URLName;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GmailImapAdapterTest {
+
+    private static final Session SESSION = Session.getInstance(new Properties());
+
+    private final Map<String, FakeFolder> mailbox = new HashMap<>();
+    private final AtomicInteger logins = new AtomicInteger();
+    // Folders need a store to belong to; the ones handed out by the pool only look them up
+    private final Store owner = new FakeStore();
+
+    /** A message as IMAP hands it out, with the time the server received it. */
+    private static Message message(String messageId, int day) throws MessagingException {
+        Date received = Date.from(LocalDateTime.of(2026, 3, day, 8, 0).atZone(ZoneId.systemDefault()).toInstant());
+        MimeMessage message = new MimeMessage(SESSION) {
+            @Override
+            public Date getReceivedDate() {
+                return received;
+            }
+        };
+        message.setHeader("Message-ID", messageId);
+        message.setSubject("Email " + messageId);
+        message.setText("Body");
+        return message;
+    }
+
+    private FakeFolder folder(String name, Message... messages) {
+        FakeFolder folder = new FakeFolder(owner, name, List.of(messages));
+        mailbox.put(name, folder);
+        return folder;
+    }
+
+    private List<EmailMessage> fetch(List<String> folders, int connections) {
+        GmailImapAdapter adapter = new GmailImapAdapter("user", "secret", null, null, null);
+        adapter.setFolders(folders, connections);
+        try (ImapSessionPool pool = new ImapSessionPool(() -> {
+            logins.incrementAndGet();
+            return new FakeStore();
+        }, connections)) {
+            return adapter.fetchUnprocessedEmails(pool);
+        }
+    }
+
+    private static List<String> ids(List<EmailMessage> emails) {
+        return emails.stream().map(EmailMessage::id).toList();
+    }
+
+    @Test
+    void shouldMergeFoldersNewestFirstAndKeepEachMessageOnce() throws Exception {
+        folder("INBOX", message("<1@school>", 1), message("<3@school>", 3));
+        // Gmail lists a message once per label: <3@school> is in both
+        folder("School", message("<2@school>", 2), message("<3@school>", 3));
+
+        assertEquals(List.of("<3@school>", "<2@school>", "<1@school>"), ids(fetch(List.of("INBOX", "School"), 1)));
+        assertEquals(List.of("<3@school>", "<2@school>", "<1@school>"), ids(fetch(List.of("INBOX", "School"), 2)));
+    }
+
+    @Test
+    void shouldReuseOneConnectionAcrossFoldersAndCloseEachFolder() throws Exception {
+        FakeFolder inbox = folder("INBOX", message("<1@school>", 1));
+        FakeFolder school = folder("School", message("<2@school>", 2));
+
+        assertEquals(2, fetch(List.of("INBOX", "Missing", "School"), 1).size());
+        assertEquals(1, logins.get());
+        assertEquals(1, inbox.closes);
+        assertEquals(1, school.closes);
+    }
+
+    @Test
+    void shouldCloseTheFolderWhenFetchingItFails() throws Exception {
+        FakeFolder broken = folder("INBOX", message("<1@school>", 1));
+        broken.failOnCount = true;
+
+        assertThrows(RuntimeException.class, () -> fetch(List.of("INBOX"), 1));
+        assertEquals(1, broken.closes);
+        assertFalse(broken.isOpen());
+    }
+
+    private final class FakeStore extends Store {
+
+        FakeStore() {
+            super(SESSION, null);
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public Folder getDefaultFolder() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Folder getFolder(String name) {
+            return mailbox.containsKey(name) ? mailbox.get(name) : new FakeFolder(this, name, null);
+        }
+
+        @Override
+        public Folder getFolder(URLName url) {
+            return getFolder(url.getFile());
+        }
+    }
+
+    /** A folder holding {@code messages}; one that does not exist has none. */
+    private static final class FakeFolder extends Folder {
+        private final String name;
+        private final List<Message> messages;
+        private boolean open;
+        boolean failOnCount;
+        int closes;
+
+        FakeFolder(Store store, String name, List<Message> messages) {
+            super(store);
+            this.name = name;
+            this.messages = messages;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getFullName() {
+            return name;
+        }
+
+        @Override
+        public Folder getParent() {
+            return null;
+        }
+
+        @Override
+        public boolean exists() {
+            return messages != null;
+        }
+
+        @Override
+        public Folder[] list(String pattern) {
+            return new Folder[0];
+        }
+
+        @Override
+        public char getSeparator() {
+            return '/';
+        }
+
+        @Override
+        public int getType() {
+            return HOLDS_MESSAGES;
+        }
+
+        @Override
+        public boolean create(int type) {
+            return false;
+        }
+
+        @Override
+        public boolean hasNewMessages() {
+            return false;
+        }
+
+        @Override
+        public Folder getFolder(String name) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean delete(boolean recurse) {
+            return false;
+        }
+
+        @Override
+        public boolean renameTo(Folder folder) {
+            return false;
+        }
+
+        @Override
+        public void open(int mode) {
+            this.mode = mode;
+            open = true;
+        }
+
+        @Override
+        public void close(boolean expunge) {
+            open = false;
+            closes++;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public Flags getPermanentFlags() {
+            return new Flags();
+        }
+
+        @Override
+        public int getMessageCount() throws MessagingException {
+            if (failOnCount) {
+                throw new MessagingException("Connection dropped");
+            }
+            return messages.size();
+        }
+
+        @Override
+        public Message getMessage(int number) {
+            return messages.get(number - 1);
+        }
+
+        @Override
+        public void appendMessages(Message[] messages) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Message[] expunge() {
+            return new Message[0];
+        }
+    }
+}
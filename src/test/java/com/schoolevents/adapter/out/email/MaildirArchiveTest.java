@@ -0,0 +1,88 @@
+package com.schoolevents.adapter.out.email;
+
+import com.schoolevents.domain.model.EmailMessage;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MaildirArchiveTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static MimeMessage message(String id, String subject, String from, LocalDate received)
+            throws Exception {
+        String raw = "Message-ID: " + id + "\r\n" +
+                "From: " + from + "\r\n" +
+                "Subject: " + subject + "\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "\r\n" +
+                "Sports day is on Friday.";
+        Date date = Date.from(received.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        return new MimeMessage(Session.getDefaultInstance(new Properties()),
+                new ByteArrayInputStream(raw.getBytes(StandardCharsets.UTF_8))) {
+            @Override
+            public Date getReceivedDate() {
+                return date;
+            }
+        };
+    }
+
+    @Test
+    void shouldStoreEachMessageOnceAndReadBackItsRawBytes() throws Exception {
+        MaildirArchive archive = new MaildirArchive(tempDir);
+        MimeMessage msg = message("<1@school.example>", "Sports day", "office@school.example",
+                LocalDate.of(2026, 3, 2));
+
+        assertTrue(archive.store(msg, "<1@school.example>"));
+        assertFalse(archive.store(msg, "<1@school.example>"));
+        assertTrue(archive.contains("<1@school.example>"));
+
+        List<Path> files = archive.list();
+        assertEquals(1, files.size());
+        assertEquals(archive.pathFor("<1@school.example>"), files.get(0));
+        assertEquals(msg.getReceivedDate().getTime(), Files.getLastModifiedTime(files.get(0)).toMillis());
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        msg.writeTo(expected);
+        try (InputStream in = MaildirArchive.open(files.get(0))) {
+            assertArrayEquals(expected.toByteArray(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void shouldFetchArchivedEmailsNewestFirstWithinRescanWindow() throws Exception {
+        MaildirArchive archive = new MaildirArchive(tempDir);
+        archive.store(message("<old@school.example>", "Old", "office@school.example",
+                LocalDate.of(2025, 12, 1)), "<old@school.example>");
+        archive.store(message("<a@school.example>", "Trip", "office@school.example",
+                LocalDate.of(2026, 1, 10)), "<a@school.example>");
+        archive.store(message("<b@school.example>", "Disco", "pta@school.example",
+                LocalDate.of(2026, 2, 5)), "<b@school.example>");
+
+        List<EmailMessage> sinceJanuary = new ArchivedEmailFetcher(archive, null, "2026-01-01")
+                .fetchUnprocessedEmails();
+        assertEquals(List.of("Disco", "Trip"), sinceJanuary.stream().map(EmailMessage::subject).toList());
+        assertEquals("<b@school.example>", sinceJanuary.get(0).id());
+        assertEquals(LocalDate.of(2026, 2, 5), sinceJanuary.get(0).receivedAt().toLocalDate());
+
+        List<EmailMessage> fromPta = new ArchivedEmailFetcher(archive, "pta@school.example", null)
+                .fetchUnprocessedEmails();
+        assertEquals(List.of("Disco"), fromPta.stream().map(EmailMessage::subject).toList());
+    }
+}
@@ -0,0 +1,98 @@
+package com.schoolevents.adapter.out.filesystem;
+
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.port.out.EventRepositoryPort;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class IcsExporterTest {
+
+    @TempDir
+    Path outputDir;
+
+    private EventRepositoryPort eventRepository;
+    private final List<Event> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        eventRepository = mock(EventRepositoryPort.class);
+        doAnswer(invocation -> {
+            Consumer<Event> consumer = invocation.getArgument(0);
+            events.forEach(consumer);
+            return null;
+        }).when(eventRepository).forEachEvent(any());
+    }
+
+    private static Event event(String id, String title, LocalDateTime start, boolean recurring) {
+        return new Event(id, title, start, start, false, "", 1.0, Event.Status.ACTIVE, recurring, "manual-entry",
+                "Manual Entry", LocalDateTime.of(2026, 1, 1, 0, 0));
+    }
+
+    @Test
+    void shouldCollapseWeeklySeriesIntoRruleWithExdates() throws Exception {
+        LocalDate wednesday = LocalDate.of(2026, 1, 28);
+        assertEquals(DayOfWeek.WEDNESDAY, wednesday.getDayOfWeek());
+        for (int week = 0; week < 6; week++) {
+            if (week == 3) {
+                continue; // Half term
+            }
+            LocalDate date = wednesday.plusWeeks(week);
+            events.add(event("book-bag-" + date, "Book bag (return)", date.atTime(9, 0), true));
+        }
+        events.add(event("trip", "Year 3 trip to the museum", LocalDateTime.of(2026, 2, 5, 9, 30), false));
+
+        new IcsExporter(eventRepository, outputDir.toString(), List.of()).export();
+
+        String ics = Files.readString(outputDir.resolve("calendar.ics"));
+        assertEquals(2, ics.split("BEGIN:VEVENT", -1).length - 1);
+        assertTrue(ics.contains("DTSTART:20260128T090000\r\n"));
+        assertTrue(ics.contains("RRULE:FREQ=WEEKLY;UNTIL=20260304T090000\r\n"));
+        assertTrue(ics.contains("EXDATE:20260218T090000\r\n"));
+        assertTrue(ics.contains("SUMMARY:Year 3 trip to the museum\r\n"));
+    }
+
+    @Test
+    void shouldFilterYearGroupFeedsAndOnlyRewriteChangedFeeds() throws Exception {
+        events.add(event("a", "Year 2 assembly", LocalDateTime.of(2026, 3, 2, 9, 0), false));
+        events.add(event("b", "Year 5 assembly", LocalDateTime.of(2026, 3, 3, 9, 0), false));
+        events.add(event("c", "Sports day, whole school", LocalDateTime.of(2026, 6, 12, 9, 0), false));
+        IcsExporter exporter = new IcsExporter(eventRepository, outputDir.toString(), List.of(2, 5));
+
+        List<String> changed = exporter.export();
+
+        assertEquals(List.of("calendar.ics", "calendar-year2.ics", "calendar-year5.ics"), changed);
+        String year2 = Files.readString(outputDir.resolve("calendar-year2.ics"));
+        assertTrue(year2.contains("Year 2 assembly"));
+        assertFalse(year2.contains("Year 5 assembly"));
+        assertTrue(year2.contains("SUMMARY:Sports day\\, whole school"));
+
+        assertEquals(List.of(), exporter.export());
+
+        events.add(event("d", "Year 5 trip", LocalDateTime.of(2026, 4, 1, 9, 0), false));
+        assertEquals(List.of("calendar.ics", "calendar-year5.ics"), exporter.export());
+    }
+
+    @Test
+    void shouldFoldLongLinesAt75Octets() {
+        StringBuilder sb = new StringBuilder();
+        IcsExporter.fold(sb, "SUMMARY:" + "Diwrnod Shwmae Sumae ".repeat(8));
+
+        for (String line : sb.toString().split("\r\n")) {
+            assertTrue(line.getBytes(java.nio.charset.StandardCharsets.UTF_8).length <= 75);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.schoolevents.adapter.out.filesystem;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.port.out.EventRepositoryPort;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class JsonExporterTest {
+
+    @TempDir
+    Path outputDir;
+
+    private EventRepositoryPort eventRepository;
+
+    @BeforeEach
+    void setUp() {
+        eventRepository = mock(EventRepositoryPort.class);
+        List<Event> events = List.of(
+                new Event("1", "Sports Day", LocalDateTime.of(2026, 6, 12, 9, 0), null, false, "", 0.9,
+                        Event.Status.ACTIVE, false, "msg1", "Subj", null),
+                new Event("2", "Disco", LocalDateTime.of(2026, 6, 13, 18, 0), null, false, "", 0.9,
+                        Event.Status.ACTIVE, false, "msg2", "Subj", null));
+        doAnswer(invocation -> {
+            Consumer<Event> consumer = invocation.getArgument(0);
+            events.forEach(consumer);
+            return null;
+        }).when(eventRepository).forEachEvent(any());
+    }
+
+    @Test
+    void shouldStreamPlainAndEncryptedFilesFromOnePass() throws Exception {
+        Path output = outputDir.resolve("events.json");
+
+        new JsonExporter(eventRepository, output.toString(), null, "secret").export();
+
+        verify(eventRepository, times(1)).forEachEvent(any());
+        verify(eventRepository, never()).findAll();
+        assertTrue(Files.readString(output).startsWith("v1|"));
+        JsonNode plain = new ObjectMapper().readTree(outputDir.resolve("events_plain.json").toFile());
+        assertEquals(2, plain.size());
+        assertEquals("Sports Day", plain.get(0).get("title").asText());
+        assertEquals("2026-06-13T18:00:00", plain.get(1).get("startDate").asText());
+    }
+
+    @Test
+    void shouldWritePlainFileWithoutPassword() throws Exception {
+        Path output = outputDir.resolve("events.json");
+
+        new JsonExporter(eventRepository, output.toString(), null, null).export();
+
+        assertEquals(2, new ObjectMapper().readTree(output.toFile()).size());
+        assertFalse(Files.exists(outputDir.resolve("events_plain.json")));
+    }
+
+    @Test
+    void shouldKeepThePreviousExportWhenWritingFails() throws Exception {
+        Path output = outputDir.resolve("events.json");
+        new JsonExporter(eventRepository, output.toString(), null, null).export();
+        String previous = Files.readString(output);
+
+        doAnswer(invocation -> {
+            Consumer<Event> consumer = invocation.getArgument(0);
+            consumer.accept(new Event("3", "Concert", LocalDateTime.of(2026, 6, 14, 18, 0), null, false, "", 0.9,
+                    Event.Status.ACTIVE, false, "msg3", "Subj", null));
+            throw new RuntimeException("database closed");
+        }).when(eventRepository).forEachEvent(any());
+        new JsonExporter(eventRepository, output.toString(), null, null).export();
+
+        assertEquals(previous, Files.readString(output));
+        try (var files = Files.list(outputDir)) {
+            assertEquals(List.of(output), files.toList());
+        }
+    }
+}
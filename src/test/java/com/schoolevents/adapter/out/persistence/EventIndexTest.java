@@ -0,0 +1,105 @@
+package com.schoolevents.adapter.out.persistence;
+
+import com.schoolevents.domain.model.Event;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventIndexTest {
+
+    private static Event event(String id, String title, LocalDateTime start, LocalDateTime end, boolean recurring) {
+        return new Event(id, title, start, end, false, "notes", 0.9, Event.Status.ACTIVE, recurring, "msg-" + id,
+                "Newsletter", LocalDateTime.of(2026, 1, 5, 8, 30, 12));
+    }
+
+    private static List<String> ids(List<Event> events) {
+        return events.stream().map(Event::id).toList();
+    }
+
+    @Test
+    void shouldRoundTripEventsInStartOrder() {
+        EventIndex index = new EventIndex();
+        Event trip = new Event("trip", "Trip", LocalDateTime.of(2026, 3, 2, 9, 0), null, true, null, null,
+                Event.Status.CANCELLED, false, "msg", null, null);
+        index.put(event("b", "Concert", LocalDateTime.of(2026, 3, 5, 18, 0), null, false));
+        index.put(trip);
+        index.put(event("a", "Book bag", LocalDateTime.of(2026, 3, 4, 9, 0), null, true));
+
+        assertEquals(List.of("trip", "a", "b"), ids(index.findAll()));
+        assertEquals(trip, index.findById("trip").orElseThrow());
+        assertEquals(event("a", "Book bag", LocalDateTime.of(2026, 3, 4, 9, 0), null, true),
+                index.findById("a").orElseThrow());
+        assertEquals(1, index.countRecurring());
+        assertEquals("trip", index.first().orElseThrow().id());
+    }
+
+    @Test
+    void shouldAnswerRangeAndOverlapQueries() {
+        EventIndex index = new EventIndex();
+        index.put(event("half-term", "Half term", LocalDateTime.of(2026, 2, 16, 0, 0),
+                LocalDateTime.of(2026, 2, 20, 0, 0), false));
+        index.put(event("assembly", "Assembly", LocalDateTime.of(2026, 2, 18, 9, 0), null, false));
+        index.put(event("disco", "Disco", LocalDateTime.of(2026, 2, 21, 18, 0), null, false));
+
+        assertEquals(List.of("assembly"), ids(index.findStartingBetween(LocalDateTime.of(2026, 2, 18, 0, 0),
+                LocalDateTime.of(2026, 2, 19, 0, 0))));
+        assertEquals(List.of("half-term", "assembly"), ids(index.findOverlapping(
+                LocalDateTime.of(2026, 2, 18, 0, 0), LocalDateTime.of(2026, 2, 19, 0, 0))));
+        assertEquals(List.of("half-term"), ids(index.findOverlapping(
+                LocalDateTime.of(2026, 2, 19, 0, 0), LocalDateTime.of(2026, 2, 21, 0, 0))));
+        assertEquals("assembly", index.findByTitleAndStartDate("Assembly", LocalDateTime.of(2026, 2, 18, 9, 0))
+                .orElseThrow().id());
+    }
+
+    @Test
+    void shouldApplyUpdatesAndDeletesIncrementally() {
+        EventIndex index = new EventIndex();
+        for (int i = 0; i < 3000; i++) {
+            index.put(event("e" + i, "Event " + i, LocalDateTime.of(2026, 1, 1, 9, 0).plusHours(i), null, false));
+        }
+
+        index.put(event("e0", "Moved", LocalDateTime.of(2027, 1, 1, 9, 0), null, false));
+        index.remove("e1");
+        index.put(event("new", "New", LocalDateTime.of(2025, 1, 1, 9, 0), null, false));
+
+        List<Event> all = index.findAll();
+        assertEquals(3000, all.size());
+        assertEquals("new", all.get(0).id());
+        assertEquals("e2", all.get(1).id());
+        assertEquals("Moved", all.get(all.size() - 1).title());
+        assertTrue(index.findById("e1").isEmpty());
+    }
+
+    @Test
+    void shouldMatchBruteForceOverlapAfterRandomWrites() {
+        EventIndex index = new EventIndex();
+        List<Event> reference = new java.util.ArrayList<>();
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 0, 0);
+        for (int i = 0; i < 2000; i++) {
+            LocalDateTime start = base.plusMinutes(random.nextInt(365 * 24 * 60));
+            // Mostly short events, some multi-day trips and a few whole-term spans
+            int spanMinutes = i % 50 == 0 ? random.nextInt(120 * 24 * 60) : i % 7 == 0
+                    ? random.nextInt(5 * 24 * 60) : random.nextInt(120);
+            Event event = event("e" + random.nextInt(1500), "Event", start, start.plusMinutes(spanMinutes), false);
+            reference.removeIf(e -> e.id().equals(event.id()));
+            reference.add(event);
+            index.put(event);
+        }
+
+        for (int q = 0; q < 200; q++) {
+            LocalDateTime from = base.plusHours(random.nextInt(365 * 24));
+            LocalDateTime to = from.plusHours(1 + random.nextInt(24 * 10));
+            List<String> expected = reference.stream()
+                    .filter(e -> e.startDate().isBefore(to) && !e.endDate().isBefore(from))
+                    .map(Event::id)
+                    .sorted()
+                    .toList();
+            assertEquals(expected, ids(index.findOverlapping(from, to)).stream().sorted().toList());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.schoolevents.adapter.out.persistence;
+
+import com.schoolevents.adapter.out.persistence.SchemaMigrator.ChunkedCopy;
+import com.schoolevents.adapter.out.persistence.SchemaMigrator.Migration;
+import com.schoolevents.adapter.out.persistence.SchemaMigrator.Sql;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigratorTest {
+
+    private File dbFile;
+    private String dbUrl;
+
+    private static final Migration CREATE = new Migration(1, "numbers",
+            new Sql("CREATE TABLE IF NOT EXISTS numbers (n INTEGER)"),
+            new Sql("INSERT INTO numbers (n) WITH RECURSIVE c(x) AS (SELECT 1 UNION ALL SELECT x + 1 FROM c "
+                    + "WHERE x < 11) SELECT x FROM c"));
+
+    private static final Migration COPY = new Migration(2, "squares",
+            new Sql("CREATE TABLE IF NOT EXISTS squares (n INTEGER PRIMARY KEY, square INTEGER)"),
+            new ChunkedCopy("numbers", "INSERT OR IGNORE INTO squares SELECT n, n * n FROM numbers "
+                    + "WHERE rowid > ? AND rowid <= ?"));
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dbFile = Files.createTempFile("migrations", ".db").toFile();
+        dbUrl = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dbFile.delete();
+    }
+
+    @Test
+    void shouldApplyPendingMigrationsOnceAndCopyInChunks() throws Exception {
+        assertEquals(1, new SchemaMigrator(dbUrl, List.of(CREATE), 3).migrate());
+        assertEquals(1, new SchemaMigrator(dbUrl, List.of(CREATE, COPY), 3).migrate());
+        assertEquals(0, new SchemaMigrator(dbUrl, List.of(CREATE, COPY), 3).migrate());
+
+        assertEquals(11, queryInt("SELECT COUNT(*) FROM squares"));
+        assertEquals(121, queryInt("SELECT square FROM squares WHERE n = 11"));
+        assertEquals(2, queryInt("PRAGMA user_version"));
+        assertEquals(2, queryInt("SELECT COUNT(*) FROM schema_migrations"));
+    }
+
+    @Test
+    void shouldRefuseMigrationChangedAfterItWasApplied() {
+        new SchemaMigrator(dbUrl, List.of(CREATE)).migrate();
+
+        Migration edited = new Migration(1, "numbers", new Sql("CREATE TABLE IF NOT EXISTS numbers (n TEXT)"));
+        RuntimeException e = assertThrows(IllegalStateException.class,
+                () -> new SchemaMigrator(dbUrl, List.of(edited, COPY)).migrate());
+        assertTrue(e.getMessage().contains("changed"));
+    }
+
+    @Test
+    void shouldAcceptAMigrationThatNamesTheDefinitionItReplaces() throws Exception {
+        new SchemaMigrator(dbUrl, List.of(CREATE)).migrate();
+
+        Migration fixed = new Migration(1, "numbers", new Sql("CREATE TABLE IF NOT EXISTS numbers (n INTEGER)"))
+                .replacing(CREATE.checksum());
+        assertEquals(1, new SchemaMigrator(dbUrl, List.of(fixed, COPY)).migrate());
+        assertEquals(1, queryInt("SELECT COUNT(*) FROM schema_migrations WHERE checksum = '" + fixed.checksum()
+                + "'"));
+    }
+
+    @Test
+    void shouldMigrateRealSchemaTwiceWithoutChanges() throws Exception {
+        SchemaInitializer.initialize(dbUrl);
+        assertEquals(0, new SchemaMigrator(dbUrl, SchemaInitializer.MIGRATIONS).migrate());
+        assertEquals(SchemaInitializer.MIGRATIONS.size(), queryInt("PRAGMA user_version"));
+    }
+
+    private int queryInt(String sql) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(dbUrl);
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.schoolevents.adapter.out.persistence;
+
+import com.schoolevents.domain.model.QuotaLimits;
+import com.schoolevents.domain.port.out.QuotaLedgerPort.Admission;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqliteQuotaLedgerTest {
+
+    // 10:00 Pacific
+    private static final Instant MORNING = Instant.parse("2026-03-02T18:00:00Z");
+
+    private File dbFile;
+    private String dbUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dbFile = Files.createTempFile("quota", ".db").toFile();
+        dbUrl = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        SchemaInitializer.initialize(dbUrl);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dbFile.delete();
+    }
+
+    private SqliteQuotaLedger ledger(QuotaLimits limits, Instant now) {
+        return new SqliteQuotaLedger(dbUrl, "model", limits, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    void shouldAskToWaitWhenTheMinuteLimitIsReached() {
+        QuotaLimits limits = new QuotaLimits(2, 0, 100, 0);
+
+        assertTrue(ledger(limits, MORNING).tryAcquire(100).isGranted());
+        assertTrue(ledger(limits, MORNING.plusSeconds(20)).tryAcquire(100).isGranted());
+        Admission third = ledger(limits, MORNING.plusSeconds(30)).tryAcquire(100);
+
+        assertFalse(third.isGranted());
+        assertFalse(third.isExhausted());
+        assertEquals(Duration.ofSeconds(30), third.retryAfter());
+        assertTrue(ledger(limits, MORNING.plusSeconds(61)).tryAcquire(100).isGranted());
+    }
+
+    @Test
+    void shouldKeepTheDailyAllowanceAcrossRunsUntilMidnightPacific() {
+        QuotaLimits limits = new QuotaLimits(0, 0, 3, 0);
+        for (int run = 0; run < 3; run++) {
+            assertTrue(ledger(limits, MORNING.plusSeconds(3600L * run)).tryAcquire(10).isGranted());
+        }
+
+        assertEquals(0, ledger(limits, MORNING.plusSeconds(4 * 3600)).remainingRequestsToday());
+        assertTrue(ledger(limits, MORNING.plusSeconds(4 * 3600)).tryAcquire(10).isExhausted());
+        // 08:00 UTC the next day is midnight Pacific
+        Instant nextDay = Instant.parse("2026-03-03T08:00:00Z");
+        assertEquals(3, ledger(limits, nextDay).remainingRequestsToday());
+    }
+
+    @Test
+    void shouldCountRecordedTokensInsteadOfTheEstimate() {
+        QuotaLimits limits = new QuotaLimits(0, 1000, 0, 0);
+        SqliteQuotaLedger ledger = ledger(limits, MORNING);
+
+        Admission first = ledger.tryAcquire(900);
+        assertFalse(ledger.tryAcquire(200).isGranted());
+
+        ledger.recordTokens(first.reservationId(), 300);
+        assertTrue(ledger.tryAcquire(200).isGranted());
+    }
+
+    @Test
+    void shouldNotGrantMoreThanTheLimitToConcurrentProcesses() throws Exception {
+        QuotaLimits limits = new QuotaLimits(0, 0, 5, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> attempts = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                // Separate ledgers, each with its own connections, as separate processes would have
+                attempts.add(() -> ledger(limits, MORNING).tryAcquire(10).isGranted());
+            }
+            int granted = 0;
+            for (Future<Boolean> result : executor.invokeAll(attempts)) {
+                if (result.get()) {
+                    granted++;
+                }
+            }
+            assertEquals(5, granted);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
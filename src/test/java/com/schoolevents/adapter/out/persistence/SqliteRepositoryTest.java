@@ -8,7 +8,14 @@ import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -76,6 +83,176 @@ class SqliteRepositoryTest {
         assertEquals(Event.Status.CANCELLED, foundNewKey.get().status());
     }
 
+    @Test
+    void shouldMoveTheSpanWhenAnUpsertReschedulesAnEvent() {
+        LocalDateTime before = LocalDateTime.of(2026, 3, 5, 9, 0);
+        LocalDateTime after = LocalDateTime.of(2026, 3, 12, 9, 0);
+        eventRepository.save(new Event("moved", "Trip", before, null, false, "", 0.9, Event.Status.ACTIVE, false,
+                "email1", null, null));
+
+        eventRepository.save(new Event("moved", "Trip", after, null, false, "", 0.9, Event.Status.UPDATED, false,
+                "email2", null, null));
+
+        assertTrue(eventRepository.findOverlapping(before.minusHours(1), before.plusHours(1)).isEmpty());
+        assertEquals(List.of("moved"), eventRepository.findOverlapping(after.minusHours(1), after.plusHours(1))
+                .stream().map(Event::id).toList());
+    }
+
+    @Test
+    void shouldStreamEventsInStartOrder() {
+        LocalDateTime later = LocalDateTime.of(2026, 3, 5, 18, 30);
+        LocalDateTime earlier = LocalDateTime.of(2026, 3, 4, 9, 0, 15);
+        eventRepository.save(new Event("b", "Concert", later, later.plusHours(2), false, "", 0.9,
+                Event.Status.ACTIVE, false, "email1", "Spring concert", earlier));
+        eventRepository.save(new Event("a", "Assembly", earlier, null, false, "", 0.9, Event.Status.ACTIVE, false,
+                "email1", null, null));
+
+        List<Event> streamed = new ArrayList<>();
+        eventRepository.forEachEvent(streamed::add);
+
+        assertEquals(List.of("a", "b"), streamed.stream().map(Event::id).toList());
+        assertEquals(earlier, streamed.get(0).startDate());
+        assertEquals(later.plusHours(2), streamed.get(1).endDate());
+        assertEquals(earlier, streamed.get(1).sourceEmailReceivedAt());
+        assertEquals("Spring concert", streamed.get(0).sourceEmailSubject());
+    }
+
+    @Test
+    void shouldApplyUpsertsAndDeletesTogether() {
+        LocalDateTime day = LocalDateTime.of(2026, 3, 5, 9, 0);
+        eventRepository.save(new Event("keep", "Assembly", day, null, false, null, 0.9, Event.Status.ACTIVE, false,
+                "email1", null, null));
+        eventRepository.save(new Event("drop", "Assembly", day, null, false, "Notes", 0.9, Event.Status.ACTIVE,
+                false, "email2", null, null));
+
+        eventRepository.applyChanges(
+                List.of(new Event("keep", "Assembly", day, null, false, "Notes", 0.9, Event.Status.ACTIVE, false,
+                        "email1", null, null)),
+                List.of("drop"));
+
+        List<Event> all = eventRepository.findAll();
+        assertEquals(1, all.size());
+        assertEquals("keep", all.get(0).id());
+        assertEquals("Notes", all.get(0).notes());
+    }
+
+    // The events table before migration 2, with dates as text
+    private static final String LEGACY_EVENTS = "CREATE TABLE events (id TEXT PRIMARY KEY, title TEXT NOT NULL, "
+            + "start_date TEXT NOT NULL, end_date TEXT, all_day INTEGER, notes TEXT, confidence REAL, status TEXT, "
+            + "source_email_id TEXT, source_email_subject TEXT, source_email_received_at TEXT, "
+            + "is_recurring INTEGER DEFAULT 0)";
+
+    @Test
+    void shouldStoreEventsThatEndBeforeTheyStart() {
+        LocalDateTime start = LocalDateTime.of(2026, 3, 5, 15, 0);
+        // The extractor read "3pm - 1pm"; the store keeps what it was given
+        Event inverted = new Event("inverted", "Fair", start, start.minusHours(2), false, null, 0.9,
+                Event.Status.ACTIVE, false, "email1", null, null);
+
+        eventRepository.applyChanges(List.of(inverted, new Event("other", "Assembly", start, null, false, null, 0.9,
+                Event.Status.ACTIVE, false, "email1", null, null)), List.of());
+
+        assertEquals(2, eventRepository.findAll().size());
+        assertEquals(List.of("inverted", "other"), eventRepository.findOverlapping(start.minusMinutes(1),
+                start.plusMinutes(1)).stream().map(Event::id).sorted().toList());
+    }
+
+    @Test
+    void shouldMigrateAnEventThatEndsBeforeItStarts() throws Exception {
+        File legacyFile = Files.createTempFile("legacy-events", ".db").toFile();
+        String legacyUrl = "jdbc:sqlite:" + legacyFile.getAbsolutePath();
+        try {
+            try (Connection conn = DriverManager.getConnection(legacyUrl);
+                    Statement stmt = conn.createStatement()) {
+                stmt.execute(LEGACY_EVENTS);
+                stmt.execute("INSERT INTO events VALUES ('c', 'Fair', '2026-03-05T15:00', '2026-03-05T13:00', 0, "
+                        + "NULL, 0.9, 'ACTIVE', 'msg1', 'Fair', '2026-01-10T08:30:15', 0)");
+            }
+
+            SchemaInitializer.initialize(legacyUrl);
+
+            try (Connection conn = DriverManager.getConnection(legacyUrl);
+                    Statement stmt = conn.createStatement();
+                    ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+                assertEquals(SchemaInitializer.MIGRATIONS.size(), rs.getInt(1));
+            }
+            assertEquals(1, new SqliteEventRepository(legacyUrl).findOverlapping(
+                    LocalDateTime.of(2026, 3, 5, 14, 59), LocalDateTime.of(2026, 3, 5, 15, 1)).size());
+        } finally {
+            legacyFile.delete();
+        }
+    }
+
+    @Test
+    void shouldRefuseToMigrateEventsWhoseDatesCannotBeConverted() throws Exception {
+        File legacyFile = Files.createTempFile("legacy-events", ".db").toFile();
+        String legacyUrl = "jdbc:sqlite:" + legacyFile.getAbsolutePath();
+        try {
+            try (Connection conn = DriverManager.getConnection(legacyUrl);
+                    Statement stmt = conn.createStatement()) {
+                stmt.execute(LEGACY_EVENTS);
+                stmt.execute("INSERT INTO events VALUES ('a', 'Assembly', '2026-03-12T09:00', NULL, 0, NULL, 0.9, "
+                        + "'ACTIVE', 'msg1', 'Assembly', '2026-01-10T08:30:15', 0)");
+                stmt.execute("INSERT INTO events VALUES ('b', 'Concert', '2026-03-12 9:00', NULL, 0, NULL, 0.9, "
+                        + "'ACTIVE', 'msg1', 'Assembly', '2026-01-10T08:30:15', 0)");
+            }
+
+            RuntimeException failure = assertThrows(RuntimeException.class,
+                    () -> SchemaInitializer.initialize(legacyUrl));
+            assertTrue(failure.getCause().getMessage().contains("b (2026-03-12 9:00)"));
+
+            try (Connection conn = DriverManager.getConnection(legacyUrl);
+                    Statement stmt = conn.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM events WHERE start_date IS NOT NULL")) {
+                    assertEquals(2, rs.getInt(1));
+                }
+                try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+                    assertEquals(1, rs.getInt(1));
+                }
+            }
+        } finally {
+            legacyFile.delete();
+        }
+    }
+
+    @Test
+    void shouldMigrateTextSchemaToTypedColumns() throws Exception {
+        File legacyFile = Files.createTempFile("legacy-events", ".db").toFile();
+        String legacyUrl = "jdbc:sqlite:" + legacyFile.getAbsolutePath();
+        try {
+            try (Connection conn = DriverManager.getConnection(legacyUrl);
+                    Statement stmt = conn.createStatement()) {
+                stmt.execute(LEGACY_EVENTS);
+                stmt.execute("INSERT INTO events VALUES ('a', 'Half term', '2026-02-16T00:00', '2026-02-20T00:00', 1, "
+                        + "NULL, 0.9, 'SCHEDULED', 'msg1', 'Dates', '2026-01-10T08:30:15', 0)");
+                stmt.execute("INSERT INTO events VALUES ('b', 'Concert', '2026-03-05T18:30', NULL, 0, 'Hall', 0.8, "
+                        + "'CANCELLED', 'msg1', 'Dates', '2026-01-10T08:30:15', 1)");
+            }
+
+            SchemaInitializer.initialize(legacyUrl);
+            SchemaInitializer.initialize(legacyUrl);
+
+            SqliteEventRepository migrated = new SqliteEventRepository(legacyUrl);
+            List<Event> events = migrated.findAll();
+            assertEquals(List.of("a", "b"), events.stream().map(Event::id).toList());
+            assertEquals(new Event("a", "Half term", LocalDateTime.of(2026, 2, 16, 0, 0),
+                    LocalDateTime.of(2026, 2, 20, 0, 0), true, null, 0.9, Event.Status.SCHEDULED, false, "msg1",
+                    "Dates", LocalDateTime.of(2026, 1, 10, 8, 30, 15)), events.get(0));
+            assertEquals(Event.Status.CANCELLED, events.get(1).status());
+            assertTrue(events.get(1).isRecurring());
+            assertEquals(1, migrated.findOverlapping(LocalDateTime.of(2026, 2, 18, 0, 0),
+                    LocalDateTime.of(2026, 2, 19, 0, 0)).size());
+
+            try (Connection conn = DriverManager.getConnection(legacyUrl);
+                    Statement stmt = conn.createStatement();
+                    ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM source_emails")) {
+                assertEquals(1, rs.getInt(1));
+            }
+        } finally {
+            legacyFile.delete();
+        }
+    }
+
     @Test
     void shouldTrackProcessedEmails() {
         assertFalse(emailRepository.isProcessed("msg1"));
@@ -84,4 +261,17 @@ class SqliteRepositoryTest {
 
         assertTrue(emailRepository.isProcessed("msg1"));
     }
+
+    @Test
+    void shouldCountDeferralsUntilTheEmailIsProcessed() {
+        emailRepository.recordDeferred(List.of("msg1", "msg2"));
+        emailRepository.recordDeferred(List.of("msg1"));
+
+        assertEquals(Map.of("msg1", 2, "msg2", 1), emailRepository.deferralCounts(List.of("msg1", "msg2", "msg3")));
+        assertEquals(Map.of("msg2", 1), emailRepository.deferralCounts(List.of("msg2")));
+
+        emailRepository.markAsProcessed("msg1");
+
+        assertEquals(Map.of("msg2", 1), emailRepository.deferralCounts(List.of("msg1", "msg2")));
+    }
 }
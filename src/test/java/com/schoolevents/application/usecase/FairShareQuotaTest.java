@@ -0,0 +1,79 @@
+package com.schoolevents.application.usecase;
+
+import com.schoolevents.domain.port.out.QuotaLedgerPort;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FairShareQuotaTest {
+
+    /** A day's quota with no per-minute limit. */
+    private static class DailyLedger implements QuotaLedgerPort {
+        private int remaining;
+        private long nextId;
+
+        DailyLedger(int remaining) {
+            this.remaining = remaining;
+        }
+
+        @Override
+        public synchronized Admission tryAcquire(long estimatedTokens) {
+            if (remaining == 0) {
+                return Admission.exhausted();
+            }
+            remaining--;
+            return Admission.granted(++nextId);
+        }
+
+        @Override
+        public void recordTokens(long reservationId, long tokens) {
+        }
+
+        @Override
+        public synchronized int remainingRequestsToday() {
+            return remaining;
+        }
+    }
+
+    @Test
+    void shouldSplitWhatIsLeftBetweenTheTenantsStillToRun() {
+        DailyLedger ledger = new DailyLedger(10);
+
+        FairShareQuota first = FairShareQuota.equalShare(ledger, 3);
+
+        assertEquals(4, first.remainingRequestsToday());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(first.tryAcquire(100).isGranted());
+        }
+        assertTrue(first.tryAcquire(100).isExhausted());
+        assertEquals(6, ledger.remainingRequestsToday());
+    }
+
+    @Test
+    void shouldLeaveUnusedShareToLaterTenants() {
+        DailyLedger ledger = new DailyLedger(9);
+
+        FairShareQuota first = FairShareQuota.equalShare(ledger, 3);
+        first.tryAcquire(100);
+        FairShareQuota second = FairShareQuota.equalShare(ledger, 2);
+
+        assertEquals(4, second.remainingRequestsToday());
+    }
+
+    @Test
+    void shouldNotPromiseMoreThanTheSharedLedgerHas() {
+        DailyLedger ledger = new DailyLedger(4);
+        FairShareQuota quota = new FairShareQuota(ledger, 10);
+
+        assertEquals(4, quota.remainingRequestsToday());
+        ledger.tryAcquire(0);
+        assertEquals(3, quota.remainingRequestsToday());
+    }
+
+    @Test
+    void shouldStayUnlimitedWhenTheLedgerIs() {
+        DailyLedger ledger = new DailyLedger(Integer.MAX_VALUE);
+
+        assertEquals(Integer.MAX_VALUE, FairShareQuota.equalShare(ledger, 50).remainingRequestsToday());
+    }
+}
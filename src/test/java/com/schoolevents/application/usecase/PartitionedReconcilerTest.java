@@ -0,0 +1,88 @@
+package com.schoolevents.application.usecase;
+
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.port.out.EventRepositoryPort;
+import com.schoolevents.domain.service.EventReconciliationService;
+import com.schoolevents.domain.service.EventReconciliationService.ReconciliationResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PartitionedReconcilerTest {
+
+    private EventRepositoryPort eventRepository;
+    private StagedEventRepository stagedRepository;
+    private PartitionedReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        eventRepository = mock(EventRepositoryPort.class);
+        stagedRepository = new StagedEventRepository(eventRepository);
+        reconciler = new PartitionedReconciler(new EventReconciliationService(stagedRepository), stagedRepository,
+                4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reconciler.shutdown();
+    }
+
+    private static Event event(String title, LocalDate day, int hour) {
+        return new Event(null, title, day.atTime(hour, 0), null, false, null, 0.9, Event.Status.ACTIVE, false,
+                "email1", "Subject", day.atStartOfDay());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReconcileDaysInParallelAndCommitOnce() {
+        List<Event> events = new ArrayList<>();
+        LocalDate start = LocalDate.of(2026, 1, 5);
+        for (int d = 0; d < 100; d++) {
+            LocalDate day = start.plusDays(d);
+            events.add(event("Swimming Year 4", day, 9));
+            events.add(event("Swimming year 4", day, 10));
+            events.add(event("Parents Evening", day, 18));
+        }
+
+        List<ReconciliationResult> results = reconciler.reconcileAll(events);
+
+        for (int d = 0; d < 100; d++) {
+            assertEquals(ReconciliationResult.CREATED, results.get(d * 3));
+            assertEquals(ReconciliationResult.UPDATED, results.get(d * 3 + 1));
+            assertEquals(ReconciliationResult.CREATED, results.get(d * 3 + 2));
+        }
+        verify(eventRepository, never()).save(any());
+
+        ArgumentCaptor<List> upserts = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List> deletes = ArgumentCaptor.forClass(List.class);
+        verify(eventRepository, times(1)).applyChanges(upserts.capture(), deletes.capture());
+        assertEquals(200, upserts.getValue().size());
+        assertTrue(deletes.getValue().isEmpty());
+    }
+
+    @Test
+    void shouldShowStagedChangesToReads() {
+        LocalDate day = LocalDate.of(2026, 3, 2);
+        Event stored = new Event("stored", "Assembly", day.atTime(9, 0), null, false, null, 0.9,
+                Event.Status.ACTIVE, false, "email1", "Subject", null);
+        when(eventRepository.findOverlapping(any(), any())).thenReturn(List.of(stored));
+
+        stagedRepository.delete("stored");
+        stagedRepository.save(new Event("staged", "Concert", day.atTime(14, 0), null, false, null, 0.9,
+                Event.Status.ACTIVE, false, "email2", "Subject", null));
+
+        List<Event> found = stagedRepository.findOverlapping(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        assertEquals(List.of("Concert"), found.stream().map(Event::title).toList());
+        assertEquals(2, stagedRepository.flush());
+        assertEquals(0, stagedRepository.flush());
+    }
+}
@@ -1,19 +1,30 @@
 package com.schoolevents.application.usecase;
 
+import com.schoolevents.domain.exception.QuotaExhaustedException;
 import com.schoolevents.domain.model.EmailMessage;
 import com.schoolevents.domain.model.Event;
 import com.schoolevents.domain.port.out.AiEventExtractorPort;
 import com.schoolevents.domain.port.out.EmailFetcherPort;
 import com.schoolevents.domain.port.out.ProcessedEmailRepositoryPort;
+import com.schoolevents.domain.port.out.QuotaLedgerPort;
+import com.schoolevents.domain.service.EmailPriorityScheduler;
 import com.schoolevents.domain.service.EventReconciliationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InOrder;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 class ProcessInboxUseCaseTest {
@@ -43,8 +54,10 @@ class ProcessInboxUseCaseTest {
 
         when(emailFetcher.fetchUnprocessedEmails()).thenReturn(List.of(email));
         when(aiExtractor.extractEvents(anyList())).thenReturn(List.of(event));
+        when(reconciliationService.reconcile(event))
+                .thenReturn(EventReconciliationService.ReconciliationResult.CREATED);
 
-        useCase.execute();
+        useCase.execute(false);
 
         InOrder inOrder = inOrder(emailFetcher, aiExtractor, reconciliationService, processedEmailRepository);
         inOrder.verify(emailFetcher).fetchUnprocessedEmails();
@@ -61,11 +74,161 @@ class ProcessInboxUseCaseTest {
         when(emailFetcher.fetchUnprocessedEmails()).thenReturn(List.of(email));
         when(aiExtractor.extractEvents(anyList())).thenThrow(new RuntimeException("AI error"));
 
-        useCase.execute();
+        useCase.execute(false);
 
         verify(emailFetcher).fetchUnprocessedEmails();
         verify(aiExtractor).extractEvents(anyList());
         verify(reconciliationService, never()).reconcile(any());
         verify(processedEmailRepository, never()).markAsProcessed("1");
     }
+
+    /** Remembers processed and deferred emails the way the SQLite repository does. */
+    private static final class InMemoryProcessedEmails implements ProcessedEmailRepositoryPort {
+        final Set<String> processed = new HashSet<>();
+        final Map<String, Integer> deferrals = new HashMap<>();
+
+        @Override
+        public boolean isProcessed(String emailId) {
+            return processed.contains(emailId);
+        }
+
+        @Override
+        public void markAsProcessed(String emailId) {
+            processed.add(emailId);
+            deferrals.remove(emailId);
+        }
+
+        @Override
+        public Map<String, Integer> deferralCounts(Collection<String> emailIds) {
+            Map<String, Integer> counts = new HashMap<>(deferrals);
+            counts.keySet().retainAll(emailIds);
+            return counts;
+        }
+
+        @Override
+        public void recordDeferred(Collection<String> emailIds) {
+            emailIds.forEach(id -> deferrals.merge(id, 1, Integer::sum));
+        }
+    }
+
+    /** Allows a fixed number of requests per run; refuses nothing itself. */
+    private static final class FixedQuota implements QuotaLedgerPort {
+        int remaining;
+
+        FixedQuota(int remaining) {
+            this.remaining = remaining;
+        }
+
+        @Override
+        public Admission tryAcquire(long estimatedTokens) {
+            return Admission.granted(1);
+        }
+
+        @Override
+        public void recordTokens(long reservationId, long tokens) {
+        }
+
+        @Override
+        public int remainingRequestsToday() {
+            return remaining;
+        }
+    }
+
+    /** Records the batches it is asked for and finds no events in them. */
+    private static final class RecordingExtractor implements AiEventExtractorPort {
+        final List<List<String>> batches = new ArrayList<>();
+        int exhaustAfter = Integer.MAX_VALUE;
+        Set<String> local = Set.of();
+
+        @Override
+        public boolean requiresModel(EmailMessage email) {
+            return !local.contains(email.id());
+        }
+
+        @Override
+        public List<Event> extractEvents(List<EmailMessage> emails) {
+            if (batches.size() >= exhaustAfter) {
+                throw new QuotaExhaustedException("Daily quota used up");
+            }
+            batches.add(emails.stream().map(EmailMessage::id).toList());
+            return List.of();
+        }
+    }
+
+    private static List<EmailMessage> emails(String... ids) {
+        List<EmailMessage> emails = new ArrayList<>();
+        for (String id : ids) {
+            emails.add(new EmailMessage(id, "Subj", null, "Body", "", List.of(), "sender@example.com", "en"));
+        }
+        return emails;
+    }
+
+    private static String[] ids(int from, int to) {
+        return IntStream.rangeClosed(from, to).mapToObj(String::valueOf).toArray(String[]::new);
+    }
+
+    private ProcessInboxUseCase deferringUseCase(List<EmailMessage> inbox, RecordingExtractor extractor,
+            InMemoryProcessedEmails processed, int quota) {
+        EmailFetcherPort fetcher = () -> inbox;
+        ProcessInboxUseCase deferring = new ProcessInboxUseCase(fetcher, extractor, reconciliationService, processed);
+        deferring.setQuotaLedger(new FixedQuota(quota));
+        deferring.setPriorityScheduler(new EmailPriorityScheduler(Set.of()));
+        return deferring;
+    }
+
+    @Test
+    void shouldDeferBatchesThatDoNotFitTodaysQuota() {
+        RecordingExtractor extractor = new RecordingExtractor();
+        InMemoryProcessedEmails processed = new InMemoryProcessedEmails();
+
+        deferringUseCase(emails(ids(1, 7)), extractor, processed, 1).execute(false);
+
+        assertEquals(List.of(List.of("1", "2", "3", "4", "5")), extractor.batches);
+        assertEquals(Set.of("1", "2", "3", "4", "5"), processed.processed);
+        assertEquals(Map.of("6", 1, "7", 1), processed.deferrals);
+    }
+
+    @Test
+    void shouldNotDeferEmailsExtractedWithoutTheModel() {
+        RecordingExtractor extractor = new RecordingExtractor();
+        extractor.local = Set.of(ids(6, 11));
+        InMemoryProcessedEmails processed = new InMemoryProcessedEmails();
+
+        deferringUseCase(emails(ids(1, 12)), extractor, processed, 1).execute(false);
+
+        assertEquals(List.of(List.of(ids(1, 5)), List.of(ids(6, 10)), List.of("11")), extractor.batches);
+        assertEquals(Set.of(ids(1, 11)), processed.processed);
+        assertEquals(Map.of("12", 1), processed.deferrals);
+    }
+
+    @Test
+    void shouldDeferTheRestOfTheRunWhenTheQuotaRunsOut() {
+        RecordingExtractor extractor = new RecordingExtractor();
+        extractor.exhaustAfter = 1;
+        InMemoryProcessedEmails processed = new InMemoryProcessedEmails();
+
+        deferringUseCase(emails(ids(1, 12)), extractor, processed, 10).execute(false);
+
+        assertEquals(1, extractor.batches.size());
+        assertEquals(Set.of("1", "2", "3", "4", "5"), processed.processed);
+        assertEquals(Set.of(ids(6, 12)), processed.deferrals.keySet());
+    }
+
+    @Test
+    void shouldExtractDeferredEmailsFirstNextRunAndClearTheirDeferral() {
+        InMemoryProcessedEmails processed = new InMemoryProcessedEmails();
+        deferringUseCase(emails(ids(1, 6)), new RecordingExtractor(), processed, 1).execute(false);
+        assertEquals(Map.of("6", 1), processed.deferrals);
+
+        // Five newer emails arrive ahead of it in fetch order; without the deferral it would wait again
+        List<EmailMessage> inbox = emails(ids(7, 11));
+        inbox.addAll(emails("6"));
+        RecordingExtractor extractor = new RecordingExtractor();
+        deferringUseCase(inbox, extractor, processed, 1).execute(false);
+
+        assertEquals("6", extractor.batches.get(0).get(0));
+        assertTrue(processed.isProcessed("6"));
+        assertFalse(processed.deferrals.containsKey("6"));
+        assertEquals(Map.of("11", 1), processed.deferrals);
+    }
 }
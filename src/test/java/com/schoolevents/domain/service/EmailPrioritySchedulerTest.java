@@ -0,0 +1,76 @@
+package com.schoolevents.domain.service;
+
+import com.schoolevents.domain.model.EmailMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailPrioritySchedulerTest {
+
+    // A Monday
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 2, 7, 0);
+
+    private static EmailMessage email(String id, String subject, String body, LocalDateTime receivedAt,
+            String sender) {
+        return new EmailMessage(id, subject, receivedAt, body, "", List.of(), sender, "en");
+    }
+
+    private static final EmailMessage OLD_NEWSLETTER = email("newsletter", "Spring newsletter",
+            "Our Christmas fair on 12th December raised £800.", NOW.minusDays(1), "office@school.example");
+    private static final EmailMessage TRIP_TOMORROW = email("trip", "Year 4 trip",
+            "The bus leaves at 8.30 tomorrow, please be on time.", NOW.minusHours(12), "teacher@school.example");
+    private static final EmailMessage CANCELLED = email("cancelled", "Swimming",
+            "Swimming on Thursday is cancelled because the pool is closed.", NOW.minusDays(3),
+            "office@school.example");
+    private static final EmailMessage UNDATED = email("undated", "Lost property",
+            "Please check the lost property box.", NOW.minusDays(2), "office@school.example");
+
+    @Test
+    void shouldPutNearTermAndCancellationMailBeforeOldNewsletters() {
+        EmailPriorityScheduler scheduler = new EmailPriorityScheduler(Set.of());
+
+        List<List<EmailMessage>> batches = scheduler.plan(
+                List.of(OLD_NEWSLETTER, UNDATED, CANCELLED, TRIP_TOMORROW), Map.of(), 2, NOW);
+
+        assertEquals(2, batches.size());
+        assertEquals(Set.of("trip", "cancelled"), Set.of(batches.get(0).get(0).id(), batches.get(0).get(1).id()));
+        assertEquals("newsletter", batches.get(1).get(1).id());
+    }
+
+    @Test
+    void shouldReadWelshDatesAndRelativeDays() {
+        EmailPriorityScheduler scheduler = new EmailPriorityScheduler(Set.of());
+        EmailMessage welsh = email("cy", "Cyngerdd", "Bydd y cyngerdd ar 5 Mawrth am 6yh.", NOW.minusDays(5), "");
+        EmailMessage stale = email("stale", "Concert", "The concert is tomorrow.", NOW.minusDays(30), "");
+
+        assertTrue(scheduler.score(welsh, 0, NOW) > scheduler.score(stale, 0, NOW));
+    }
+
+    @Test
+    void shouldRaiseDeferredEmailsAndPrioritySenders() {
+        EmailPriorityScheduler scheduler = new EmailPriorityScheduler(Set.of("Head@school.example"));
+        EmailMessage fromHead = email("head", "Lost property", "Please check the box.", NOW.minusDays(2),
+                "head@school.example");
+
+        assertTrue(scheduler.score(fromHead, 0, NOW) > scheduler.score(UNDATED, 0, NOW));
+        assertTrue(scheduler.score(UNDATED, 2, NOW) > scheduler.score(UNDATED, 0, NOW));
+
+        List<List<EmailMessage>> batches = scheduler.plan(List.of(UNDATED, OLD_NEWSLETTER),
+                Map.of("newsletter", 3), 1, NOW);
+        assertEquals("newsletter", batches.get(0).get(0).id());
+    }
+
+    @Test
+    void shouldNotTakeTimesForDates() {
+        EmailPriorityScheduler scheduler = new EmailPriorityScheduler(Set.of());
+        EmailMessage withTime = email("time", "Lost property", "The box is out at 3.15 each day.", NOW.minusDays(2),
+                "");
+
+        assertEquals(scheduler.score(UNDATED, 0, NOW), scheduler.score(withTime, 0, NOW), 1e-9);
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -42,6 +43,30 @@ class EventReconciliationServiceTest {
         assertEquals(Event.Status.ACTIVE, saved.status());
     }
 
+    @Test
+    void shouldHandleExactRepeatByIdWithoutFuzzyLookup() {
+        LocalDateTime start = LocalDateTime.of(2026, 3, 2, 9, 0);
+        LocalDateTime received = LocalDateTime.of(2026, 2, 20, 8, 0);
+        String id = EventIds.of("Math Fair", start, "msg1");
+        Event stored = new Event(id, "Math Fair", start, null, false, "Fun", 0.9, Event.Status.ACTIVE, false,
+                "msg1", "News", received);
+        when(eventRepository.findById(id)).thenReturn(Optional.of(stored));
+
+        Event repeat = new Event(EventIds.of("Math fair!", start, "msg1"), "Math Fair", start, null, false, "Fun",
+                0.9, Event.Status.SCHEDULED, false, "msg1", "News", received);
+        assertEquals(EventReconciliationService.ReconciliationResult.NO_ACTION, service.reconcile(repeat));
+        verify(eventRepository, never()).save(any());
+        verify(eventRepository, never()).findOverlapping(any(), any());
+
+        Event changed = new Event(id, "Math Fair", start, null, false, "Bring a cake", 0.9, Event.Status.SCHEDULED,
+                false, "msg1", "News", received);
+        assertEquals(EventReconciliationService.ReconciliationResult.UPDATED, service.reconcile(changed));
+        ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+        verify(eventRepository).save(captor.capture());
+        assertEquals(id, captor.getValue().id());
+        assertEquals("Bring a cake", captor.getValue().notes());
+    }
+
     @Test
     void shouldNotCreateCancelledEventIfNotFound() {
         Event incoming = new Event(null, "Math Fair", LocalDateTime.now(), null, false, "Fun", 0.9,
@@ -63,7 +88,7 @@ class EventReconciliationServiceTest {
         Event incoming = new Event(null, "Math Fair", start, null, false, "New Notes", 0.9, Event.Status.ACTIVE,
                 false, "msg2", null, null);
 
-        when(eventRepository.findByTitleAndStartDate("Math Fair", start)).thenReturn(Optional.of(existing));
+        when(eventRepository.findOverlapping(any(), any())).thenReturn(List.of(existing));
 
         service.reconcile(incoming);
 
@@ -86,7 +111,7 @@ class EventReconciliationServiceTest {
                 "msg2",
                 null, null);
 
-        when(eventRepository.findByTitleAndStartDate("Math Fair", start)).thenReturn(Optional.of(existing));
+        when(eventRepository.findOverlapping(any(), any())).thenReturn(List.of(existing));
 
         service.reconcile(incoming);
 
@@ -97,4 +122,49 @@ class EventReconciliationServiceTest {
         assertEquals(existingId, saved.id());
         assertEquals(Event.Status.CANCELLED, saved.status());
     }
+
+    @Test
+    void shouldMatchShiftedMultiDayEventAcrossSpan() {
+        Event existing = new Event("half-term", "Half Term", LocalDateTime.of(2026, 2, 16, 0, 0),
+                LocalDateTime.of(2026, 2, 20, 0, 0), true, "", 0.9, Event.Status.ACTIVE, false, "msg1", null,
+                LocalDateTime.of(2026, 1, 5, 9, 0));
+        Event oneDay = new Event("library", "Library", LocalDateTime.of(2026, 2, 17, 9, 0), null, false, "", 0.9,
+                Event.Status.ACTIVE, false, "msg1", null, LocalDateTime.of(2026, 1, 5, 9, 0));
+        Event incoming = new Event(null, "Half term", LocalDateTime.of(2026, 2, 17, 0, 0),
+                LocalDateTime.of(2026, 2, 21, 0, 0), true, "", 0.9, Event.Status.ACTIVE, false, "msg2", null,
+                LocalDateTime.of(2026, 2, 1, 9, 0));
+
+        when(eventRepository.findOverlapping(LocalDateTime.of(2026, 2, 17, 0, 0), LocalDateTime.of(2026, 2, 22, 0, 0)))
+                .thenReturn(List.of(existing, oneDay));
+
+        assertEquals(EventReconciliationService.ReconciliationResult.UPDATED, service.reconcile(incoming));
+
+        ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+        verify(eventRepository).save(captor.capture());
+        assertEquals("half-term", captor.getValue().id());
+        assertEquals(LocalDateTime.of(2026, 2, 17, 0, 0), captor.getValue().startDate());
+        verify(eventRepository, never()).delete(any());
+    }
+
+    @Test
+    void shouldMoveRescheduledEventWhenCrossDayMatchingEnabled() {
+        Event existing = new Event("trip", "Year 3 trip to the zoo", LocalDateTime.of(2026, 3, 10, 9, 0), null,
+                false, "", 0.9, Event.Status.ACTIVE, false, "msg1", null, LocalDateTime.of(2026, 2, 1, 9, 0));
+        Event otherYear = new Event("trip5", "Year 5 trip to the zoo", LocalDateTime.of(2026, 3, 11, 9, 0), null,
+                false, "", 0.9, Event.Status.ACTIVE, false, "msg1", null, LocalDateTime.of(2026, 2, 1, 9, 0));
+        SimilarityBlocker blocker = new SimilarityBlocker();
+        blocker.add(existing);
+        blocker.add(otherYear);
+        service.enableCrossDayMatching(blocker, 14);
+
+        Event incoming = new Event(null, "Year 3 zoo trip", LocalDateTime.of(2026, 3, 17, 9, 0), null, false, "",
+                0.9, Event.Status.ACTIVE, false, "msg2", null, LocalDateTime.of(2026, 3, 5, 9, 0));
+
+        assertEquals(EventReconciliationService.ReconciliationResult.UPDATED, service.reconcile(incoming));
+
+        ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+        verify(eventRepository).save(captor.capture());
+        assertEquals("trip", captor.getValue().id());
+        assertEquals(LocalDateTime.of(2026, 3, 17, 9, 0), captor.getValue().startDate());
+    }
 }
@@ -0,0 +1,55 @@
+package com.schoolevents.domain.service;
+
+import com.schoolevents.domain.model.Event;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimilarityBlockerTest {
+
+    private static Event event(String id, String title) {
+        return event(id, title, LocalDateTime.of(2026, 3, 2, 9, 0));
+    }
+
+    private static Event event(String id, String title, LocalDateTime start) {
+        return new Event(id, title, start, null, false, "", 0.9, Event.Status.ACTIVE,
+                false, "msg-" + id, null, null);
+    }
+
+    @Test
+    void shouldBlockBilingualAndReworded() {
+        SimilarityBlocker blocker = new SimilarityBlocker();
+        blocker.add(event("en", "Year 3 Assembly"));
+        blocker.add(event("cy", "Gwasanaeth Blwyddyn 3"));
+        blocker.add(event("other", "PTA Christmas Fair"));
+
+        List<String> candidates = blocker.candidates(event("new", "Year 3 class assembly")).stream()
+                .map(Event::id).toList();
+
+        assertTrue(candidates.contains("en"));
+        assertTrue(candidates.contains("cy"));
+        assertFalse(candidates.contains("other"));
+        assertEquals(1.0, SimilarityBlocker.similarity(event("a", "Year 3 Assembly"),
+                event("b", "Gwasanaeth Bl 3")));
+    }
+
+    @Test
+    void shouldPairWithinShiftWindowOnceAndForgetRemovedEvents() {
+        SimilarityBlocker blocker = new SimilarityBlocker();
+        blocker.add(event("1", "Sports Day", LocalDateTime.of(2026, 6, 12, 9, 0)));
+        blocker.add(event("2", "Sports day!", LocalDateTime.of(2026, 6, 15, 9, 0)));
+        blocker.add(event("3", "Parents Evening", LocalDateTime.of(2026, 6, 12, 18, 0)));
+        blocker.add(event("4", "Sports Day", LocalDateTime.of(2027, 6, 11, 9, 0)));
+
+        List<Event[]> pairs = blocker.candidatePairs(7);
+        assertEquals(1, pairs.size());
+        assertEquals(3, blocker.candidatePairs(400).size());
+
+        blocker.remove("2");
+        assertTrue(blocker.candidatePairs(7).isEmpty());
+        assertEquals(3, blocker.size());
+    }
+}
@@ -0,0 +1,71 @@
+package com.schoolevents.infrastructure.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantRegistryTest {
+
+    @TempDir
+    Path dir;
+
+    private ConfigLoader shared() throws Exception {
+        File env = dir.resolve("shared.env").toFile();
+        Files.writeString(env.toPath(), """
+                SCHOOLEVENTS_TEST_SHARED=from-shared
+                GMAIL_USERNAME=main@example.com
+                UI_PASSWORD=main-secret
+                """);
+        return new ConfigLoader(env, null, Set.of());
+    }
+
+    private void tenant(String id, String env) throws Exception {
+        Files.createDirectories(dir.resolve("tenants").resolve(id));
+        Files.writeString(dir.resolve("tenants").resolve(id).resolve(".env"), env);
+    }
+
+    @Test
+    void shouldLoadTenantDirectoriesInNameOrder() throws Exception {
+        tenant("school-b", "GMAIL_USERNAME=b@example.com\n");
+        tenant("school-a", "GMAIL_USERNAME=a@example.com\n");
+        Files.createDirectories(dir.resolve("tenants").resolve("no-env"));
+        tenant("bad name", "GMAIL_USERNAME=c@example.com\n");
+
+        TenantRegistry registry = TenantRegistry.load(dir.resolve("tenants"), shared());
+
+        List<String> ids = registry.tenants().stream().map(TenantRegistry.Tenant::id).toList();
+        assertEquals(List.of("school-a", "school-b"), ids);
+        assertEquals("a@example.com", registry.tenants().get(0).config().get("GMAIL_USERNAME"));
+    }
+
+    @Test
+    void shouldFallBackToSharedSettingsButNeverShareAccountKeys() throws Exception {
+        tenant("family", "GMAIL_USERNAME=family@example.com\n");
+
+        TenantRegistry.Tenant tenant = TenantRegistry.load(dir.resolve("tenants"), shared()).tenants().get(0);
+
+        assertEquals("from-shared", tenant.config().get("SCHOOLEVENTS_TEST_SHARED"));
+        assertEquals("family@example.com", tenant.config().get("GMAIL_USERNAME"));
+        assertNull(tenant.config().get("UI_PASSWORD"));
+    }
+
+    @Test
+    void shouldKeepEachTenantsDataInItsOwnDirectory() throws Exception {
+        tenant("family", "GMAIL_USERNAME=family@example.com\n");
+        tenant("custom", "DB_URL=jdbc:sqlite:/data/custom.db\n");
+
+        List<TenantRegistry.Tenant> tenants = TenantRegistry.load(dir.resolve("tenants"), shared()).tenants();
+
+        assertEquals("jdbc:sqlite:/data/custom.db", tenants.get(0).dbUrl());
+        Path home = dir.resolve("tenants").resolve("family");
+        assertEquals("jdbc:sqlite:" + home.resolve("school_events.db"), tenants.get(1).dbUrl());
+        assertEquals(home.resolve("output").toString(), tenants.get(1).outputDir());
+    }
+}
@@ -9,6 +9,8 @@ import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
@@ -31,6 +33,25 @@ class AesEncryptionUtilTest {
         assertEquals(originalText, decrypted);
     }
 
+    @Test
+    void testStreamingEncryptionMatchesFormat() throws Exception {
+        String originalText = "[{\"title\": \"Sports Day\"}]".repeat(500);
+        String password = "superSecretPassword123";
+
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (OutputStream out = AesEncryptionUtil.encryptingStream(sink, password)) {
+            byte[] bytes = originalText.getBytes(StandardCharsets.UTF_8);
+            // Written in odd-sized chunks to exercise the Base64/cipher block boundaries
+            for (int i = 0; i < bytes.length; i += 1000) {
+                out.write(bytes, i, Math.min(1000, bytes.length - i));
+            }
+        }
+
+        String encrypted = sink.toString(StandardCharsets.US_ASCII);
+        assertTrue(encrypted.startsWith("v1|"));
+        assertEquals(originalText, manualDecrypt(encrypted, password));
+    }
+
     private String manualDecrypt(String encryptedData, String password) throws Exception {
         String[] parts = encryptedData.split("\\|"); // v1, salt, iv, ciphertext
         byte[] salt = Base64.getDecoder().decode(parts[1]);
@@ -0,0 +1,96 @@
+package com.schoolevents.launcher;
+
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.port.out.EventRepositoryPort;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class DuplicateCompactorTest {
+
+    private EventRepositoryPort eventRepository;
+    private final List<Event> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        eventRepository = mock(EventRepositoryPort.class);
+        doAnswer(invocation -> {
+            Consumer<Event> consumer = invocation.getArgument(0);
+            events.forEach(consumer);
+            return null;
+        }).when(eventRepository).forEachEvent(any());
+    }
+
+    private static Event event(String id, String title, LocalDateTime start, LocalDateTime end, String notes,
+            LocalDateTime receivedAt) {
+        return new Event(id, title, start, end, false, notes, 0.9, Event.Status.ACTIVE, false, "email-" + id,
+                "Subject", receivedAt);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldCollapseDuplicatesIntoNewestSourceInOneBatch() {
+        LocalDateTime day = LocalDateTime.of(2026, 3, 5, 9, 0);
+        events.add(event("old", "Year 3 Assembly", day, null, "Parents welcome", LocalDateTime.of(2026, 2, 1, 8, 0)));
+        events.add(event("new", "Gwasanaeth Blwyddyn 3 assembly", day, null, null,
+                LocalDateTime.of(2026, 3, 1, 8, 0)));
+        events.add(event("other", "Year 4 Assembly", day, null, null, LocalDateTime.of(2026, 3, 1, 8, 0)));
+        events.add(event("trip1", "Residential trip", day, day.plusDays(2), null, LocalDateTime.of(2026, 1, 1, 8, 0)));
+        events.add(event("trip2", "Residential trip Llangrannog", day.plusDays(1), day.plusDays(3), null,
+                LocalDateTime.of(2026, 2, 1, 8, 0)));
+
+        DuplicateCompactor.Report report = new DuplicateCompactor(eventRepository, 2).compact(false);
+
+        assertEquals(5, report.events());
+        assertEquals(2, report.clusters().size());
+
+        ArgumentCaptor<List> upserts = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List> deletes = ArgumentCaptor.forClass(List.class);
+        verify(eventRepository, times(1)).applyChanges(upserts.capture(), deletes.capture());
+        assertEquals(List.of("old", "trip1"), deletes.getValue().stream().sorted().toList());
+
+        List<Event> updated = upserts.getValue();
+        assertEquals(1, updated.size());
+        assertEquals("new", updated.get(0).id());
+        // Notes the newest copy lacked are kept from the older duplicate
+        assertEquals("Parents welcome", updated.get(0).notes());
+    }
+
+    @Test
+    void shouldNotMergeAChainOfEventsThatOnlyMatchThroughAMiddleOne() {
+        LocalDateTime day = LocalDateTime.of(2026, 3, 5, 9, 0);
+        // Both year groups match the bare title, but not each other
+        events.add(event("y3", "Library Year 3", day, null, null, LocalDateTime.of(2026, 2, 1, 8, 0)));
+        events.add(event("bare", "Library", day, null, null, LocalDateTime.of(2026, 3, 1, 8, 0)));
+        events.add(event("y4", "Library Year 4", day, null, null, LocalDateTime.of(2026, 1, 1, 8, 0)));
+
+        DuplicateCompactor.Report report = new DuplicateCompactor(eventRepository, 2).compact(true);
+
+        assertEquals(1, report.clusters().size());
+        assertEquals("bare", report.clusters().get(0).master().id());
+        assertEquals(List.of("y3"), report.deletes());
+    }
+
+    @Test
+    void shouldOnlyReportOnDryRun() {
+        LocalDateTime day = LocalDateTime.of(2026, 3, 5, 9, 0);
+        events.add(event("a", "Sports Day", day, null, null, LocalDateTime.of(2026, 2, 1, 8, 0)));
+        events.add(event("b", "Sports day", day, null, null, LocalDateTime.of(2026, 3, 1, 8, 0)));
+
+        DuplicateCompactor.Report report = new DuplicateCompactor(eventRepository, 2).compact(true);
+
+        assertEquals(List.of("a"), report.deletes());
+        assertFalse(report.applied());
+        verify(eventRepository, never()).applyChanges(anyList(), anyList());
+    }
+}
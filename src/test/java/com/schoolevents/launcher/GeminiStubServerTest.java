@@ -0,0 +1,303 @@
+package com.schoolevents.launcher;
+
+import com.schoolevents.adapter.out.ai.GeminiAiAdapter;
+import com.schoolevents.adapter.out.ai.GeminiHttpTransport;
+import com.schoolevents.adapter.out.ai.PromptPreprocessor;
+import com.schoolevents.application.usecase.FairShareQuota;
+import com.schoolevents.domain.exception.QuotaExhaustedException;
+import com.schoolevents.domain.model.CachedAttachment;
+import com.schoolevents.domain.model.EmailMessage;
+import com.schoolevents.domain.model.Event;
+import com.schoolevents.domain.port.out.AttachmentCachePort;
+import com.schoolevents.domain.port.out.QuotaLedgerPort;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeminiStubServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final EmailMessage EMAIL = new EmailMessage("<1@school.example>", "Newsletter",
+            LocalDateTime.of(2026, 3, 1, 8, 0), "Sports day is on the 12th.", "", List.of(), "office", "en");
+
+    private static List<Map<String, Object>> sportsDay(String emailId) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("emailId", emailId);
+        event.put("title", "Sports day");
+        event.put("startDate", "2026-03-12T09:30:00");
+        event.put("status", "SCHEDULED");
+        return List.of(event);
+    }
+
+    private static GeminiAiAdapter adapter(GeminiStubServer stub) {
+        GeminiAiAdapter adapter = new GeminiAiAdapter("test-key", true, new PromptPreprocessor(), stub.baseUrl(),
+                "stub-model");
+        adapter.setPacing(0);
+        return adapter;
+    }
+
+    @Test
+    void shouldAnswerWithEventsForTheEmailsInThePrompt() throws Exception {
+        GeminiStubServer stub = new GeminiStubServer(0, GeminiStubServerTest::sportsDay, 0, 0);
+        stub.start();
+        try {
+            List<Event> events = adapter(stub).extractEvents(List.of(EMAIL));
+
+            assertEquals(1, events.size());
+            assertEquals("Sports day", events.get(0).title());
+            assertEquals(LocalDateTime.of(2026, 3, 12, 9, 30), events.get(0).startDate());
+            assertEquals(EMAIL.id(), events.get(0).sourceEmailId());
+            assertEquals(1, stub.requests());
+        } finally {
+            stub.stop();
+        }
+    }
+
+    @Test
+    void shouldAnswerStructuredRequestsInCompactFormatWithFewerOutputTokens() throws Exception {
+        GeminiStubServer stub = new GeminiStubServer(0, GeminiStubServerTest::sportsDay, 0, 0);
+        stub.start();
+        try {
+            GeminiAiAdapter prose = adapter(stub);
+            GeminiAiAdapter structured = adapter(stub);
+            structured.setStructuredOutput(true);
+
+            List<Event> fromProse = prose.extractEvents(List.of(EMAIL));
+            List<Event> fromStructured = structured.extractEvents(List.of(EMAIL));
+
+            assertEquals(1, fromStructured.size());
+            assertEquals(fromProse.get(0).id(), fromStructured.get(0).id());
+            assertEquals(fromProse.get(0).startDate(), fromStructured.get(0).startDate());
+            assertEquals("structured", structured.usageStats().mode());
+            assertEquals(1, structured.usageStats().requests());
+            assertTrue(structured.usageStats().outputTokens() < prose.usageStats().outputTokens());
+        } finally {
+            stub.stop();
+        }
+    }
+
+    @Test
+    void shouldInjectRateLimitErrors() throws Exception {
+        GeminiStubServer stub = new GeminiStubServer(0, GeminiStubServerTest::sportsDay, 0, 1.0);
+        stub.start();
+        try {
+            assertThrows(QuotaExhaustedException.class, () -> adapter(stub).extractEvents(List.of(EMAIL)));
+            assertEquals(1, stub.rateLimited());
+        } finally {
+            stub.stop();
+        }
+    }
+
+    /** Grants a fixed number of requests, asking to wait briefly before the first, and records billed tokens. */
+    private static final class CountingLedger implements QuotaLedgerPort {
+        int allowance;
+        int waits = 1;
+        long reservedTokens;
+        long billedTokens;
+        int settled;
+
+        CountingLedger(int allowance) {
+            this.allowance = allowance;
+        }
+
+        @Override
+        public Admission tryAcquire(long estimatedTokens) {
+            if (waits > 0) {
+                waits--;
+                return Admission.retryAfter(Duration.ofMillis(1));
+            }
+            if (allowance-- <= 0) {
+                return Admission.exhausted();
+            }
+            reservedTokens += estimatedTokens;
+            return Admission.granted(1);
+        }
+
+        @Override
+        public void recordTokens(long reservationId, long tokens) {
+            billedTokens += tokens;
+            settled++;
+        }
+
+        @Override
+        public int remainingRequestsToday() {
+            return Math.max(0, allowance);
+        }
+    }
+
+    @Test
+    void shouldWaitForTheQuotaLedgerAndStopWhenTheDayIsUsedUp() throws Exception {
+        GeminiStubServer stub = new GeminiStubServer(0, GeminiStubServerTest::sportsDay, 0, 0);
+        stub.start();
+        try {
+            CountingLedger ledger = new CountingLedger(1);
+            GeminiAiAdapter adapter = adapter(stub);
+            adapter.useQuotaLedger(ledger);
+
+            assertEquals(1, adapter.extractEvents(List.of(EMAIL)).size());
+            assertEquals(adapter.usageStats().promptTokens() + adapter.usageStats().outputTokens(),
+                    ledger.billedTokens);
+            assertThrows(QuotaExhaustedException.class, () -> adapter.extractEvents(List.of(EMAIL)));
+            assertEquals(1, stub.requests());
+        } finally {
+            stub.stop();
+        }
+    }
+
+    /** Remembers which email each attachment was extracted from. */
+    private static final class ExtractedAttachments implements AttachmentCachePort {
+        final Map<String, String> emailIdByHash = new LinkedHashMap<>();
+
+        @Override
+        public Optional<CachedAttachment> find(String contentHash) {
+            return Optional.ofNullable(emailIdByHash.get(contentHash))
+                    .map(emailId -> new CachedAttachment(contentHash, null, null, emailId, LocalDateTime.now()));
+        }
+
+        @Override
+        public void saveUpload(String contentHash, String fileUri, LocalDateTime expiresAt) {
+        }
+
+        @Override
+        public void markExtracted(String contentHash, String emailId) {
+            emailIdByHash.put(contentHash, emailId);
+        }
+    }
+
+    @Test
+    void shouldAdmitHedgesAgainstTheTenantsShareOfASharedTransport() throws Exception {
+        GeminiStubServer stub = new GeminiStubServer(0, GeminiStubServerTest::sportsDay, 0, 0);
+        // The first request stalls long enough to be hedged
+        stub.setFailures(0, 0.5, 600);
+        stub.start();
+        try {
+            GeminiHttpTransport shared = new GeminiHttpTransport();
+            shared.setHedging(100, () -> true);
+            GeminiAiAdapter adapter = new GeminiAiAdapter("test-key", true, new PromptPreprocessor(),
+                    stub.baseUrl(), "stub-model", shared);
+            adapter.setPacing(0);
+            // The shared ledger has room, but this tenant's share covers only the request itself
+            adapter.useQuotaLedger(new FairShareQuota(new CountingLedger(10), 1));
+
+            assertEquals(1, adapter.extractEvents(List.of(EMAIL)).size());
+            assertEquals(0, shared.latencyStats().hedges());
+            assertEquals(1, stub.requests());
+        } finally {
+            stub.stop();
+        }
+    }
+
+    @Test
+    void shouldReserveAndSettleAHedgeLikeTheRequestItDuplicates() throws Exception {
+        GeminiStubServer stub = new GeminiStubServer(0, GeminiStubServerTest::sportsDay, 0, 0);
+        stub.setFailures(0, 0.5, 600);
+        stub.start();
+        try {
+            GeminiHttpTransport transport = new GeminiHttpTransport();
+            transport.setHedging(100, () -> true);
+            GeminiAiAdapter adapter = new GeminiAiAdapter("test-key", true, new PromptPreprocessor(),
+                    stub.baseUrl(), "stub-model", transport);
+            adapter.setPacing(0);
+            CountingLedger ledger = new CountingLedger(10);
+            adapter.useQuotaLedger(ledger);
+
+            assertEquals(1, adapter.extractEvents(List.of(EMAIL)).size());
+            assertEquals(1, transport.latencyStats().hedges());
+            assertEquals(2, ledger.settled);
+            assertEquals(2 * (adapter.usageStats().promptTokens() + adapter.usageStats().outputTokens()),
+                    ledger.billedTokens);
+            assertTrue(ledger.reservedTokens > 0);
+        } finally {
+            stub.stop();
+        }
+    }
+
+    @Test
+    void shouldSettleTheEstimateAtZeroWhenTheRequestFails() throws Exception {
+        CountingLedger ledger = new CountingLedger(2);
+        GeminiStubServer stub = new GeminiStubServer(0, GeminiStubServerTest::sportsDay, 0, 1.0);
+        stub.start();
+        try {
+            GeminiAiAdapter adapter = adapter(stub);
+            adapter.useQuotaLedger(ledger);
+            assertThrows(QuotaExhaustedException.class, () -> adapter.extractEvents(List.of(EMAIL)));
+        } finally {
+            stub.stop();
+        }
+        // Nothing listens any more: the call fails with an I/O error
+        GeminiAiAdapter unreachable = adapter(stub);
+        unreachable.useQuotaLedger(ledger);
+        assertTrue(unreachable.extractEvents(List.of(EMAIL)).isEmpty());
+
+        assertEquals(2, ledger.settled);
+        assertEquals(0, ledger.billedTokens);
+    }
+
+    @Test
+    void shouldMarkAttachmentsExtractedOnlyOnceTheEmailIsConfirmed() throws Exception {
+        GeminiStubServer stub = new GeminiStubServer(0, GeminiStubServerTest::sportsDay, 0, 0);
+        stub.start();
+        try {
+            ExtractedAttachments cache = new ExtractedAttachments();
+            GeminiAiAdapter adapter = adapter(stub);
+            adapter.useAttachmentCache(cache, false, true);
+            EmailMessage withPdf = new EmailMessage(EMAIL.id(), "Letter", EMAIL.receivedAt(), "See attached", "",
+                    List.of(new EmailMessage.AttachmentMetadata("letter.pdf", "application/pdf",
+                            "%PDF-1.4 scanned letter".getBytes(StandardCharsets.UTF_8))),
+                    "office", "en");
+
+            adapter.extractEvents(List.of(withPdf));
+            assertTrue(cache.emailIdByHash.isEmpty());
+
+            // The batch was not stored, so the retry still sends the attachment
+            adapter.extractEvents(List.of(withPdf));
+            adapter.confirmProcessed(List.of(withPdf));
+
+            assertEquals(List.of(EMAIL.id()), List.copyOf(cache.emailIdByHash.values()));
+            assertEquals(2, stub.requests());
+        } finally {
+            stub.stop();
+        }
+    }
+
+    @Test
+    void shouldReplayRecordedResponses() throws Exception {
+        GeminiStubServer upstream = new GeminiStubServer(0, GeminiStubServerTest::sportsDay, 0, 0);
+        GeminiStubServer recorder = new GeminiStubServer(0, id -> List.of(), 0, 0);
+        GeminiStubServer replayer = new GeminiStubServer(0, id -> List.of(), 0, 0);
+        Path recordings = tempDir.resolve("recordings");
+        upstream.start();
+        recorder.recordTo(recordings, upstream.baseUrl());
+        recorder.start();
+        replayer.replayFrom(recordings);
+        replayer.start();
+        try {
+            List<Event> recorded = adapter(recorder).extractEvents(List.of(EMAIL));
+            try (var files = Files.list(recordings)) {
+                assertEquals(1, files.count());
+            }
+
+            List<Event> replayed = adapter(replayer).extractEvents(List.of(EMAIL));
+
+            assertEquals(recorded, replayed);
+            assertEquals(1, replayer.replayed());
+        } finally {
+            upstream.stop();
+            recorder.stop();
+            replayer.stop();
+        }
+    }
+}